@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivesource.benchmarks.Payloads;
+import org.reactivesource.benchmarks.Purchase;
+import org.reactivesource.benchmarks.PurchaseExtractor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushing the events of a poll to a channel, which notifies all its listeners in the pushing thread. The listeners
+ * share an extractor, so the entities are extracted once per event, and only read the new entity. The results are per
+ * event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventChannelBenchmark {
+
+    private static final int EVENTS_PER_POLL = 100;
+
+    @Param({"1", "10", "100"})
+    private int numberOfListeners;
+
+    @Param({"false", "true"})
+    private boolean reuseEvents;
+
+    private EventChannel<Purchase> channel;
+    private List<Event<Map<String, Object>>> events;
+
+    @Setup
+    public void setUp(final Blackhole blackhole) {
+        channel = new EventChannel<>(reuseEvents);
+        PurchaseExtractor extractor = new PurchaseExtractor();
+        for (int i = 0; i < numberOfListeners; i++) {
+            channel.addEventListener(new EventListener<Purchase>(extractor) {
+                @Override public void onEvent(Event<Purchase> event) {
+                    blackhole.consume(event.getNewEntity());
+                }
+            });
+        }
+        channel.open();
+        events = new ArrayList<>(EVENTS_PER_POLL);
+        for (int i = 0; i < EVENTS_PER_POLL; i++) {
+            events.add(Payloads.updateEvent());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_POLL)
+    public void pushEvents() {
+        channel.pushEvents(events);
+    }
+}
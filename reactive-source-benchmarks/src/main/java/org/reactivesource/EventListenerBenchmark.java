@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivesource.benchmarks.Payloads;
+import org.reactivesource.benchmarks.Purchase;
+import org.reactivesource.benchmarks.PurchaseExtractor;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifying a listener that reads both entities of an event: with a hand written extractor of decoded rows, and with
+ * a {@link BeanEntityBinder} binding the raw JSON of a {@link LazyJsonEvent}, as read by the MySQL event source.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventListenerBenchmark {
+
+    private EventListener<Purchase> extractingListener;
+    private EventListener<Purchase> bindingListener;
+    private Event<Map<String, Object>> decodedEvent;
+    private RowDecoder rowDecoder;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        extractingListener = new ConsumingListener(new PurchaseExtractor(), blackhole);
+        bindingListener = new ConsumingListener(new BeanEntityBinder<>(Purchase.class), blackhole);
+        decodedEvent = Payloads.updateEvent();
+        rowDecoder = new RowDecoder();
+    }
+
+    @Benchmark
+    public void notifyEventWithExtractor() {
+        extractingListener.notifyEvent(decodedEvent);
+    }
+
+    @Benchmark
+    public void notifyJsonEventWithExtractor() {
+        extractingListener.notifyEvent(jsonEvent());
+    }
+
+    @Benchmark
+    public void notifyJsonEventWithBinder() {
+        bindingListener.notifyEvent(jsonEvent());
+    }
+
+    private LazyJsonEvent jsonEvent() {
+        return new LazyJsonEvent(EventType.UPDATE, Payloads.TABLE_NAME, Payloads.NEW_ROW_JSON, Payloads.OLD_ROW_JSON,
+                rowDecoder);
+    }
+
+    private static class ConsumingListener extends EventListener<Purchase> {
+        private final Blackhole blackhole;
+
+        ConsumingListener(EntityExtractor<Purchase> extractor, Blackhole blackhole) {
+            super(extractor);
+            this.blackhole = blackhole;
+        }
+
+        @Override public void onEvent(Event<Purchase> event) {
+            blackhole.consume(event.getNewEntity());
+            blackhole.consume(event.getOldEntity());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.benchmarks;
+
+import com.google.common.collect.Maps;
+import org.reactivesource.Event;
+import org.reactivesource.EventType;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * The rows and payloads the benchmarks work on. They model the row of a typical table, with ten columns of mixed
+ * types.
+ */
+public final class Payloads {
+
+    public static final String TABLE_NAME = "purchase";
+
+    public static final String NEW_ROW_JSON = "{\"id\":1234567,\"customer_id\":987654321,\"status\":\"SHIPPED\","
+            + "\"amount\":149.99,\"currency\":\"EUR\",\"shipped\":true,\"quantity\":3,"
+            + "\"created\":\"2014-05-13 10:15:30\",\"updated\":\"2014-05-14 08:01:02\","
+            + "\"comment\":\"leave the parcel at the door\"}";
+
+    public static final String OLD_ROW_JSON = "{\"id\":1234567,\"customer_id\":987654321,\"status\":\"PAID\","
+            + "\"amount\":149.99,\"currency\":\"EUR\",\"shipped\":false,\"quantity\":3,"
+            + "\"created\":\"2014-05-13 10:15:30\",\"updated\":\"2014-05-13 10:15:30\","
+            + "\"comment\":\"leave the parcel at the door\"}";
+
+    /**
+     * The payload of an UPDATE notification, as sent by the trigger of the PostgreSQL event source.
+     */
+    public static final String PSQL_UPDATE_PAYLOAD = "{\"eventType\":\"UPDATE\",\"tableName\":\"" + TABLE_NAME + "\","
+            + "\"changeTime\":1400000000123456,\"newEntity\":" + NEW_ROW_JSON + ",\"oldEntity\":" + OLD_ROW_JSON + "}";
+
+    private Payloads() {
+    }
+
+    /**
+     * @return an UPDATE event with decoded entities, as pushed to the channel by the event sources
+     */
+    public static Event<Map<String, Object>> updateEvent() {
+        return new Event<>(EventType.UPDATE, TABLE_NAME, newRow(), oldRow());
+    }
+
+    public static Map<String, Object> newRow() {
+        Map<String, Object> row = Maps.newHashMap();
+        row.put("id", 1234567);
+        row.put("customer_id", 987654321);
+        row.put("status", "SHIPPED");
+        row.put("amount", new BigDecimal("149.99"));
+        row.put("currency", "EUR");
+        row.put("shipped", true);
+        row.put("quantity", 3);
+        row.put("created", "2014-05-13 10:15:30");
+        row.put("updated", "2014-05-14 08:01:02");
+        row.put("comment", "leave the parcel at the door");
+        return row;
+    }
+
+    public static Map<String, Object> oldRow() {
+        Map<String, Object> row = newRow();
+        row.put("status", "PAID");
+        row.put("shipped", false);
+        row.put("updated", "2014-05-13 10:15:30");
+        return row;
+    }
+}
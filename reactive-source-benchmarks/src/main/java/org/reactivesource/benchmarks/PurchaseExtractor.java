@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.benchmarks;
+
+import org.reactivesource.EntityExtractor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * A hand written extractor of {@link Purchase}s, the baseline of the bean binder.
+ */
+public class PurchaseExtractor implements EntityExtractor<Purchase> {
+
+    @Override
+    public Purchase extractEntity(Map<String, Object> entityRow) {
+        Purchase purchase = new Purchase();
+        purchase.setId(((Number) entityRow.get("id")).intValue());
+        purchase.setCustomerId(((Number) entityRow.get("customer_id")).longValue());
+        purchase.setStatus((String) entityRow.get("status"));
+        purchase.setAmount(new BigDecimal(entityRow.get("amount").toString()));
+        purchase.setCurrency((String) entityRow.get("currency"));
+        purchase.setShipped((Boolean) entityRow.get("shipped"));
+        purchase.setQuantity(((Number) entityRow.get("quantity")).intValue());
+        purchase.setCreated((String) entityRow.get("created"));
+        purchase.setUpdated((String) entityRow.get("updated"));
+        purchase.setComment((String) entityRow.get("comment"));
+        return purchase;
+    }
+}
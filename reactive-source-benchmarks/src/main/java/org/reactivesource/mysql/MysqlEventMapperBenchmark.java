@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.mysql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.reactivesource.Event;
+import org.reactivesource.EventType;
+import org.reactivesource.benchmarks.Payloads;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping an event read from the MySQL event table to the generic event pushed to the channel. The entities are
+ * decoded lazily, so the mapping alone is measured apart from the mapping followed by the decoding of the entities.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MysqlEventMapperBenchmark {
+
+    private final MysqlEventMapper mapper = new MysqlEventMapper();
+    private final MysqlEvent mysqlEvent = new MysqlEvent(1L, Payloads.TABLE_NAME, EventType.UPDATE,
+            Payloads.OLD_ROW_JSON, Payloads.NEW_ROW_JSON, new Date());
+
+    @Benchmark
+    public Event<Map<String, Object>> mapToGenericEvent() {
+        return mapper.mapToGenericEvent(mysqlEvent);
+    }
+
+    @Benchmark
+    public void mapToGenericEventAndDecodeEntities(Blackhole blackhole) {
+        Event<Map<String, Object>> event = mapper.mapToGenericEvent(mysqlEvent);
+        blackhole.consume(event.getNewEntity());
+        blackhole.consume(event.getOldEntity());
+    }
+}
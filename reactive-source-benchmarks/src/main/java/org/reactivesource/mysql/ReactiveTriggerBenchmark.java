@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.mysql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactivesource.benchmarks.Payloads;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.reactivesource.mysql.ReactiveTrigger.TriggerEvent;
+import static org.reactivesource.mysql.ReactiveTrigger.TriggerTime;
+
+/**
+ * Generating the SQL that creates the trigger of an UPDATE on a table with ten columns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReactiveTriggerBenchmark {
+
+    private final ReactiveTrigger trigger = new ReactiveTrigger("purchase_update_trigger", Payloads.TABLE_NAME,
+            TriggerEvent.UPDATE, TriggerTime.AFTER, Arrays.asList("id", "customer_id", "status", "amount", "currency",
+            "shipped", "quantity", "created", "updated", "comment"));
+
+    @Benchmark
+    public String getCreateSql() {
+        return trigger.getCreateSql();
+    }
+}
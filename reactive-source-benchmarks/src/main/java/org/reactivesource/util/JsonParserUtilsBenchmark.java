@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactivesource.RowDecoder;
+import org.reactivesource.benchmarks.Payloads;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding the JSON of one row, to a map and to a schema indexed row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonParserUtilsBenchmark {
+
+    private final RowDecoder rowDecoder = new RowDecoder();
+
+    @Benchmark
+    public Map<String, Object> jsonStringToMap() {
+        return JsonParserUtils.jsonStringToMap(Payloads.NEW_ROW_JSON);
+    }
+
+    @Benchmark
+    public Map<String, Object> readObject() throws IOException {
+        try (JsonParser parser = JsonParserUtils.createParser(Payloads.NEW_ROW_JSON)) {
+            parser.nextToken();
+            return JsonParserUtils.readObject(parser);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> decodeRow() {
+        return rowDecoder.decode(Payloads.NEW_ROW_JSON);
+    }
+}
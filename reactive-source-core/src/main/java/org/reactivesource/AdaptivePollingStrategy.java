@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static org.reactivesource.util.Assert.isTrue;
+
+/**
+ * {@link org.reactivesource.PollingStrategy} that adapts the polling rate to the activity of the event source.
+ * <ul>
+ * <li>When the last poll returned events the event source is polled again immediately, so that a backlog is drained
+ * without waiting.</li>
+ * <li>When the last poll returned no events the delay grows exponentially, starting from <code>minDelayMillis</code>
+ * and up to <code>maxDelayMillis</code>.</li>
+ * <li>When the last poll took longer than <code>slowPollThresholdMillis</code> the database is considered overloaded
+ * and the delay grows exponentially as well, even if events were returned.</li>
+ * </ul>
+ */
+@NotThreadSafe
+public class AdaptivePollingStrategy implements PollingStrategy {
+
+    static final long DEFAULT_MIN_DELAY = 10L;
+    static final long DEFAULT_MAX_DELAY = 5000L;
+    static final long DEFAULT_SLOW_POLL_THRESHOLD = 1000L;
+
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final long slowPollThresholdMillis;
+
+    private long currentDelay;
+
+    public AdaptivePollingStrategy() {
+        this(DEFAULT_MIN_DELAY, DEFAULT_MAX_DELAY, DEFAULT_SLOW_POLL_THRESHOLD);
+    }
+
+    public AdaptivePollingStrategy(long minDelayMillis, long maxDelayMillis, long slowPollThresholdMillis) {
+        isTrue(minDelayMillis > 0, "minDelayMillis should be a positive number");
+        isTrue(maxDelayMillis >= minDelayMillis, "maxDelayMillis can not be smaller than minDelayMillis");
+        isTrue(slowPollThresholdMillis > 0, "slowPollThresholdMillis should be a positive number");
+        this.minDelayMillis = minDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.slowPollThresholdMillis = slowPollThresholdMillis;
+        this.currentDelay = 0L;
+    }
+
+    @Override
+    public long nextPollDelay(int eventsFetched, long pollDurationMillis) {
+        if (pollDurationMillis >= slowPollThresholdMillis || eventsFetched == 0) {
+            currentDelay = backOff(currentDelay);
+        } else {
+            currentDelay = 0L;
+        }
+        return currentDelay;
+    }
+
+    private long backOff(long delay) {
+        if (delay == 0L) {
+            return minDelayMillis;
+        }
+        return Math.min(delay * 2, maxDelayMillis);
+    }
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.util.concurrent.Uninterruptibles.putUninterruptibly;
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * Notifies the listener asynchronously on the given {@link java.util.concurrent.Executor}.
+ * <p/>
+ * Every listener has its own bounded queue. Dispatching an event only enqueues it, so a slow listener doesn't delay
+ * the thread that pushes the events or the other listeners. The queue is drained by at most one task at a time, so the
+ * listener receives the events one by one and in order, even if the executor has many threads.
+ * <p/>
+ * When the queue is full, dispatching blocks until the listener catches up.
+ */
+class AsyncListenerDispatcher<T> implements ListenerDispatcher<T> {
+
+    static final int MAX_EVENTS_PER_DRAIN = 256;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final EventListener<T> listener;
+    private final Executor executor;
+    private final BlockingQueue<Event<Map<String, Object>>> queue;
+    private final AtomicBoolean drainScheduled;
+    private final AtomicBoolean flushRequested;
+    private final Runnable drainTask;
+
+    AsyncListenerDispatcher(EventListener<T> listener, Executor executor, int queueCapacity) {
+        notNull(listener, "listener can not be null");
+        notNull(executor, "executor can not be null");
+        isTrue(queueCapacity > 0, "queueCapacity should be a positive number");
+        this.listener = listener;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.drainScheduled = new AtomicBoolean(false);
+        this.flushRequested = new AtomicBoolean(false);
+        this.drainTask = new Runnable() {
+            @Override public void run() {
+                drain();
+            }
+        };
+    }
+
+    @Override
+    public void dispatch(Event<Map<String, Object>> event) {
+        putUninterruptibly(queue, event);
+        scheduleDrain();
+    }
+
+    /**
+     * Enqueues the events one by one. A {@link org.reactivesource.BatchEventListener} receives the events that are
+     * pending when the listener's task runs as one batch, so batches may span polls. Empty lists still trigger a
+     * delivery to a {@link org.reactivesource.BatchEventListener}, so that it can check its maximum delay.
+     */
+    @Override
+    public void dispatch(List<Event<Map<String, Object>>> events) {
+        for (Event<Map<String, Object>> event : events) {
+            putUninterruptibly(queue, event);
+        }
+        if (!events.isEmpty() || isBatchListener()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Requests the listener to deliver the events it is holding back, once it has processed the pending events. Does
+     * not wait for the delivery.
+     */
+    @Override
+    public void flush() {
+        if (isBatchListener()) {
+            flushRequested.set(true);
+            scheduleDrain();
+        }
+    }
+
+    @Override
+    public EventListener<T> getListener() {
+        return listener;
+    }
+
+    int queueSize() {
+        return queue.size();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException ree) {
+                drainScheduled.set(false);
+                logger.error("Executor rejected the delivery of events to the listener. {} events are pending.",
+                        queue.size(), ree);
+            }
+        }
+    }
+
+    /**
+     * Delivers a limited number of events so that listeners sharing the executor get a fair share of its threads.
+     * Schedules itself again if more events are pending.
+     */
+    private void drain() {
+        try {
+            if (isBatchListener()) {
+                notifyBatchListener();
+            } else {
+                int delivered = 0;
+                Event<Map<String, Object>> event;
+                while (delivered++ < MAX_EVENTS_PER_DRAIN && (event = queue.poll()) != null) {
+                    notifyListener(event);
+                }
+            }
+        } finally {
+            drainScheduled.set(false);
+        }
+        if (!queue.isEmpty() || flushRequested.get()) {
+            scheduleDrain();
+        }
+    }
+
+    private void notifyBatchListener() {
+        List<Event<Map<String, Object>>> events = new ArrayList<>();
+        queue.drainTo(events, MAX_EVENTS_PER_DRAIN);
+        BatchEventListener<T> batchListener = (BatchEventListener<T>) listener;
+        try {
+            batchListener.notifyEvents(events);
+        } catch (RuntimeException re) {
+            logger.error("EventListener failed to process {} events", events.size(), re);
+        }
+        if (queue.isEmpty() && flushRequested.compareAndSet(true, false)) {
+            try {
+                batchListener.flush();
+            } catch (RuntimeException re) {
+                logger.error("EventListener failed to process the pending events", re);
+            }
+        }
+    }
+
+    private boolean isBatchListener() {
+        return listener instanceof BatchEventListener;
+    }
+
+    private void notifyListener(Event<Map<String, Object>> event) {
+        try {
+            listener.notifyEvent(event);
+        } catch (RuntimeException re) {
+            logger.error("EventListener failed to process event {}", event, re);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.reactivesource.metrics.ListenerMetrics;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * An {@link org.reactivesource.EventListener} that receives the events in ordered batches, instead of one by one.
+ * Useful when the events are written to a system with an efficient bulk API.
+ * <p/>
+ * By default every batch contains the events of one poll of the {@link org.reactivesource.EventSource}. Polls without
+ * new events don't result in empty batches.
+ * <p/>
+ * With micro-batching the events of many polls are collected until <code>maxBatchSize</code> events are pending or
+ * the oldest pending event waited for <code>maxDelay</code>, whichever comes first. The delay is checked every time
+ * the source is polled, so the actual delay can exceed <code>maxDelay</code> by up to the interval between two polls.
+ * Pending events are delivered when the {@link org.reactivesource.ReactiveSource} is stopped.
+ * <p/>
+ * <u>Example</u>
+ * <pre>
+ *   {@code class PurchaseIndexer extends BatchEventListener<Purchase> {
+ *       PurchaseIndexer() {
+ *           //up to 500 events or 20ms
+ *           super(new PurchaseEntityExtractor(), 500, 20, TimeUnit.MILLISECONDS);
+ *       }
+ *
+ *       public void onEvents(List<Event<Purchase>> events) {
+ *           searchIndex.bulkUpdate(events);
+ *       }
+ *   }}
+ * </pre>
+ *
+ * @param <T> the class of the entities monitored from the {@link org.reactivesource.ReactiveSource}
+ */
+@NotThreadSafe
+public abstract class BatchEventListener<T> extends EventListener<T> {
+
+    private final boolean microBatching;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final List<Event<T>> pending;
+    private long oldestPendingTime;
+
+    /**
+     * Creates a listener that receives the events of every poll as one batch.
+     *
+     * @param entityExtractor the extractor converting the entities of the events
+     */
+    public BatchEventListener(EntityExtractor<T> entityExtractor) {
+        this(entityExtractor, EventFilter.ALL);
+    }
+
+    /**
+     * Creates a listener that receives the events of every poll that are accepted by the given filter as one batch.
+     *
+     * @param entityExtractor the extractor converting the entities of the events
+     * @param eventFilter     the filter of the events
+     */
+    public BatchEventListener(EntityExtractor<T> entityExtractor, EventFilter eventFilter) {
+        super(entityExtractor, eventFilter);
+        this.microBatching = false;
+        this.maxBatchSize = Integer.MAX_VALUE;
+        this.maxDelayNanos = 0L;
+        this.pending = new ArrayList<>();
+    }
+
+    /**
+     * Creates a listener that receives batches of at most <code>maxBatchSize</code> events, collected over many polls
+     * for at most <code>maxDelay</code>.
+     *
+     * @param entityExtractor the extractor converting the entities of the events
+     * @param maxBatchSize    the maximum number of events in a batch
+     * @param maxDelay        the maximum time an event is held back, waiting for the batch to fill up
+     * @param unit            the unit of <code>maxDelay</code>
+     */
+    public BatchEventListener(EntityExtractor<T> entityExtractor, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        this(entityExtractor, EventFilter.ALL, maxBatchSize, maxDelay, unit);
+    }
+
+    /**
+     * Creates a micro-batching listener that only receives the events accepted by the given filter.
+     *
+     * @param entityExtractor the extractor converting the entities of the events
+     * @param eventFilter     the filter of the events
+     * @param maxBatchSize    the maximum number of events in a batch
+     * @param maxDelay        the maximum time an event is held back, waiting for the batch to fill up
+     * @param unit            the unit of <code>maxDelay</code>
+     */
+    public BatchEventListener(EntityExtractor<T> entityExtractor, EventFilter eventFilter, int maxBatchSize,
+                              long maxDelay, TimeUnit unit) {
+        super(entityExtractor, eventFilter);
+        isTrue(maxBatchSize > 0, "maxBatchSize should be a positive number");
+        isTrue(maxDelay >= 0, "maxDelay can not be negative");
+        notNull(unit, "unit can not be null");
+        this.microBatching = true;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.pending = new ArrayList<>();
+    }
+
+    /**
+     * This method is called with every new batch of events for the listener. The batch is never empty and contains
+     * the events in the order they occurred.
+     * <p/>
+     * Implement with the logic you want per batch.
+     *
+     * @param events the {@link org.reactivesource.Event}s that occurred.
+     */
+    public abstract void onEvents(List<Event<T>> events);
+
+    /**
+     * Delivers the event as a batch of one event.
+     */
+    @Override
+    public final void onEvent(Event<T> event) {
+        onEvents(Collections.singletonList(event));
+    }
+
+    @Override
+    void notifyEvent(Event<Map<String, Object>> event) {
+        notifyEvents(Collections.singletonList(event));
+    }
+
+    /**
+     * Internal method that handles the transformation of a batch of events and its forwarding. Called with the events
+     * of every poll, even if there were no new events. Events rejected by the filter of the listener are dropped
+     * before their entities are extracted.
+     *
+     * @param events
+     */
+    void notifyEvents(List<Event<Map<String, Object>>> events) {
+        List<Event<T>> extractedEvents = new ArrayList<>(events.size());
+        for (Event<Map<String, Object>> event : events) {
+            if (accepts(event)) {
+                extractedEvents.add(extractEvent(event));
+            }
+        }
+        notifyExtractedEvents(extractedEvents);
+    }
+
+    /**
+     * Internal method that forwards a batch of events whose entities were already extracted. The listener does not
+     * modify the given list.
+     *
+     * @param events
+     */
+    void notifyExtractedEvents(List<Event<T>> events) {
+        long now = System.nanoTime();
+        if (pending.isEmpty()) {
+            oldestPendingTime = now;
+        }
+        pending.addAll(events);
+
+        if (!microBatching) {
+            flush();
+            return;
+        }
+        while (pending.size() >= maxBatchSize) {
+            List<Event<T>> batch = pending.subList(0, maxBatchSize);
+            deliverBatch(new ArrayList<>(batch));
+            batch.clear();
+            oldestPendingTime = now;
+        }
+        if (!pending.isEmpty() && now - oldestPendingTime >= maxDelayNanos) {
+            flush();
+        }
+    }
+
+    @Override
+    void flush() {
+        if (!pending.isEmpty()) {
+            List<Event<T>> batch = new ArrayList<>(pending);
+            pending.clear();
+            deliverBatch(batch);
+        }
+    }
+
+    private void deliverBatch(List<Event<T>> batch) {
+        ListenerMetrics listenerMetrics = getMetrics();
+        if (listenerMetrics == null) {
+            onEvents(batch);
+            return;
+        }
+        for (Event<T> event : batch) {
+            listenerMetrics.recordDelivery(event);
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            onEvents(batch);
+            failed = false;
+        } finally {
+            listenerMetrics.recordCallback(batch.size(), System.nanoTime() - start, failed);
+        }
+        for (Event<T> event : batch) {
+            listenerMetrics.recordProcessed(event);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Optional;
+import com.google.common.primitives.Ints;
+import org.reactivesource.exceptions.ReactiveException;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+import static org.reactivesource.util.JsonParserUtils.readValue;
+
+/**
+ * An {@link org.reactivesource.EntityBinder} for JavaBeans. The columns of the entity are bound to the public setters
+ * and public fields of the bean, ignoring the case and the underscores of the names, so that the column
+ * <code>CUSTOMER_ID</code> is bound to <code>setCustomerId</code>. Columns without a matching property are ignored.
+ * <p/>
+ * The bean has to be a public class with a public constructor without arguments. The supported property types are
+ * <code>int</code>, <code>long</code>, <code>double</code>, <code>boolean</code>, their wrappers, {@link String},
+ * {@link java.math.BigDecimal} and {@link Object}. Properties of other types are ignored. Numbers and booleans are
+ * also converted from strings, since some event sources send every value as a string.
+ * <p/>
+ * The properties are resolved once, when the binder is created, to {@link java.lang.invoke.MethodHandle}s. Binding an
+ * entity doesn't use reflection, and primitive values are passed to the setters without being boxed.
+ * <p/>
+ * The binder is thread safe.
+ *
+ * @param <T> the class of the bean
+ */
+public final class BeanEntityBinder<T> implements EntityBinder<T> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final Map<String, Property> properties;
+    private final ConcurrentMap<String, Optional<Property>> propertiesByColumn = new ConcurrentHashMap<>();
+
+    /**
+     * @param type the class of the bean
+     * @throws IllegalArgumentException if the class is not public or has no public constructor without arguments
+     */
+    public BeanEntityBinder(Class<T> type) {
+        notNull(type, "type can not be null");
+        isTrue(Modifier.isPublic(type.getModifiers()), "type has to be a public class: " + type.getName());
+        this.type = type;
+        this.constructor = findConstructor(type);
+        this.properties = findProperties(type);
+    }
+
+    @Override
+    public T bindEntity(JsonParser parser) throws IOException {
+        Object entity = newInstance();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String column = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+            Property property = getProperty(column);
+            if (property == null) {
+                parser.skipChildren();
+            } else if (valueToken == JsonToken.VALUE_NULL) {
+                bindNull(entity, property, column);
+            } else {
+                try {
+                    property.bind(entity, parser, valueToken);
+                } catch (IOException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw bindingFailure(column, property, t);
+                }
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new IOException("Unexpected token " + token + " while binding an entity");
+        }
+        return type.cast(entity);
+    }
+
+    @Override
+    public T extractEntity(Map<String, Object> entityRow) {
+        notNull(entityRow, "entityRow can not be null");
+        Object entity = newInstance();
+        for (Map.Entry<String, Object> entry : entityRow.entrySet()) {
+            Property property = getProperty(entry.getKey());
+            if (property == null) {
+                continue;
+            }
+            if (entry.getValue() == null) {
+                bindNull(entity, property, entry.getKey());
+            } else {
+                try {
+                    property.bind(entity, entry.getValue());
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw bindingFailure(entry.getKey(), property, t);
+                }
+            }
+        }
+        return type.cast(entity);
+    }
+
+    private Property getProperty(String column) {
+        Optional<Property> property = propertiesByColumn.get(column);
+        if (property == null) {
+            property = Optional.fromNullable(properties.get(normalize(column)));
+            propertiesByColumn.putIfAbsent(column, property);
+        }
+        return property.orNull();
+    }
+
+    private Object newInstance() {
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new ReactiveException("Could not instantiate " + type.getName(), t);
+        }
+    }
+
+    private void bindNull(Object entity, Property property, String column) {
+        try {
+            property.bindNull(entity);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw bindingFailure(column, property, t);
+        }
+    }
+
+    private ReactiveException bindingFailure(String column, Property property, Throwable cause) {
+        return new ReactiveException("Could not bind column " + column + " to the property " + property.name
+                + " of " + type.getName(), cause);
+    }
+
+    private static MethodHandle findConstructor(Class<?> type) {
+        try {
+            return LOOKUP.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("type has to have a public constructor without arguments: "
+                    + type.getName(), e);
+        }
+    }
+
+    private static Map<String, Property> findProperties(Class<?> type) {
+        Map<String, Property> properties = new HashMap<>();
+        try {
+            for (Field field : type.getFields()) {
+                Kind kind = Kind.forType(field.getType());
+                if (kind != null && !Modifier.isStatic(field.getModifiers())
+                        && !Modifier.isFinal(field.getModifiers())) {
+                    properties.put(normalize(field.getName()),
+                            new Property(field.getName(), kind, LOOKUP.unreflectSetter(field)));
+                }
+            }
+            for (Method method : type.getMethods()) {
+                String name = method.getName();
+                if (name.length() > 3 && name.startsWith("set") && method.getParameterTypes().length == 1
+                        && !Modifier.isStatic(method.getModifiers())) {
+                    Kind kind = Kind.forType(method.getParameterTypes()[0]);
+                    if (kind != null) {
+                        properties.put(normalize(name.substring(3)), new Property(name, kind, LOOKUP.unreflect(method)));
+                    }
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Could not access the properties of " + type.getName(), e);
+        }
+        return properties;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * The supported property types. The primitive kinds are set through handles taking the primitive value.
+     */
+    private enum Kind {
+        INT(int.class), LONG(long.class), DOUBLE(double.class), BOOLEAN(boolean.class),
+        INTEGER_OBJECT(Integer.class), LONG_OBJECT(Long.class), DOUBLE_OBJECT(Double.class),
+        BOOLEAN_OBJECT(Boolean.class), STRING(String.class), BIG_DECIMAL(BigDecimal.class), OBJECT(Object.class);
+
+        private final Class<?> type;
+
+        Kind(Class<?> type) {
+            this.type = type;
+        }
+
+        boolean isPrimitive() {
+            return type.isPrimitive();
+        }
+
+        static Kind forType(Class<?> type) {
+            for (Kind kind : values()) {
+                if (kind.type == type) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class Property {
+        private final String name;
+        private final Kind kind;
+        private final MethodHandle setter;
+
+        Property(String name, Kind kind, MethodHandle setter) {
+            this.name = name;
+            this.kind = kind;
+            this.setter = setter.asType(MethodType.methodType(void.class, Object.class,
+                    kind.isPrimitive() ? kind.type : Object.class));
+        }
+
+        void bind(Object entity, JsonParser parser, JsonToken token) throws Throwable {
+            switch (kind) {
+                case INT:
+                    setter.invokeExact(entity, readInt(parser, token));
+                    break;
+                case LONG:
+                    setter.invokeExact(entity, readLong(parser, token));
+                    break;
+                case DOUBLE:
+                    setter.invokeExact(entity, readDouble(parser, token));
+                    break;
+                case BOOLEAN:
+                    setter.invokeExact(entity, readBoolean(parser, token));
+                    break;
+                case INTEGER_OBJECT:
+                    setter.invokeExact(entity, (Object) readInt(parser, token));
+                    break;
+                case LONG_OBJECT:
+                    setter.invokeExact(entity, (Object) readLong(parser, token));
+                    break;
+                case DOUBLE_OBJECT:
+                    setter.invokeExact(entity, (Object) readDouble(parser, token));
+                    break;
+                case BOOLEAN_OBJECT:
+                    setter.invokeExact(entity, (Object) readBoolean(parser, token));
+                    break;
+                case STRING:
+                    setter.invokeExact(entity, (Object) readString(parser, token));
+                    break;
+                case BIG_DECIMAL:
+                    setter.invokeExact(entity, (Object) readBigDecimal(parser, token));
+                    break;
+                default:
+                    setter.invokeExact(entity, readValue(parser));
+            }
+        }
+
+        void bind(Object entity, Object value) throws Throwable {
+            switch (kind) {
+                case INT:
+                    setter.invokeExact(entity, toInt(value));
+                    break;
+                case LONG:
+                    setter.invokeExact(entity, toLong(value));
+                    break;
+                case DOUBLE:
+                    setter.invokeExact(entity, toDouble(value));
+                    break;
+                case BOOLEAN:
+                    setter.invokeExact(entity, toBoolean(value));
+                    break;
+                case INTEGER_OBJECT:
+                    setter.invokeExact(entity, (Object) toInt(value));
+                    break;
+                case LONG_OBJECT:
+                    setter.invokeExact(entity, (Object) toLong(value));
+                    break;
+                case DOUBLE_OBJECT:
+                    setter.invokeExact(entity, (Object) toDouble(value));
+                    break;
+                case BOOLEAN_OBJECT:
+                    setter.invokeExact(entity, (Object) toBoolean(value));
+                    break;
+                case STRING:
+                    setter.invokeExact(entity, (Object) toText(value));
+                    break;
+                case BIG_DECIMAL:
+                    setter.invokeExact(entity, (Object) new BigDecimal(toText(value).trim()));
+                    break;
+                default:
+                    setter.invokeExact(entity, value);
+            }
+        }
+
+        /**
+         * Primitive properties keep their default value.
+         */
+        void bindNull(Object entity) throws Throwable {
+            if (!kind.isPrimitive()) {
+                setter.invokeExact(entity, (Object) null);
+            }
+        }
+    }
+
+    private static int readInt(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        return Integer.parseInt(readScalarText(parser, token).trim());
+    }
+
+    private static long readLong(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        return Long.parseLong(readScalarText(parser, token).trim());
+    }
+
+    private static double readDouble(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        }
+        return Double.parseDouble(readScalarText(parser, token).trim());
+    }
+
+    private static boolean readBoolean(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+            return token == JsonToken.VALUE_TRUE;
+        }
+        return parseBoolean(readScalarText(parser, token));
+    }
+
+    private static String readString(JsonParser parser, JsonToken token) throws IOException {
+        return readScalarText(parser, token);
+    }
+
+    private static BigDecimal readBigDecimal(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDecimalValue();
+        }
+        return new BigDecimal(readScalarText(parser, token).trim());
+    }
+
+    private static String readScalarText(JsonParser parser, JsonToken token) throws IOException {
+        if (!token.isScalarValue()) {
+            throw new IllegalArgumentException("Expected a scalar value but was " + token);
+        }
+        return parser.getText();
+    }
+
+    private static int toInt(Object value) {
+        return value instanceof Number ? Ints.checkedCast(((Number) value).longValue()) :
+                Integer.parseInt(toText(value).trim());
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(toText(value).trim());
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(toText(value).trim());
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        }
+        return parseBoolean(toText(value));
+    }
+
+    private static String toText(Object value) {
+        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        throw new IllegalArgumentException("Expected a scalar value but was " + value);
+    }
+
+    private static boolean parseBoolean(String text) {
+        String value = text.trim();
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("t") || value.equals("1")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false") || value.equalsIgnoreCase("f") || value.equals("0")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Not a boolean value: " + text);
+    }
+}
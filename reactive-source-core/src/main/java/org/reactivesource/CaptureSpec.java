@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.reactivesource.util.Assert.hasText;
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * Describes what the database has to capture for an {@link org.reactivesource.EventSource}: the event types, the
+ * columns of the entities and whether UPDATE events carry the entity before the modification.
+ * <p/>
+ * The event sources generate triggers that only record the described data, which reduces the work done in the
+ * transactions modifying the table and the size of every event. The entities of the events only contain the captured
+ * columns. DELETE events always carry the old entity, since it is their only entity.
+ * <p/>
+ * A spec can also restrict UPDATE events to the columns that changed. Their entities then only contain the primary key
+ * of the entity and the changed columns, and updates that don't change any captured column are not recorded at all.
+ * <p/>
+ * By default the changes are recorded row by row. A spec can instead record them once per statement, which spares bulk
+ * modifications the cost of a trigger call per row.
+ * <p/>
+ * Specs are immutable. Every <code>with</code> method returns a new, narrower spec.
+ * <p/>
+ * <u>Example</u>
+ * <pre>
+ *   {@code CaptureSpec spec = CaptureSpec.ALL
+ *           .withEventTypes(EventType.INSERT, EventType.UPDATE)
+ *           .withColumns("ID", "STATUS")
+ *           .withoutOldImage();}
+ * </pre>
+ */
+public final class CaptureSpec {
+
+    private static final Pattern COLUMN_NAME_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+
+    /**
+     * The spec capturing every event type and column, and the old image of the updated entities.
+     */
+    public static final CaptureSpec ALL = new CaptureSpec(EnumSet.allOf(EventType.class), ImmutableList.<String>of(),
+            true, false, false);
+
+    private final Set<EventType> eventTypes;
+    private final List<String> columns;
+    private final boolean oldImage;
+    private final boolean changedColumnsOnly;
+    private final boolean perStatement;
+
+    private CaptureSpec(Set<EventType> eventTypes, List<String> columns, boolean oldImage,
+                        boolean changedColumnsOnly, boolean perStatement) {
+        this.eventTypes = Collections.unmodifiableSet(eventTypes);
+        this.columns = columns;
+        this.oldImage = oldImage;
+        this.changedColumnsOnly = changedColumnsOnly;
+        this.perStatement = perStatement;
+    }
+
+    /**
+     * @return a spec that only captures the given event types, among the ones this spec captures
+     */
+    public CaptureSpec withEventTypes(EventType... eventTypes) {
+        isTrue(eventTypes != null && eventTypes.length > 0, "at least one event type is required");
+        EnumSet<EventType> captured = EnumSet.noneOf(EventType.class);
+        for (EventType eventType : eventTypes) {
+            notNull(eventType, "eventTypes can not contain null");
+            if (this.eventTypes.contains(eventType)) {
+                captured.add(eventType);
+            }
+        }
+        isTrue(!captured.isEmpty(), "the spec would not capture any event type");
+        return new CaptureSpec(captured, columns, oldImage, changedColumnsOnly, perStatement);
+    }
+
+    /**
+     * @return a spec that only captures the given columns. The columns have to exist in the monitored table.
+     */
+    public CaptureSpec withColumns(String... columns) {
+        isTrue(columns != null && columns.length > 0, "at least one column is required");
+        for (String column : columns) {
+            hasText(column, "columns can not be null or empty");
+            isTrue(COLUMN_NAME_PATTERN.matcher(column).matches(), "column is not a valid column name: " + column);
+        }
+        return new CaptureSpec(EnumSet.copyOf(eventTypes), ImmutableList.copyOf(columns), oldImage,
+                changedColumnsOnly, perStatement);
+    }
+
+    /**
+     * @return a spec whose UPDATE events don't carry the entity before the modification. The old entity of these
+     * events is empty.
+     */
+    public CaptureSpec withoutOldImage() {
+        isTrue(!changedColumnsOnly, "a spec capturing the changed columns only always includes their old values");
+        return new CaptureSpec(EnumSet.copyOf(eventTypes), columns, false, false, perStatement);
+    }
+
+    /**
+     * @return a spec whose UPDATE events only carry the primary key and the captured columns that changed, with their
+     * values before the modification in the old entity and after it in the new one. Updates that don't change any
+     * captured column are not recorded.
+     */
+    public CaptureSpec withChangedColumnsOnly() {
+        isTrue(oldImage, "a spec capturing the changed columns only always includes their old values");
+        isTrue(!perStatement, "a spec capturing the changes per statement can not capture the changed columns only");
+        return new CaptureSpec(EnumSet.copyOf(eventTypes), columns, true, true, false);
+    }
+
+    /**
+     * @return a spec whose changes are recorded once per statement instead of once per modified row. The events of a
+     * statement are delivered together, in no particular order.
+     */
+    public CaptureSpec perStatement() {
+        isTrue(!changedColumnsOnly,
+                "a spec capturing the changes per statement can not capture the changed columns only");
+        return new CaptureSpec(EnumSet.copyOf(eventTypes), columns, oldImage, false, true);
+    }
+
+    public Set<EventType> getEventTypes() {
+        return eventTypes;
+    }
+
+    /**
+     * @return the captured columns, or an empty list if all the columns are captured
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public boolean includesOldImage() {
+        return oldImage;
+    }
+
+    /**
+     * @return true if UPDATE events only carry the primary key and the changed columns
+     */
+    public boolean capturesChangedColumnsOnly() {
+        return changedColumnsOnly;
+    }
+
+    /**
+     * @return true if the changes are recorded once per statement
+     */
+    public boolean capturesPerStatement() {
+        return perStatement;
+    }
+
+    public boolean capturesAllColumns() {
+        return columns.isEmpty();
+    }
+
+    /**
+     * @return true if the spec captures everything, ie the triggers don't need to be customized
+     */
+    public boolean capturesEverything() {
+        return eventTypes.size() == EventType.values().length && capturesAllColumns() && oldImage &&
+                !changedColumnsOnly && !perStatement;
+    }
+
+    /**
+     * @return true if the given column is part of the captured entities
+     */
+    public boolean captures(String column) {
+        if (capturesAllColumns()) {
+            return true;
+        }
+        for (String captured : columns) {
+            if (captured.equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifies that the conditions of the given filter only refer to captured columns, so that they can be
+     * evaluated on the captured entities. The conditions of a filter accepting UPDATE events can not be evaluated if
+     * the spec only captures the changed columns.
+     *
+     * @throws IllegalArgumentException if a condition refers to a column that is not captured
+     */
+    public void verifyCanEvaluate(EventFilter eventFilter) {
+        isTrue(!changedColumnsOnly || eventFilter.getConditions().isEmpty() ||
+                        !eventFilter.getEventTypes().contains(EventType.UPDATE),
+                "the conditions of the filter can not be evaluated on UPDATE events carrying the changed columns only");
+        for (ColumnCondition condition : eventFilter.getConditions()) {
+            isTrue(captures(condition.getColumn()),
+                    "the filter refers to column " + condition.getColumn() + " which is not captured");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CaptureSpec that = (CaptureSpec) o;
+        return oldImage == that.oldImage && changedColumnsOnly == that.changedColumnsOnly &&
+                perStatement == that.perStatement &&
+                eventTypes.equals(that.eventTypes) && columns.equals(that.columns);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(eventTypes, columns, oldImage, changedColumnsOnly, perStatement);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("eventTypes", eventTypes)
+                .add("columns", columns.isEmpty() ? "ALL" : columns)
+                .add("oldImage", oldImage)
+                .add("changedColumnsOnly", changedColumnsOnly)
+                .add("perStatement", perStatement)
+                .toString();
+    }
+}
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.base.Objects;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * A comparison of one column of the modified row with a constant, used by an {@link org.reactivesource.EventFilter}.
+ * <p/>
+ * The column is read from the new entity, or from the old entity for DELETE events. As in SQL, a comparison with a
+ * missing or null column never matches, except for {@link Operator#IS_NULL}.
+ * <p/>
+ * The name of the column is an unquoted SQL identifier, so it is case-insensitive: it matches the column of the entity
+ * with the same name in any case, and the Postgres triggers fold it to lower case, like Postgres does.
+ * <p/>
+ * Values can be strings, numbers or booleans. Numbers are compared numerically even if the event source delivers the
+ * column as a string, which is the case for MySQL.
+ * <p/>
+ * Strings are compared in memory with {@link String#compareTo(String)}: case-sensitively, by their UTF-16 code
+ * units. A condition pushed down into the Postgres triggers is compared with the collation of the column instead, which
+ * agrees on equality for the usual (deterministic) collations but may order strings differently. The conditions of
+ * the MySQL sources are always evaluated in memory, so they stay case-sensitive even on columns with a
+ * case-insensitive collation, the default of MySQL.
+ */
+public final class ColumnCondition {
+
+    private static final Pattern COLUMN_NAME_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+
+    public enum Operator {
+        EQUALS("="),
+        NOT_EQUALS("<>"),
+        LESS_THAN("<"),
+        LESS_THAN_OR_EQUALS("<="),
+        GREATER_THAN(">"),
+        GREATER_THAN_OR_EQUALS(">="),
+        IS_NULL("IS NULL"),
+        IS_NOT_NULL("IS NOT NULL");
+
+        private final String sql;
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * @return the SQL operator
+         */
+        public String getSql() {
+            return sql;
+        }
+
+        boolean isUnary() {
+            return this == IS_NULL || this == IS_NOT_NULL;
+        }
+
+        boolean isOrdering() {
+            return this == LESS_THAN || this == LESS_THAN_OR_EQUALS || this == GREATER_THAN ||
+                    this == GREATER_THAN_OR_EQUALS;
+        }
+    }
+
+    private final String column;
+    private final Operator operator;
+    private final Object value;
+
+    /**
+     * Creates a condition that checks if the column is null or not null.
+     *
+     * @param column   the name of the column
+     * @param operator {@link Operator#IS_NULL} or {@link Operator#IS_NOT_NULL}
+     */
+    public ColumnCondition(String column, Operator operator) {
+        this(column, operator, null);
+    }
+
+    /**
+     * Creates a condition that compares the column with the given value.
+     *
+     * @param column   the name of the column
+     * @param operator the comparison operator
+     * @param value    a String, Number or Boolean. Must be null for unary operators.
+     */
+    public ColumnCondition(String column, Operator operator, Object value) {
+        notNull(column, "column can not be null");
+        isTrue(COLUMN_NAME_PATTERN.matcher(column).matches(), "column is not a valid column name: " + column);
+        notNull(operator, "operator can not be null");
+        if (operator.isUnary()) {
+            isTrue(value == null, operator + " does not take a value");
+        } else {
+            isTrue(value instanceof String || value instanceof Number || value instanceof Boolean,
+                    "value should be a String, a Number or a Boolean");
+            isTrue(!(value instanceof Boolean) || !operator.isOrdering(), "booleans can not be ordered");
+            isTrue(!(value instanceof Number) || isFinite((Number) value), "numbers should be finite");
+        }
+        this.column = column;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Evaluates the condition against the entity of the given event that reflects the current state of the row.
+     */
+    boolean matches(Event<Map<String, Object>> event) {
+        Map<String, Object> entity = event.getEventType() == EventType.DELETE ? event.getOldEntity() :
+                event.getNewEntity();
+        Object actual = entity == null ? null : getValue(entity);
+        if (operator == Operator.IS_NULL) {
+            return actual == null;
+        }
+        if (operator == Operator.IS_NOT_NULL) {
+            return actual != null;
+        }
+        if (actual == null) {
+            return false;
+        }
+        Integer comparison = compare(actual);
+        if (comparison == null) {
+            return false;
+        }
+        switch (operator) {
+            case EQUALS:
+                return comparison == 0;
+            case NOT_EQUALS:
+                return comparison != 0;
+            case LESS_THAN:
+                return comparison < 0;
+            case LESS_THAN_OR_EQUALS:
+                return comparison <= 0;
+            case GREATER_THAN:
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
+
+    /**
+     * @return the value of the column in the entity, looked up case-insensitively if the entity has no column with
+     * exactly the same name
+     */
+    private Object getValue(Map<String, Object> entity) {
+        Object actual = entity.get(column);
+        if (actual != null || entity.containsKey(column)) {
+            return actual;
+        }
+        for (Map.Entry<String, Object> entry : entity.entrySet()) {
+            if (column.equalsIgnoreCase(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the result of comparing the actual value with the value of the condition, or null if they are not
+     * comparable
+     */
+    private Integer compare(Object actual) {
+        if (value instanceof Number) {
+            BigDecimal actualNumber = toNumber(actual);
+            return actualNumber == null ? null : actualNumber.compareTo(new BigDecimal(value.toString()));
+        }
+        if (value instanceof Boolean) {
+            Boolean actualBoolean = toBoolean(actual);
+            return actualBoolean == null ? null : actualBoolean.compareTo((Boolean) value);
+        }
+        return actual.toString().compareTo((String) value);
+    }
+
+    private static boolean isFinite(Number number) {
+        return !Double.isNaN(number.doubleValue()) && !Double.isInfinite(number.doubleValue());
+    }
+
+    private static BigDecimal toNumber(Object actual) {
+        try {
+            return new BigDecimal(actual.toString());
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    private static Boolean toBoolean(Object actual) {
+        if (actual instanceof Boolean) {
+            return (Boolean) actual;
+        }
+        String string = actual.toString();
+        if ("true".equalsIgnoreCase(string) || "t".equalsIgnoreCase(string) || "1".equals(string)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(string) || "f".equalsIgnoreCase(string) || "0".equals(string)) {
+            return false;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ColumnCondition that = (ColumnCondition) o;
+        return Objects.equal(normalizedColumn(), that.normalizedColumn()) && operator == that.operator &&
+                Objects.equal(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(normalizedColumn(), operator, value);
+    }
+
+    /**
+     * @return the name of the column in lower case, so that conditions that only differ by the case of the column name
+     * are equal, like they match the same events
+     */
+    private String normalizedColumn() {
+        return column.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return operator.isUnary() ? column + " " + operator.getSql() : column + " " + operator.getSql() + " " + value;
+    }
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.reactivesource.util.Assert.hasText;
+import static org.reactivesource.util.Assert.isTrue;
+
+/**
+ * An {@link org.reactivesource.EventKeyExtractor} that uses the values of the given columns as the key of the event,
+ * typically the columns of the primary key.
+ * <p/>
+ * The values are read from the new entity, or from the old entity for DELETE events.
+ */
+public class ColumnKeyExtractor implements EventKeyExtractor {
+
+    private final List<String> columns;
+
+    /**
+     * @param columns the names of the columns forming the key
+     */
+    public ColumnKeyExtractor(String... columns) {
+        isTrue(columns != null && columns.length > 0, "at least one key column is required");
+        for (String column : columns) {
+            hasText(column, "key columns can not be null or empty");
+        }
+        this.columns = ImmutableList.copyOf(columns);
+    }
+
+    @Override
+    public Object extractKey(Event<Map<String, Object>> event) {
+        Map<String, Object> entity = event.getEventType() == EventType.DELETE ? event.getOldEntity() :
+                event.getNewEntity();
+        if (columns.size() == 1) {
+            return entity.get(columns.get(0));
+        }
+        List<Object> key = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            key.add(entity.get(column));
+        }
+        return key;
+    }
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * Notifies the listener in the thread that pushes the event to the channel.
+ */
+class DirectListenerDispatcher<T> implements ListenerDispatcher<T> {
+
+    private final EventListener<T> listener;
+
+    DirectListenerDispatcher(EventListener<T> listener) {
+        notNull(listener, "listener can not be null");
+        this.listener = listener;
+    }
+
+    @Override
+    public void dispatch(Event<Map<String, Object>> event) {
+        listener.notifyEvent(event);
+    }
+
+    @Override
+    public void dispatch(List<Event<Map<String, Object>>> events) {
+        if (listener instanceof BatchEventListener) {
+            ((BatchEventListener<T>) listener).notifyEvents(events);
+        } else {
+            for (Event<Map<String, Object>> event : events) {
+                listener.notifyEvent(event);
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        listener.flush();
+    }
+
+    @Override
+    public EventListener<T> getListener() {
+        return listener;
+    }
+}
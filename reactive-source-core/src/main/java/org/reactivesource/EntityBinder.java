@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * An {@link org.reactivesource.EntityExtractor} that can also build the model object directly from the JSON of the
+ * entity, without decoding it to a {@link java.util.Map} first.
+ * <p/>
+ * When the event source keeps the raw JSON of the entities, the {@link org.reactivesource.EventListener} binds the
+ * entities through {@link #bindEntity(com.fasterxml.jackson.core.JsonParser)}. Otherwise, it falls back to
+ * {@link #extractEntity(java.util.Map)}. Both methods have to produce the same object for the same entity.
+ * <p/>
+ * {@link org.reactivesource.BeanEntityBinder} binds the entities to JavaBeans.
+ *
+ * @param <T> the class of the model object of the entity
+ */
+public interface EntityBinder<T> extends EntityExtractor<T> {
+
+    /**
+     * Builds the model object from the JSON object the parser is positioned on. The current token of the parser is
+     * {@link com.fasterxml.jackson.core.JsonToken#START_OBJECT}, and has to be the matching
+     * {@link com.fasterxml.jackson.core.JsonToken#END_OBJECT} when the method returns.
+     *
+     * @param parser the parser of the entity
+     * @return the model object
+     * @throws IOException if the JSON is malformed
+     */
+    public T bindEntity(JsonParser parser) throws IOException;
+}
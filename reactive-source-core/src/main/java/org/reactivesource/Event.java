@@ -20,19 +20,34 @@ import static org.reactivesource.util.Assert.notNull;
  * <li>DELETE</li>
  * </ul>
  * <p/>
- * And contains the old entity, the new entity and the name of the monitored entity.
+ * And contains the old entity, the new entity and the name of the monitored entity. If the event source records it,
+ * the event also carries the time the change happened in the database, see {@link #getChangeTimestamp()}.
  *
  * @param <T> the class of the monitored entity.
  */
 
 public class Event<T> {
 
+    /**
+     * The change timestamp of the events whose event source doesn't record when the change happened.
+     */
+    public static final long UNKNOWN_CHANGE_TIMESTAMP = 0L;
+
     protected final EventType eventType;
     protected final String entityName;
     protected final T oldEntity;
     protected final T newEntity;
+    protected final long changeTimestamp;
 
     public Event(EventType eventType, String entityName, T newEntity, T oldEntity) {
+        this(eventType, entityName, newEntity, oldEntity, UNKNOWN_CHANGE_TIMESTAMP);
+    }
+
+    /**
+     * @param changeTimestamp the time the change happened, in microseconds since the epoch, or
+     *                        {@link #UNKNOWN_CHANGE_TIMESTAMP}
+     */
+    public Event(EventType eventType, String entityName, T newEntity, T oldEntity, long changeTimestamp) {
         notNull(eventType, "eventType can not be null");
         hasText(entityName, "tableName can not be null or empty");
         notNull(newEntity, "eventData can not be null");
@@ -41,6 +56,39 @@ public class Event<T> {
         this.entityName = entityName;
         this.newEntity = newEntity;
         this.oldEntity = oldEntity;
+        this.changeTimestamp = changeTimestamp;
+    }
+
+    /**
+     * Constructor for subclasses that provide the entities themselves, by overriding {@link #getNewEntity()} and
+     * {@link #getOldEntity()}.
+     */
+    protected Event(EventType eventType, String entityName) {
+        this(eventType, entityName, UNKNOWN_CHANGE_TIMESTAMP);
+    }
+
+    /**
+     * Like {@link #Event(EventType, String)}, for events that carry the time of the change.
+     */
+    protected Event(EventType eventType, String entityName, long changeTimestamp) {
+        notNull(eventType, "eventType can not be null");
+        hasText(entityName, "tableName can not be null or empty");
+        this.eventType = eventType;
+        this.entityName = entityName;
+        this.newEntity = null;
+        this.oldEntity = null;
+        this.changeTimestamp = changeTimestamp;
+    }
+
+    /**
+     * Constructor for the reusable events of the low-garbage mode, which override every getter.
+     */
+    Event() {
+        this.eventType = null;
+        this.entityName = null;
+        this.newEntity = null;
+        this.oldEntity = null;
+        this.changeTimestamp = UNKNOWN_CHANGE_TIMESTAMP;
     }
 
     public EventType getEventType() {
@@ -59,9 +107,32 @@ public class Event<T> {
         return oldEntity;
     }
 
+    /**
+     * Returns the time the change happened in the database, as recorded by the trigger that captured it. The
+     * timestamp is taken from the clock of the database, so comparing it with the clock of the application is only
+     * meaningful if both clocks are synchronized.
+     *
+     * @return the time of the change in microseconds since the epoch, or {@link #UNKNOWN_CHANGE_TIMESTAMP} if the
+     * event source doesn't record it
+     */
+    public long getChangeTimestamp() {
+        return changeTimestamp;
+    }
+
+    /**
+     * Returns an event that remains valid after the listener callback returns. Events are immutable, so this method
+     * returns the event itself, except for the events that a {@link org.reactivesource.ReactiveSource} in low-garbage
+     * mode reuses for the next event.
+     *
+     * @return an event with the same type, entity name and entities, that can be kept by the listener
+     */
+    public Event<T> copy() {
+        return this;
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hashCode(eventType, entityName, oldEntity, newEntity);
+        return Objects.hashCode(getEventType(), getEntityName(), getOldEntity(), getNewEntity());
     }
 
     @Override
@@ -69,10 +140,10 @@ public class Event<T> {
     public boolean equals(Object object) {
         if (object instanceof Event) {
             Event<T> that = (Event<T>) object;
-            return Objects.equal(this.eventType, that.eventType)
-                    && Objects.equal(this.entityName, that.entityName)
-                    && Objects.equal(this.oldEntity, that.oldEntity)
-                    && Objects.equal(this.newEntity, that.newEntity);
+            return Objects.equal(this.getEventType(), that.getEventType())
+                    && Objects.equal(this.getEntityName(), that.getEntityName())
+                    && Objects.equal(this.getOldEntity(), that.getOldEntity())
+                    && Objects.equal(this.getNewEntity(), that.getNewEntity());
         }
         return false;
     }
@@ -80,10 +151,10 @@ public class Event<T> {
     @Override
     public String toString() {
         return Objects.toStringHelper(this)
-                .add("eventType", eventType)
-                .add("entityName", entityName)
-                .add("oldEntity", oldEntity)
-                .add("newEntity", newEntity)
+                .add("eventType", getEventType())
+                .add("entityName", getEntityName())
+                .add("oldEntity", getOldEntity())
+                .add("newEntity", getNewEntity())
                 .toString();
     }
 
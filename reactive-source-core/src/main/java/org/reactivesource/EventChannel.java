@@ -5,17 +5,24 @@
  ******************************************************************************/
 package org.reactivesource;
 
-import com.google.common.collect.Lists;
+import org.reactivesource.metrics.SourceMetrics;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 import static org.reactivesource.util.Assert.notNull;
 
 /**
  * The EventChannel is responsible for propagating events to the registered event listeners.
+ * <p/>
+ * In low-garbage mode, the events of a poll are dispatched without being copied to the queue of the channel, unless
+ * the channel is muted, and the listeners notified in the pushing thread receive a reused
+ * {@link org.reactivesource.Event} instance, which is only valid during their callback.
  *
  * @param <T> The type of the object expected by the event listeners.
  */
@@ -23,22 +30,167 @@ class EventChannel<T> {
 
     private final Queue<Event<Map<String, Object>>> eventQueue;
     private boolean muted;
-    private final List<EventListener<T>> listeners;
+    private final List<ListenerDispatcher<T>> dispatchers;
+    private final List<ListenerGroup<T>> listenerGroups;
+    private final List<EventSubscription<T>> subscriptions;
+    private final boolean reuseEvents;
+    private volatile SourceMetrics metrics;
 
     EventChannel() {
+        this(false);
+    }
+
+    /**
+     * @param reuseEvents true for the low-garbage mode
+     */
+    EventChannel(boolean reuseEvents) {
+        this.reuseEvents = reuseEvents;
         muted = false;
         eventQueue = new ConcurrentLinkedQueue<>();
-        listeners = Lists.newArrayList();
+        dispatchers = new CopyOnWriteArrayList<>();
+        listenerGroups = new CopyOnWriteArrayList<>();
+        subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Adds an event listener at the exit of the channel. This listener will be notified about any new events, in the
+     * thread that pushes the events to the channel.
+     * <p/>
+     * Listeners with equal {@link org.reactivesource.EntityExtractor}s are grouped, so the entities of an event are
+     * extracted once and all the listeners of the group receive the same {@link org.reactivesource.Event}. Extractors
+     * of different instances can declare that they are interchangeable by implementing <code>equals</code> and
+     * <code>hashCode</code>.
+     * <p/>
+     * The listeners are notified in the order they were added, except that the listeners of a group are notified
+     * together, in the position of the first listener of the group.
+     *
+     * @param eventListener
+     */
+    synchronized void addEventListener(EventListener<T> eventListener) {
+        notNull(eventListener, "Can not add null event listener");
+        EntityExtractor<T> entityExtractor = eventListener.getEntityExtractor();
+        for (ListenerGroup<T> group : listenerGroups) {
+            if (group.getEntityExtractor().equals(entityExtractor)) {
+                group.add(eventListener);
+                return;
+            }
+        }
+        ListenerGroup<T> group = new ListenerGroup<>(entityExtractor, reuseEvents);
+        group.add(eventListener);
+        listenerGroups.add(group);
     }
 
     /**
-     * Adds an event listener at the exit of the channel. This listener will be notified about any new events.
+     * Adds an event listener at the exit of the channel that is notified asynchronously on the given executor. Events
+     * are buffered in a queue of the given capacity, dedicated to this listener, and delivered in order.
      *
      * @param eventListener
+     * @param executor      the executor running the listener
+     * @param queueCapacity the maximum number of events waiting for the listener
      */
-    void addEventListener(EventListener<T> eventListener) {
+    void addEventListener(EventListener<T> eventListener, Executor executor, int queueCapacity) {
         notNull(eventListener, "Can not add null event listener");
-        listeners.add(eventListener);
+        addDispatcher(new AsyncListenerDispatcher<>(eventListener, executor, queueCapacity));
+    }
+
+    /**
+     * Adds an event listener at the exit of the channel that is notified in parallel on the given executor. Events with
+     * equal keys are delivered in order, events with different keys may be delivered concurrently.
+     *
+     * @param eventListener
+     * @param keyExtractor  decides the key of every event
+     * @param executor      the executor running the listener
+     * @param numberOfLanes the maximum number of concurrent notifications of the listener
+     * @param queueCapacity the maximum number of events waiting in every lane
+     */
+    void addEventListener(EventListener<T> eventListener, EventKeyExtractor keyExtractor, Executor executor,
+                          int numberOfLanes, int queueCapacity) {
+        notNull(eventListener, "Can not add null event listener");
+        addDispatcher(new PartitionedListenerDispatcher<>(eventListener, keyExtractor, executor, numberOfLanes,
+                queueCapacity));
+    }
+
+    /**
+     * Adds a dispatcher that delivers the events to a listener that is not notified in the pushing thread.
+     */
+    void addDispatcher(ListenerDispatcher<T> dispatcher) {
+        dispatchers.add(dispatcher);
+    }
+
+    /**
+     * Removes the given event listener from the channel. The listener is not notified about the events pushed after
+     * this method returns.
+     *
+     * @param eventListener
+     */
+    synchronized void removeEventListener(EventListener<T> eventListener) {
+        notNull(eventListener, "Can not remove null event listener");
+        for (ListenerGroup<T> group : listenerGroups) {
+            if (group.remove(eventListener) && group.isEmpty()) {
+                listenerGroups.remove(group);
+            }
+        }
+        for (ListenerDispatcher<T> dispatcher : dispatchers) {
+            if (dispatcher.getListener() == eventListener) {
+                dispatchers.remove(dispatcher);
+            }
+        }
+    }
+
+    /**
+     * Adds the subscription of a Reactive Streams subscriber as an event listener. The subscription is completed when
+     * the channel is closed.
+     */
+    void addSubscription(EventSubscription<T> subscription) {
+        subscriptions.add(subscription);
+        addEventListener(subscription);
+    }
+
+    /**
+     * Removes the subscription of a Reactive Streams subscriber, like {@link #removeEventListener(EventListener)}.
+     */
+    void removeSubscription(EventSubscription<T> subscription) {
+        subscriptions.remove(subscription);
+        removeEventListener(subscription);
+    }
+
+    /**
+     * Completes all the subscriptions of the channel, which wakes up the pushing thread if it waits for a subscriber
+     * to request events. Called when the {@link org.reactivesource.ReactiveSource} stops, before waiting for the last
+     * poll to finish.
+     */
+    void completeSubscriptions() {
+        for (EventSubscription<T> subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Opens the channel. Called when the {@link org.reactivesource.ReactiveSource} starts, before any event is pushed.
+     */
+    void open() {
+        // nothing to do, listeners are notified in the thread that pushes the events
+    }
+
+    /**
+     * Closes the channel and completes its subscriptions. Called when the {@link org.reactivesource.ReactiveSource}
+     * stops. The channel can be opened again.
+     */
+    void close() {
+        completeSubscriptions();
+    }
+
+    /**
+     * Makes the listeners deliver the events they are holding back. Called by the thread that pushes the events, after
+     * the last push.
+     */
+    void flush() {
+        for (ListenerGroup<T> group : listenerGroups) {
+            group.flush();
+        }
+        for (ListenerDispatcher<T> dispatcher : dispatchers) {
+            dispatcher.flush();
+        }
     }
 
     /**
@@ -54,6 +206,24 @@ class EventChannel<T> {
         }
     }
 
+    /**
+     * Pushes the events of one poll to the channel. Will notify the event listeners, unless muted. Should be called
+     * even if the poll returned no events, so that batch listeners can deliver the events they are holding back.
+     *
+     * @param events
+     */
+    void pushEvents(List<Event<Map<String, Object>>> events) {
+        if (reuseEvents && !muted && eventQueue.isEmpty()) {
+            dispatch(events);
+            return;
+        }
+        eventQueue.addAll(events);
+
+        if (!muted) {
+            notifyListeners();
+        }
+    }
+
     /**
      * Mutes the channel. This means that the events will not be propagated to the event listeners until the channel is
      * un-muted.
@@ -71,12 +241,40 @@ class EventChannel<T> {
     }
 
     private void notifyListeners() {
+        List<Event<Map<String, Object>>> events = new ArrayList<>();
         Event<Map<String, Object>> event = eventQueue.poll();
         while (event != null) {
-            for (EventListener<T> listener : listeners) {
-                listener.notifyEvent(event);
-            }
+            events.add(event);
             event = eventQueue.poll();
         }
+        dispatch(events);
+    }
+
+    /**
+     * Makes the channel record the time spent notifying the listeners in the given metrics.
+     */
+    void setMetrics(SourceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the number of events pushed to the channel that are not handed to the listeners yet
+     */
+    int getQueueDepth() {
+        return eventQueue.size();
+    }
+
+    private void dispatch(List<Event<Map<String, Object>>> events) {
+        SourceMetrics currentMetrics = metrics;
+        long dispatchStart = currentMetrics == null ? 0 : System.nanoTime();
+        for (ListenerGroup<T> group : listenerGroups) {
+            group.dispatch(events);
+        }
+        for (ListenerDispatcher<T> dispatcher : dispatchers) {
+            dispatcher.dispatch(events);
+        }
+        if (currentMetrics != null) {
+            currentMetrics.recordDispatch(System.nanoTime() - dispatchStart);
+        }
     }
 }
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * A declarative filter on the events of a table: the accepted event types and a set of
+ * {@link org.reactivesource.ColumnCondition}s that all have to match.
+ * <p/>
+ * Filters are immutable. Every <code>with</code> method returns a new, narrower filter.
+ * <p/>
+ * A filter can be given to an {@link org.reactivesource.EventListener}, in which case it is evaluated before the
+ * entities of the event are extracted, or to an {@link org.reactivesource.EventSource} that supports it, in which case
+ * the source pushes as much of it as possible down into the database, so that events that don't match are never
+ * written or read.
+ * <p/>
+ * Column names are case-insensitive, and string values are compared case-sensitively, see
+ * {@link org.reactivesource.ColumnCondition}.
+ * <p/>
+ * <u>Example</u>
+ * <pre>
+ *   {@code EventFilter filter = EventFilter.ALL
+ *           .withEventTypes(EventType.INSERT, EventType.UPDATE)
+ *           .withCondition("status", ColumnCondition.Operator.EQUALS, "SHIPPED");}
+ * </pre>
+ */
+public final class EventFilter {
+
+    /**
+     * The filter accepting every event.
+     */
+    public static final EventFilter ALL = new EventFilter(EnumSet.allOf(EventType.class),
+            ImmutableList.<ColumnCondition>of());
+
+    private final Set<EventType> eventTypes;
+    private final List<ColumnCondition> conditions;
+
+    private EventFilter(Set<EventType> eventTypes, List<ColumnCondition> conditions) {
+        this.eventTypes = Collections.unmodifiableSet(eventTypes);
+        this.conditions = conditions;
+    }
+
+    /**
+     * @return a filter that accepts only the given event types, among the ones this filter accepts
+     */
+    public EventFilter withEventTypes(EventType... eventTypes) {
+        isTrue(eventTypes != null && eventTypes.length > 0, "at least one event type is required");
+        EnumSet<EventType> accepted = EnumSet.noneOf(EventType.class);
+        for (EventType eventType : eventTypes) {
+            notNull(eventType, "eventTypes can not contain null");
+            if (this.eventTypes.contains(eventType)) {
+                accepted.add(eventType);
+            }
+        }
+        isTrue(!accepted.isEmpty(), "the filter would not accept any event type");
+        return new EventFilter(accepted, conditions);
+    }
+
+    /**
+     * @return a filter that additionally requires the given condition to match
+     */
+    public EventFilter withCondition(ColumnCondition condition) {
+        notNull(condition, "condition can not be null");
+        return new EventFilter(EnumSet.copyOf(eventTypes),
+                ImmutableList.<ColumnCondition>builder().addAll(conditions).add(condition).build());
+    }
+
+    /**
+     * Shortcut for <code>withCondition(new ColumnCondition(column, operator, value))</code>.
+     */
+    public EventFilter withCondition(String column, ColumnCondition.Operator operator, Object value) {
+        return withCondition(new ColumnCondition(column, operator, value));
+    }
+
+    public Set<EventType> getEventTypes() {
+        return eventTypes;
+    }
+
+    public List<ColumnCondition> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * @return true if the filter accepts every event
+     */
+    public boolean acceptsAll() {
+        return acceptsAllEventTypes() && conditions.isEmpty();
+    }
+
+    /**
+     * @return true if the filter accepts every event type
+     */
+    public boolean acceptsAllEventTypes() {
+        return eventTypes.size() == EventType.values().length;
+    }
+
+    /**
+     * Evaluates the filter against the given event. The entities of the event are only read if the event type is
+     * accepted and the filter has conditions.
+     *
+     * @param event the event, as received from the {@link org.reactivesource.EventSource}
+     * @return true if the event is accepted
+     */
+    public boolean matches(Event<Map<String, Object>> event) {
+        if (!eventTypes.contains(event.getEventType())) {
+            return false;
+        }
+        for (ColumnCondition condition : conditions) {
+            if (!condition.matches(event)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        EventFilter that = (EventFilter) o;
+        return eventTypes.equals(that.eventTypes) && Sets.newHashSet(conditions).equals(
+                Sets.newHashSet(that.conditions));
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(eventTypes, Sets.newHashSet(conditions));
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("eventTypes", eventTypes)
+                .add("conditions", conditions)
+                .toString();
+    }
+}
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import java.util.Map;
+
+/**
+ * The {@link org.reactivesource.EventKeyExtractor} decides which events have to be processed in order, when a listener
+ * is notified by many threads in parallel.
+ * <p/>
+ * Events with equal keys are delivered to the listener in the order they occurred, one after the other. Events with
+ * different keys may be delivered concurrently. The key is usually the primary key of the modified row.
+ *
+ * @see org.reactivesource.ColumnKeyExtractor
+ */
+public interface EventKeyExtractor {
+
+    /**
+     * @param event the event, with the entities represented as maps of column names to values
+     * @return the key of the event. Must implement <code>equals</code> and <code>hashCode</code>. Events with a null
+     * key are all delivered in order.
+     */
+    public Object extractKey(Event<Map<String, Object>> event);
+}
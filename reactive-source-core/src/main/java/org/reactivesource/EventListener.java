@@ -5,6 +5,8 @@
  ******************************************************************************/
 package org.reactivesource;
 
+import org.reactivesource.metrics.ListenerMetrics;
+
 import java.util.Map;
 
 import static org.reactivesource.util.Assert.notNull;
@@ -22,16 +24,33 @@ import static org.reactivesource.util.Assert.notNull;
 public abstract class EventListener<T> {
 
     private EntityExtractor<T> entityExtractor;
+    private EventFilter eventFilter;
+    private volatile ListenerMetrics metrics;
 
     public EventListener(EntityExtractor<T> entityExtractor) {
+        this(entityExtractor, EventFilter.ALL);
+    }
+
+    /**
+     * Creates a listener that only receives the events accepted by the given filter. The filter is evaluated before
+     * the entities of the event are extracted.
+     *
+     * @param entityExtractor the extractor converting the entities of the events
+     * @param eventFilter     the filter of the events
+     */
+    public EventListener(EntityExtractor<T> entityExtractor, EventFilter eventFilter) {
         notNull(entityExtractor, "entityExtractor can not be null");
+        notNull(eventFilter, "eventFilter can not be null");
         this.entityExtractor = entityExtractor;
+        this.eventFilter = eventFilter;
     }
 
     /**
      * This method is called every time there is a new event for the listener.
      * <p/>
-     * Implement with the logic you want per event.
+     * Implement with the logic you want per event. If the {@link org.reactivesource.ReactiveSource} runs in
+     * low-garbage mode, the event is only valid until this method returns, and {@link Event#copy()} has to be used
+     * to keep it.
      *
      * @param event the {@link org.reactivesource.Event} that occurred.
      */
@@ -43,10 +62,71 @@ public abstract class EventListener<T> {
      * @param event
      */
     void notifyEvent(Event<Map<String, Object>> event) {
-        Event<T> parsedEvt = new Event<>(event.getEventType(),
-                event.getEntityName(),
-                entityExtractor.extractEntity(event.getNewEntity()),
-                entityExtractor.extractEntity(event.getOldEntity()));
-        onEvent(parsedEvt);
+        if (accepts(event)) {
+            deliver(this, extractEvent(event));
+        }
+    }
+
+    /**
+     * Internal method that delivers any events the listener is holding back. Called when the channel is closed.
+     */
+    void flush() {
+        // nothing to do, events are delivered as soon as they arrive
+    }
+
+    /**
+     * Hands the event to {@link #onEvent(Event)} of the listener, recording the callback and the lag of the event in
+     * the metrics of the listener if it has any.
+     */
+    static <T> void deliver(EventListener<T> listener, Event<T> event) {
+        ListenerMetrics listenerMetrics = listener.getMetrics();
+        if (listenerMetrics == null) {
+            listener.onEvent(event);
+            return;
+        }
+        listenerMetrics.recordDelivery(event);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            listener.onEvent(event);
+            failed = false;
+        } finally {
+            listenerMetrics.recordCallback(1, System.nanoTime() - start, failed);
+        }
+        listenerMetrics.recordProcessed(event);
+    }
+
+    ListenerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Makes the listener record its callbacks in the given metrics.
+     */
+    void setMetrics(ListenerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    EntityExtractor<T> getEntityExtractor() {
+        return entityExtractor;
+    }
+
+    EventFilter getEventFilter() {
+        return eventFilter;
+    }
+
+    /**
+     * @return true if the listener's {@link org.reactivesource.EventFilter} accepts the event
+     */
+    boolean accepts(Event<Map<String, Object>> event) {
+        return getEventFilter().acceptsAll() || getEventFilter().matches(event);
+    }
+
+    /**
+     * Converts the entities of the event using the {@link org.reactivesource.EntityExtractor} of the listener. The
+     * entities are converted the first time they are requested.
+     */
+    Event<T> extractEvent(Event<Map<String, Object>> event) {
+        return new ExtractedEvent<>(event, entityExtractor);
     }
 }
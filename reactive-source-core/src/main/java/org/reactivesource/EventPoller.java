@@ -6,12 +6,15 @@
 package org.reactivesource;
 
 import org.reactivesource.exceptions.DataAccessException;
+import org.reactivesource.metrics.SourceMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.reactivesource.util.Assert.notNull;
 
 class EventPoller<T> implements Runnable {
@@ -20,33 +23,33 @@ class EventPoller<T> implements Runnable {
     static final long TIME_BETWEEN_POLLS = 500L;
     private final EventChannel<T> eventChannel;
     private final EventSource eventSource;
+    private final PollingStrategy pollingStrategy;
     private volatile boolean runnable = true;
+    private volatile SourceMetrics metrics;
+    private boolean connectedBefore = false;
 
     EventPoller(EventSource eventSource, EventChannel<T> eventChannel) {
+        this(eventSource, eventChannel, new FixedIntervalPollingStrategy(TIME_BETWEEN_POLLS));
+    }
+
+    EventPoller(EventSource eventSource, EventChannel<T> eventChannel, PollingStrategy pollingStrategy) {
         notNull(eventSource, "eventSource can not be null.");
         notNull(eventChannel, "eventChannel can not be null.");
+        notNull(pollingStrategy, "pollingStrategy can not be null.");
 
         this.eventSource = eventSource;
         this.eventChannel = eventChannel;
+        this.pollingStrategy = pollingStrategy;
     }
 
     public void run() {
         try {
-            eventSource.setup();
+            init();
             while (runnable) {
-                verifyConnectionToEventSource();
-                try {
-                    pushNewEventsToEventChannel(eventSource.getNewEvents());
-                    Thread.sleep(TIME_BETWEEN_POLLS);
-                } catch (InterruptedException ie) {
-                    logger.warn("The EventPoller thread was interrupted. The execution will continue.", ie);
-                } catch (DataAccessException dae) {
-                    logger.warn("Could not get new events from EventSource.", dae);
-                }
+                waitBeforeNextPoll(poll());
             }
         } finally {
-            eventSource.disconnect();
-            eventSource.cleanup();
+            shutdown();
         }
     }
 
@@ -54,25 +57,123 @@ class EventPoller<T> implements Runnable {
         runnable = false;
     }
 
+    boolean isRunnable() {
+        return runnable;
+    }
+
     /**
-     * Queries the event source for new events. If any events are found then they will be pushed to the EventListeners
-     * through the event channel.
+     * Sets up the event source. Has to be called once before the first call to {@link #poll()}.
      */
-    private void pushNewEventsToEventChannel(List<Event<Map<String, Object>>> newEvents) {
-        if (newEvents != null) {
-            for (Event<Map<String, Object>> event : newEvents) {
-                eventChannel.pushEvent(event);
+    void init() {
+        eventSource.setup();
+    }
+
+    /**
+     * Flushes the event channel, disconnects from the event source and cleans it up. Has to be called once after the
+     * last call to {@link #poll()}.
+     */
+    void shutdown() {
+        try {
+            eventChannel.flush();
+        } finally {
+            try {
+                eventSource.disconnect();
+            } finally {
+                eventSource.cleanup();
             }
         }
     }
 
+    /**
+     * Polls the event source once and pushes the new events to the event channel. Reconnects to the event source
+     * first, if the connection was lost. This method doesn't block between polls, it is up to the caller to wait for
+     * the returned delay.
+     *
+     * @return the time in milliseconds to wait before the next poll, as decided by the {@link PollingStrategy}
+     * @throws DataAccessException if the connection to the event source is lost and reconnecting fails
+     */
+    long poll() {
+        verifyConnectionToEventSource();
+        int eventsFetched = 0;
+        long pollStart = System.nanoTime();
+        long fetchDuration = 0;
+        boolean failed = false;
+        try {
+            List<Event<Map<String, Object>>> newEvents = eventSource.getNewEvents();
+            fetchDuration = System.nanoTime() - pollStart;
+            eventsFetched = (newEvents == null) ? 0 : newEvents.size();
+            recordFetchLags(newEvents);
+            pushNewEventsToEventChannel(newEvents);
+        } catch (DataAccessException dae) {
+            failed = true;
+            logger.warn("Could not get new events from EventSource.", dae);
+        }
+        long pollDuration = System.nanoTime() - pollStart;
+        recordPoll(eventsFetched, pollDuration, fetchDuration, failed);
+        return pollingStrategy.nextPollDelay(eventsFetched, NANOSECONDS.toMillis(pollDuration));
+    }
+
+    /**
+     * Makes the poller record its polls in the given metrics.
+     */
+    void setMetrics(SourceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private void recordFetchLags(List<Event<Map<String, Object>>> newEvents) {
+        SourceMetrics currentMetrics = metrics;
+        if (currentMetrics != null && newEvents != null) {
+            currentMetrics.recordFetchLags(newEvents);
+        }
+    }
+
+    private void recordPoll(int eventsFetched, long pollDuration, long fetchDuration, boolean failed) {
+        SourceMetrics currentMetrics = metrics;
+        if (currentMetrics == null) {
+            return;
+        }
+        if (failed) {
+            currentMetrics.recordPollFailure();
+        } else {
+            currentMetrics.recordPoll(eventsFetched, pollDuration, fetchDuration);
+        }
+    }
+
+    private void waitBeforeNextPoll(long delay) {
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ie) {
+            logger.warn("The EventPoller thread was interrupted. The execution will continue.", ie);
+        }
+    }
+
+    /**
+     * Pushes the events of the poll to the EventListeners through the event channel. The channel is notified even if
+     * there were no new events, so that batching listeners can deliver the events they are holding back.
+     */
+    private void pushNewEventsToEventChannel(List<Event<Map<String, Object>>> newEvents) {
+        if (newEvents == null) {
+            eventChannel.pushEvents(Collections.<Event<Map<String, Object>>>emptyList());
+        } else {
+            eventChannel.pushEvents(newEvents);
+        }
+    }
+
     /**
      * Verifies that the connection to the EventSource is still active. If not it attempts to reconnect.
      */
     private void verifyConnectionToEventSource() {
         if (!eventSource.isConnected()) {
             eventSource.connect();
+            SourceMetrics currentMetrics = metrics;
+            if (connectedBefore && currentMetrics != null) {
+                currentMetrics.recordReconnect();
+            }
         }
+        connectedBefore = true;
     }
 
 }
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * Exposes the events of an {@link org.reactivesource.EventChannel} as a Reactive Streams
+ * {@link org.reactivestreams.Publisher}.
+ * <p/>
+ * Every {@link org.reactivestreams.Subscriber} gets its own {@link org.reactivesource.EventSubscription}, which is
+ * registered as a listener of the channel and buffers at most <code>bufferSize</code> events. Events are only handed
+ * to the subscriber when it requested them. When the buffer of a subscriber is full, pushing to the channel blocks,
+ * so the {@link org.reactivesource.EventPoller} stops fetching new events until the subscriber requests more.
+ * <p/>
+ * The stream of events ends when the channel is closed, ie when the {@link org.reactivesource.ReactiveSource} stops:
+ * the subscribers receive <code>onComplete</code>, and have to subscribe again after a restart. They receive
+ * <code>onError</code> only if they violate the specification (ie request a non positive number of events).
+ *
+ * @param <T> the class of the monitored entity
+ */
+class EventPublisher<T> implements Publisher<Event<T>> {
+
+    private final EventChannel<T> eventChannel;
+    private final EntityExtractor<T> entityExtractor;
+    private final int bufferSize;
+
+    EventPublisher(EventChannel<T> eventChannel, EntityExtractor<T> entityExtractor, int bufferSize) {
+        notNull(eventChannel, "eventChannel can not be null");
+        notNull(entityExtractor, "entityExtractor can not be null");
+        isTrue(bufferSize > 0, "bufferSize should be a positive number");
+        this.eventChannel = eventChannel;
+        this.entityExtractor = entityExtractor;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Subscribes the given subscriber to the events of the channel. As required by the Reactive Streams specification,
+     * a null subscriber results in a {@link java.lang.NullPointerException}.
+     */
+    @Override
+    public void subscribe(Subscriber<? super Event<T>> subscriber) {
+        checkNotNull(subscriber, "subscriber can not be null");
+        EventSubscription<T> subscription =
+                new EventSubscription<>(eventChannel, entityExtractor, subscriber, bufferSize);
+        eventChannel.addSubscription(subscription);
+        subscriber.onSubscribe(subscription);
+    }
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * The {@link org.reactivestreams.Subscription} of one {@link org.reactivestreams.Subscriber} to an
+ * {@link org.reactivesource.EventPublisher}.
+ * <p/>
+ * The subscription listens to the {@link org.reactivesource.EventChannel} and keeps the events in a bounded buffer
+ * until the subscriber requests them. Events are delivered by the thread that pushes the events or by the thread that
+ * requests them, but never by two threads at the same time.
+ * <p/>
+ * The subscription is completed when the channel is closed: the events the subscriber already requested are delivered,
+ * the other buffered events are dropped, and the subscriber receives <code>onComplete</code>.
+ *
+ * @param <T> the class of the monitored entity
+ */
+class EventSubscription<T> extends EventListener<T> implements Subscription {
+
+    /**
+     * How long a producer waits for space in the buffer before checking again whether the subscription is still open.
+     */
+    static final long OFFER_TIMEOUT_MILLIS = 100L;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final EventChannel<T> eventChannel;
+    private final Subscriber<? super Event<T>> subscriber;
+    private final BlockingQueue<Event<T>> buffer;
+    private final AtomicLong requested;
+    private final AtomicInteger pendingDrains;
+
+    private volatile boolean cancelled;
+    private volatile boolean completed;
+    private volatile Throwable error;
+
+    EventSubscription(EventChannel<T> eventChannel, EntityExtractor<T> entityExtractor,
+                      Subscriber<? super Event<T>> subscriber, int bufferSize) {
+        super(entityExtractor);
+        this.eventChannel = eventChannel;
+        this.subscriber = subscriber;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.requested = new AtomicLong(0L);
+        this.pendingDrains = new AtomicInteger(0);
+        this.cancelled = false;
+        this.completed = false;
+        this.error = null;
+    }
+
+    /**
+     * Buffers the event and delivers it if the subscriber requested it. Blocks while the buffer is full, until the
+     * subscription is cancelled or completed. The event is dropped if the waiting thread is interrupted.
+     * <p/>
+     * The event is delivered after this method returns, so the buffer keeps its {@link Event#copy()}, which is only a
+     * new instance for the events reused in low-garbage mode.
+     */
+    @Override
+    public void onEvent(Event<T> event) {
+        Event<T> ownEvent = event.copy();
+        try {
+            while (!buffer.offer(ownEvent, OFFER_TIMEOUT_MILLIS, MILLISECONDS)) {
+                if (isClosed()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ie) {
+            logger.warn("Interrupted while waiting for the subscriber to request events. Dropping event {}", event);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (isClosed()) {
+            // the subscription was closed while waiting for space in the buffer
+            buffer.clear();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            error = new IllegalArgumentException("The number of requested events should be positive but was " + n);
+        } else {
+            addRequested(n);
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            eventChannel.removeSubscription(this);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Completes the subscription. Called by the channel when it is closed. A producer blocked on the full buffer
+     * returns at its next check.
+     */
+    void complete() {
+        completed = true;
+        drain();
+    }
+
+    boolean isClosed() {
+        return cancelled || completed;
+    }
+
+    int bufferedEvents() {
+        return buffer.size();
+    }
+
+    private void addRequested(long n) {
+        long current;
+        long next;
+        do {
+            current = requested.get();
+            next = current + n < 0 ? Long.MAX_VALUE : current + n;
+        } while (!requested.compareAndSet(current, next));
+    }
+
+    /**
+     * Delivers as many buffered events as requested. Only the thread that increments the counter from zero delivers
+     * events. The other threads only make sure that it loops once more.
+     */
+    private void drain() {
+        if (pendingDrains.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            if (!cancelled && error != null) {
+                cancel();
+                subscriber.onError(error);
+            }
+            while (!cancelled && requested.get() > 0) {
+                Event<T> event = buffer.poll();
+                if (event == null) {
+                    break;
+                }
+                if (requested.get() != Long.MAX_VALUE) {
+                    requested.decrementAndGet();
+                }
+                deliver(event);
+            }
+            if (!cancelled && completed) {
+                cancel();
+                subscriber.onComplete();
+            }
+            missed = pendingDrains.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void deliver(Event<T> event) {
+        try {
+            subscriber.onNext(event);
+        } catch (RuntimeException re) {
+            logger.error("Subscriber failed to process event {}. Cancelling the subscription.", event, re);
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+import java.util.Map;
+
+/**
+ * The {@link org.reactivesource.Event} handed to the listeners. The entities are converted by the
+ * {@link org.reactivesource.EntityExtractor} the first time they are requested, and then memoized.
+ * <p/>
+ * Together with a {@link org.reactivesource.LazyJsonEvent} this means that an entity that no listener looks at is
+ * neither decoded nor extracted. If the extractor is an {@link org.reactivesource.EntityBinder}, the entities of a
+ * {@link org.reactivesource.LazyJsonEvent} are bound directly from their JSON.
+ *
+ * @param <T> the class of the monitored entity
+ */
+class ExtractedEvent<T> extends Event<T> {
+
+    private final Supplier<T> newEntitySupplier;
+    private final Supplier<T> oldEntitySupplier;
+
+    ExtractedEvent(final Event<Map<String, Object>> event, final EntityExtractor<T> entityExtractor) {
+        super(event.getEventType(), event.getEntityName(), event.getChangeTimestamp());
+        this.newEntitySupplier = Suppliers.memoize(new Supplier<T>() {
+            @Override public T get() {
+                return extractNewEntity(event, entityExtractor);
+            }
+        });
+        this.oldEntitySupplier = Suppliers.memoize(new Supplier<T>() {
+            @Override public T get() {
+                return extractOldEntity(event, entityExtractor);
+            }
+        });
+    }
+
+    @Override
+    public T getNewEntity() {
+        return newEntitySupplier.get();
+    }
+
+    @Override
+    public T getOldEntity() {
+        return oldEntitySupplier.get();
+    }
+
+    /**
+     * Converts the new entity of the event. If the extractor is an {@link org.reactivesource.EntityBinder} and the
+     * event keeps the raw JSON of its entities, the entity is bound directly from the JSON.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T extractNewEntity(Event<Map<String, Object>> event, EntityExtractor<T> entityExtractor) {
+        if (entityExtractor instanceof EntityBinder && event instanceof LazyJsonEvent) {
+            return ((LazyJsonEvent) event).bindNewEntity((EntityBinder<T>) entityExtractor);
+        }
+        return entityExtractor.extractEntity(event.getNewEntity());
+    }
+
+    /**
+     * Converts the old entity of the event, like {@link #extractNewEntity(Event, EntityExtractor)}.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T extractOldEntity(Event<Map<String, Object>> event, EntityExtractor<T> entityExtractor) {
+        if (entityExtractor instanceof EntityBinder && event instanceof LazyJsonEvent) {
+            return ((LazyJsonEvent) event).bindOldEntity((EntityBinder<T>) entityExtractor);
+        }
+        return entityExtractor.extractEntity(event.getOldEntity());
+    }
+}
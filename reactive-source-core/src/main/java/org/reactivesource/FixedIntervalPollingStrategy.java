@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import static org.reactivesource.util.Assert.isTrue;
+
+/**
+ * {@link org.reactivesource.PollingStrategy} that always waits the same amount of time between two polls, regardless
+ * of the outcome of the last poll. This is the default strategy of the {@link org.reactivesource.ReactiveSource}.
+ */
+public class FixedIntervalPollingStrategy implements PollingStrategy {
+
+    private final long intervalMillis;
+
+    public FixedIntervalPollingStrategy(long intervalMillis) {
+        isTrue(intervalMillis >= 0, "intervalMillis can not be negative");
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public long nextPollDelay(int eventsFetched, long pollDurationMillis) {
+        return intervalMillis;
+    }
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.reactivesource.util.Assert.notNull;
+import static org.reactivesource.util.JsonParserUtils.createParser;
+import static org.reactivesource.util.JsonParserUtils.jsonStringToMap;
+
+/**
+ * An {@link org.reactivesource.Event} that keeps the raw JSON of its entities, as received from the event source, and
+ * decodes each entity the first time it is requested.
+ * <p/>
+ * Listeners that only look at the type of the event, or only at the new entity, don't pay for decoding the entities
+ * they ignore. The decoded entities are memoized, so every entity is decoded at most once, even if the event is shared
+ * by many listeners and threads.
+ * <p/>
+ * Since decoding is deferred, a malformed entity results in an exception in the thread that requests it, instead of
+ * the thread that polls the event source.
+ * <p/>
+ * The entities can also be bound directly to model objects by an
+ * {@link org.reactivesource.EntityBinder}, without being decoded to a {@link java.util.Map}.
+ */
+public class LazyJsonEvent extends Event<Map<String, Object>> {
+
+    private static final String EMPTY_JSON_OBJECT = "{}";
+
+    private final String rawNewEntity;
+    private final String rawOldEntity;
+    private final Supplier<Map<String, Object>> newEntitySupplier;
+    private final Supplier<Map<String, Object>> oldEntitySupplier;
+
+    /**
+     * Creates an event for entities received as JSON strings.
+     *
+     * @param eventType     the type of the event
+     * @param entityName    the name of the modified entity
+     * @param newEntityJson the JSON of the entity after the modification
+     * @param oldEntityJson the JSON of the entity before the modification
+     */
+    public LazyJsonEvent(EventType eventType, String entityName, String newEntityJson, String oldEntityJson) {
+        this(eventType, entityName, newEntityJson, oldEntityJson, null);
+    }
+
+    /**
+     * Creates an event for entities received as JSON strings, which are decoded to {@link org.reactivesource.Row}s
+     * by the given decoder.
+     *
+     * @param eventType     the type of the event
+     * @param entityName    the name of the modified entity
+     * @param newEntityJson the JSON of the entity after the modification
+     * @param oldEntityJson the JSON of the entity before the modification
+     * @param rowDecoder    the decoder of the entities of the table, or null to decode them to maps
+     */
+    public LazyJsonEvent(EventType eventType, String entityName, String newEntityJson, String oldEntityJson,
+                         RowDecoder rowDecoder) {
+        this(eventType, entityName, newEntityJson, oldEntityJson, rowDecoder, UNKNOWN_CHANGE_TIMESTAMP);
+    }
+
+    /**
+     * Like {@link #LazyJsonEvent(EventType, String, String, String, RowDecoder)}, for events that carry the time of
+     * the change.
+     *
+     * @param changeTimestamp the time the change happened, in microseconds since the epoch
+     */
+    public LazyJsonEvent(EventType eventType, String entityName, String newEntityJson, String oldEntityJson,
+                         RowDecoder rowDecoder, long changeTimestamp) {
+        super(eventType, entityName, changeTimestamp);
+        notNull(newEntityJson, "newEntityJson can not be null");
+        notNull(oldEntityJson, "oldEntityJson can not be null");
+        this.rawNewEntity = newEntityJson;
+        this.rawOldEntity = oldEntityJson;
+        this.newEntitySupplier = Suppliers.memoize(new JsonStringDecoder(newEntityJson, rowDecoder));
+        this.oldEntitySupplier = Suppliers.memoize(new JsonStringDecoder(oldEntityJson, rowDecoder));
+    }
+
+    @Override
+    public Map<String, Object> getNewEntity() {
+        return newEntitySupplier.get();
+    }
+
+    @Override
+    public Map<String, Object> getOldEntity() {
+        return oldEntitySupplier.get();
+    }
+
+    /**
+     * Converts the new entity with the given binder, which binds it directly from the JSON.
+     */
+    <T> T bindNewEntity(EntityBinder<T> binder) {
+        return bind(binder, rawNewEntity);
+    }
+
+    /**
+     * Converts the old entity with the given binder, which binds it directly from the JSON.
+     */
+    <T> T bindOldEntity(EntityBinder<T> binder) {
+        return bind(binder, rawOldEntity);
+    }
+
+    private static <T> T bind(EntityBinder<T> binder, String json) {
+        try (JsonParser parser = createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JSONException("Could not map row entity:" + json);
+            }
+            return binder.bindEntity(parser);
+        } catch (IOException e) {
+            throw new JSONException("Could not map row entity:" + json);
+        }
+    }
+
+    /**
+     * Shows the raw JSON of the entities, so that logging the event doesn't decode them.
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("eventType", getEventType())
+                .add("entityName", getEntityName())
+                .add("oldEntity", rawOldEntity)
+                .add("newEntity", rawNewEntity)
+                .toString();
+    }
+
+    private static class JsonStringDecoder implements Supplier<Map<String, Object>> {
+        private final String json;
+
+        private final RowDecoder rowDecoder;
+
+        JsonStringDecoder(String json, RowDecoder rowDecoder) {
+            this.json = json;
+            this.rowDecoder = rowDecoder;
+        }
+
+        @Override
+        public Map<String, Object> get() {
+            if (rowDecoder != null) {
+                return EMPTY_JSON_OBJECT.equals(json) ? Row.EMPTY : rowDecoder.decode(json);
+            }
+            if (EMPTY_JSON_OBJECT.equals(json)) {
+                return new HashMap<>();
+            }
+            return jsonStringToMap(json);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers the events of an {@link org.reactivesource.EventChannel} to one {@link org.reactivesource.EventListener}.
+ *
+ * @param <T> The type of the object expected by the event listener.
+ */
+interface ListenerDispatcher<T> {
+
+    /**
+     * Hands the event over to the listener. Events are handed over in the order they arrived in the channel and
+     * the listener has to receive them in the same order.
+     *
+     * @param event the event to deliver
+     */
+    void dispatch(Event<Map<String, Object>> event);
+
+    /**
+     * Hands the events of one poll over to the listener, in order. A {@link org.reactivesource.BatchEventListener}
+     * receives them as one batch. The list can be empty.
+     *
+     * @param events the events to deliver
+     */
+    void dispatch(List<Event<Map<String, Object>>> events);
+
+    /**
+     * Makes the listener deliver any events it is holding back.
+     */
+    void flush();
+
+    /**
+     * @return the listener the events are delivered to
+     */
+    EventListener<T> getListener();
+}
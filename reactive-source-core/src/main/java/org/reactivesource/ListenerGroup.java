@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * The listeners of an {@link org.reactivesource.EventChannel} that are notified in the thread that pushes the events
+ * and share the same {@link org.reactivesource.EntityExtractor}.
+ * <p/>
+ * The entities of every event are extracted at most once for the whole group, and all the listeners of the group
+ * receive the same {@link org.reactivesource.Event} instances. Listeners must therefore not modify the entities they
+ * receive.
+ * <p/>
+ * In low-garbage mode the group hands a single {@link org.reactivesource.ReusableEvent} to its listeners, which is
+ * reset for every event. Batch listeners still receive events of their own.
+ *
+ * @param <T> The type of the object expected by the event listeners.
+ */
+class ListenerGroup<T> {
+
+    private final EntityExtractor<T> entityExtractor;
+    private final List<EventListener<T>> listeners;
+    private final ReusableEvent<T> reusableEvent;
+
+    ListenerGroup(EntityExtractor<T> entityExtractor) {
+        this(entityExtractor, false);
+    }
+
+    /**
+     * @param entityExtractor the extractor shared by the listeners of the group
+     * @param reuseEvents     true to notify the listeners with a reused event instance
+     */
+    ListenerGroup(EntityExtractor<T> entityExtractor, boolean reuseEvents) {
+        notNull(entityExtractor, "entityExtractor can not be null");
+        this.entityExtractor = entityExtractor;
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.reusableEvent = reuseEvents ? new ReusableEvent<>(entityExtractor) : null;
+    }
+
+    void add(EventListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    boolean remove(EventListener<T> listener) {
+        return listeners.remove(listener);
+    }
+
+    EntityExtractor<T> getEntityExtractor() {
+        return entityExtractor;
+    }
+
+    boolean isEmpty() {
+        return listeners.isEmpty();
+    }
+
+    /**
+     * Extracts the entities of the events and notifies every listener of the group, in order. Batch listeners receive
+     * all the events as one batch, even if there are none. Every listener only receives the events accepted by its
+     * {@link org.reactivesource.EventFilter}.
+     *
+     * @param events the events of one poll
+     */
+    void dispatch(List<Event<Map<String, Object>>> events) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (reusableEvent != null) {
+            dispatchReusingEvents(events);
+            return;
+        }
+        List<Event<T>> extractedEvents = extract(events);
+        for (EventListener<T> listener : listeners) {
+            List<Event<T>> acceptedEvents = filter(listener, events, extractedEvents);
+            if (listener instanceof BatchEventListener) {
+                ((BatchEventListener<T>) listener).notifyExtractedEvents(acceptedEvents);
+            } else {
+                for (Event<T> event : acceptedEvents) {
+                    EventListener.deliver(listener, event);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifies the listeners event by event, through the reusable event. The only allocation is the snapshot of the
+     * listeners, once per call.
+     */
+    @SuppressWarnings("unchecked")
+    private void dispatchReusingEvents(List<Event<Map<String, Object>>> events) {
+        Object[] snapshot = listeners.toArray();
+        try {
+            for (int i = 0; i < events.size(); i++) {
+                Event<Map<String, Object>> event = events.get(i);
+                reusableEvent.reset(event);
+                for (Object element : snapshot) {
+                    EventListener<T> listener = (EventListener<T>) element;
+                    if (!(listener instanceof BatchEventListener)
+                            && (listener.getEventFilter().acceptsAll() || listener.accepts(event))) {
+                        EventListener.deliver(listener, reusableEvent);
+                    }
+                }
+            }
+        } finally {
+            reusableEvent.clear();
+        }
+        for (Object element : snapshot) {
+            if (element instanceof BatchEventListener) {
+                ((BatchEventListener<T>) element).notifyEvents(events);
+            }
+        }
+    }
+
+    void flush() {
+        for (EventListener<T> listener : listeners) {
+            listener.flush();
+        }
+    }
+
+    private List<Event<T>> filter(EventListener<T> listener, List<Event<Map<String, Object>>> events,
+                                  List<Event<T>> extractedEvents) {
+        if (listener.getEventFilter().acceptsAll()) {
+            return extractedEvents;
+        }
+        List<Event<T>> acceptedEvents = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (listener.accepts(events.get(i))) {
+                acceptedEvents.add(extractedEvents.get(i));
+            }
+        }
+        return acceptedEvents;
+    }
+
+    private List<Event<T>> extract(List<Event<Map<String, Object>>> events) {
+        List<Event<T>> extractedEvents = new ArrayList<>(events.size());
+        for (Event<Map<String, Object>> event : events) {
+            extractedEvents.add(new ExtractedEvent<>(event, entityExtractor));
+        }
+        return extractedEvents;
+    }
+}
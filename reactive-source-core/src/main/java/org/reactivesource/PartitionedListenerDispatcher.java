@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * Notifies the listener on the given {@link java.util.concurrent.Executor}, using many lanes in parallel.
+ * <p/>
+ * Every event is assigned to a lane by the hash of its key. Each lane is an
+ * {@link org.reactivesource.AsyncListenerDispatcher}, so the events of a lane are delivered one by one and in order,
+ * while the lanes are processed in parallel. Events with the same key are therefore always delivered in order, but the
+ * listener is called concurrently for events with different keys and has to be thread safe.
+ * <p/>
+ * {@link org.reactivesource.BatchEventListener}s are not supported, since they are not thread safe.
+ */
+class PartitionedListenerDispatcher<T> implements ListenerDispatcher<T> {
+
+    private final EventListener<T> listener;
+    private final EventKeyExtractor keyExtractor;
+    private final AsyncListenerDispatcher<T>[] lanes;
+
+    @SuppressWarnings("unchecked")
+    PartitionedListenerDispatcher(EventListener<T> listener, EventKeyExtractor keyExtractor, Executor executor,
+                                  int numberOfLanes, int queueCapacity) {
+        notNull(listener, "listener can not be null");
+        notNull(keyExtractor, "keyExtractor can not be null");
+        isTrue(numberOfLanes > 0, "numberOfLanes should be a positive number");
+        isTrue(!(listener instanceof BatchEventListener), "BatchEventListeners can not be notified in parallel");
+        this.listener = listener;
+        this.keyExtractor = keyExtractor;
+        this.lanes = new AsyncListenerDispatcher[numberOfLanes];
+        for (int i = 0; i < numberOfLanes; i++) {
+            lanes[i] = new AsyncListenerDispatcher<>(listener, executor, queueCapacity);
+        }
+    }
+
+    @Override
+    public void dispatch(Event<Map<String, Object>> event) {
+        laneOf(event).dispatch(event);
+    }
+
+    @Override
+    public void dispatch(List<Event<Map<String, Object>>> events) {
+        for (Event<Map<String, Object>> event : events) {
+            dispatch(event);
+        }
+    }
+
+    @Override
+    public void flush() {
+        // nothing to do, only non batching listeners are supported
+    }
+
+    @Override
+    public EventListener<T> getListener() {
+        return listener;
+    }
+
+    /**
+     * @return the index of the lane of the events with the given key
+     */
+    int laneOf(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        return spread(key.hashCode()) % lanes.length;
+    }
+
+    private AsyncListenerDispatcher<T> laneOf(Event<Map<String, Object>> event) {
+        return lanes[laneOf(keyExtractor.extractKey(event))];
+    }
+
+    /**
+     * Mixes the bits of the hash code, so that keys with regular hash codes (ie multiples of the number of lanes) are
+     * still spread over all the lanes.
+     */
+    private static int spread(int hashCode) {
+        int h = hashCode ^ (hashCode >>> 16);
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h & Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+/**
+ * The {@link org.reactivesource.PollingStrategy} decides how long the {@link org.reactivesource.ReactiveSource} waits
+ * between two consecutive queries to its {@link org.reactivesource.EventSource}.
+ * <p/>
+ * After every poll the strategy is informed about the outcome of the poll (how many events were fetched and how long
+ * the call to {@link org.reactivesource.EventSource#getNewEvents()} took) and returns the delay before the next poll.
+ * <p/>
+ * Implementations may keep state between calls. A strategy instance is used by a single poller and should therefore
+ * not be shared between different {@link org.reactivesource.ReactiveSource}s.
+ *
+ * @see org.reactivesource.FixedIntervalPollingStrategy
+ * @see org.reactivesource.AdaptivePollingStrategy
+ */
+public interface PollingStrategy {
+
+    /**
+     * Calculates the time to wait before polling the event source again.
+     *
+     * @param eventsFetched      the number of events returned by the last poll. <code>0</code> if the poll failed.
+     * @param pollDurationMillis the time in milliseconds it took to query the event source.
+     * @return the delay in milliseconds before the next poll. <code>0</code> means poll again immediately.
+     */
+    public long nextPollDelay(int eventsFetched, long pollDurationMillis);
+}
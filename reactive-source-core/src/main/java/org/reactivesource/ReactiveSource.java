@@ -6,9 +6,20 @@
 package org.reactivesource;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import org.reactivesource.metrics.ListenerMetrics;
+import org.reactivesource.metrics.MetricsRegistry;
+import org.reactivesource.metrics.SourceMetrics;
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.reactivesource.util.Assert.hasText;
+import static org.reactivesource.util.Assert.isTrue;
 import static org.reactivesource.util.Assert.notNull;
 
 /**
@@ -42,48 +53,266 @@ public class ReactiveSource<T> {
 
     private EventChannel<T> eventChannel;
     private EventPoller<T> eventPoller;
+    private final ReactiveSourceGroup group;
     private Thread pollerDaemon;
+    private ScheduledEventPoller scheduledPoller;
+    private final List<EventListener<T>> listeners = new ArrayList<>();
+    private String metricsName;
+    private MetricsRegistry metricsRegistry;
 
     public ReactiveSource(EventSource eventSource) {
         this(eventSource, new EventChannel<T>());
     }
 
+    /**
+     * Creates a {@link ReactiveSource} that uses the given {@link PollingStrategy} to decide how often the
+     * {@link EventSource} is queried for new events.
+     *
+     * @param eventSource     the monitored event source
+     * @param pollingStrategy the strategy deciding the delay between two polls
+     */
+    public ReactiveSource(EventSource eventSource, PollingStrategy pollingStrategy) {
+        this(eventSource, new EventChannel<T>(), pollingStrategy, null);
+    }
+
+    /**
+     * Creates a {@link ReactiveSource} that hands the events to its listeners through a preallocated ring buffer.
+     * <p/>
+     * Every listener gets its own thread and reads the ring at its own pace, so a slow listener does not delay the
+     * other listeners. The polling thread only waits when the slowest listener is <code>ringBufferSize</code> events
+     * behind.
+     *
+     * @param eventSource    the monitored event source
+     * @param ringBufferSize the number of slots of the ring buffer. Must be a power of 2.
+     * @param waitStrategy   how the listener threads wait for new events
+     */
+    public ReactiveSource(EventSource eventSource, int ringBufferSize, WaitStrategy waitStrategy) {
+        this(eventSource, new RingBufferEventChannel<T>(ringBufferSize, waitStrategy));
+    }
+
     @VisibleForTesting ReactiveSource(EventSource eventSource, EventChannel<T> eventChannel) {
         this(eventChannel, new EventPoller<>(eventSource, eventChannel));
     }
 
+    ReactiveSource(EventSource eventSource, EventChannel<T> eventChannel, PollingStrategy pollingStrategy,
+                   ReactiveSourceGroup group) {
+        this(eventChannel, new EventPoller<>(eventSource, eventChannel, pollingStrategy), group);
+    }
+
     @VisibleForTesting ReactiveSource(EventChannel<T> eventChannel, EventPoller<T> eventPoller) {
+        this(eventChannel, eventPoller, null);
+    }
+
+    @VisibleForTesting ReactiveSource(EventChannel<T> eventChannel, EventPoller<T> eventPoller,
+                                      ReactiveSourceGroup group) {
         super();
         logger.info("Initializing ReactiveSource");
         notNull(eventChannel, "eventChannel can not be null");
         notNull(eventPoller, "eventPoller can not be null");
         this.eventChannel = eventChannel;
         this.eventPoller = eventPoller;
+        this.group = group;
         this.pollerDaemon = null;
+        this.scheduledPoller = null;
+    }
+
+    /**
+     * Creates a {@link ReactiveSource} that runs in low-garbage mode.
+     * <p/>
+     * In low-garbage mode the listeners added with {@link #addEventListener(EventListener)} are notified with a
+     * single {@link Event} instance, which is reset for every event, and the events of a poll are handed to the
+     * listeners without being copied. Once warmed up, dispatching an event allocates nothing besides what the
+     * {@link EntityExtractor} allocates.
+     * <p/>
+     * The event passed to {@link EventListener#onEvent(Event)} is then only valid until the callback returns. A
+     * listener that keeps the event, or hands it to another thread, has to keep {@link Event#copy()} instead. Batch
+     * listeners, the listeners notified on an executor and the subscribers of
+     * {@link #toPublisher(EntityExtractor, int)} always receive events of their own.
+     *
+     * @param eventSource     the monitored event source
+     * @param pollingStrategy the strategy deciding the delay between two polls
+     */
+    public static <T> ReactiveSource<T> lowGarbage(EventSource eventSource, PollingStrategy pollingStrategy) {
+        return new ReactiveSource<>(eventSource, new EventChannel<T>(true), pollingStrategy, null);
     }
 
     public void addEventListener(EventListener<T> listener) {
         logger.info("Adding listener to ReactiveSource.");
         notNull(listener, "Can not add null eventListener");
         eventChannel.addEventListener(listener);
+        trackListener(listener);
+    }
+
+    /**
+     * Removes a listener added with any of the <code>addEventListener</code> methods, and the metrics it recorded.
+     * The listener may still receive the events that are being dispatched when this method is called.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeEventListener(EventListener<T> listener) {
+        logger.info("Removing listener from ReactiveSource.");
+        notNull(listener, "Can not remove null eventListener");
+        eventChannel.removeEventListener(listener);
+        untrackListener(listener);
+    }
+
+    /**
+     * Adds a listener that is notified asynchronously, on the given executor, instead of the polling thread.
+     * <p/>
+     * The listener gets its own queue, so a slow listener delays neither the polling of the {@link EventSource} nor
+     * the other listeners. The listener still receives the events one at a time and in order. When
+     * <code>queueCapacity</code> events are waiting for the listener, polling blocks until the listener catches up.
+     *
+     * @param listener      the listener to add
+     * @param executor      the executor that runs the listener
+     * @param queueCapacity the maximum number of events waiting for the listener
+     */
+    public void addEventListener(EventListener<T> listener, Executor executor, int queueCapacity) {
+        logger.info("Adding asynchronous listener to ReactiveSource.");
+        notNull(listener, "Can not add null eventListener");
+        eventChannel.addEventListener(listener, executor, queueCapacity);
+        trackListener(listener);
+    }
+
+    /**
+     * Adds a listener that is notified on the given executor, processing up to <code>numberOfLanes</code> events in
+     * parallel.
+     * <p/>
+     * Every event is assigned to a lane by its key, as returned by the {@link EventKeyExtractor}. Events with the same
+     * key are delivered one by one and in the order they occurred, while events with different keys are delivered
+     * concurrently. The listener must therefore be thread safe. A {@link BatchEventListener} can not be added this
+     * way.
+     *
+     * @param listener      the listener to add
+     * @param keyExtractor  decides the key of every event, ie {@link ColumnKeyExtractor} for the primary key
+     * @param executor      the executor that runs the listener. Should have at least <code>numberOfLanes</code>
+     *                      threads.
+     * @param numberOfLanes the number of lanes
+     * @param queueCapacity the maximum number of events waiting in every lane
+     */
+    public void addEventListener(EventListener<T> listener, EventKeyExtractor keyExtractor, Executor executor,
+                                 int numberOfLanes, int queueCapacity) {
+        logger.info("Adding partitioned listener to ReactiveSource.");
+        notNull(listener, "Can not add null eventListener");
+        eventChannel.addEventListener(listener, keyExtractor, executor, numberOfLanes, queueCapacity);
+        trackListener(listener);
+    }
+
+    /**
+     * Exposes the events of this {@link ReactiveSource} as a Reactive Streams {@link Publisher}.
+     * <p/>
+     * Every subscriber buffers up to <code>bufferSize</code> events that it has not requested yet. When the buffer of
+     * a subscriber is full, the {@link EventSource} is not polled until the subscriber requests more events, so a slow
+     * subscriber slows down the whole {@link ReactiveSource}. The stream completes when the {@link ReactiveSource}
+     * stops.
+     *
+     * @param entityExtractor the extractor converting the entities of the events
+     * @param bufferSize      the maximum number of events waiting for a subscriber
+     * @return a publisher of the events of this {@link ReactiveSource}
+     */
+    public Publisher<Event<T>> toPublisher(EntityExtractor<T> entityExtractor, int bufferSize) {
+        return new EventPublisher<>(eventChannel, entityExtractor, bufferSize);
+    }
+
+    /**
+     * Makes this {@link ReactiveSource} record its metrics in the given registry, under the given name. The metrics
+     * of its listeners, including the ones added later, are recorded too, named after their class.
+     * <p/>
+     * Metrics are disabled by default and cost nothing until enabled. They are recorded until
+     * {@link #disableMetrics()} is called or the source is stopped, which remove them from the registry.
+     *
+     * @param name     the name of this source in the registry
+     * @param registry the registry keeping the metrics
+     * @throws IllegalArgumentException if the registry already has a source with the same name
+     */
+    public synchronized void enableMetrics(String name, MetricsRegistry registry) {
+        hasText(name, "name can not be null or empty");
+        notNull(registry, "registry can not be null");
+        isTrue(metricsRegistry == null, "metrics are already enabled");
+        SourceMetrics sourceMetrics = registry.registerSource(name);
+        sourceMetrics.setQueueDepthGauge(new Supplier<Integer>() {
+            @Override public Integer get() {
+                return eventChannel.getQueueDepth();
+            }
+        });
+        metricsName = name;
+        metricsRegistry = registry;
+        for (EventListener<T> listener : listeners) {
+            registerListenerMetrics(listener);
+        }
+        eventChannel.setMetrics(sourceMetrics);
+        eventPoller.setMetrics(sourceMetrics);
+    }
+
+    /**
+     * Stops recording the metrics of this {@link ReactiveSource} and of its listeners, and removes them from the
+     * registry, which unregisters their MBeans. Does nothing if metrics are not enabled.
+     */
+    public synchronized void disableMetrics() {
+        if (metricsRegistry == null) {
+            return;
+        }
+        eventPoller.setMetrics(null);
+        eventChannel.setMetrics(null);
+        for (EventListener<T> listener : listeners) {
+            listener.setMetrics(null);
+        }
+        metricsRegistry.unregisterSource(metricsName);
+        metricsRegistry = null;
+        metricsName = null;
+    }
+
+    private synchronized void trackListener(EventListener<T> listener) {
+        listeners.add(listener);
+        if (metricsRegistry != null) {
+            registerListenerMetrics(listener);
+        }
+    }
+
+    private synchronized void untrackListener(EventListener<T> listener) {
+        if (!listeners.remove(listener)) {
+            return;
+        }
+        ListenerMetrics listenerMetrics = listener.getMetrics();
+        if (metricsRegistry != null && listenerMetrics != null) {
+            listener.setMetrics(null);
+            metricsRegistry.unregisterListener(metricsName, listenerMetrics.getListenerName());
+        }
+    }
+
+    private void registerListenerMetrics(EventListener<T> listener) {
+        String listenerName = listener.getClass().getSimpleName();
+        if (listenerName.isEmpty()) {
+            listenerName = listener.getClass().getName();
+        }
+        ListenerMetrics listenerMetrics = metricsRegistry.registerListener(metricsName, listenerName);
+        listener.setMetrics(listenerMetrics);
     }
 
     /**
      * @return true if the {@link ReactiveSource} is started. Returns false if stopped.
      */
     public boolean isStarted() {
-        return pollerDaemon != null;
+        return pollerDaemon != null || scheduledPoller != null;
     }
 
     /**
-     * Starts monitoring the {@link EventSource} associated with this {@link ReactiveSource}
+     * Starts monitoring the {@link EventSource} associated with this {@link ReactiveSource}.
+     * <p/>
+     * If the {@link ReactiveSource} belongs to a {@link ReactiveSourceGroup} the polling is executed by the threads
+     * of the group. Otherwise a dedicated daemon thread is started.
      */
     public void start() {
         if (!isStarted()) {
             logger.info("Starting ReactiveSource");
-            pollerDaemon = new Thread(eventPoller);
-            pollerDaemon.setDaemon(true);
-            pollerDaemon.start();
+            eventChannel.open();
+            if (group == null) {
+                pollerDaemon = new Thread(eventPoller);
+                pollerDaemon.setDaemon(true);
+                pollerDaemon.start();
+            } else {
+                scheduledPoller = group.schedule(eventPoller);
+            }
         }
     }
 
@@ -96,12 +325,24 @@ public class ReactiveSource<T> {
      * If you start the {@link ReactiveSource} again, any events that occurred in eventSource the between stopping
      * the {@link ReactiveSource} and starting it again will be lost.
      * </p>
+     * <p/>
+     * <p>
+     * Stopping disables the metrics, see {@link #disableMetrics()}.
+     * </p>
      */
     public void stop() {
         if (isStarted()) {
             logger.info("Stopping ReactiveSource");
             eventPoller.stop();
+            // wakes up the poller if it waits for a subscriber, so that the last poll can finish
+            eventChannel.completeSubscriptions();
+            if (scheduledPoller != null) {
+                scheduledPoller.cancel();
+            }
+            eventChannel.close();
             pollerDaemon = null;
+            scheduledPoller = null;
         }
+        disableMetrics();
     }
 }
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.reactivesource.EventPoller.TIME_BETWEEN_POLLS;
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * The {@link org.reactivesource.ReactiveSourceGroup} runs the pollers of many {@link org.reactivesource.ReactiveSource}s
+ * on a small, bounded pool of threads.
+ * <p/>
+ * A standalone {@link org.reactivesource.ReactiveSource} starts a dedicated thread that sleeps between two polls. When
+ * monitoring hundreds of tables this results in hundreds of mostly idle threads. The {@link ReactiveSource}s created
+ * by a group instead poll their {@link org.reactivesource.EventSource} as short tasks on the group's
+ * {@link java.util.concurrent.ScheduledExecutorService}, so the number of threads stays the same regardless of the
+ * number of monitored tables.
+ * <p/>
+ * <u>Example</u>
+ * <pre>
+ *   {@code ReactiveSourceGroup group = new ReactiveSourceGroup(4);
+ *     ReactiveSource<Purchase> purchases = group.newReactiveSource(purchasesEventSource);
+ *     ReactiveSource<Customer> customers = group.newReactiveSource(customersEventSource);
+ *     ...
+ *     //start all the sources of the group
+ *     group.start();
+ *     ...
+ *     //sources can still be stopped and started individually
+ *     customers.stop();
+ *     ...
+ *     //stop all the sources and release the threads of the group
+ *     group.shutdown();
+ *     }
+ * </pre>
+ */
+public class ReactiveSourceGroup {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+    private final List<ReactiveSource<?>> reactiveSources;
+
+    /**
+     * Creates a group that polls its sources on a new pool with the given number of daemon threads.
+     *
+     * @param poolSize the number of threads used for polling
+     */
+    public ReactiveSourceGroup(int poolSize) {
+        this(createExecutor(poolSize), true);
+    }
+
+    /**
+     * Creates a group that polls its sources on the given executor. The executor is not shut down when the group is
+     * shut down.
+     *
+     * @param executor the executor used for polling
+     */
+    public ReactiveSourceGroup(ScheduledExecutorService executor) {
+        this(executor, false);
+    }
+
+    private ReactiveSourceGroup(ScheduledExecutorService executor, boolean ownsExecutor) {
+        notNull(executor, "executor can not be null");
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.reactiveSources = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Creates a new {@link ReactiveSource} for the given {@link EventSource}, polled by the threads of this group.
+     *
+     * @param eventSource the monitored event source
+     * @param <T>         the class of the monitored entity
+     * @return the new {@link ReactiveSource}. It is not started.
+     */
+    public <T> ReactiveSource<T> newReactiveSource(EventSource eventSource) {
+        return newReactiveSource(eventSource, new FixedIntervalPollingStrategy(TIME_BETWEEN_POLLS));
+    }
+
+    /**
+     * Creates a new {@link ReactiveSource} for the given {@link EventSource}, polled by the threads of this group
+     * according to the given {@link PollingStrategy}.
+     *
+     * @param eventSource     the monitored event source
+     * @param pollingStrategy the strategy deciding the delay between two polls
+     * @param <T>             the class of the monitored entity
+     * @return the new {@link ReactiveSource}. It is not started.
+     */
+    public <T> ReactiveSource<T> newReactiveSource(EventSource eventSource, PollingStrategy pollingStrategy) {
+        ReactiveSource<T> reactiveSource =
+                new ReactiveSource<>(eventSource, new EventChannel<T>(), pollingStrategy, this);
+        reactiveSources.add(reactiveSource);
+        return reactiveSource;
+    }
+
+    /**
+     * Starts all the {@link ReactiveSource}s of this group that are not already started.
+     */
+    public void start() {
+        logger.info("Starting {} ReactiveSources of the group", reactiveSources.size());
+        for (ReactiveSource<?> reactiveSource : reactiveSources) {
+            reactiveSource.start();
+        }
+    }
+
+    /**
+     * Stops all the {@link ReactiveSource}s of this group. The sources can be started again.
+     */
+    public void stop() {
+        logger.info("Stopping {} ReactiveSources of the group", reactiveSources.size());
+        for (ReactiveSource<?> reactiveSource : reactiveSources) {
+            reactiveSource.stop();
+        }
+    }
+
+    /**
+     * Stops all the {@link ReactiveSource}s of this group and releases the polling threads, if they were created by
+     * the group. The group can not be used after it was shut down.
+     */
+    public void shutdown() {
+        stop();
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Starts executing the given poller on the threads of this group.
+     */
+    ScheduledEventPoller schedule(EventPoller<?> eventPoller) {
+        ScheduledEventPoller scheduledPoller = new ScheduledEventPoller(eventPoller, executor);
+        scheduledPoller.start();
+        return scheduledPoller;
+    }
+
+    private static ScheduledExecutorService createExecutor(int poolSize) {
+        isTrue(poolSize > 0, "poolSize should be a positive number");
+        return Executors.newScheduledThreadPool(poolSize,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("reactive-source-poller-%d").build());
+    }
+}
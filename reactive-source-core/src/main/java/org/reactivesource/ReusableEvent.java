@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import java.util.Map;
+
+import static org.reactivesource.ExtractedEvent.extractNewEntity;
+import static org.reactivesource.ExtractedEvent.extractOldEntity;
+
+/**
+ * The {@link org.reactivesource.Event} handed to the listeners of a {@link org.reactivesource.ListenerGroup} in
+ * low-garbage mode. One instance is reset for every event, so that dispatching an event doesn't allocate anything.
+ * <p/>
+ * Like an {@link org.reactivesource.ExtractedEvent}, the entities are converted the first time they are requested and
+ * then kept until the next event. The instance is only valid during the callback of the listener. Listeners that keep
+ * the event have to keep its {@link #copy()}.
+ * <p/>
+ * Not thread safe. It is only used by the thread that pushes the events to the channel.
+ *
+ * @param <T> the class of the monitored entity
+ */
+class ReusableEvent<T> extends Event<T> {
+
+    private final EntityExtractor<T> entityExtractor;
+    private Event<Map<String, Object>> event;
+    private T newEntity;
+    private T oldEntity;
+    private boolean newEntityExtracted;
+    private boolean oldEntityExtracted;
+
+    ReusableEvent(EntityExtractor<T> entityExtractor) {
+        super();
+        this.entityExtractor = entityExtractor;
+    }
+
+    /**
+     * Makes this instance represent the given event.
+     */
+    void reset(Event<Map<String, Object>> event) {
+        this.event = event;
+        this.newEntity = null;
+        this.oldEntity = null;
+        this.newEntityExtracted = false;
+        this.oldEntityExtracted = false;
+    }
+
+    /**
+     * Releases the current event, so that it can be garbage collected before the next event arrives.
+     */
+    void clear() {
+        reset(null);
+    }
+
+    @Override
+    public EventType getEventType() {
+        return event.getEventType();
+    }
+
+    @Override
+    public String getEntityName() {
+        return event.getEntityName();
+    }
+
+    @Override
+    public long getChangeTimestamp() {
+        return event.getChangeTimestamp();
+    }
+
+    @Override
+    public T getNewEntity() {
+        if (!newEntityExtracted) {
+            newEntity = extractNewEntity(event, entityExtractor);
+            newEntityExtracted = true;
+        }
+        return newEntity;
+    }
+
+    @Override
+    public T getOldEntity() {
+        if (!oldEntityExtracted) {
+            oldEntity = extractOldEntity(event, entityExtractor);
+            oldEntityExtracted = true;
+        }
+        return oldEntity;
+    }
+
+    /**
+     * @return an event for the current event that remains valid after the callback. Its entities are converted
+     * again, the first time they are requested.
+     */
+    @Override
+    public Event<T> copy() {
+        return new ExtractedEvent<>(event, entityExtractor);
+    }
+}
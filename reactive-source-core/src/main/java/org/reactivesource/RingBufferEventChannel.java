@@ -0,0 +1,466 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * {@link org.reactivesource.EventChannel} backed by a preallocated ring buffer, in the style of the LMAX Disruptor.
+ * <p/>
+ * The channel has a single producer (the {@link org.reactivesource.EventPoller}) that publishes events into the slots
+ * of the ring, and one consumer per listener. Every consumer runs in its own thread and keeps its own sequence cursor,
+ * so every listener reads the events in order and at its own pace, without any allocation per event.
+ * <p/>
+ * A slot can only be reused when all the consumers have read it. When the ring is full, the producer waits for the
+ * slowest consumer, which naturally slows down the polling of the {@link org.reactivesource.EventSource}. The slots
+ * that all the consumers have read are cleared by the producer on every push, so that the ring doesn't keep the
+ * consumed events alive.
+ *
+ * @param <T> The type of the object expected by the event listeners.
+ */
+class RingBufferEventChannel<T> extends EventChannel<T> {
+
+    private static final long INITIAL_SEQUENCE = -1L;
+    private static final int SPIN_TRIES = 100;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Object[] entries;
+    private final int bufferSize;
+    private final int indexMask;
+    private final WaitStrategy waitStrategy;
+    private final List<Consumer> consumers;
+    private final Lock lock;
+    private final Condition eventsAvailable;
+
+    /**
+     * Sequence of the last event written by the producer.
+     */
+    private volatile long cursor;
+    /**
+     * Sequence of the last event the consumers are allowed to read. Lags behind the cursor while the channel is muted.
+     */
+    private volatile long publishedSequence;
+    /**
+     * Sequence of the last slot cleared by the producer.
+     */
+    private long releasedSequence;
+    /**
+     * Incremented by the polls without events, which wake up the batch listeners so that they check how long their
+     * pending events have waited.
+     */
+    private volatile long ticks;
+    private volatile boolean muted;
+    private volatile boolean running;
+    private volatile boolean closed;
+
+    RingBufferEventChannel(int bufferSize, WaitStrategy waitStrategy) {
+        isTrue(bufferSize > 0 && Integer.bitCount(bufferSize) == 1, "bufferSize should be a positive power of 2");
+        notNull(waitStrategy, "waitStrategy can not be null");
+        this.entries = new Object[bufferSize];
+        this.bufferSize = bufferSize;
+        this.indexMask = bufferSize - 1;
+        this.waitStrategy = waitStrategy;
+        this.consumers = new CopyOnWriteArrayList<>();
+        this.lock = new ReentrantLock();
+        this.eventsAvailable = lock.newCondition();
+        this.cursor = INITIAL_SEQUENCE;
+        this.publishedSequence = INITIAL_SEQUENCE;
+        this.releasedSequence = INITIAL_SEQUENCE;
+        this.muted = false;
+        this.running = false;
+        this.closed = false;
+    }
+
+    @Override
+    void addEventListener(EventListener<T> eventListener) {
+        notNull(eventListener, "Can not add null event listener");
+        addConsumer(new DirectListenerDispatcher<>(eventListener));
+    }
+
+    @Override
+    void addDispatcher(ListenerDispatcher<T> dispatcher) {
+        addConsumer(dispatcher);
+    }
+
+    /**
+     * Removes the listener and stops its thread. The listener stops holding back the producer immediately.
+     */
+    @Override
+    void removeEventListener(EventListener<T> eventListener) {
+        notNull(eventListener, "Can not remove null event listener");
+        for (Consumer consumer : consumers) {
+            if (consumer.dispatcher.getListener() == eventListener) {
+                consumers.remove(consumer);
+                consumer.remove();
+            }
+        }
+    }
+
+    /**
+     * Starts one thread per listener.
+     */
+    @Override
+    synchronized void open() {
+        if (!running) {
+            running = true;
+            closed = false;
+            for (Consumer consumer : consumers) {
+                consumer.start();
+            }
+        }
+    }
+
+    /**
+     * Stops the listener threads, after they have processed all the events that were already published, and clears the
+     * ring. Events pushed while the channel is muted are not published, so they are not delivered. Events pushed after
+     * the channel was closed are discarded. Batch listeners deliver the events they are holding back. The subscriptions
+     * are completed first, so that no listener thread waits for a subscriber.
+     */
+    @Override
+    synchronized void close() {
+        completeSubscriptions();
+        if (running) {
+            running = false;
+            closed = true;
+            signalConsumers();
+            for (Consumer consumer : consumers) {
+                consumer.join();
+                consumer.dispatcher.flush();
+            }
+            for (int i = 0; i < bufferSize; i++) {
+                entries[i] = null;
+            }
+            releasedSequence = cursor;
+        }
+    }
+
+    /**
+     * Does nothing. The listeners are notified by their own threads, so they are flushed when the channel is closed.
+     */
+    @Override
+    void flush() {
+        // nothing to do, see close()
+    }
+
+    /**
+     * Publishes the event in the next slot of the ring. Must only be called by a single thread. Blocks while the ring
+     * is full.
+     */
+    @Override
+    void pushEvent(Event<Map<String, Object>> event) {
+        long next = cursor + 1;
+        if (closed || !waitForCapacity(next)) {
+            logger.warn("The channel is closed. Discarding event {}", event);
+            return;
+        }
+        releaseConsumedSlots();
+        entries[(int) next & indexMask] = event;
+        cursor = next;
+
+        if (!muted) {
+            publish(next);
+        }
+    }
+
+    /**
+     * Publishes the events one by one. A {@link org.reactivesource.BatchEventListener} receives the events that are
+     * available when its thread wakes up as one batch, so batches may span polls. A poll without events wakes up the
+     * batch listeners with an empty batch, so that micro-batching listeners deliver the events that waited for
+     * <code>maxDelay</code>.
+     */
+    @Override
+    void pushEvents(List<Event<Map<String, Object>>> events) {
+        releaseConsumedSlots();
+        if (events.isEmpty()) {
+            tick();
+        }
+        for (Event<Map<String, Object>> event : events) {
+            pushEvent(event);
+        }
+    }
+
+    @Override
+    void mute() {
+        muted = true;
+    }
+
+    @Override
+    void unmute() {
+        muted = false;
+        publish(cursor);
+    }
+
+    /**
+     * @return the sequence of the last event read by the slowest listener, or the sequence of the last published
+     * event if there are no listeners. Events with a greater sequence are still in the ring.
+     */
+    long getSlowestConsumerSequence() {
+        long minimum = publishedSequence;
+        for (Consumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * @return the number of events that can be pushed before the producer has to wait for the slowest listener.
+     */
+    long remainingCapacity() {
+        return bufferSize - (cursor - getSlowestConsumerSequence());
+    }
+
+    @Override
+    int getQueueDepth() {
+        return (int) (cursor - getSlowestConsumerSequence());
+    }
+
+    /**
+     * @return the number of slots that still reference an event
+     */
+    int getRetainedEventCount() {
+        int count = 0;
+        for (Object entry : entries) {
+            if (entry != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private synchronized void addConsumer(ListenerDispatcher<T> dispatcher) {
+        Consumer consumer = new Consumer(dispatcher);
+        consumer.sequence.set(publishedSequence);
+        consumers.add(consumer);
+        // the producer may have published more events while the consumer was being registered. The new consumer
+        // only receives the events published after its registration is visible to the producer.
+        consumer.sequence.set(publishedSequence);
+        if (running) {
+            consumer.start();
+        }
+    }
+
+    /**
+     * Clears the slots that all the consumers have read. Only called by the producer.
+     */
+    private void releaseConsumedSlots() {
+        long consumed = getSlowestConsumerSequence();
+        for (long sequence = Math.max(releasedSequence + 1, consumed - bufferSize + 1); sequence <= consumed;
+             sequence++) {
+            entries[(int) sequence & indexMask] = null;
+        }
+        releasedSequence = Math.max(releasedSequence, consumed);
+    }
+
+    private boolean waitForCapacity(long sequence) {
+        long wrapPoint = sequence - bufferSize;
+        int counter = SPIN_TRIES;
+        while (wrapPoint > getSlowestConsumerSequence()) {
+            if (!running) {
+                return false;
+            }
+            counter = idle(counter);
+        }
+        return true;
+    }
+
+    private void tick() {
+        if (!muted && running) {
+            ticks++;
+            if (waitStrategy == WaitStrategy.BLOCKING) {
+                signalConsumers();
+            }
+        }
+    }
+
+    private void publish(long sequence) {
+        publishedSequence = sequence;
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            signalConsumers();
+        }
+    }
+
+    private void signalConsumers() {
+        lock.lock();
+        try {
+            eventsAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the given sequence is published, the consumer of a batch listener is ticked, or the consumer is
+     * stopped.
+     *
+     * @return the sequence of the last published event, which might be smaller than the requested sequence if the
+     * consumer was ticked or stopped.
+     */
+    private long waitFor(long sequence, Consumer consumer) throws InterruptedException {
+        if (isReady(sequence, consumer)) {
+            return publishedSequence;
+        }
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            lock.lock();
+            try {
+                while (!isReady(sequence, consumer) && consumer.isActive()) {
+                    eventsAvailable.await();
+                }
+            } finally {
+                lock.unlock();
+            }
+            return publishedSequence;
+        }
+        int counter = SPIN_TRIES;
+        while (!isReady(sequence, consumer) && consumer.isActive()) {
+            counter = idle(counter);
+        }
+        return publishedSequence;
+    }
+
+    private boolean isReady(long sequence, Consumer consumer) {
+        return publishedSequence >= sequence || consumer.isTicked();
+    }
+
+    private int idle(int counter) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                return counter;
+            case YIELDING:
+                if (counter > 0) {
+                    return counter - 1;
+                }
+                Thread.yield();
+                return counter;
+            default:
+                LockSupport.parkNanos(1000L);
+                return counter;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Event<Map<String, Object>> entryAt(long sequence) {
+        return (Event<Map<String, Object>>) entries[(int) sequence & indexMask];
+    }
+
+    /**
+     * Reads the events of the ring in order and hands them to the dispatcher of one listener.
+     */
+    private class Consumer implements Runnable {
+
+        private final ListenerDispatcher<T> dispatcher;
+        private final AtomicLong sequence;
+        private final boolean batching;
+        private volatile boolean removed;
+        private volatile Thread thread;
+        private long lastTick;
+
+        Consumer(ListenerDispatcher<T> dispatcher) {
+            this.dispatcher = dispatcher;
+            this.sequence = new AtomicLong(INITIAL_SEQUENCE);
+            this.batching = dispatcher.getListener() instanceof BatchEventListener;
+            this.removed = false;
+            this.lastTick = ticks;
+        }
+
+        boolean isActive() {
+            return running && !removed;
+        }
+
+        boolean isTicked() {
+            return batching && ticks != lastTick;
+        }
+
+        /**
+         * Stops the thread of a consumer that was removed from the channel. Returns without waiting if it is called
+         * by the listener itself.
+         */
+        void remove() {
+            removed = true;
+            signalConsumers();
+            if (Thread.currentThread() != thread) {
+                join();
+            }
+        }
+
+        void start() {
+            thread = new Thread(this, "reactive-source-ring-consumer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void join() {
+            try {
+                if (thread != null) {
+                    thread.join();
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            try {
+                while (!removed) {
+                    long available = waitFor(next, this);
+                    if (available < next && !(isTicked() && isActive())) {
+                        return;
+                    }
+                    if (batching) {
+                        lastTick = ticks;
+                        dispatchBatch(next, available);
+                    } else {
+                        for (long current = next; current <= available && !removed; current++) {
+                            dispatch(entryAt(current));
+                        }
+                    }
+                    if (available >= next) {
+                        sequence.lazySet(available);
+                        next = available + 1;
+                    }
+                }
+            } catch (InterruptedException ie) {
+                logger.warn("Ring buffer consumer was interrupted and will stop.", ie);
+            }
+        }
+
+        private void dispatchBatch(long first, long last) {
+            List<Event<Map<String, Object>>> events = new ArrayList<>((int) (last - first + 1));
+            for (long current = first; current <= last; current++) {
+                events.add(entryAt(current));
+            }
+            try {
+                dispatcher.dispatch(events);
+            } catch (RuntimeException re) {
+                logger.error("EventListener failed to process {} events", events.size(), re);
+            }
+        }
+
+        private void dispatch(Event<Map<String, Object>> event) {
+            try {
+                dispatcher.dispatch(event);
+            } catch (RuntimeException re) {
+                logger.error("EventListener failed to process event {}", event, re);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * The data of an entity, as a flat array of values indexed by a shared {@link org.reactivesource.RowSchema}.
+ * <p/>
+ * A row doesn't repeat the names of the columns or hold a hash table entry per column, so it takes a fraction of the
+ * memory of a {@link java.util.HashMap} with the same data. The values can be looked up by the index of the column in
+ * the schema or by the name of the column, both in constant time.
+ * <p/>
+ * A row is a read-only {@link java.util.Map}, equal to any other map with the same columns and values.
+ */
+public final class Row extends AbstractMap<String, Object> {
+
+    /**
+     * The row without columns, ie the old entity of INSERT events.
+     */
+    public static final Row EMPTY = new Row(RowSchema.EMPTY, new Object[0], false);
+
+    private final RowSchema schema;
+    private final Object[] values;
+
+    /**
+     * @param schema the columns of the row
+     * @param values the values of the row, in the order of the columns of the schema
+     */
+    public Row(RowSchema schema, Object[] values) {
+        this(schema, values == null ? null : values.clone(), true);
+    }
+
+    /**
+     * Creates a row that takes ownership of the given values, without copying them.
+     */
+    Row(RowSchema schema, Object[] values, boolean validate) {
+        if (validate) {
+            notNull(schema, "schema can not be null");
+            notNull(values, "values can not be null");
+            isTrue(schema.size() == values.length, "the row should have one value per column of the schema");
+        }
+        this.schema = schema;
+        this.values = values;
+    }
+
+    public RowSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return the value of the column with the given index in the schema
+     */
+    public Object get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public Object get(Object column) {
+        int index = schema.indexOf(column);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object column) {
+        return schema.indexOf(column) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new EntrySet();
+    }
+
+    @Override
+    public String toString() {
+        if (values.length == 0) {
+            return "{}";
+        }
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(schema.getColumn(i)).append('=').append(values[i]);
+        }
+        return builder.append('}').toString();
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            return new Iterator<Map.Entry<String, Object>>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < values.length;
+                }
+
+                @Override
+                public Map.Entry<String, Object> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Map.Entry<String, Object> entry =
+                            new SimpleImmutableEntry<>(schema.getColumn(index), values[index]);
+                    index++;
+                    return entry;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("rows are read-only");
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.reactivesource.util.Assert.notNull;
+import static org.reactivesource.util.JsonParserUtils.createParser;
+import static org.reactivesource.util.JsonParserUtils.readValue;
+
+/**
+ * Decodes the JSON entities of one table to {@link org.reactivesource.Row}s.
+ * <p/>
+ * The decoder remembers the {@link org.reactivesource.RowSchema} of the last decoded entity. As long as the entities
+ * have the same columns in the same order, which is the case for entities generated by the triggers of a table, they
+ * all share that schema. An entity with other columns gets a new schema, which then becomes the remembered one.
+ * <p/>
+ * The decoder is thread safe. Every event source should use its own decoder per monitored table.
+ */
+public class RowDecoder {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile RowSchema schema = RowSchema.EMPTY;
+
+    /**
+     * Decodes the given JSON object.
+     *
+     * @throws JSONException if the JSON is not a valid JSON object
+     */
+    public Row decode(String json) {
+        notNull(json, "json can not be null");
+        try (JsonParser parser = createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JSONException("Could not map row entity:" + json);
+            }
+            return decode(parser);
+        } catch (IOException e) {
+            throw new JSONException("Could not map row entity:" + json);
+        }
+    }
+
+    /**
+     * Decodes the object the parser is positioned on. The current token of the parser has to be
+     * {@link com.fasterxml.jackson.core.JsonToken#START_OBJECT}. When the method returns, the current token is the
+     * matching {@link com.fasterxml.jackson.core.JsonToken#END_OBJECT}.
+     *
+     * @throws IOException if the JSON is malformed or contains the same column twice
+     */
+    public Row decode(JsonParser parser) throws IOException {
+        RowSchema expected = schema;
+        Object[] values = new Object[expected.size() > 0 ? expected.size() : INITIAL_CAPACITY];
+        List<String> columns = null;
+        int count = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String column = parser.getCurrentName();
+            parser.nextToken();
+            if (columns == null && (count >= expected.size() || !expected.getColumn(count).equals(column))) {
+                columns = new ArrayList<>(expected.getColumns().subList(0, Math.min(count, expected.size())));
+            }
+            if (columns != null) {
+                columns.add(column);
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[count++] = readValue(parser);
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new IOException("Unexpected token " + token + " while reading a row");
+        }
+
+        if (count == 0) {
+            return Row.EMPTY;
+        }
+        if (columns == null && count == expected.size()) {
+            return new Row(expected, values, false);
+        }
+        try {
+            RowSchema decoded = new RowSchema(columns == null ? expected.getColumns().subList(0, count) : columns);
+            schema = decoded;
+            return new Row(decoded, values.length == count ? values : Arrays.copyOf(values, count), false);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Could not decode row", e);
+        }
+    }
+
+    RowSchema getSchema() {
+        return schema;
+    }
+}
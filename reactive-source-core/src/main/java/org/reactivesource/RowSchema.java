@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * The ordered columns of the {@link org.reactivesource.Row}s of a table. A schema is shared by all the rows with the
+ * same columns, so that the rows only have to hold their values.
+ * <p/>
+ * Schemas are immutable.
+ */
+public final class RowSchema {
+
+    /**
+     * The schema without columns, ie of the empty old entity of INSERT events.
+     */
+    public static final RowSchema EMPTY = new RowSchema(ImmutableList.<String>of());
+
+    private final List<String> columns;
+    private final Map<String, Integer> indexes;
+
+    /**
+     * @param columns the names of the columns, in the order of the values of the rows
+     * @throws IllegalArgumentException if a column is null or appears more than once
+     */
+    public RowSchema(List<String> columns) {
+        notNull(columns, "columns can not be null");
+        this.columns = ImmutableList.copyOf(columns);
+        this.indexes = new HashMap<>(columns.size() * 2);
+        for (int i = 0; i < columns.size(); i++) {
+            isTrue(indexes.put(columns.get(i), i) == null, "duplicate column " + columns.get(i));
+        }
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public String getColumn(int index) {
+        return columns.get(index);
+    }
+
+    /**
+     * @return the index of the column, or -1 if the schema doesn't contain the column
+     */
+    public int indexOf(Object column) {
+        Integer index = indexes.get(column);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof RowSchema && columns.equals(((RowSchema) o).columns);
+    }
+
+    @Override
+    public int hashCode() {
+        return columns.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return columns.toString();
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * Drives an {@link org.reactivesource.EventPoller} on a shared {@link java.util.concurrent.ScheduledExecutorService}.
+ * <p/>
+ * Every execution of this task polls the event source exactly once and then schedules itself again after the delay
+ * decided by the poller's {@link org.reactivesource.PollingStrategy}. No thread is blocked while waiting for the next
+ * poll, so a small pool can drive a large number of pollers.
+ * <p/>
+ * Executions of the same task never overlap, so the (not thread safe) event source is only accessed by one thread at
+ * a time.
+ */
+class ScheduledEventPoller implements Runnable {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final EventPoller<?> eventPoller;
+    private final ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> nextPoll;
+    private boolean initialized;
+    private boolean cancelled;
+
+    ScheduledEventPoller(EventPoller<?> eventPoller, ScheduledExecutorService executor) {
+        notNull(eventPoller, "eventPoller can not be null");
+        notNull(executor, "executor can not be null");
+        this.eventPoller = eventPoller;
+        this.executor = executor;
+        this.initialized = false;
+        this.cancelled = false;
+    }
+
+    /**
+     * Schedules the first poll to be executed as soon as possible.
+     */
+    synchronized void start() {
+        scheduleNextPoll(0L);
+    }
+
+    @Override
+    public synchronized void run() {
+        if (cancelled) {
+            return;
+        }
+        try {
+            if (!initialized) {
+                eventPoller.init();
+                initialized = true;
+            }
+            scheduleNextPoll(eventPoller.poll());
+        } catch (RuntimeException re) {
+            logger.error("The EventPoller failed and will stop polling.", re);
+            cancel();
+        }
+    }
+
+    /**
+     * Stops polling. If a poll is currently in progress this method blocks until it finishes. The event source is
+     * disconnected and cleaned up in the calling thread.
+     */
+    synchronized void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        eventPoller.stop();
+        if (nextPoll != null) {
+            nextPoll.cancel(false);
+        }
+        if (initialized) {
+            eventPoller.shutdown();
+        }
+    }
+
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void scheduleNextPoll(long delay) {
+        try {
+            nextPoll = executor.schedule(this, delay, MILLISECONDS);
+        } catch (RejectedExecutionException ree) {
+            logger.warn("The executor of the EventPoller was shut down. Stopping the EventPoller.");
+            cancel();
+        }
+    }
+}
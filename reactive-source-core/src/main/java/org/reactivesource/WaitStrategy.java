@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource;
+
+/**
+ * Defines how the listener threads of a ring buffer based {@link org.reactivesource.ReactiveSource} wait for new
+ * events, and how the polling thread waits for the slowest listener when the ring buffer is full.
+ */
+public enum WaitStrategy {
+    /**
+     * Waiting threads are parked until they are signalled. Lowest CPU usage, highest latency. This is the
+     * recommended strategy when the listener threads can not be pinned to dedicated cores.
+     */
+    BLOCKING,
+    /**
+     * Waiting threads spin for a while and then yield the CPU. Low latency, but the waiting threads keep a core
+     * busy when other threads don't need it.
+     */
+    YIELDING,
+    /**
+     * Waiting threads spin without ever giving up the CPU. Lowest latency, but every listener thread permanently
+     * occupies a core, even when there are no events.
+     */
+    BUSY_SPIN
+}
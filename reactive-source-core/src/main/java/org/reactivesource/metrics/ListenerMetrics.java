@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.metrics;
+
+import org.reactivesource.Event;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.reactivesource.metrics.SourceMetrics.currentTimeMicros;
+import static org.reactivesource.metrics.SourceMetrics.lagNanos;
+import static org.reactivesource.metrics.SourceMetrics.toMillis;
+
+/**
+ * The metrics of one {@link org.reactivesource.EventListener}: the number of events it processed, the number of
+ * callbacks that failed and the time spent in the callbacks. A batch of events counts as one callback.
+ * <p/>
+ * For the events that carry the time of their change, the delivery lag is the time between the change in the
+ * database and the start of the callback that received it, and the lag the time between the change and the end of
+ * that callback, ie how stale the state maintained by the listener can be.
+ * <p/>
+ * Thread safe.
+ */
+public final class ListenerMetrics implements ListenerMetricsMBean {
+
+    private final String sourceName;
+    private final String listenerName;
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final Histogram processingTime = new Histogram();
+    private final Histogram deliveryLag = new Histogram();
+    private final Histogram lag = new Histogram();
+
+    ListenerMetrics(String sourceName, String listenerName) {
+        this.sourceName = sourceName;
+        this.listenerName = listenerName;
+    }
+
+    /**
+     * Records a callback of the listener.
+     *
+     * @param numberOfEvents the number of events handed to the callback
+     * @param durationNanos  the duration of the callback
+     * @param failed         true if the callback threw an exception
+     */
+    public void recordCallback(int numberOfEvents, long durationNanos, boolean failed) {
+        events.addAndGet(numberOfEvents);
+        processingTime.record(durationNanos);
+        if (failed) {
+            failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records the delivery lag of an event that is handed to the listener.
+     */
+    public void recordDelivery(Event<?> event) {
+        recordLag(deliveryLag, event);
+    }
+
+    /**
+     * Records the lag of an event that the listener processed.
+     */
+    public void recordProcessed(Event<?> event) {
+        recordLag(lag, event);
+    }
+
+    private static void recordLag(Histogram histogram, Event<?> event) {
+        long changeTimestamp = event.getChangeTimestamp();
+        if (changeTimestamp != Event.UNKNOWN_CHANGE_TIMESTAMP) {
+            histogram.record(lagNanos(changeTimestamp, currentTimeMicros()));
+        }
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    public String getListenerName() {
+        return listenerName;
+    }
+
+    @Override
+    public long getEvents() {
+        return events.get();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public double getProcessingTimeMean() {
+        return toMillis(processingTime.getMean());
+    }
+
+    @Override
+    public double getProcessingTime99thPercentile() {
+        return toMillis(processingTime.getQuantile(0.99));
+    }
+
+    @Override
+    public double getProcessingTimeMax() {
+        return toMillis(processingTime.getMax());
+    }
+
+    @Override
+    public double getDeliveryLag99thPercentile() {
+        return toMillis(deliveryLag.getQuantile(0.99));
+    }
+
+    @Override
+    public double getLagMean() {
+        return toMillis(lag.getMean());
+    }
+
+    @Override
+    public double getLag99thPercentile() {
+        return toMillis(lag.getQuantile(0.99));
+    }
+
+    @Override
+    public double getLag999thPercentile() {
+        return toMillis(lag.getQuantile(0.999));
+    }
+
+    @Override
+    public double getLagMax() {
+        return toMillis(lag.getMax());
+    }
+
+    Histogram getProcessingTime() {
+        return processingTime;
+    }
+
+    Histogram getDeliveryLag() {
+        return deliveryLag;
+    }
+
+    Histogram getLag() {
+        return lag;
+    }
+}
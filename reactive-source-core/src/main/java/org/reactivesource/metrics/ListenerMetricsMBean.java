@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.metrics;
+
+/**
+ * The JMX view of the {@link org.reactivesource.metrics.ListenerMetrics} of an
+ * {@link org.reactivesource.EventListener}. Durations are in milliseconds. The delivery lag is the time between a
+ * change and the start of the callback that received it, the lag the time between a change and the end of that
+ * callback.
+ */
+public interface ListenerMetricsMBean {
+
+    long getEvents();
+
+    long getFailures();
+
+    double getProcessingTimeMean();
+
+    double getProcessingTime99thPercentile();
+
+    double getProcessingTimeMax();
+
+    double getDeliveryLag99thPercentile();
+
+    double getLagMean();
+
+    double getLag99thPercentile();
+
+    double getLag999thPercentile();
+
+    double getLagMax();
+}
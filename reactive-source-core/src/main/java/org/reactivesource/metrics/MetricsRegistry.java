@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.metrics;
+
+import org.reactivesource.exceptions.ReactiveException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.reactivesource.util.Assert.hasText;
+import static org.reactivesource.util.Assert.isTrue;
+
+/**
+ * Keeps the metrics of {@link org.reactivesource.ReactiveSource}s and their listeners.
+ * <p/>
+ * If the registry is created with an {@link javax.management.MBeanServer}, the metrics are exported as MBeans: one
+ * per source, named <code>org.reactivesource:type=ReactiveSource,name=&lt;source&gt;</code>, and one per listener,
+ * named <code>org.reactivesource:type=EventListener,source=&lt;source&gt;,name=&lt;listener&gt;</code>. The metrics
+ * can also be read as a snapshot in the Prometheus text format, see {@link #toPrometheusText()}.
+ * <p/>
+ * <u>Example</u>
+ * <pre>
+ *   {@code MetricsRegistry registry = MetricsRegistry.withPlatformMBeanServer();
+ *     reactiveSource.enableMetrics("orders", registry);}
+ * </pre>
+ */
+public class MetricsRegistry {
+
+    private static final String DOMAIN = "org.reactivesource";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final MBeanServer mBeanServer;
+    private final Map<String, SourceMetrics> sources = new LinkedHashMap<>();
+    private final Map<String, Map<String, ListenerMetrics>> listeners = new LinkedHashMap<>();
+
+    /**
+     * Creates a registry that doesn't export the metrics to JMX.
+     */
+    public MetricsRegistry() {
+        this(null);
+    }
+
+    /**
+     * @param mBeanServer the server the metrics are exported to, or null to not export them
+     */
+    public MetricsRegistry(MBeanServer mBeanServer) {
+        this.mBeanServer = mBeanServer;
+    }
+
+    /**
+     * @return a registry exporting the metrics to the platform MBean server
+     */
+    public static MetricsRegistry withPlatformMBeanServer() {
+        return new MetricsRegistry(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    /**
+     * Creates the metrics of a source.
+     *
+     * @param sourceName the name of the source, unique in the registry
+     * @throws IllegalArgumentException if the registry already has a source with the same name
+     */
+    public synchronized SourceMetrics registerSource(String sourceName) {
+        hasText(sourceName, "sourceName can not be null or empty");
+        isTrue(!sources.containsKey(sourceName), "a source named " + sourceName + " is already registered");
+        SourceMetrics metrics = new SourceMetrics(sourceName);
+        registerMBean(metrics, sourceObjectName(sourceName));
+        sources.put(sourceName, metrics);
+        listeners.put(sourceName, new LinkedHashMap<String, ListenerMetrics>());
+        return metrics;
+    }
+
+    /**
+     * Creates the metrics of a listener of the given source. If the source already has a listener with the same
+     * name, a suffix is added to the name.
+     *
+     * @param sourceName   the name of a registered source
+     * @param listenerName the name of the listener, ie its class name
+     */
+    public synchronized ListenerMetrics registerListener(String sourceName, String listenerName) {
+        hasText(listenerName, "listenerName can not be null or empty");
+        Map<String, ListenerMetrics> sourceListeners = listeners.get(sourceName);
+        isTrue(sourceListeners != null, "no source named " + sourceName + " is registered");
+        String uniqueName = listenerName;
+        for (int i = 2; sourceListeners.containsKey(uniqueName); i++) {
+            uniqueName = listenerName + "-" + i;
+        }
+        ListenerMetrics metrics = new ListenerMetrics(sourceName, uniqueName);
+        registerMBean(metrics, listenerObjectName(sourceName, uniqueName));
+        sourceListeners.put(uniqueName, metrics);
+        return metrics;
+    }
+
+    /**
+     * Removes the metrics of a listener of the given source, and unregisters its MBean.
+     *
+     * @param sourceName   the name of the source
+     * @param listenerName the unique name of the listener, as returned by {@link ListenerMetrics#getListenerName()}
+     */
+    public synchronized void unregisterListener(String sourceName, String listenerName) {
+        Map<String, ListenerMetrics> sourceListeners = listeners.get(sourceName);
+        if (sourceListeners == null || sourceListeners.remove(listenerName) == null) {
+            return;
+        }
+        unregisterMBean(listenerObjectName(sourceName, listenerName));
+    }
+
+    /**
+     * Removes the metrics of a source and of its listeners, and unregisters their MBeans.
+     */
+    public synchronized void unregisterSource(String sourceName) {
+        if (sources.remove(sourceName) == null) {
+            return;
+        }
+        for (String listenerName : listeners.remove(sourceName).keySet()) {
+            unregisterMBean(listenerObjectName(sourceName, listenerName));
+        }
+        unregisterMBean(sourceObjectName(sourceName));
+    }
+
+    /**
+     * @return the metrics of the source, or null if no source with this name is registered
+     */
+    public synchronized SourceMetrics getSourceMetrics(String sourceName) {
+        return sources.get(sourceName);
+    }
+
+    /**
+     * @return the metrics of the listeners of the source
+     */
+    public synchronized List<ListenerMetrics> getListenerMetrics(String sourceName) {
+        Map<String, ListenerMetrics> sourceListeners = listeners.get(sourceName);
+        return sourceListeners == null ? new ArrayList<ListenerMetrics>() :
+                new ArrayList<>(sourceListeners.values());
+    }
+
+    /**
+     * @return a snapshot of all the metrics in the Prometheus text exposition format. Durations are in seconds and
+     * the histograms are exposed as summaries.
+     */
+    public synchronized String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        List<SourceMetrics> allSources = new ArrayList<>(sources.values());
+        List<ListenerMetrics> allListeners = new ArrayList<>();
+        for (Map<String, ListenerMetrics> sourceListeners : listeners.values()) {
+            allListeners.addAll(sourceListeners.values());
+        }
+
+        header(text, "reactivesource_polls_total", "counter", "Polls of the event source.");
+        for (SourceMetrics source : allSources) {
+            sample(text, "reactivesource_polls_total", sourceLabels(source), source.getPolls());
+        }
+        header(text, "reactivesource_events_total", "counter", "Events returned by the event source.");
+        for (SourceMetrics source : allSources) {
+            sample(text, "reactivesource_events_total", sourceLabels(source), source.getEvents());
+        }
+        header(text, "reactivesource_poll_failures_total", "counter", "Polls that failed to access the event source.");
+        for (SourceMetrics source : allSources) {
+            sample(text, "reactivesource_poll_failures_total", sourceLabels(source), source.getPollFailures());
+        }
+        header(text, "reactivesource_reconnects_total", "counter", "Reconnections to the event source.");
+        for (SourceMetrics source : allSources) {
+            sample(text, "reactivesource_reconnects_total", sourceLabels(source), source.getReconnects());
+        }
+        header(text, "reactivesource_queue_depth", "gauge", "Events waiting in the channel.");
+        for (SourceMetrics source : allSources) {
+            sample(text, "reactivesource_queue_depth", sourceLabels(source), source.getQueueDepth());
+        }
+        header(text, "reactivesource_events_per_poll", "summary", "Events returned by a poll.");
+        for (SourceMetrics source : allSources) {
+            summary(text, "reactivesource_events_per_poll", sourceLabels(source), source.getEventsPerPoll(), 1);
+        }
+        header(text, "reactivesource_poll_duration_seconds", "summary", "Duration of the polls.");
+        for (SourceMetrics source : allSources) {
+            summary(text, "reactivesource_poll_duration_seconds", sourceLabels(source), source.getPollTime(),
+                    NANOS_PER_SECOND);
+        }
+        header(text, "reactivesource_fetch_duration_seconds", "summary", "Time fetching the events of a poll.");
+        for (SourceMetrics source : allSources) {
+            summary(text, "reactivesource_fetch_duration_seconds", sourceLabels(source), source.getFetchTime(),
+                    NANOS_PER_SECOND);
+        }
+        header(text, "reactivesource_dispatch_duration_seconds", "summary",
+                "Time notifying the listeners with the events of a poll.");
+        for (SourceMetrics source : allSources) {
+            summary(text, "reactivesource_dispatch_duration_seconds", sourceLabels(source), source.getDispatchTime(),
+                    NANOS_PER_SECOND);
+        }
+        header(text, "reactivesource_fetch_lag_seconds", "summary",
+                "Time between a change in the database and the poll that fetched it.");
+        for (SourceMetrics source : allSources) {
+            summary(text, "reactivesource_fetch_lag_seconds", sourceLabels(source), source.getFetchLag(),
+                    NANOS_PER_SECOND);
+        }
+        header(text, "reactivesource_listener_events_total", "counter", "Events processed by the listener.");
+        for (ListenerMetrics listener : allListeners) {
+            sample(text, "reactivesource_listener_events_total", listenerLabels(listener), listener.getEvents());
+        }
+        header(text, "reactivesource_listener_failures_total", "counter", "Callbacks of the listener that failed.");
+        for (ListenerMetrics listener : allListeners) {
+            sample(text, "reactivesource_listener_failures_total", listenerLabels(listener), listener.getFailures());
+        }
+        header(text, "reactivesource_listener_duration_seconds", "summary", "Duration of the listener callbacks.");
+        for (ListenerMetrics listener : allListeners) {
+            summary(text, "reactivesource_listener_duration_seconds", listenerLabels(listener),
+                    listener.getProcessingTime(), NANOS_PER_SECOND);
+        }
+        header(text, "reactivesource_listener_delivery_lag_seconds", "summary",
+                "Time between a change in the database and the callback of the listener that received it.");
+        for (ListenerMetrics listener : allListeners) {
+            summary(text, "reactivesource_listener_delivery_lag_seconds", listenerLabels(listener),
+                    listener.getDeliveryLag(), NANOS_PER_SECOND);
+        }
+        header(text, "reactivesource_listener_lag_seconds", "summary",
+                "Time between a change in the database and the end of the callback of the listener that processed it.");
+        for (ListenerMetrics listener : allListeners) {
+            summary(text, "reactivesource_listener_lag_seconds", listenerLabels(listener), listener.getLag(),
+                    NANOS_PER_SECOND);
+        }
+        return text.toString();
+    }
+
+    private void registerMBean(Object mBean, ObjectName objectName) {
+        if (mBeanServer == null) {
+            return;
+        }
+        try {
+            mBeanServer.registerMBean(mBean, objectName);
+        } catch (JMException e) {
+            throw new ReactiveException("Could not register the MBean " + objectName, e);
+        }
+    }
+
+    private void unregisterMBean(ObjectName objectName) {
+        if (mBeanServer == null) {
+            return;
+        }
+        try {
+            mBeanServer.unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new ReactiveException("Could not unregister the MBean " + objectName, e);
+        }
+    }
+
+    static ObjectName sourceObjectName(String sourceName) {
+        return objectName("type=ReactiveSource,name=" + ObjectName.quote(sourceName));
+    }
+
+    static ObjectName listenerObjectName(String sourceName, String listenerName) {
+        return objectName("type=EventListener,source=" + ObjectName.quote(sourceName) + ",name="
+                + ObjectName.quote(listenerName));
+    }
+
+    private static ObjectName objectName(String properties) {
+        try {
+            return new ObjectName(DOMAIN + ":" + properties);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid MBean name " + properties, e);
+        }
+    }
+
+    private static String sourceLabels(SourceMetrics source) {
+        return "source=\"" + escape(source.getName()) + "\"";
+    }
+
+    private static String listenerLabels(ListenerMetrics listener) {
+        return "source=\"" + escape(listener.getSourceName()) + "\",listener=\"" + escape(listener.getListenerName())
+                + "\"";
+    }
+
+    private static void header(StringBuilder text, String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, String labels, Number value) {
+        text.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder text, String name, String labels, Histogram histogram, double unit) {
+        for (double quantile : QUANTILES) {
+            sample(text, name, labels + ",quantile=\"" + quantile + "\"", histogram.getQuantile(quantile) / unit);
+        }
+        sample(text, name + "_sum", labels, histogram.getSum() / unit);
+        sample(text, name + "_count", labels, histogram.getCount());
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.metrics;
+
+import com.google.common.base.Supplier;
+import org.reactivesource.Event;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of one {@link org.reactivesource.ReactiveSource}: the polls of its
+ * {@link org.reactivesource.EventSource}, the events they returned, the failed polls and reconnections, and the time
+ * spent fetching the events and dispatching them to the listeners.
+ * <p/>
+ * The poll time covers the whole poll, the fetch time only the call to
+ * {@link org.reactivesource.EventSource#getNewEvents()}, which includes querying and decoding the events, and the
+ * dispatch time the notification of the listeners that run in the polling thread.
+ * <p/>
+ * For the events that carry the time of their change, see {@link org.reactivesource.Event#getChangeTimestamp()}, the
+ * fetch lag is the time between the change in the database and the poll that fetched it. The change timestamps are
+ * taken from the clock of the database, so the lags are only accurate if its clock is synchronized with the clock of
+ * the application.
+ * <p/>
+ * Thread safe.
+ */
+public final class SourceMetrics implements SourceMetricsMBean {
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String name;
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong pollFailures = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final Histogram eventsPerPoll = new Histogram();
+    private final Histogram pollTime = new Histogram();
+    private final Histogram fetchTime = new Histogram();
+    private final Histogram dispatchTime = new Histogram();
+    private final Histogram fetchLag = new Histogram();
+    private volatile Supplier<? extends Number> queueDepth;
+
+    SourceMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a poll of the event source.
+     *
+     * @param numberOfEvents the number of events returned by the event source
+     * @param pollNanos      the duration of the whole poll
+     * @param fetchNanos     the time spent fetching the events from the event source
+     */
+    public void recordPoll(int numberOfEvents, long pollNanos, long fetchNanos) {
+        polls.incrementAndGet();
+        events.addAndGet(numberOfEvents);
+        eventsPerPoll.record(numberOfEvents);
+        pollTime.record(pollNanos);
+        fetchTime.record(fetchNanos);
+    }
+
+    /**
+     * Records the fetch lag of the events of a poll that carry the time of their change.
+     */
+    public void recordFetchLags(List<? extends Event<?>> fetchedEvents) {
+        long now = currentTimeMicros();
+        for (Event<?> event : fetchedEvents) {
+            long changeTimestamp = event.getChangeTimestamp();
+            if (changeTimestamp != Event.UNKNOWN_CHANGE_TIMESTAMP) {
+                fetchLag.record(lagNanos(changeTimestamp, now));
+            }
+        }
+    }
+
+    /**
+     * Records a poll that failed with a {@link org.reactivesource.exceptions.DataAccessException}.
+     */
+    public void recordPollFailure() {
+        pollFailures.incrementAndGet();
+    }
+
+    public void recordReconnect() {
+        reconnects.incrementAndGet();
+    }
+
+    /**
+     * Records the time spent notifying the listeners with the events of one poll.
+     */
+    public void recordDispatch(long dispatchNanos) {
+        dispatchTime.record(dispatchNanos);
+    }
+
+    /**
+     * Sets the gauge reporting the number of events waiting in the channel of the source.
+     */
+    public void setQueueDepthGauge(Supplier<? extends Number> queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getPolls() {
+        return polls.get();
+    }
+
+    @Override
+    public long getEvents() {
+        return events.get();
+    }
+
+    @Override
+    public long getPollFailures() {
+        return pollFailures.get();
+    }
+
+    @Override
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    @Override
+    public long getQueueDepth() {
+        Supplier<? extends Number> gauge = queueDepth;
+        return gauge == null ? 0 : gauge.get().longValue();
+    }
+
+    @Override
+    public double getEventsPerPollMean() {
+        return eventsPerPoll.getMean();
+    }
+
+    @Override
+    public long getEventsPerPollMax() {
+        return eventsPerPoll.getMax();
+    }
+
+    @Override
+    public double getPollTimeMean() {
+        return toMillis(pollTime.getMean());
+    }
+
+    @Override
+    public double getPollTime99thPercentile() {
+        return toMillis(pollTime.getQuantile(0.99));
+    }
+
+    @Override
+    public double getPollTimeMax() {
+        return toMillis(pollTime.getMax());
+    }
+
+    @Override
+    public double getFetchTimeMean() {
+        return toMillis(fetchTime.getMean());
+    }
+
+    @Override
+    public double getFetchTime99thPercentile() {
+        return toMillis(fetchTime.getQuantile(0.99));
+    }
+
+    @Override
+    public double getDispatchTimeMean() {
+        return toMillis(dispatchTime.getMean());
+    }
+
+    @Override
+    public double getDispatchTime99thPercentile() {
+        return toMillis(dispatchTime.getQuantile(0.99));
+    }
+
+    @Override
+    public double getDispatchTimeMax() {
+        return toMillis(dispatchTime.getMax());
+    }
+
+    @Override
+    public double getFetchLagMean() {
+        return toMillis(fetchLag.getMean());
+    }
+
+    @Override
+    public double getFetchLag99thPercentile() {
+        return toMillis(fetchLag.getQuantile(0.99));
+    }
+
+    @Override
+    public double getFetchLag999thPercentile() {
+        return toMillis(fetchLag.getQuantile(0.999));
+    }
+
+    @Override
+    public double getFetchLagMax() {
+        return toMillis(fetchLag.getMax());
+    }
+
+    Histogram getEventsPerPoll() {
+        return eventsPerPoll;
+    }
+
+    Histogram getPollTime() {
+        return pollTime;
+    }
+
+    Histogram getFetchTime() {
+        return fetchTime;
+    }
+
+    Histogram getDispatchTime() {
+        return dispatchTime;
+    }
+
+    Histogram getFetchLag() {
+        return fetchLag;
+    }
+
+    static double toMillis(double nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    static long currentTimeMicros() {
+        return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    }
+
+    /**
+     * @return the time between the change and <code>nowMicros</code> in nanoseconds
+     */
+    static long lagNanos(long changeTimestamp, long nowMicros) {
+        return TimeUnit.MICROSECONDS.toNanos(nowMicros - changeTimestamp);
+    }
+}
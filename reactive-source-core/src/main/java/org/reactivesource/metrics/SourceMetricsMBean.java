@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.metrics;
+
+/**
+ * The JMX view of the {@link org.reactivesource.metrics.SourceMetrics} of a {@link org.reactivesource.ReactiveSource}.
+ * Durations are in milliseconds. The fetch lag is the time between a change and the poll that fetched it.
+ */
+public interface SourceMetricsMBean {
+
+    long getPolls();
+
+    long getEvents();
+
+    long getPollFailures();
+
+    long getReconnects();
+
+    long getQueueDepth();
+
+    double getEventsPerPollMean();
+
+    long getEventsPerPollMax();
+
+    double getPollTimeMean();
+
+    double getPollTime99thPercentile();
+
+    double getPollTimeMax();
+
+    double getFetchTimeMean();
+
+    double getFetchTime99thPercentile();
+
+    double getDispatchTimeMean();
+
+    double getDispatchTime99thPercentile();
+
+    double getDispatchTimeMax();
+
+    double getFetchLagMean();
+
+    double getFetchLag99thPercentile();
+
+    double getFetchLag999thPercentile();
+
+    double getFetchLagMax();
+}
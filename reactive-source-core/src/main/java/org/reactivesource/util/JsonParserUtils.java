@@ -3,35 +3,128 @@
  *
  * See the file license.txt for copying permission.
  ******************************************************************************/
-
 package org.reactivesource.util;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.reactivesource.util.Assert.notNull;
 
-@SuppressWarnings("unchecked")
+/**
+ * Decodes JSON in a single streaming pass, without building an intermediate tree.
+ * <p/>
+ * All the parsers are created by one shared {@link com.fasterxml.jackson.core.JsonFactory}, which is thread safe and
+ * recycles the parsing buffers. The parsers accept single quotes, unquoted field names and unescaped control
+ * characters, since the JSON generated by the database triggers is not always strictly valid.
+ * <p/>
+ * Objects are decoded to {@link java.util.HashMap}s and arrays to {@link java.util.ArrayList}s. Integral numbers are
+ * decoded to the smallest of Integer, Long and BigInteger that fits them, and other numbers to Double.
+ */
 public class JsonParserUtils {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true)
+            .configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true)
+            .configure(JsonParser.Feature.ALLOW_UNQUOTED_CONTROL_CHARS, true);
+
     public static Map<String, Object> jsonStringToMap(String jsonString) {
         notNull(jsonString, "jsonString can not be null");
-        return jsonObjectToMap(new JSONObject(jsonString));
+        try (JsonParser parser = createParser(jsonString)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JSONException("Could not map row entity:" + jsonString);
+            }
+            return readObject(parser);
+        } catch (IOException e) {
+            throw new JSONException("Could not map row entity:" + jsonString);
+        }
     }
 
     public static Map<String, Object> jsonObjectToMap(JSONObject jsonObject) {
         notNull(jsonObject, "jsonString can not be null");
-        try {
-            return new ObjectMapper().readValue(jsonObject.toString(), HashMap.class);
-        } catch (IOException e) {
-            throw new JSONException("Could not map row entity:" + jsonObject.toString());
+        return jsonStringToMap(jsonObject.toString());
+    }
+
+    /**
+     * Creates a streaming parser for the given JSON, using the shared factory.
+     */
+    public static JsonParser createParser(String json) throws IOException {
+        return JSON_FACTORY.createParser(json);
+    }
+
+    /**
+     * Reads the object the parser is positioned on. The current token of the parser has to be
+     * {@link com.fasterxml.jackson.core.JsonToken#START_OBJECT}. When the method returns, the current token is the
+     * matching {@link com.fasterxml.jackson.core.JsonToken#END_OBJECT}.
+     *
+     * @param parser the parser
+     * @return the fields of the object
+     * @throws IOException if the JSON is malformed
+     */
+    public static Map<String, Object> readObject(JsonParser parser) throws IOException {
+        Map<String, Object> result = new HashMap<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            result.put(fieldName, readValue(parser, parser.nextToken()));
         }
+        if (token != JsonToken.END_OBJECT) {
+            throw new IOException("Unexpected token " + token + " while reading an object");
+        }
+        return result;
+    }
+
+    /**
+     * Reads the value the parser is positioned on. Objects and arrays are read up to their matching end token.
+     *
+     * @param parser the parser
+     * @return the value
+     * @throws IOException if the JSON is malformed
+     */
+    public static Object readValue(JsonParser parser) throws IOException {
+        return readValue(parser, parser.getCurrentToken());
     }
 
+    private static List<Object> readArray(JsonParser parser) throws IOException {
+        List<Object> result = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            result.add(readValue(parser, token));
+        }
+        return result;
+    }
 
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        if (token == null) {
+            throw new IOException("Unexpected end of input");
+        }
+        switch (token) {
+            case START_OBJECT:
+                return readObject(parser);
+            case START_ARRAY:
+                return readArray(parser);
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IOException("Unexpected token " + token);
+        }
+    }
 }
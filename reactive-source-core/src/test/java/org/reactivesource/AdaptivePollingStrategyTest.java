@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.assertEquals;
+
+public class AdaptivePollingStrategyTest {
+
+    private static final long MIN_DELAY = 10L;
+    private static final long MAX_DELAY = 80L;
+    private static final long SLOW_POLL = 1000L;
+    private static final long FAST_POLL = 1L;
+
+    private AdaptivePollingStrategy strategy;
+
+    @BeforeMethod(groups = SMALL)
+    public void setUp() {
+        strategy = new AdaptivePollingStrategy(MIN_DELAY, MAX_DELAY, SLOW_POLL);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNonPositiveMinDelay() {
+        new AdaptivePollingStrategy(0L, MAX_DELAY, SLOW_POLL);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithMaxDelaySmallerThanMinDelay() {
+        new AdaptivePollingStrategy(MIN_DELAY, MIN_DELAY - 1, SLOW_POLL);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNonPositiveSlowPollThreshold() {
+        new AdaptivePollingStrategy(MIN_DELAY, MAX_DELAY, 0L);
+    }
+
+    @Test(groups = SMALL)
+    public void testPollsAgainImmediatelyWhenEventsWereFetched() {
+        assertEquals(strategy.nextPollDelay(5, FAST_POLL), 0L);
+    }
+
+    @Test(groups = SMALL)
+    public void testBacksOffExponentiallyUpToTheMaxDelayWhenNoEventsAreFetched() {
+        assertEquals(strategy.nextPollDelay(0, FAST_POLL), 10L);
+        assertEquals(strategy.nextPollDelay(0, FAST_POLL), 20L);
+        assertEquals(strategy.nextPollDelay(0, FAST_POLL), 40L);
+        assertEquals(strategy.nextPollDelay(0, FAST_POLL), 80L);
+        assertEquals(strategy.nextPollDelay(0, FAST_POLL), 80L);
+    }
+
+    @Test(groups = SMALL)
+    public void testResetsTheBackOffWhenEventsArriveAgain() {
+        strategy.nextPollDelay(0, FAST_POLL);
+        strategy.nextPollDelay(0, FAST_POLL);
+
+        assertEquals(strategy.nextPollDelay(1, FAST_POLL), 0L);
+        assertEquals(strategy.nextPollDelay(0, FAST_POLL), MIN_DELAY);
+    }
+
+    @Test(groups = SMALL)
+    public void testBacksOffWhenThePollIsSlowEvenIfEventsWereFetched() {
+        assertEquals(strategy.nextPollDelay(5, SLOW_POLL), 10L);
+        assertEquals(strategy.nextPollDelay(5, SLOW_POLL), 20L);
+        assertEquals(strategy.nextPollDelay(5, FAST_POLL), 0L);
+    }
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.mockito.Mockito.mock;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class AsyncListenerDispatcherTest {
+
+    private static final int NUMBER_OF_EVENTS = 1000;
+
+    private ExecutorService executor;
+
+    @BeforeMethod(groups = SMALL)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod(groups = SMALL)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNullExecutor() {
+        new AsyncListenerDispatcher<>(mock(EventListener.class), null, 10);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNonPositiveQueueCapacity() {
+        new AsyncListenerDispatcher<>(mock(EventListener.class), executor, 0);
+    }
+
+    @Test(groups = SMALL)
+    public void testDeliversAllEventsInOrderEvenWithAMultiThreadedExecutor() throws InterruptedException {
+        RecordingListener listener = new RecordingListener(NUMBER_OF_EVENTS, 0L);
+        AsyncListenerDispatcher<Integer> dispatcher = new AsyncListenerDispatcher<>(listener, executor, 10);
+
+        for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+            dispatcher.dispatch(event(i));
+        }
+
+        assertTrue(listener.latch.await(5, SECONDS));
+        for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+            assertEquals(listener.received.get(i), Integer.valueOf(i));
+        }
+    }
+
+    @Test(groups = SMALL)
+    public void testDispatchingDoesNotWaitForASlowListener() throws InterruptedException {
+        RecordingListener slowListener = new RecordingListener(3, 100L);
+        AsyncListenerDispatcher<Integer> dispatcher = new AsyncListenerDispatcher<>(slowListener, executor, 10);
+
+        long start = System.currentTimeMillis();
+        dispatcher.dispatch(event(1));
+        dispatcher.dispatch(event(2));
+        dispatcher.dispatch(event(3));
+        long dispatchDuration = System.currentTimeMillis() - start;
+
+        assertTrue(dispatchDuration < 100L, "dispatching took " + dispatchDuration + "ms");
+        assertTrue(slowListener.latch.await(5, SECONDS));
+    }
+
+    @Test(groups = SMALL)
+    public void testAFailingListenerKeepsReceivingTheNextEvents() throws InterruptedException {
+        RecordingListener listener = new RecordingListener(2, 0L) {
+            @Override public void onEvent(Event<Integer> event) {
+                super.onEvent(event);
+                throw new RuntimeException("listener failure");
+            }
+        };
+        AsyncListenerDispatcher<Integer> dispatcher = new AsyncListenerDispatcher<>(listener, executor, 10);
+
+        dispatcher.dispatch(event(1));
+        dispatcher.dispatch(event(2));
+
+        assertTrue(listener.latch.await(5, SECONDS));
+    }
+
+    @Test(groups = SMALL)
+    public void testBatchListenerReceivesThePendingEventsInOrderAndIsFlushed() throws InterruptedException {
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch flushed = new CountDownLatch(1);
+        BatchEventListener<Integer> listener = new BatchEventListener<Integer>(new IdExtractor(), 1000, 1L, HOURS) {
+            @Override public void onEvents(List<Event<Integer>> events) {
+                for (Event<Integer> event : events) {
+                    received.add(event.getNewEntity());
+                }
+                flushed.countDown();
+            }
+        };
+        AsyncListenerDispatcher<Integer> dispatcher = new AsyncListenerDispatcher<>(listener, executor, 10);
+
+        for (int i = 0; i < NUMBER_OF_EVENTS; i += 2) {
+            dispatcher.dispatch(Arrays.asList(event(i), event(i + 1)));
+        }
+        dispatcher.flush();
+
+        assertTrue(flushed.await(5, SECONDS));
+        assertEquals(received.size(), NUMBER_OF_EVENTS);
+        for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+            assertEquals(received.get(i), Integer.valueOf(i));
+        }
+    }
+
+    private Event<Map<String, Object>> event(int id) {
+        Map<String, Object> entity = Maps.newHashMap();
+        entity.put("id", id);
+        return new Event<>(EventType.INSERT, "entity", entity, entity);
+    }
+
+    private static class IdExtractor implements EntityExtractor<Integer> {
+        @Override public Integer extractEntity(Map<String, Object> entityRow) {
+            return (Integer) entityRow.get("id");
+        }
+    }
+
+    private static class RecordingListener extends EventListener<Integer> {
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch;
+        final long processingTime;
+
+        RecordingListener(int expectedEvents, long processingTime) {
+            super(new IdExtractor());
+            this.latch = new CountDownLatch(expectedEvents);
+            this.processingTime = processingTime;
+        }
+
+        @Override public void onEvent(Event<Integer> event) {
+            try {
+                Thread.sleep(processingTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event.getNewEntity());
+            latch.countDown();
+        }
+    }
+}
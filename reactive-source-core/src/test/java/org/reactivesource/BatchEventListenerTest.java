@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.reactivesource.metrics.ListenerMetrics;
+import org.reactivesource.metrics.MetricsRegistry;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.lang.Thread.sleep;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class BatchEventListenerTest {
+
+    private static final List<Event<Map<String, Object>>> NO_EVENTS = Collections.emptyList();
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNonPositiveBatchSize() {
+        new RecordingBatchListener(0, 10L, MILLISECONDS);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNegativeDelay() {
+        new RecordingBatchListener(10, -1L, MILLISECONDS);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNullTimeUnit() {
+        new RecordingBatchListener(10, 10L, null);
+    }
+
+    @Test(groups = SMALL)
+    public void testReceivesTheEventsOfOnePollAsOneBatch() {
+        RecordingBatchListener listener = new RecordingBatchListener();
+
+        listener.notifyEvents(events(0, 1, 2));
+        listener.notifyEvents(events(3));
+
+        assertEquals(listener.batches.size(), 2);
+        assertEquals(ids(listener.batches.get(0)), newArrayList(0, 1, 2));
+        assertEquals(ids(listener.batches.get(1)), newArrayList(3));
+    }
+
+    @Test(groups = SMALL)
+    public void testDoesNotReceiveEmptyBatches() {
+        RecordingBatchListener listener = new RecordingBatchListener();
+
+        listener.notifyEvents(NO_EVENTS);
+        listener.flush();
+
+        assertTrue(listener.batches.isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testSingleEventIsReceivedAsABatchOfOne() {
+        RecordingBatchListener listener = new RecordingBatchListener();
+
+        listener.notifyEvent(events(7).get(0));
+
+        assertEquals(listener.batches.size(), 1);
+        assertEquals(ids(listener.batches.get(0)), newArrayList(7));
+    }
+
+    @Test(groups = SMALL)
+    public void testBatchesAreRecordedInTheMetricsOfTheListener() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.registerSource("source");
+        ListenerMetrics metrics = registry.registerListener("source", "listener");
+        RecordingBatchListener listener = new RecordingBatchListener();
+        listener.setMetrics(metrics);
+
+        listener.notifyEvents(events(0, 1, 2));
+        listener.notifyEvents(events(3));
+
+        assertEquals(metrics.getEvents(), 4);
+        assertEquals(metrics.getFailures(), 0);
+    }
+
+    @Test(groups = SMALL)
+    public void testMicroBatchingCollectsTheEventsOfManyPolls() {
+        RecordingBatchListener listener = new RecordingBatchListener(4, 1L, TimeUnit.HOURS);
+
+        listener.notifyEvents(events(0, 1));
+        listener.notifyEvents(events(2));
+        assertTrue(listener.batches.isEmpty());
+
+        listener.notifyEvents(events(3, 4));
+        assertEquals(listener.batches.size(), 1);
+        assertEquals(ids(listener.batches.get(0)), newArrayList(0, 1, 2, 3));
+    }
+
+    @Test(groups = SMALL)
+    public void testMicroBatchingSplitsLargePollsIntoBatchesOfMaxSize() {
+        RecordingBatchListener listener = new RecordingBatchListener(2, 1L, TimeUnit.HOURS);
+
+        listener.notifyEvents(events(0, 1, 2, 3, 4));
+
+        assertEquals(listener.batches.size(), 2);
+        assertEquals(ids(listener.batches.get(0)), newArrayList(0, 1));
+        assertEquals(ids(listener.batches.get(1)), newArrayList(2, 3));
+
+        listener.flush();
+        assertEquals(ids(listener.batches.get(2)), newArrayList(4));
+    }
+
+    @Test(groups = SMALL)
+    public void testMicroBatchingDeliversPendingEventsAfterMaxDelayOnAnEmptyPoll() throws InterruptedException {
+        RecordingBatchListener listener = new RecordingBatchListener(100, 20L, MILLISECONDS);
+
+        listener.notifyEvents(events(0, 1));
+        listener.notifyEvents(NO_EVENTS);
+        assertTrue(listener.batches.isEmpty());
+
+        sleep(30L);
+        listener.notifyEvents(NO_EVENTS);
+        assertEquals(listener.batches.size(), 1);
+        assertEquals(ids(listener.batches.get(0)), newArrayList(0, 1));
+    }
+
+    @Test(groups = SMALL)
+    public void testReceivesTheEventsOfAPollThroughTheEventChannel() {
+        EventChannel<Integer> channel = new EventChannel<>();
+        RecordingBatchListener listener = new RecordingBatchListener();
+        channel.addEventListener(listener);
+
+        channel.pushEvents(events(0, 1, 2));
+
+        assertEquals(listener.batches.size(), 1);
+        assertEquals(ids(listener.batches.get(0)), newArrayList(0, 1, 2));
+    }
+
+    private static List<Event<Map<String, Object>>> events(int... ids) {
+        List<Event<Map<String, Object>>> events = newArrayList();
+        for (int id : ids) {
+            Map<String, Object> entity = Maps.newHashMap();
+            entity.put("id", id);
+            events.add(new Event<>(EventType.INSERT, "entity", entity, entity));
+        }
+        return events;
+    }
+
+    private static List<Integer> ids(List<Event<Integer>> batch) {
+        List<Integer> ids = newArrayList();
+        for (Event<Integer> event : batch) {
+            ids.add(event.getNewEntity());
+        }
+        return ids;
+    }
+
+    private static class IdExtractor implements EntityExtractor<Integer> {
+        @Override public Integer extractEntity(Map<String, Object> entityRow) {
+            return (Integer) entityRow.get("id");
+        }
+    }
+
+    private static class RecordingBatchListener extends BatchEventListener<Integer> {
+        final List<List<Event<Integer>>> batches = newArrayList();
+
+        RecordingBatchListener() {
+            super(new IdExtractor());
+        }
+
+        RecordingBatchListener(int maxBatchSize, long maxDelay, TimeUnit unit) {
+            super(new IdExtractor(), maxBatchSize, maxDelay, unit);
+        }
+
+        @Override public void onEvents(List<Event<Integer>> events) {
+            batches.add(events);
+        }
+    }
+}
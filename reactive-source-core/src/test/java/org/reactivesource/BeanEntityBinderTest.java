@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+import org.reactivesource.exceptions.ReactiveException;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.reactivesource.util.JsonParserUtils.createParser;
+import static org.testng.Assert.*;
+
+public class BeanEntityBinderTest {
+
+    private static final String STRING_VALUES_JSON = "{\"ID\":\"1\",\"CUSTOMER_ID\":\"42\",\"STATUS\":\"NEW\","
+            + "\"AMOUNT\":\"9.99\",\"SHIPPED\":\"1\",\"UNKNOWN\":\"x\"}";
+    private static final String TYPED_VALUES_JSON = "{'id': 1, 'customerId': 42, 'status': 'NEW', 'amount': 9.99,"
+            + "'shipped': true, 'unknown': {'a': [1, 2]}, 'details': {'color': 'red'}}";
+
+    private BeanEntityBinder<Purchase> binder = new BeanEntityBinder<>(Purchase.class);
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNullType() {
+        new BeanEntityBinder<>(null);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithTypeWithoutDefaultConstructor() {
+        new BeanEntityBinder<>(NoDefaultConstructor.class);
+    }
+
+    @Test(groups = SMALL)
+    public void testBindsColumnsIgnoringCaseAndUnderscores() throws IOException {
+        Purchase purchase = bind(STRING_VALUES_JSON);
+
+        assertEquals(purchase.getId(), 1);
+        assertEquals(purchase.getCustomerId(), Long.valueOf(42));
+        assertEquals(purchase.getStatus(), "NEW");
+        assertEquals(purchase.getAmount(), new BigDecimal("9.99"));
+        assertTrue(purchase.isShipped());
+    }
+
+    @Test(groups = SMALL)
+    public void testBindsTypedValuesAndPublicFields() throws IOException {
+        Purchase purchase = bind(TYPED_VALUES_JSON);
+
+        assertEquals(purchase.getId(), 1);
+        assertEquals(purchase.getCustomerId(), Long.valueOf(42));
+        assertEquals(purchase.getAmount(), new BigDecimal("9.99"));
+        assertTrue(purchase.isShipped());
+        assertEquals(((Map<?, ?>) purchase.details).get("color"), "red");
+    }
+
+    @Test(groups = SMALL)
+    public void testNullValuesKeepTheDefaultOfPrimitives() throws IOException {
+        Purchase purchase = bind("{'id': null, 'customerId': null, 'status': null}");
+
+        assertEquals(purchase.getId(), 0);
+        assertNull(purchase.getCustomerId());
+        assertNull(purchase.getStatus());
+    }
+
+    @Test(groups = SMALL, expectedExceptions = ReactiveException.class)
+    public void testThrowsExceptionForValuesThatCanNotBeConverted() throws IOException {
+        bind("{'id': 'abc'}");
+    }
+
+    @Test(groups = SMALL)
+    public void testExtractsTheSameEntityFromMap() throws IOException {
+        Map<String, Object> row = Maps.newHashMap();
+        row.put("ID", "1");
+        row.put("CUSTOMER_ID", 42);
+        row.put("STATUS", "NEW");
+        row.put("AMOUNT", 9.99);
+        row.put("SHIPPED", "1");
+        row.put("UNKNOWN", "x");
+
+        assertEquals(binder.extractEntity(row), bind(STRING_VALUES_JSON));
+    }
+
+    private Purchase bind(String json) throws IOException {
+        try (JsonParser parser = createParser(json)) {
+            parser.nextToken();
+            return binder.bindEntity(parser);
+        }
+    }
+
+    public static class Purchase {
+        private int id;
+        private Long customerId;
+        private String status;
+        private BigDecimal amount;
+        private boolean shipped;
+        public Object details;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public Long getCustomerId() {
+            return customerId;
+        }
+
+        public void setCustomerId(Long customerId) {
+            this.customerId = customerId;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public boolean isShipped() {
+            return shipped;
+        }
+
+        public void setShipped(boolean shipped) {
+            this.shipped = shipped;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Purchase)) {
+                return false;
+            }
+            Purchase that = (Purchase) o;
+            return id == that.id && shipped == that.shipped
+                    && Objects.equal(customerId, that.customerId)
+                    && Objects.equal(status, that.status)
+                    && Objects.equal(amount, that.amount);
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+
+    public static class NoDefaultConstructor {
+        public NoDefaultConstructor(int id) {
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.reactivesource.ColumnCondition.Operator.EQUALS;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class CaptureSpecTest {
+
+    @Test(groups = SMALL)
+    public void testAllCapturesEverything() {
+        assertTrue(CaptureSpec.ALL.capturesEverything());
+        assertTrue(CaptureSpec.ALL.capturesAllColumns());
+        assertTrue(CaptureSpec.ALL.includesOldImage());
+        assertEquals(CaptureSpec.ALL.getEventTypes(), EnumSet.allOf(EventType.class));
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotCaptureNoEventTypes() {
+        CaptureSpec.ALL.withEventTypes(EventType.DELETE).withEventTypes(EventType.INSERT);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotCaptureColumnsWithInvalidNames() {
+        CaptureSpec.ALL.withColumns("ID", "TXT)");
+    }
+
+    @Test(groups = SMALL)
+    public void testNarrowedSpecDoesNotCaptureEverything() {
+        CaptureSpec spec = CaptureSpec.ALL.withEventTypes(EventType.INSERT, EventType.UPDATE)
+                .withColumns("ID", "STATUS").withoutOldImage();
+
+        assertFalse(spec.capturesEverything());
+        assertEquals(spec.getEventTypes(), EnumSet.of(EventType.INSERT, EventType.UPDATE));
+        assertEquals(spec.getColumns(), Arrays.asList("ID", "STATUS"));
+        assertFalse(spec.includesOldImage());
+        assertFalse(CaptureSpec.ALL.withoutOldImage().capturesEverything());
+    }
+
+    @Test(groups = SMALL)
+    public void testCapturesColumnsIgnoringTheCase() {
+        CaptureSpec spec = CaptureSpec.ALL.withColumns("ID", "STATUS");
+
+        assertTrue(spec.captures("status"));
+        assertFalse(spec.captures("TXT"));
+        assertTrue(CaptureSpec.ALL.captures("TXT"));
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotEvaluateFilterOnColumnsThatAreNotCaptured() {
+        CaptureSpec.ALL.withColumns("ID").verifyCanEvaluate(EventFilter.ALL.withCondition("TXT", EQUALS, "a"));
+    }
+
+    @Test(groups = SMALL)
+    public void testCanEvaluateFilterOnCapturedColumns() {
+        CaptureSpec.ALL.withColumns("ID").verifyCanEvaluate(EventFilter.ALL.withCondition("ID", EQUALS, 1));
+    }
+
+    @Test(groups = SMALL)
+    public void testSpecCapturingTheChangedColumnsOnlyDoesNotCaptureEverything() {
+        CaptureSpec spec = CaptureSpec.ALL.withChangedColumnsOnly().withColumns("ID", "STATUS");
+
+        assertTrue(spec.capturesChangedColumnsOnly());
+        assertTrue(spec.includesOldImage());
+        assertFalse(spec.capturesEverything());
+        assertFalse(CaptureSpec.ALL.capturesChangedColumnsOnly());
+        assertNotEquals(CaptureSpec.ALL.withChangedColumnsOnly(), CaptureSpec.ALL);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testSpecCapturingTheChangedColumnsOnlyCanNotExcludeTheOldImage() {
+        CaptureSpec.ALL.withChangedColumnsOnly().withoutOldImage();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotEvaluateConditionsOnUpdatesCarryingTheChangedColumnsOnly() {
+        CaptureSpec.ALL.withChangedColumnsOnly().verifyCanEvaluate(EventFilter.ALL.withCondition("ID", EQUALS, 1));
+    }
+
+    @Test(groups = SMALL)
+    public void testCanEvaluateConditionsOnInsertsWhenCapturingTheChangedColumnsOnly() {
+        CaptureSpec.ALL.withChangedColumnsOnly().verifyCanEvaluate(
+                EventFilter.ALL.withEventTypes(EventType.INSERT).withCondition("ID", EQUALS, 1));
+    }
+
+    @Test(groups = SMALL)
+    public void testSpecCapturingTheChangesPerStatementDoesNotCaptureEverything() {
+        CaptureSpec spec = CaptureSpec.ALL.perStatement().withColumns("ID").withoutOldImage();
+
+        assertTrue(spec.capturesPerStatement());
+        assertFalse(spec.capturesEverything());
+        assertFalse(CaptureSpec.ALL.capturesPerStatement());
+        assertNotEquals(CaptureSpec.ALL.perStatement(), CaptureSpec.ALL);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testSpecCapturingTheChangesPerStatementCanNotCaptureTheChangedColumnsOnly() {
+        CaptureSpec.ALL.perStatement().withChangedColumnsOnly();
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.reactivesource.ColumnCondition.Operator.*;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class ColumnConditionTest {
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithInvalidColumnName() {
+        new ColumnCondition("id; DROP TABLE x", EQUALS, 1);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithoutValueForBinaryOperator() {
+        new ColumnCondition("id", EQUALS);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithValueForUnaryOperator() {
+        new ColumnCondition("id", IS_NULL, 1);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithUnsupportedValue() {
+        new ColumnCondition("id", EQUALS, new Object());
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testBooleansCanNotBeOrdered() {
+        new ColumnCondition("active", GREATER_THAN, true);
+    }
+
+    @Test(groups = SMALL)
+    public void testComparesNumbersNumerically() {
+        assertTrue(new ColumnCondition("value", GREATER_THAN, 9).matches(event(EventType.INSERT, 10)));
+        assertTrue(new ColumnCondition("value", EQUALS, 10).matches(event(EventType.INSERT, 10L)));
+        assertTrue(new ColumnCondition("value", LESS_THAN_OR_EQUALS, 10.5).matches(event(EventType.INSERT, 10)));
+        assertFalse(new ColumnCondition("value", NOT_EQUALS, 10).matches(event(EventType.INSERT, 10.0)));
+    }
+
+    @Test(groups = SMALL)
+    public void testComparesNumbersReceivedAsStringsNumerically() {
+        assertTrue(new ColumnCondition("value", GREATER_THAN, 9).matches(event(EventType.INSERT, "10")));
+        assertFalse(new ColumnCondition("value", GREATER_THAN, 9).matches(event(EventType.INSERT, "abc")));
+    }
+
+    @Test(groups = SMALL)
+    public void testComparesStrings() {
+        assertTrue(new ColumnCondition("value", EQUALS, "abc").matches(event(EventType.INSERT, "abc")));
+        assertTrue(new ColumnCondition("value", LESS_THAN, "b").matches(event(EventType.INSERT, "abc")));
+        assertFalse(new ColumnCondition("value", GREATER_THAN_OR_EQUALS, "b").matches(event(EventType.INSERT, "a")));
+    }
+
+    @Test(groups = SMALL)
+    public void testComparesStringsCaseSensitively() {
+        assertFalse(new ColumnCondition("value", EQUALS, "ABC").matches(event(EventType.INSERT, "abc")));
+        assertTrue(new ColumnCondition("value", LESS_THAN, "a").matches(event(EventType.INSERT, "B")));
+    }
+
+    @Test(groups = SMALL)
+    public void testColumnNamesAreCaseInsensitive() {
+        assertTrue(new ColumnCondition("VALUE", EQUALS, 1).matches(event(EventType.INSERT, 1)));
+        assertTrue(new ColumnCondition("Value", IS_NOT_NULL).matches(event(EventType.INSERT, 1)));
+        assertTrue(new ColumnCondition("VALUE", IS_NULL).matches(event(EventType.INSERT, null)));
+    }
+
+    @Test(groups = SMALL)
+    public void testConditionsOnTheSameColumnInAnotherCaseAreEqual() {
+        ColumnCondition condition = new ColumnCondition("value", EQUALS, 1);
+        ColumnCondition upperCaseCondition = new ColumnCondition("VALUE", EQUALS, 1);
+
+        assertEquals(upperCaseCondition, condition);
+        assertEquals(upperCaseCondition.hashCode(), condition.hashCode());
+        assertNotEquals(new ColumnCondition("VALUE", EQUALS, 2), condition);
+    }
+
+    @Test(groups = SMALL)
+    public void testComparesBooleans() {
+        assertTrue(new ColumnCondition("value", EQUALS, true).matches(event(EventType.INSERT, true)));
+        assertTrue(new ColumnCondition("value", EQUALS, true).matches(event(EventType.INSERT, "1")));
+        assertTrue(new ColumnCondition("value", NOT_EQUALS, true).matches(event(EventType.INSERT, "f")));
+    }
+
+    @Test(groups = SMALL)
+    public void testNullColumnOnlyMatchesIsNull() {
+        assertTrue(new ColumnCondition("value", IS_NULL).matches(event(EventType.INSERT, null)));
+        assertFalse(new ColumnCondition("value", IS_NOT_NULL).matches(event(EventType.INSERT, null)));
+        assertFalse(new ColumnCondition("value", EQUALS, 1).matches(event(EventType.INSERT, null)));
+        assertFalse(new ColumnCondition("value", NOT_EQUALS, 1).matches(event(EventType.INSERT, null)));
+        assertTrue(new ColumnCondition("value", IS_NOT_NULL).matches(event(EventType.INSERT, 1)));
+    }
+
+    @Test(groups = SMALL)
+    public void testDeleteEventsAreEvaluatedOnTheOldEntity() {
+        assertTrue(new ColumnCondition("value", EQUALS, 1).matches(event(EventType.DELETE, 1)));
+        assertFalse(new ColumnCondition("value", IS_NULL).matches(event(EventType.DELETE, 1)));
+    }
+
+    private static Event<Map<String, Object>> event(EventType eventType, Object value) {
+        Map<String, Object> entity = Maps.newHashMap();
+        entity.put("value", value);
+        Map<String, Object> empty = Maps.newHashMap();
+        return eventType == EventType.DELETE ? new Event<>(eventType, "entity", empty, entity) :
+                new Event<>(eventType, "entity", entity, empty);
+    }
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class ColumnKeyExtractorTest {
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithoutColumns() {
+        new ColumnKeyExtractor();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithEmptyColumnName() {
+        new ColumnKeyExtractor("id", "");
+    }
+
+    @Test(groups = SMALL)
+    public void testSingleColumnKeyIsTheValueOfTheColumn() {
+        Event<Map<String, Object>> event = new Event<>(EventType.INSERT, "entity", entity(1, "a"), entity(null, null));
+
+        assertEquals(new ColumnKeyExtractor("id").extractKey(event), 1);
+    }
+
+    @Test(groups = SMALL)
+    public void testCompositeKeyContainsTheValuesOfAllTheColumns() {
+        Event<Map<String, Object>> event = new Event<>(EventType.UPDATE, "entity", entity(1, "a"), entity(1, "a"));
+
+        assertEquals(new ColumnKeyExtractor("id", "sku").extractKey(event), Arrays.<Object>asList(1, "a"));
+    }
+
+    @Test(groups = SMALL)
+    public void testKeyOfDeleteEventIsReadFromTheOldEntity() {
+        Event<Map<String, Object>> event = new Event<>(EventType.DELETE, "entity", entity(null, null), entity(2, "b"));
+
+        assertEquals(new ColumnKeyExtractor("id").extractKey(event), 2);
+    }
+
+    private static Map<String, Object> entity(Integer id, String sku) {
+        Map<String, Object> entity = Maps.newHashMap();
+        if (id != null) {
+            entity.put("id", id);
+            entity.put("sku", sku);
+        }
+        return entity;
+    }
+}
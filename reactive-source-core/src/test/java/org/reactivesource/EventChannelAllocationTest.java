@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Measures the bytes allocated by the polling thread to dispatch events, using the allocation counters of the JVM.
+ * <p/>
+ * The bytes allocated while the JIT is still compiling the dispatch path vary between JVMs, so the channel is warmed up
+ * generously and the best of several rounds is checked against the budget. The budget is far below the size of one
+ * {@link org.reactivesource.Event}, so allocating per event always fails.
+ */
+public class EventChannelAllocationTest {
+
+    private static final int EVENTS_PER_POLL = 1000;
+    private static final int WARM_UP_POLLS = 10000;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int MEASURED_POLLS = 200;
+    private static final double MAX_BYTES_PER_EVENT = 4.0;
+
+    @Test(groups = SMALL)
+    public void testDispatchingEventsInLowGarbageModeAllocatesAlmostNothing() {
+        com.sun.management.ThreadMXBean threadBean = allocationCountingThreadBean();
+        EventChannel<Integer> channel = new EventChannel<>(true);
+        CountingListener listener = new CountingListener();
+        channel.addEventListener(listener);
+        List<Event<Map<String, Object>>> events = createEvents();
+
+        for (int i = 0; i < WARM_UP_POLLS; i++) {
+            channel.pushEvents(events);
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_POLLS; i++) {
+                channel.pushEvents(events);
+            }
+            allocated = Math.min(allocated, threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore);
+        }
+
+        double bytesPerEvent = (double) allocated / (MEASURED_POLLS * EVENTS_PER_POLL);
+        assertEquals(listener.count, (long) (WARM_UP_POLLS + MEASURED_ROUNDS * MEASURED_POLLS) * EVENTS_PER_POLL);
+        assertTrue(bytesPerEvent < MAX_BYTES_PER_EVENT, "allocated " + bytesPerEvent + " bytes per event");
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCountingThreadBean() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            throw new SkipException("The JVM doesn't count the allocated bytes per thread");
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()) {
+            throw new SkipException("The JVM doesn't count the allocated bytes per thread");
+        }
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationBean;
+    }
+
+    private static List<Event<Map<String, Object>>> createEvents() {
+        List<Event<Map<String, Object>>> events = new ArrayList<>(EVENTS_PER_POLL);
+        for (int i = 0; i < EVENTS_PER_POLL; i++) {
+            Map<String, Object> entity = Maps.newHashMap();
+            entity.put("id", i % 100);
+            events.add(new Event<>(EventType.INSERT, "entity", entity, entity));
+        }
+        return events;
+    }
+
+    private static class CountingListener extends EventListener<Integer> {
+        private long count;
+        private long sum;
+
+        CountingListener() {
+            super(new EventChannelTest.IdExtractor());
+        }
+
+        @Override public void onEvent(Event<Integer> event) {
+            count++;
+            sum += event.getNewEntity();
+        }
+    }
+}
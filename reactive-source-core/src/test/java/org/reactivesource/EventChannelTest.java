@@ -6,14 +6,19 @@
 package org.reactivesource;
 
 import com.google.common.collect.Maps;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.List;
 import java.util.Map;
 
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
 import static org.mockito.Mockito.*;
 import static org.reactivesource.testing.TestConstants.SMALL;
 import static org.testng.Assert.*;
@@ -28,6 +33,8 @@ public class EventChannelTest {
     private EventListener<Integer> listener1;
     @Mock
     private EventListener<Integer> listener2;
+    @Mock
+    private EntityExtractor<Integer> extractor;
 
     @BeforeMethod(groups = SMALL)
     public void beforeMethod() {
@@ -35,6 +42,11 @@ public class EventChannelTest {
 
         Map<String, Object> dummyEntity = Maps.newHashMap();
         dummyInternalEvent = new Event<>(EventType.DELETE, "entity", dummyEntity, dummyEntity);
+        when(extractor.extractEntity(dummyEntity)).thenReturn(1);
+        when(listener1.getEntityExtractor()).thenReturn(extractor);
+        when(listener2.getEntityExtractor()).thenReturn(extractor);
+        when(listener1.getEventFilter()).thenReturn(EventFilter.ALL);
+        when(listener2.getEventFilter()).thenReturn(EventFilter.ALL);
         channel = new EventChannel<>();
     }
 
@@ -47,7 +59,7 @@ public class EventChannelTest {
     public void testCanPushEventsToOneEventListener() {
         channel.addEventListener(listener1);
         channel.pushEvent(dummyInternalEvent);
-        verify(listener1).notifyEvent(Mockito.any(Event.class));
+        verify(listener1).onEvent(Mockito.any(Event.class));
     }
 
     @Test(groups = SMALL)
@@ -55,8 +67,28 @@ public class EventChannelTest {
         channel.addEventListener(listener1);
         channel.addEventListener(listener2);
         channel.pushEvent(dummyInternalEvent);
-        verify(listener1).notifyEvent(Mockito.any(Event.class));
-        verify(listener2).notifyEvent(Mockito.any(Event.class));
+        verify(listener1).onEvent(Mockito.any(Event.class));
+        verify(listener2).onEvent(Mockito.any(Event.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testListenersWithDifferentExtractorsAreNotifiedInTheOrderTheyWereAdded() {
+        List<EventListener<Integer>> listeners = newArrayList();
+        for (int i = 0; i < 8; i++) {
+            EventListener<Integer> listener = mock(EventListener.class);
+            EntityExtractor<Integer> listenerExtractor = mock(EntityExtractor.class);
+            when(listener.getEntityExtractor()).thenReturn(listenerExtractor);
+            when(listener.getEventFilter()).thenReturn(EventFilter.ALL);
+            channel.addEventListener(listener);
+            listeners.add(listener);
+        }
+
+        channel.pushEvent(dummyInternalEvent);
+
+        InOrder inOrder = inOrder(listeners.toArray());
+        for (EventListener<Integer> listener : listeners) {
+            inOrder.verify(listener).onEvent(Mockito.any(Event.class));
+        }
     }
 
     @Test(groups = SMALL)
@@ -66,7 +98,7 @@ public class EventChannelTest {
         channel.mute();
         channel.pushEvent(dummyInternalEvent);
 
-        verify(listener1, never()).notifyEvent(Mockito.any(Event.class));
+        verify(listener1, never()).onEvent(Mockito.any(Event.class));
     }
 
     @Test(groups = SMALL)
@@ -77,16 +109,165 @@ public class EventChannelTest {
 
         channel.pushEvent(dummyInternalEvent);
         channel.pushEvent(dummyInternalEvent);
-        verify(listener1, never()).notifyEvent(Mockito.any(Event.class));
+        verify(listener1, never()).onEvent(Mockito.any(Event.class));
 
         channel.unmute();
-        verify(listener1, times(2)).notifyEvent(Mockito.any(Event.class));
+        verify(listener1, times(2)).onEvent(Mockito.any(Event.class));
 
     }
 
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotAddNullAsyncEventListener() {
+        channel.addEventListener(null, sameThreadExecutor(), 10);
+    }
+
+    @Test(groups = SMALL)
+    public void testCanPushEventsToAnAsyncEventListener() {
+        channel.addEventListener(listener1, sameThreadExecutor(), 10);
+        channel.pushEvent(dummyInternalEvent);
+        verify(listener1).notifyEvent(Mockito.any(Event.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testAsyncAndDirectEventListenersCanBeMixed() {
+        channel.addEventListener(listener1);
+        channel.addEventListener(listener2, sameThreadExecutor(), 10);
+        channel.pushEvent(dummyInternalEvent);
+        verify(listener1).onEvent(Mockito.any(Event.class));
+        verify(listener2).notifyEvent(Mockito.any(Event.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testRemovedEventListenerIsNotNotified() {
+        channel.addEventListener(listener1);
+        channel.addEventListener(listener2, sameThreadExecutor(), 10);
+
+        channel.removeEventListener(listener1);
+        channel.removeEventListener(listener2);
+        channel.pushEvent(dummyInternalEvent);
+
+        verify(listener1, never()).onEvent(Mockito.any(Event.class));
+        verify(listener2, never()).notifyEvent(Mockito.any(Event.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testListenersWithTheSameExtractorShareTheExtractedEvent() {
+        ArgumentCaptor<Event> event1 = ArgumentCaptor.forClass(Event.class);
+        ArgumentCaptor<Event> event2 = ArgumentCaptor.forClass(Event.class);
+        channel.addEventListener(listener1);
+        channel.addEventListener(listener2);
+
+        channel.pushEvent(dummyInternalEvent);
+
+        verify(listener1).onEvent(event1.capture());
+        verify(listener2).onEvent(event2.capture());
+        assertSame(event1.getValue(), event2.getValue());
+        for (Event event : newArrayList(event1.getValue(), event2.getValue())) {
+            assertEquals(event.getNewEntity(), 1);
+            assertEquals(event.getOldEntity(), 1);
+        }
+        verify(extractor, times(2)).extractEntity(Mockito.any(Map.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testListenersWithDifferentExtractorsExtractTheEventSeparately() {
+        EntityExtractor<Integer> otherExtractor = mock(EntityExtractor.class);
+        when(otherExtractor.extractEntity(Mockito.any(Map.class))).thenReturn(2);
+        when(listener2.getEntityExtractor()).thenReturn(otherExtractor);
+        channel.addEventListener(listener1);
+        channel.addEventListener(listener2);
+
+        channel.pushEvent(dummyInternalEvent);
+
+        verify(listener1).onEvent(new Event<>(EventType.DELETE, "entity", 1, 1));
+        verify(listener2).onEvent(new Event<>(EventType.DELETE, "entity", 2, 2));
+        verify(extractor, times(2)).extractEntity(Mockito.any(Map.class));
+        verify(otherExtractor, times(2)).extractEntity(Mockito.any(Map.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testListenerOnlyReceivesTheEventsAcceptedByItsFilter() {
+        EventFilter insertsOnly = EventFilter.ALL.withEventTypes(EventType.INSERT);
+        when(listener2.getEventFilter()).thenReturn(insertsOnly);
+        when(listener2.accepts(Mockito.any(Event.class))).thenCallRealMethod();
+        channel.addEventListener(listener1);
+        channel.addEventListener(listener2);
+
+        channel.pushEvent(dummyInternalEvent);
+
+        verify(listener1).onEvent(Mockito.any(Event.class));
+        verify(listener2, never()).onEvent(Mockito.any(Event.class));
+    }
+
     @Test(groups = SMALL)
     public void testCanBeInitialized() {
         assertNotNull(new EventChannel<Integer>());
     }
 
+
+    @Test(groups = SMALL)
+    public void testReusesTheEventOfTheListenersInLowGarbageMode() {
+        EventChannel<Integer> reusingChannel = new EventChannel<>(true);
+        final List<Event<Integer>> received = newArrayList();
+        final List<Event<Integer>> copies = newArrayList();
+        final List<Integer> entities = newArrayList();
+        reusingChannel.addEventListener(new EventListener<Integer>(new IdExtractor()) {
+            @Override public void onEvent(Event<Integer> event) {
+                received.add(event);
+                copies.add(event.copy());
+                entities.add(event.getNewEntity());
+            }
+        });
+
+        reusingChannel.pushEvents(newArrayList(eventWithId(1), eventWithId(2)));
+
+        assertSame(received.get(0), received.get(1));
+        assertEquals(entities, newArrayList(1, 2));
+        assertEquals(copies.get(0).getNewEntity(), Integer.valueOf(1));
+        assertEquals(copies.get(1).getNewEntity(), Integer.valueOf(2));
+    }
+
+    @Test(groups = SMALL)
+    public void testQueuesTheEventsWhenMutedInLowGarbageMode() {
+        EventChannel<Integer> reusingChannel = new EventChannel<>(true);
+        reusingChannel.addEventListener(listener1);
+        reusingChannel.mute();
+        reusingChannel.pushEvents(newArrayList(dummyInternalEvent));
+        verify(listener1, never()).onEvent(Mockito.any(Event.class));
+
+        reusingChannel.unmute();
+        verify(listener1).onEvent(Mockito.any(Event.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testListenersReceiveTheChangeTimestampOfTheEvents() {
+        for (boolean reuseEvents : new boolean[]{false, true}) {
+            EventChannel<Integer> timestampChannel = new EventChannel<>(reuseEvents);
+            final List<Long> timestamps = newArrayList();
+            timestampChannel.addEventListener(new EventListener<Integer>(new IdExtractor()) {
+                @Override public void onEvent(Event<Integer> event) {
+                    timestamps.add(event.getChangeTimestamp());
+                    timestamps.add(event.copy().getChangeTimestamp());
+                }
+            });
+            Map<String, Object> entity = Maps.newHashMap();
+            entity.put("id", 1);
+
+            timestampChannel.pushEvents(newArrayList(new Event<>(EventType.INSERT, "entity", entity, entity, 42L)));
+
+            assertEquals(timestamps, newArrayList(42L, 42L));
+        }
+    }
+
+    private static Event<Map<String, Object>> eventWithId(int id) {
+        Map<String, Object> entity = Maps.newHashMap();
+        entity.put("id", id);
+        return new Event<>(EventType.INSERT, "entity", entity, entity);
+    }
+
+    static class IdExtractor implements EntityExtractor<Integer> {
+        @Override public Integer extractEntity(Map<String, Object> entityRow) {
+            return (Integer) entityRow.get("id");
+        }
+    }
 }
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.testng.annotations.Test;
+
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+import static org.reactivesource.ColumnCondition.Operator.EQUALS;
+import static org.reactivesource.ColumnCondition.Operator.GREATER_THAN;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class EventFilterTest {
+
+    @Test(groups = SMALL)
+    public void testAllAcceptsEveryEvent() {
+        assertTrue(EventFilter.ALL.acceptsAll());
+        assertTrue(EventFilter.ALL.matches(event(EventType.INSERT, "NEW", 1)));
+        assertTrue(EventFilter.ALL.matches(event(EventType.DELETE, "NEW", 1)));
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeRestrictedToNoEventTypes() {
+        EventFilter.ALL.withEventTypes();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeRestrictedToDisjointEventTypes() {
+        EventFilter.ALL.withEventTypes(EventType.INSERT).withEventTypes(EventType.DELETE);
+    }
+
+    @Test(groups = SMALL)
+    public void testFiltersByEventType() {
+        EventFilter filter = EventFilter.ALL.withEventTypes(EventType.INSERT, EventType.UPDATE);
+
+        assertEquals(filter.getEventTypes(), EnumSet.of(EventType.INSERT, EventType.UPDATE));
+        assertFalse(filter.acceptsAllEventTypes());
+        assertTrue(filter.matches(event(EventType.INSERT, "NEW", 1)));
+        assertFalse(filter.matches(event(EventType.DELETE, "NEW", 1)));
+    }
+
+    @Test(groups = SMALL)
+    public void testAllConditionsHaveToMatch() {
+        EventFilter filter = EventFilter.ALL
+                .withCondition("status", EQUALS, "NEW")
+                .withCondition("amount", GREATER_THAN, 10);
+
+        assertTrue(filter.matches(event(EventType.INSERT, "NEW", 11)));
+        assertFalse(filter.matches(event(EventType.INSERT, "NEW", 10)));
+        assertFalse(filter.matches(event(EventType.INSERT, "OLD", 11)));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test(groups = SMALL)
+    public void testEntitiesAreNotReadIfTheEventTypeIsRejected() {
+        Event<Map<String, Object>> event = mock(Event.class);
+        when(event.getEventType()).thenReturn(EventType.DELETE);
+        EventFilter filter = EventFilter.ALL.withEventTypes(EventType.INSERT).withCondition("status", EQUALS, "NEW");
+
+        assertFalse(filter.matches(event));
+        verify(event, never()).getNewEntity();
+        verify(event, never()).getOldEntity();
+    }
+
+    @Test(groups = SMALL)
+    public void testFiltersWithTheSameTypesAndConditionsAreEqual() {
+        EventFilter filter1 = EventFilter.ALL.withEventTypes(EventType.INSERT)
+                .withCondition("status", EQUALS, "NEW").withCondition("amount", GREATER_THAN, 10);
+        EventFilter filter2 = EventFilter.ALL.withCondition("amount", GREATER_THAN, 10)
+                .withCondition("status", EQUALS, "NEW").withEventTypes(EventType.INSERT);
+
+        assertEquals(filter1, filter2);
+        assertEquals(filter1.hashCode(), filter2.hashCode());
+        assertNotEquals(filter1, EventFilter.ALL);
+    }
+
+    @Test(groups = SMALL)
+    public void testFiltersThatOnlyDifferByTheCaseOfTheColumnNamesAreEqual() {
+        EventFilter filter1 = EventFilter.ALL.withCondition("status", EQUALS, "NEW");
+        EventFilter filter2 = EventFilter.ALL.withCondition("STATUS", EQUALS, "NEW");
+
+        assertEquals(filter1, filter2);
+        assertEquals(filter1.hashCode(), filter2.hashCode());
+    }
+
+    private static Event<Map<String, Object>> event(EventType eventType, String status, int amount) {
+        Map<String, Object> entity = Maps.newHashMap();
+        entity.put("status", status);
+        entity.put("amount", amount);
+        Map<String, Object> empty = Maps.newHashMap();
+        return eventType == EventType.DELETE ? new Event<>(eventType, "entity", empty, entity) :
+                new Event<>(eventType, "entity", entity, empty);
+    }
+}
@@ -6,12 +6,20 @@
 package org.reactivesource;
 
 import com.beust.jcommander.internal.Maps;
+import com.fasterxml.jackson.core.JsonParser;
 import org.mockito.ArgumentCaptor;
+import org.reactivesource.BeanEntityBinderTest.Purchase;
+import org.reactivesource.metrics.ListenerMetrics;
+import org.reactivesource.metrics.MetricsRegistry;
 import org.mockito.Mockito;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.*;
 import static org.reactivesource.testing.TestConstants.*;
@@ -40,11 +48,32 @@ public class EventListenerTest {
         new MyEventListener(null);
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
     @Test(groups = SMALL)
     public void testNotifyEventCallsGetEventObject() {
+        ArgumentCaptor<Event> capturedEvent = ArgumentCaptor.forClass(Event.class);
+        doNothing().when(eventListener).onEvent(capturedEvent.capture());
+
         eventListener.notifyEvent(eventOccured);
+        capturedEvent.getValue().getNewEntity();
+        capturedEvent.getValue().getOldEntity();
+        verify(entityExtractor).extractEntity(eventOccured.getNewEntity());
         verify(entityExtractor).extractEntity(eventOccured.getOldEntity());
-        verify(entityExtractor).extractEntity(eventOccured.getOldEntity());
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Test(groups = SMALL)
+    public void testEntitiesAreOnlyExtractedWhenRequested() {
+        ArgumentCaptor<Event> capturedEvent = ArgumentCaptor.forClass(Event.class);
+        doNothing().when(eventListener).onEvent(capturedEvent.capture());
+
+        eventListener.notifyEvent(eventOccured);
+        verify(entityExtractor, never()).extractEntity(Mockito.any(Map.class));
+
+        capturedEvent.getValue().getNewEntity();
+        capturedEvent.getValue().getNewEntity();
+        verify(entityExtractor, times(1)).extractEntity(eventOccured.getNewEntity());
+        verify(entityExtractor, never()).extractEntity(eventOccured.getOldEntity());
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -63,6 +92,94 @@ public class EventListenerTest {
         assertEquals(producedEvent.getOldEntity(), MOCK_DATA_OLD);
     }
 
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNullFilter() {
+        new MyEventListener(entityExtractor, null);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Test(groups = SMALL)
+    public void testEventsRejectedByTheFilterAreNotExtracted() {
+        EventFilter filter = EventFilter.ALL.withCondition("id", ColumnCondition.Operator.GREATER_THAN, 1);
+        MyEventListener filteredListener = spy(new MyEventListener(entityExtractor, filter));
+
+        filteredListener.notifyEvent(eventOccured);
+
+        verify(filteredListener, never()).onEvent(Mockito.any(Event.class));
+        verify(entityExtractor, never()).extractEntity(Mockito.any(Map.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testBindersBindTheEntitiesOfJsonEventsDirectly() {
+        final BeanEntityBinder<Purchase> beanBinder = new BeanEntityBinder<>(Purchase.class);
+        EntityBinder<Purchase> binder = new EntityBinder<Purchase>() {
+            @Override public Purchase bindEntity(JsonParser parser) throws IOException {
+                return beanBinder.bindEntity(parser);
+            }
+
+            @Override public Purchase extractEntity(Map<String, Object> entityRow) {
+                throw new AssertionError("the entity should be bound from the json");
+            }
+        };
+        final List<Event<Purchase>> events = new ArrayList<>();
+        EventListener<Purchase> listener = new EventListener<Purchase>(binder) {
+            @Override public void onEvent(Event<Purchase> event) {
+                events.add(event);
+            }
+        };
+
+        listener.notifyEvent(new LazyJsonEvent(EventType.INSERT, TABLE_NAME, "{\"ID\":\"7\"}", "{}"));
+
+        assertEquals(events.get(0).getNewEntity().getId(), 7);
+        assertEquals(events.get(0).getOldEntity().getId(), 0);
+    }
+
+    @Test(groups = SMALL)
+    public void testCallbacksAreRecordedInTheMetricsOfTheListener() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.registerSource("source");
+        ListenerMetrics metrics = registry.registerListener("source", "listener");
+        EventListener<Integer> failingListener = new EventListener<Integer>(new EventChannelTest.IdExtractor()) {
+            @Override public void onEvent(Event<Integer> event) {
+                if (event.getNewEntity() == 2) {
+                    throw new IllegalStateException();
+                }
+            }
+        };
+        failingListener.setMetrics(metrics);
+
+        failingListener.notifyEvent(eventOccured);
+        try {
+            failingListener.notifyEvent(new Event<>(EVENT_TYPE, TABLE_NAME, eventOccured.getOldEntity(),
+                    eventOccured.getOldEntity()));
+            fail("the exception of the listener should be propagated");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+
+        assertEquals(metrics.getEvents(), 2);
+        assertEquals(metrics.getFailures(), 1);
+    }
+
+    @Test(groups = SMALL)
+    public void testLagOfTheEventsIsRecordedInTheMetricsOfTheListener() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.registerSource("source");
+        ListenerMetrics metrics = registry.registerListener("source", "listener");
+        EventListener<Integer> listener = new EventListener<Integer>(new EventChannelTest.IdExtractor()) {
+            @Override public void onEvent(Event<Integer> event) {
+            }
+        };
+        listener.setMetrics(metrics);
+        long fiveSecondsAgo = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis() - 5000);
+
+        listener.notifyEvent(new Event<>(EVENT_TYPE, TABLE_NAME, eventOccured.getNewEntity(),
+                eventOccured.getOldEntity(), fiveSecondsAgo));
+
+        assertTrue(metrics.getLagMax() >= 5000, "lag " + metrics.getLagMax());
+        assertTrue(metrics.getDeliveryLag99thPercentile() >= 5000, "lag " + metrics.getDeliveryLag99thPercentile());
+    }
+
     private void prepareMocks() {
         Map<String, Object> mapDataNew = Maps.newHashMap();
         mapDataNew.put("id", 1);
@@ -85,6 +202,10 @@ public class EventListenerTest {
             super(extractor);
         }
 
+        public MyEventListener(EntityExtractor<String> extractor, EventFilter filter) {
+            super(extractor, filter);
+        }
+
         @Override
         public void onEvent(Event<String> event) {
         }
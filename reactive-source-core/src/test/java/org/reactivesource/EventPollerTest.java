@@ -5,17 +5,29 @@
  ******************************************************************************/
 package org.reactivesource;
 
+import com.google.common.collect.Maps;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.reactivesource.exceptions.DataAccessException;
+import org.reactivesource.metrics.MetricsRegistry;
+import org.reactivesource.metrics.SourceMetrics;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
+import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.Thread.State.TERMINATED;
 import static java.lang.Thread.sleep;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.reactivesource.EventPoller.TIME_BETWEEN_POLLS;
@@ -31,6 +43,8 @@ public class EventPollerTest {
     EventChannel<Integer> channel;
     @Mock
     UncaughtExceptionHandler uncaughtExceptionHandler;
+    @Mock
+    PollingStrategy pollingStrategy;
 
     @BeforeMethod(groups = SMALL)
     public void setUp() {
@@ -48,6 +62,11 @@ public class EventPollerTest {
         new EventPoller<>(evtSource, null);
     }
 
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNullPollingStrategy() {
+        new EventPoller<>(evtSource, channel, null);
+    }
+
     @Test(groups = SMALL)
     public void testCanBeInitializedWithCorrectArguments() {
         assertNotNull(new EventPoller<>(evtSource, channel));
@@ -169,8 +188,109 @@ public class EventPollerTest {
                 Mockito.any(DataAccessException.class));
     }
 
-    private Thread startPollingThread() {
+    @Test(groups = SMALL)
+    public void testAsksThePollingStrategyForTheDelayBeforeTheNextPoll() throws InterruptedException {
+        when(evtSource.getNewEvents()).thenReturn(newArrayList(dummyEvent(), dummyEvent()));
+        when(pollingStrategy.nextPollDelay(anyInt(), anyLong())).thenReturn(TIME_BETWEEN_POLLS);
+
+        startPollingThread(pollingStrategy);
+        sleep(100L);
+
+        verify(pollingStrategy).nextPollDelay(eq(2), anyLong());
+    }
+
+    @Test(groups = SMALL)
+    public void testPollsAgainWithoutWaitingWhenThePollingStrategyReturnsZeroDelay() throws InterruptedException {
+        when(pollingStrategy.nextPollDelay(anyInt(), anyLong())).thenReturn(0L);
+
+        startPollingThread(pollingStrategy);
+        sleep(100L);
+        poller.stop();
+
+        verify(evtSource, atLeast(3)).getNewEvents();
+    }
+
+    @Test(groups = SMALL)
+    public void testPushesTheEventsOfEveryPollToTheChannelEvenWhenThereAreNone() throws InterruptedException {
+        List<Event<Map<String, Object>>> events = newArrayList(dummyEvent(), dummyEvent());
+        when(evtSource.getNewEvents()).thenReturn(events, Collections.<Event<Map<String, Object>>>emptyList());
+        when(pollingStrategy.nextPollDelay(anyInt(), anyLong())).thenReturn(10L);
+
+        startPollingThread(pollingStrategy);
+        sleep(100L);
+        poller.stop();
+
+        verify(channel).pushEvents(events);
+        verify(channel, atLeastOnce()).pushEvents(Collections.<Event<Map<String, Object>>>emptyList());
+    }
+
+    @Test(groups = SMALL)
+    public void testFlushesTheChannelBeforeDisconnecting() throws InterruptedException {
+        startPollingThread();
+        poller.stop();
+
+        sleep(TIME_BETWEEN_POLLS + 100L);
+        InOrder inOrder = inOrder(channel, evtSource);
+        inOrder.verify(channel).flush();
+        inOrder.verify(evtSource).disconnect();
+    }
+
+    @Test(groups = SMALL)
+    public void testRecordsThePollsInTheMetrics() {
+        when(evtSource.getNewEvents()).thenReturn(newArrayList(dummyEvent(), dummyEvent()))
+                .thenThrow(new DataAccessException(""));
+        SourceMetrics metrics = new MetricsRegistry().registerSource("source");
+        poller = new EventPoller<>(evtSource, channel);
+        poller.setMetrics(metrics);
+
+        poller.poll();
+        poller.poll();
+
+        assertEquals(metrics.getPolls(), 1);
+        assertEquals(metrics.getEvents(), 2);
+        assertEquals(metrics.getPollFailures(), 1);
+    }
+
+    @Test(groups = SMALL)
+    public void testRecordsTheFetchLagOfEventsWithAChangeTimestamp() {
+        long fiveSecondsAgo = MILLISECONDS.toMicros(System.currentTimeMillis() - 5000);
+        Map<String, Object> entity = Maps.newHashMap();
+        when(evtSource.getNewEvents()).thenReturn(newArrayList(dummyEvent(),
+                new Event<>(EventType.INSERT, "entity", entity, entity, fiveSecondsAgo)));
+        SourceMetrics metrics = new MetricsRegistry().registerSource("source");
+        poller = new EventPoller<>(evtSource, channel);
+        poller.setMetrics(metrics);
+
+        poller.poll();
+
+        assertTrue(metrics.getFetchLagMax() >= 5000, "lag " + metrics.getFetchLagMax());
+        assertTrue(metrics.getFetchLagMax() < 6000, "lag " + metrics.getFetchLagMax());
+    }
+
+    @Test(groups = SMALL)
+    public void testRecordsOnlyTheReconnectionsInTheMetrics() {
+        when(evtSource.isConnected()).thenReturn(false);
+        SourceMetrics metrics = new MetricsRegistry().registerSource("source");
         poller = new EventPoller<>(evtSource, channel);
+        poller.setMetrics(metrics);
+
+        poller.poll();
+        assertEquals(metrics.getReconnects(), 0);
+        poller.poll();
+        assertEquals(metrics.getReconnects(), 1);
+    }
+
+    private Event<Map<String, Object>> dummyEvent() {
+        Map<String, Object> entity = Maps.newHashMap();
+        return new Event<>(EventType.INSERT, "entity", entity, entity);
+    }
+
+    private Thread startPollingThread() {
+        return startPollingThread(new FixedIntervalPollingStrategy(TIME_BETWEEN_POLLS));
+    }
+
+    private Thread startPollingThread(PollingStrategy strategy) {
+        poller = new EventPoller<>(evtSource, channel, strategy);
         Thread worker = new Thread(poller);
         worker.setDaemon(true);
         worker.setUncaughtExceptionHandler(uncaughtExceptionHandler);
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class EventPublisherTest {
+
+    private static final int BUFFER_SIZE = 2;
+    private static final EntityExtractor<Integer> VALUE_EXTRACTOR = new EntityExtractor<Integer>() {
+        @Override
+        public Integer extractEntity(Map<String, Object> entityRow) {
+            return (Integer) entityRow.get("value");
+        }
+    };
+
+    private EventChannel<Integer> channel;
+    private EventPublisher<Integer> publisher;
+    private RecordingSubscriber subscriber;
+
+    @BeforeMethod(groups = SMALL)
+    public void setUp() {
+        channel = new EventChannel<>();
+        publisher = new EventPublisher<>(channel, VALUE_EXTRACTOR, BUFFER_SIZE);
+        subscriber = new RecordingSubscriber();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNullExtractor() {
+        new EventPublisher<>(channel, null, BUFFER_SIZE);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNonPositiveBufferSize() {
+        new EventPublisher<>(channel, VALUE_EXTRACTOR, 0);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = NullPointerException.class)
+    public void testSubscribingNullSubscriberThrowsNullPointerException() {
+        publisher.subscribe(null);
+    }
+
+    @Test(groups = SMALL)
+    public void testSubscriberReceivesASubscription() {
+        publisher.subscribe(subscriber);
+        assertNotNull(subscriber.subscription);
+    }
+
+    @Test(groups = SMALL)
+    public void testEventsAreNotDeliveredBeforeTheyAreRequested() {
+        publisher.subscribe(subscriber);
+
+        channel.pushEvent(newEvent(0));
+        channel.pushEvent(newEvent(1));
+        assertTrue(subscriber.received.isEmpty());
+
+        subscriber.subscription.request(1);
+        assertEquals(subscriber.received.size(), 1);
+        assertEquals(subscriber.received.get(0).getNewEntity(), Integer.valueOf(0));
+
+        subscriber.subscription.request(5);
+        assertEquals(subscriber.received.size(), 2);
+        assertEquals(subscriber.received.get(1).getNewEntity(), Integer.valueOf(1));
+    }
+
+    @Test(groups = SMALL)
+    public void testRequestedEventsAreDeliveredAsSoonAsTheyArePushed() {
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        for (int i = 0; i < BUFFER_SIZE * 3; i++) {
+            channel.pushEvent(newEvent(i));
+        }
+
+        assertEquals(subscriber.received.size(), BUFFER_SIZE * 3);
+    }
+
+    @Test(groups = SMALL)
+    public void testPushingBlocksWhenTheBufferOfTheSubscriberIsFull() throws InterruptedException {
+        publisher.subscribe(subscriber);
+        final CountDownLatch pushed = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i <= BUFFER_SIZE; i++) {
+                    channel.pushEvent(newEvent(i));
+                }
+                pushed.countDown();
+            }
+        });
+        producer.start();
+
+        assertFalse(pushed.await(100L, MILLISECONDS));
+
+        subscriber.subscription.request(1);
+        assertTrue(pushed.await(5, SECONDS));
+    }
+
+    @Test(groups = SMALL)
+    public void testClosingTheChannelCompletesTheSubscriptionAndWakesUpTheProducer() throws InterruptedException {
+        publisher.subscribe(subscriber);
+        final CountDownLatch pushed = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i <= BUFFER_SIZE; i++) {
+                    channel.pushEvent(newEvent(i));
+                }
+                pushed.countDown();
+            }
+        });
+        producer.start();
+        assertFalse(pushed.await(100L, MILLISECONDS));
+
+        channel.close();
+
+        assertTrue(pushed.await(5, SECONDS));
+        assertTrue(subscriber.completed);
+        assertTrue(subscriber.received.isEmpty());
+        channel.pushEvent(newEvent(0));
+        subscriber.subscription.request(10);
+        assertTrue(subscriber.received.isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testRequestedEventsAreDeliveredBeforeCompleting() {
+        publisher.subscribe(subscriber);
+        channel.pushEvent(newEvent(0));
+        channel.pushEvent(newEvent(1));
+        subscriber.subscription.request(1);
+
+        channel.close();
+
+        assertEquals(subscriber.received.size(), 1);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test(groups = SMALL)
+    public void testEventsReusedInLowGarbageModeAreDeliveredWhenRequested() {
+        channel = new EventChannel<>(true);
+        publisher = new EventPublisher<>(channel, VALUE_EXTRACTOR, BUFFER_SIZE + 1);
+        publisher.subscribe(subscriber);
+
+        for (int i = 0; i <= BUFFER_SIZE; i++) {
+            channel.pushEvent(newEvent(i));
+        }
+        subscriber.subscription.request(BUFFER_SIZE + 1);
+
+        assertEquals(subscriber.received.size(), BUFFER_SIZE + 1);
+        for (int i = 0; i <= BUFFER_SIZE; i++) {
+            assertEquals(subscriber.received.get(i).getNewEntity(), Integer.valueOf(i));
+        }
+    }
+
+    @Test(groups = SMALL)
+    public void testCancelledSubscriptionDoesNotReceiveEvents() {
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(10);
+
+        subscriber.subscription.cancel();
+        channel.pushEvent(newEvent(0));
+
+        assertTrue(subscriber.received.isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testNonPositiveRequestSignalsAnError() {
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        channel.pushEvent(newEvent(0));
+        assertTrue(subscriber.received.isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testSubscriberCanRequestFromOnNext() {
+        RecordingSubscriber oneByOne = new RecordingSubscriber() {
+            @Override
+            public void onNext(Event<Integer> event) {
+                super.onNext(event);
+                subscription.request(1);
+            }
+        };
+        publisher.subscribe(oneByOne);
+        oneByOne.subscription.request(1);
+
+        for (int i = 0; i < BUFFER_SIZE * 3; i++) {
+            channel.pushEvent(newEvent(i));
+        }
+
+        assertEquals(oneByOne.received.size(), BUFFER_SIZE * 3);
+    }
+
+    @Test(groups = SMALL)
+    public void testFailingSubscriberIsCancelled() {
+        RecordingSubscriber failing = new RecordingSubscriber() {
+            @Override
+            public void onNext(Event<Integer> event) {
+                super.onNext(event);
+                throw new IllegalStateException("failing subscriber");
+            }
+        };
+        publisher.subscribe(failing);
+        failing.subscription.request(10);
+
+        channel.pushEvent(newEvent(0));
+        channel.pushEvent(newEvent(1));
+
+        assertEquals(failing.received.size(), 1);
+    }
+
+    private static Event<Map<String, Object>> newEvent(int value) {
+        Map<String, Object> entity = Maps.newHashMap();
+        entity.put("value", value);
+        return new Event<>(EventType.INSERT, "entity", entity, entity);
+    }
+
+    private static class RecordingSubscriber implements Subscriber<Event<Integer>> {
+
+        final List<Event<Integer>> received = new CopyOnWriteArrayList<>();
+        volatile Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Event<Integer> event) {
+            received.add(event);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -44,7 +44,15 @@ public class EventTest {
         assertEquals(event.getEntityName(), TABLE_NAME);
         assertEquals(event.getNewEntity(), DATA_NEW);
         assertEquals(event.getOldEntity(), DATA_OLD);
+        assertEquals(event.getChangeTimestamp(), Event.UNKNOWN_CHANGE_TIMESTAMP);
 
     }
 
+    @Test(groups = SMALL)
+    public void testCarriesTheTimestampOfTheChange() {
+        Event<String> event = new Event<>(EventType.DELETE, TABLE_NAME, DATA_NEW, DATA_OLD, 1400000000123456L);
+
+        assertEquals(event.getChangeTimestamp(), 1400000000123456L);
+    }
+
 }
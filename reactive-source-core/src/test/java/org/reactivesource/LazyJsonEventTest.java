@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.json.JSONException;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class LazyJsonEventTest {
+
+    private static final String TABLE_NAME = "tableName";
+    private static final String NEW_ENTITY_JSON = "{'id': 1, 'value': 'new'}";
+    private static final String OLD_ENTITY_JSON = "{'id': 1, 'value': 'old'}";
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotInitializeWithNullEntity() {
+        new LazyJsonEvent(EventType.INSERT, TABLE_NAME, NEW_ENTITY_JSON, null);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotInitializeWithEmptyTableName() {
+        new LazyJsonEvent(EventType.INSERT, "", NEW_ENTITY_JSON, OLD_ENTITY_JSON);
+    }
+
+    @Test(groups = SMALL)
+    public void testDecodesTheEntitiesOfJsonStrings() {
+        Event<Map<String, Object>> event =
+                new LazyJsonEvent(EventType.UPDATE, TABLE_NAME, NEW_ENTITY_JSON, OLD_ENTITY_JSON);
+
+        assertEquals(event.getNewEntity().get("value"), "new");
+        assertEquals(event.getOldEntity().get("value"), "old");
+    }
+
+    @Test(groups = SMALL)
+    public void testDecodedEntitiesAreMemoized() {
+        Event<Map<String, Object>> event =
+                new LazyJsonEvent(EventType.UPDATE, TABLE_NAME, NEW_ENTITY_JSON, OLD_ENTITY_JSON);
+
+        assertSame(event.getNewEntity(), event.getNewEntity());
+        assertSame(event.getOldEntity(), event.getOldEntity());
+    }
+
+    @Test(groups = SMALL)
+    public void testEmptyEntitiesAreDecodedToEmptyMaps() {
+        Event<Map<String, Object>> event = new LazyJsonEvent(EventType.INSERT, TABLE_NAME, NEW_ENTITY_JSON, "{}");
+
+        assertTrue(event.getOldEntity().isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testMalformedEntityOnlyFailsWhenRequested() {
+        Event<Map<String, Object>> event = new LazyJsonEvent(EventType.DELETE, TABLE_NAME, "not json", OLD_ENTITY_JSON);
+
+        assertEquals(event.getOldEntity().get("value"), "old");
+        try {
+            event.getNewEntity();
+            fail("decoding a malformed entity should fail");
+        } catch (JSONException expected) {
+            // expected
+        }
+    }
+
+    @Test(groups = SMALL)
+    public void testIsEqualToTheEagerlyDecodedEvent() {
+        Map<String, Object> newEntity = Maps.newHashMap();
+        newEntity.put("id", 1);
+        newEntity.put("value", "new");
+        Map<String, Object> oldEntity = Maps.newHashMap();
+
+        Event<Map<String, Object>> lazyEvent = new LazyJsonEvent(EventType.INSERT, TABLE_NAME, NEW_ENTITY_JSON, "{}");
+        Event<Map<String, Object>> eagerEvent = new Event<>(EventType.INSERT, TABLE_NAME, newEntity, oldEntity);
+
+        assertEquals(lazyEvent, eagerEvent);
+        assertEquals(eagerEvent, lazyEvent);
+        assertEquals(lazyEvent.hashCode(), eagerEvent.hashCode());
+    }
+
+    @Test(groups = SMALL)
+    public void testToStringDoesNotDecodeTheEntities() {
+        Event<Map<String, Object>> event = new LazyJsonEvent(EventType.DELETE, TABLE_NAME, "not json", "{}");
+
+        assertTrue(event.toString().contains("not json"));
+    }
+
+    @Test(groups = SMALL)
+    public void testDecodesTheEntitiesToRowsWithDecoder() {
+        RowDecoder decoder = new RowDecoder();
+        Event<Map<String, Object>> event =
+                new LazyJsonEvent(EventType.UPDATE, TABLE_NAME, NEW_ENTITY_JSON, OLD_ENTITY_JSON, decoder);
+
+        assertEquals(event.getNewEntity().get("value"), "new");
+        assertSame(((Row) event.getNewEntity()).getSchema(), ((Row) event.getOldEntity()).getSchema());
+    }
+}
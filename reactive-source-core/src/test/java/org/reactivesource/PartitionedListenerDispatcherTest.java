@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.mockito.Mockito.mock;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class PartitionedListenerDispatcherTest {
+
+    private static final int NUMBER_OF_LANES = 4;
+    private static final int NUMBER_OF_KEYS = 10;
+    private static final int EVENTS_PER_KEY = 200;
+    private static final EventKeyExtractor KEY_EXTRACTOR = new ColumnKeyExtractor("key");
+
+    private ExecutorService executor;
+
+    @BeforeMethod(groups = SMALL)
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(NUMBER_OF_LANES);
+    }
+
+    @AfterMethod(groups = SMALL)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNullKeyExtractor() {
+        new PartitionedListenerDispatcher<>(mock(EventListener.class), null, executor, NUMBER_OF_LANES, 10);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNonPositiveNumberOfLanes() {
+        new PartitionedListenerDispatcher<>(mock(EventListener.class), KEY_EXTRACTOR, executor, 0, 10);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testBatchEventListenersAreNotSupported() {
+        new PartitionedListenerDispatcher<>(mock(BatchEventListener.class), KEY_EXTRACTOR, executor, NUMBER_OF_LANES,
+                10);
+    }
+
+    @Test(groups = SMALL)
+    public void testEventsWithTheSameKeyAreDeliveredInOrder() throws InterruptedException {
+        RecordingListener listener = new RecordingListener(NUMBER_OF_KEYS * EVENTS_PER_KEY);
+        PartitionedListenerDispatcher<Integer> dispatcher =
+                new PartitionedListenerDispatcher<>(listener, KEY_EXTRACTOR, executor, NUMBER_OF_LANES, 10);
+
+        for (int sequence = 0; sequence < EVENTS_PER_KEY; sequence++) {
+            for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+                dispatcher.dispatch(event(key, sequence));
+            }
+        }
+
+        assertTrue(listener.latch.await(5, SECONDS));
+        for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+            List<Integer> sequences = listener.receivedPerKey.get(key);
+            assertEquals(sequences.size(), EVENTS_PER_KEY);
+            for (int sequence = 0; sequence < EVENTS_PER_KEY; sequence++) {
+                assertEquals(sequences.get(sequence), Integer.valueOf(sequence));
+            }
+        }
+    }
+
+    @Test(groups = SMALL)
+    public void testEventsOfDifferentLanesAreDeliveredConcurrently() throws InterruptedException {
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final CountDownLatch bothDelivered = new CountDownLatch(2);
+        EventListener<Integer> listener = new EventListener<Integer>(new KeyExtractor()) {
+            @Override public void onEvent(Event<Integer> event) {
+                try {
+                    // only returns if the other lane is delivering at the same time
+                    barrier.await(5, SECONDS);
+                    bothDelivered.countDown();
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        PartitionedListenerDispatcher<Integer> dispatcher =
+                new PartitionedListenerDispatcher<>(listener, KEY_EXTRACTOR, executor, NUMBER_OF_LANES, 10);
+        int otherKey = 1;
+        while (dispatcher.laneOf(otherKey) == dispatcher.laneOf(0)) {
+            otherKey++;
+        }
+
+        dispatcher.dispatch(event(0, 0));
+        dispatcher.dispatch(event(otherKey, 0));
+
+        assertTrue(bothDelivered.await(5, SECONDS));
+    }
+
+    @Test(groups = SMALL)
+    public void testEventsWithNullKeyAreDeliveredInTheFirstLane() {
+        PartitionedListenerDispatcher<Integer> dispatcher = new PartitionedListenerDispatcher<>(
+                mock(EventListener.class), KEY_EXTRACTOR, executor, NUMBER_OF_LANES, 10);
+
+        assertEquals(dispatcher.laneOf(null), 0);
+    }
+
+    private static Event<Map<String, Object>> event(int key, int sequence) {
+        Map<String, Object> entity = Maps.newHashMap();
+        entity.put("key", key);
+        entity.put("sequence", sequence);
+        return new Event<>(EventType.UPDATE, "entity", entity, entity);
+    }
+
+    private static class KeyExtractor implements EntityExtractor<Integer> {
+        @Override public Integer extractEntity(Map<String, Object> entityRow) {
+            return (Integer) entityRow.get("key");
+        }
+    }
+
+    private static class RecordingListener extends EventListener<Integer> {
+        final ConcurrentMap<Integer, List<Integer>> receivedPerKey = new ConcurrentHashMap<>();
+        final CountDownLatch latch;
+
+        RecordingListener(int expectedEvents) {
+            super(new KeyExtractor());
+            this.latch = new CountDownLatch(expectedEvents);
+        }
+
+        @Override void notifyEvent(Event<Map<String, Object>> event) {
+            Integer key = (Integer) event.getNewEntity().get("key");
+            receivedPerKey.putIfAbsent(key, new CopyOnWriteArrayList<Integer>());
+            receivedPerKey.get(key).add((Integer) event.getNewEntity().get("sequence"));
+            latch.countDown();
+        }
+
+        @Override public void onEvent(Event<Integer> event) {
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.reactivesource.exceptions.DataAccessException;
+import org.reactivestreams.Subscriber;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.lang.Thread.sleep;
+import static org.mockito.Mockito.*;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class ReactiveSourceGroupTest {
+
+    private static final int NUMBER_OF_SOURCES = 10;
+
+    private ScheduledExecutorService executor;
+    private ReactiveSourceGroup group;
+
+    @BeforeMethod(groups = SMALL)
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        group = new ReactiveSourceGroup(executor);
+    }
+
+    @AfterMethod(groups = SMALL)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNullExecutor() {
+        new ReactiveSourceGroup(null);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotBeInitializedWithNonPositivePoolSize() {
+        new ReactiveSourceGroup(0);
+    }
+
+    @Test(groups = SMALL)
+    public void testCreatedReactiveSourcesAreNotStarted() {
+        ReactiveSource<Integer> reactiveSource = group.newReactiveSource(connectedEventSource());
+        assertFalse(reactiveSource.isStarted());
+    }
+
+    @Test(groups = SMALL)
+    public void testOneThreadCanPollManyEventSources() throws InterruptedException {
+        List<EventSource> eventSources = newArrayList();
+        for (int i = 0; i < NUMBER_OF_SOURCES; i++) {
+            EventSource eventSource = connectedEventSource();
+            eventSources.add(eventSource);
+            group.newReactiveSource(eventSource, new FixedIntervalPollingStrategy(10L));
+        }
+
+        group.start();
+        sleep(100L);
+
+        for (EventSource eventSource : eventSources) {
+            verify(eventSource).setup();
+            verify(eventSource, atLeast(2)).getNewEvents();
+        }
+    }
+
+    @Test(groups = SMALL)
+    public void testStoppingOneSourceDoesNotStopTheOtherSourcesOfTheGroup() throws InterruptedException {
+        EventSource stoppedSource = connectedEventSource();
+        EventSource runningSource = connectedEventSource();
+        final AtomicInteger runningSourcePolls = new AtomicInteger();
+        when(runningSource.getNewEvents()).thenAnswer(new Answer<List<Event<Map<String, Object>>>>() {
+            @Override
+            public List<Event<Map<String, Object>>> answer(InvocationOnMock invocation) {
+                runningSourcePolls.incrementAndGet();
+                return newArrayList();
+            }
+        });
+        ReactiveSource<Integer> stopped = group.newReactiveSource(stoppedSource, new FixedIntervalPollingStrategy(10L));
+        ReactiveSource<Integer> running = group.newReactiveSource(runningSource, new FixedIntervalPollingStrategy(10L));
+
+        group.start();
+        sleep(50L);
+        stopped.stop();
+
+        verify(stoppedSource).disconnect();
+        verify(stoppedSource).cleanup();
+        assertFalse(stopped.isStarted());
+        assertTrue(running.isStarted());
+
+        int pollsBeforeStop = runningSourcePolls.get();
+        sleep(50L);
+        assertTrue(runningSourcePolls.get() > pollsBeforeStop);
+    }
+
+    @Test(groups = SMALL)
+    public void testStopStopsAllTheSourcesOfTheGroup() throws InterruptedException {
+        EventSource first = connectedEventSource();
+        EventSource second = connectedEventSource();
+        group.newReactiveSource(first);
+        group.newReactiveSource(second);
+
+        group.start();
+        sleep(50L);
+        group.stop();
+
+        verify(first).cleanup();
+        verify(second).cleanup();
+    }
+
+    @Test(groups = SMALL)
+    public void testSourceCanBeStartedAgainAfterBeingStopped() throws InterruptedException {
+        EventSource eventSource = connectedEventSource();
+        ReactiveSource<Integer> reactiveSource = group.newReactiveSource(eventSource);
+
+        reactiveSource.start();
+        sleep(50L);
+        reactiveSource.stop();
+        reactiveSource.start();
+        sleep(50L);
+
+        assertTrue(reactiveSource.isStarted());
+        verify(eventSource, times(2)).setup();
+        verify(eventSource, times(2)).getNewEvents();
+    }
+
+    @Test(groups = SMALL, timeOut = 5000L)
+    @SuppressWarnings("unchecked")
+    public void testStoppingASourceWakesUpThePollerWaitingForASubscriber() throws InterruptedException {
+        EventSource eventSource = connectedEventSource();
+        Map<String, Object> entity = Maps.newHashMap();
+        when(eventSource.getNewEvents()).thenReturn(
+                newArrayList(new Event<>(EventType.INSERT, "entity", entity, entity),
+                        new Event<>(EventType.INSERT, "entity", entity, entity)));
+        ReactiveSource<Integer> reactiveSource =
+                group.newReactiveSource(eventSource, new FixedIntervalPollingStrategy(10L));
+        Subscriber<Event<Integer>> subscriber = mock(Subscriber.class);
+        reactiveSource.toPublisher(mock(EntityExtractor.class), 1).subscribe(subscriber);
+
+        reactiveSource.start();
+        sleep(100L);
+        reactiveSource.stop();
+
+        verify(eventSource).cleanup();
+        verify(subscriber).onComplete();
+        verify(subscriber, never()).onNext(any(Event.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testFailingToReconnectStopsPollingTheSource() throws InterruptedException {
+        EventSource eventSource = mock(EventSource.class);
+        when(eventSource.isConnected()).thenReturn(false);
+        doThrow(new DataAccessException("")).when(eventSource).connect();
+
+        group.newReactiveSource(eventSource, new FixedIntervalPollingStrategy(10L));
+        group.start();
+        sleep(100L);
+
+        verify(eventSource, times(1)).connect();
+        verify(eventSource).cleanup();
+    }
+
+    @Test(groups = SMALL)
+    public void testShutdownDoesNotShutDownAnExecutorThatWasProvided() {
+        group.newReactiveSource(connectedEventSource());
+        group.start();
+        group.shutdown();
+
+        assertFalse(executor.isShutdown());
+    }
+
+    private EventSource connectedEventSource() {
+        EventSource eventSource = mock(EventSource.class);
+        when(eventSource.isConnected()).thenReturn(true);
+        return eventSource;
+    }
+}
@@ -6,14 +6,22 @@
 package org.reactivesource;
 
 import org.mockito.Mock;
+import org.reactivesource.metrics.ListenerMetrics;
+import org.reactivesource.metrics.MetricsRegistry;
+import org.reactivesource.metrics.SourceMetrics;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.Executor;
+
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.reactivesource.testing.TestConstants.*;
 import static org.testng.Assert.*;
 
+@SuppressWarnings("unchecked")
 public class ReactiveSourceTest {
 
     @Mock
@@ -47,6 +55,21 @@ public class ReactiveSourceTest {
         verify(channel).addEventListener(listener);
     }
 
+    @Test(groups = SMALL)
+    public void testAddingAsyncEventListenerAddsTheListenerToTheChannel() {
+        Executor executor = mock(Executor.class);
+        reactiveSource.addEventListener(listener, executor, 10);
+        verify(channel).addEventListener(listener, executor, 10);
+    }
+
+    @Test(groups = SMALL)
+    public void testAddingPartitionedEventListenerAddsTheListenerToTheChannel() {
+        Executor executor = mock(Executor.class);
+        EventKeyExtractor keyExtractor = new ColumnKeyExtractor("id");
+        reactiveSource.addEventListener(listener, keyExtractor, executor, 4, 10);
+        verify(channel).addEventListener(listener, keyExtractor, executor, 4, 10);
+    }
+
     @Test(groups = SMALL)
     public void testReactiveSourceIsNotStartedWhenInstantiated() {
         assertFalse(reactiveSource.isStarted());
@@ -68,4 +91,116 @@ public class ReactiveSourceTest {
         Thread.sleep(100L);
         assertFalse(reactiveSource.isStarted());
     }
+
+    @Test(groups = SMALL)
+    public void testReactiveSourceOfAGroupIsScheduledOnTheGroupWhenStarted() {
+        ReactiveSourceGroup group = mock(ReactiveSourceGroup.class);
+        ScheduledEventPoller scheduledPoller = mock(ScheduledEventPoller.class);
+        when(group.schedule(poller)).thenReturn(scheduledPoller);
+        reactiveSource = new ReactiveSource<>(channel, poller, group);
+
+        reactiveSource.start();
+        assertTrue(reactiveSource.isStarted());
+        verify(group).schedule(poller);
+
+        reactiveSource.stop();
+        assertFalse(reactiveSource.isStarted());
+        verify(scheduledPoller).cancel();
+    }
+
+    @Test(groups = SMALL)
+    public void testChannelIsOpenedOnStartAndClosedOnStop() {
+        reactiveSource.start();
+        verify(channel).open();
+
+        reactiveSource.stop();
+        verify(channel).close();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testRingBufferSizeMustBeAPowerOfTwo() {
+        new ReactiveSource<Integer>(mock(EventSource.class), 100, WaitStrategy.BLOCKING);
+    }
+
+    @Test(groups = SMALL)
+    public void testPublisherSubscribersListenToTheChannel() {
+        Subscriber<Event<Integer>> subscriber = mock(Subscriber.class);
+        EntityExtractor<Integer> extractor = mock(EntityExtractor.class);
+
+        reactiveSource.toPublisher(extractor, 10).subscribe(subscriber);
+
+        verify(channel).addSubscription(any(EventSubscription.class));
+        verify(subscriber).onSubscribe(any(Subscription.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testEnablingMetricsRegistersTheSourceAndItsListeners() {
+        EventListener<Integer> laterListener = mock(EventListener.class);
+        MetricsRegistry registry = new MetricsRegistry();
+        reactiveSource.addEventListener(listener);
+
+        reactiveSource.enableMetrics("orders", registry);
+        reactiveSource.addEventListener(laterListener);
+
+        SourceMetrics sourceMetrics = registry.getSourceMetrics("orders");
+        verify(channel).setMetrics(sourceMetrics);
+        verify(poller).setMetrics(sourceMetrics);
+        verify(listener).setMetrics(any(ListenerMetrics.class));
+        verify(laterListener).setMetrics(any(ListenerMetrics.class));
+        assertEquals(registry.getListenerMetrics("orders").size(), 2);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testMetricsCanOnlyBeEnabledOnce() {
+        reactiveSource.enableMetrics("orders", new MetricsRegistry());
+        reactiveSource.enableMetrics("orders2", new MetricsRegistry());
+    }
+
+    @Test(groups = SMALL)
+    public void testRemovingAListenerRemovesItFromTheChannelAndTheRegistry() {
+        MetricsRegistry registry = new MetricsRegistry();
+        EventListener<Integer> countedListener = newListener();
+        reactiveSource.enableMetrics("orders", registry);
+        reactiveSource.addEventListener(countedListener);
+
+        reactiveSource.removeEventListener(countedListener);
+
+        verify(channel).removeEventListener(countedListener);
+        assertNull(countedListener.getMetrics());
+        assertTrue(registry.getListenerMetrics("orders").isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testDisablingMetricsRemovesTheSourceFromTheRegistry() {
+        MetricsRegistry registry = new MetricsRegistry();
+        EventListener<Integer> countedListener = newListener();
+        reactiveSource.addEventListener(countedListener);
+        reactiveSource.enableMetrics("orders", registry);
+
+        reactiveSource.disableMetrics();
+
+        verify(channel).setMetrics(null);
+        verify(poller).setMetrics(null);
+        assertNull(countedListener.getMetrics());
+        assertNull(registry.getSourceMetrics("orders"));
+        reactiveSource.enableMetrics("orders", registry);
+    }
+
+    @Test(groups = SMALL)
+    public void testStoppingDisablesTheMetrics() {
+        MetricsRegistry registry = new MetricsRegistry();
+        reactiveSource.enableMetrics("orders", registry);
+        reactiveSource.start();
+
+        reactiveSource.stop();
+
+        assertNull(registry.getSourceMetrics("orders"));
+    }
+
+    private static EventListener<Integer> newListener() {
+        return new EventListener<Integer>(new EventChannelTest.IdExtractor()) {
+            @Override public void onEvent(Event<Integer> event) {
+            }
+        };
+    }
 }
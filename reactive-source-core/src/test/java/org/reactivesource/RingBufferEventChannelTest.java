@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class RingBufferEventChannelTest {
+
+    private static final int BUFFER_SIZE = 8;
+    private static final EntityExtractor<Integer> VALUE_EXTRACTOR = new EntityExtractor<Integer>() {
+        @Override
+        public Integer extractEntity(Map<String, Object> entityRow) {
+            return (Integer) entityRow.get("value");
+        }
+    };
+
+    private RingBufferEventChannel<Integer> channel;
+
+    @AfterMethod(groups = SMALL)
+    public void tearDown() {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @DataProvider(name = "waitStrategies")
+    public Object[][] waitStrategies() {
+        return new Object[][]{{WaitStrategy.BLOCKING}, {WaitStrategy.YIELDING}, {WaitStrategy.BUSY_SPIN}};
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testBufferSizeMustBeAPowerOfTwo() {
+        new RingBufferEventChannel<Integer>(6, WaitStrategy.BLOCKING);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testWaitStrategyCanNotBeNull() {
+        new RingBufferEventChannel<Integer>(BUFFER_SIZE, null);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotAddNullEventListener() {
+        new RingBufferEventChannel<Integer>(BUFFER_SIZE, WaitStrategy.BLOCKING).addEventListener(null);
+    }
+
+    @Test(groups = SMALL, dataProvider = "waitStrategies")
+    public void testEveryListenerReceivesAllTheEventsInOrder(WaitStrategy waitStrategy) throws InterruptedException {
+        int numberOfEvents = BUFFER_SIZE * 10;
+        channel = new RingBufferEventChannel<>(BUFFER_SIZE, waitStrategy);
+        RecordingListener listener1 = new RecordingListener(numberOfEvents);
+        RecordingListener listener2 = new RecordingListener(numberOfEvents);
+        channel.addEventListener(listener1);
+        channel.addEventListener(listener2);
+        channel.open();
+
+        for (int i = 0; i < numberOfEvents; i++) {
+            channel.pushEvent(newEvent(i));
+        }
+
+        assertTrue(listener1.await());
+        assertTrue(listener2.await());
+        assertInOrder(listener1.received, numberOfEvents);
+        assertInOrder(listener2.received, numberOfEvents);
+    }
+
+    @Test(groups = SMALL)
+    public void testProducerWaitsForTheSlowestListenerWhenTheRingIsFull() throws InterruptedException {
+        channel = new RingBufferEventChannel<>(BUFFER_SIZE, WaitStrategy.BLOCKING);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecordingListener slowListener = new RecordingListener(BUFFER_SIZE + 1) {
+            @Override
+            public void onEvent(Event<Integer> event) {
+                awaitUninterruptibly(release);
+                super.onEvent(event);
+            }
+        };
+        channel.addEventListener(slowListener);
+        channel.open();
+
+        final CountDownLatch pushed = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i <= BUFFER_SIZE + 1; i++) {
+                    channel.pushEvent(newEvent(i));
+                }
+                pushed.countDown();
+            }
+        });
+        producer.start();
+
+        assertFalse(pushed.await(200L, MILLISECONDS));
+        assertEquals(channel.remainingCapacity(), 0L);
+
+        release.countDown();
+        assertTrue(pushed.await(5, SECONDS));
+        assertTrue(slowListener.await());
+    }
+
+    @Test(groups = SMALL)
+    public void testListenersDoNotReceiveEventsWhileMuted() throws InterruptedException {
+        channel = new RingBufferEventChannel<>(BUFFER_SIZE, WaitStrategy.BLOCKING);
+        RecordingListener listener = new RecordingListener(2);
+        channel.addEventListener(listener);
+        channel.open();
+
+        channel.mute();
+        channel.pushEvent(newEvent(0));
+        channel.pushEvent(newEvent(1));
+        Thread.sleep(100L);
+        assertTrue(listener.received.isEmpty());
+
+        channel.unmute();
+        assertTrue(listener.await());
+        assertInOrder(listener.received, 2);
+    }
+
+    @Test(groups = SMALL)
+    public void testFailingListenerDoesNotStopTheOtherListeners() throws InterruptedException {
+        channel = new RingBufferEventChannel<>(BUFFER_SIZE, WaitStrategy.BLOCKING);
+        channel.addEventListener(new EventListener<Integer>(VALUE_EXTRACTOR) {
+            @Override
+            public void onEvent(Event<Integer> event) {
+                throw new IllegalStateException("failing listener");
+            }
+        });
+        RecordingListener listener = new RecordingListener(BUFFER_SIZE * 2);
+        channel.addEventListener(listener);
+        channel.open();
+
+        for (int i = 0; i < BUFFER_SIZE * 2; i++) {
+            channel.pushEvent(newEvent(i));
+        }
+
+        assertTrue(listener.await());
+    }
+
+    @Test(groups = SMALL)
+    public void testCloseDeliversThePublishedEventsBeforeReturning() {
+        channel = new RingBufferEventChannel<>(BUFFER_SIZE, WaitStrategy.YIELDING);
+        RecordingListener listener = new RecordingListener(BUFFER_SIZE);
+        channel.addEventListener(listener);
+        channel.open();
+
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            channel.pushEvent(newEvent(i));
+        }
+        channel.close();
+
+        assertInOrder(listener.received, BUFFER_SIZE);
+        assertEquals(channel.getSlowestConsumerSequence(), BUFFER_SIZE - 1L);
+    }
+
+    @Test(groups = SMALL)
+    public void testListenerAddedWhileOpenOnlyReceivesNewEvents() throws InterruptedException {
+        channel = new RingBufferEventChannel<>(BUFFER_SIZE, WaitStrategy.BLOCKING);
+        channel.open();
+        channel.pushEvent(newEvent(0));
+
+        RecordingListener listener = new RecordingListener(1);
+        channel.addEventListener(listener);
+        channel.pushEvent(newEvent(1));
+
+        assertTrue(listener.await());
+        assertEquals(listener.received.get(0), Integer.valueOf(1));
+    }
+
+    @Test(groups = SMALL)
+    public void testRemovedListenerDoesNotHoldBackTheProducer() {
+        channel = new RingBufferEventChannel<>(BUFFER_SIZE, WaitStrategy.BLOCKING);
+        final CountDownLatch release = new CountDownLatch(1);
+        RecordingListener blockedListener = new RecordingListener(1) {
+            @Override
+            public void onEvent(Event<Integer> event) {
+                awaitUninterruptibly(release);
+            }
+        };
+        channel.addEventListener(blockedListener);
+        channel.open();
+        channel.pushEvent(newEvent(0));
+
+        release.countDown();
+        channel.removeEventListener(blockedListener);
+        for (int i = 1; i <= BUFFER_SIZE * 2; i++) {
+            channel.pushEvent(newEvent(i));
+        }
+
+        assertEquals(channel.remainingCapacity(), (long) BUFFER_SIZE);
+    }
+
+    @Test(groups = SMALL)
+    public void testTheSlotsReadByAllTheListenersAreCleared() throws InterruptedException {
+        channel = new RingBufferEventChannel<>(BUFFER_SIZE, WaitStrategy.BLOCKING);
+        RecordingListener listener = new RecordingListener(BUFFER_SIZE / 2);
+        channel.addEventListener(listener);
+        channel.open();
+        for (int i = 0; i < BUFFER_SIZE / 2; i++) {
+            channel.pushEvent(newEvent(i));
+        }
+        assertTrue(listener.await());
+        awaitConsumedSequence(BUFFER_SIZE / 2 - 1);
+
+        channel.pushEvents(Collections.<Event<Map<String, Object>>>emptyList());
+
+        assertEquals(channel.getRetainedEventCount(), 0);
+    }
+
+    @Test(groups = SMALL)
+    public void testEventsPushedAfterCloseAreDiscarded() {
+        channel = new RingBufferEventChannel<>(BUFFER_SIZE, WaitStrategy.BLOCKING);
+        RecordingListener listener = new RecordingListener(1);
+        channel.addEventListener(listener);
+        channel.open();
+        channel.close();
+
+        channel.pushEvent(newEvent(0));
+
+        assertTrue(listener.received.isEmpty());
+        assertEquals(channel.getRetainedEventCount(), 0);
+    }
+
+    @Test(groups = SMALL)
+    public void testPollsWithoutEventsDeliverTheDelayedEventsOfMicroBatchingListeners() throws InterruptedException {
+        channel = new RingBufferEventChannel<>(BUFFER_SIZE, WaitStrategy.BLOCKING);
+        final CountDownLatch delivered = new CountDownLatch(1);
+        channel.addEventListener(new BatchEventListener<Integer>(VALUE_EXTRACTOR, 100, 10, MILLISECONDS) {
+            @Override
+            public void onEvents(List<Event<Integer>> events) {
+                delivered.countDown();
+            }
+        });
+        channel.open();
+        channel.pushEvents(Collections.singletonList(newEvent(0)));
+        assertFalse(delivered.await(50, MILLISECONDS));
+
+        channel.pushEvents(Collections.<Event<Map<String, Object>>>emptyList());
+
+        assertTrue(delivered.await(5, SECONDS));
+    }
+
+    private void awaitConsumedSequence(long sequence) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (channel.getSlowestConsumerSequence() < sequence && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(channel.getSlowestConsumerSequence(), sequence);
+    }
+
+    private static void assertInOrder(List<Integer> received, int numberOfEvents) {
+        assertEquals(received.size(), numberOfEvents);
+        for (int i = 0; i < numberOfEvents; i++) {
+            assertEquals(received.get(i), Integer.valueOf(i));
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Event<Map<String, Object>> newEvent(int value) {
+        Map<String, Object> entity = Maps.newHashMap();
+        entity.put("value", value);
+        return new Event<>(EventType.INSERT, "entity", entity, entity);
+    }
+
+    private static class RecordingListener extends EventListener<Integer> {
+
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch latch;
+
+        RecordingListener(int expectedEvents) {
+            super(VALUE_EXTRACTOR);
+            this.latch = new CountDownLatch(expectedEvents);
+        }
+
+        @Override
+        public void onEvent(Event<Integer> event) {
+            received.add(event.getNewEntity());
+            latch.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(5, SECONDS);
+        }
+    }
+}
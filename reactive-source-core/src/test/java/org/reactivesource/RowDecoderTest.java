@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import org.json.JSONException;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class RowDecoderTest {
+
+    @Test(groups = SMALL)
+    public void testRowsWithTheSameColumnsShareTheSchema() {
+        RowDecoder decoder = new RowDecoder();
+
+        Row first = decoder.decode("{'id': 1, 'value': 'a'}");
+        Row second = decoder.decode("{'id': 2, 'value': {'nested': true}}");
+
+        assertSame(second.getSchema(), first.getSchema());
+        assertEquals(first.getSchema().getColumns(), Arrays.asList("id", "value"));
+        assertEquals(second.get(0), 2);
+        assertEquals(((Map<?, ?>) second.get("value")).get("nested"), true);
+    }
+
+    @Test(groups = SMALL)
+    public void testRowsWithOtherColumnsGetTheirOwnSchema() {
+        RowDecoder decoder = new RowDecoder();
+        Row first = decoder.decode("{'id': 1, 'value': 'a'}");
+
+        Row fewer = decoder.decode("{'id': 1}");
+        Row more = decoder.decode("{'id': 1, 'value': 'a', 'txt': 'b'}");
+        Row reordered = decoder.decode("{'value': 'a', 'id': 1}");
+
+        assertEquals(fewer.getSchema().getColumns(), Arrays.asList("id"));
+        assertEquals(more.getSchema().getColumns(), Arrays.asList("id", "value", "txt"));
+        assertEquals(more.get("txt"), "b");
+        assertEquals(reordered.getSchema().getColumns(), Arrays.asList("value", "id"));
+        assertEquals(reordered, first);
+        assertSame(decoder.getSchema(), reordered.getSchema());
+    }
+
+    @Test(groups = SMALL)
+    public void testEmptyObjectsDoNotReplaceTheSchema() {
+        RowDecoder decoder = new RowDecoder();
+        Row row = decoder.decode("{'id': 1}");
+
+        assertSame(decoder.decode("{}"), Row.EMPTY);
+        assertSame(decoder.getSchema(), row.getSchema());
+    }
+
+    @Test(groups = SMALL, expectedExceptions = JSONException.class)
+    public void testThrowsExceptionForDuplicateColumns() {
+        new RowDecoder().decode("{'id': 1, 'id': 2}");
+    }
+
+    @Test(groups = SMALL, expectedExceptions = JSONException.class)
+    public void testThrowsExceptionForMalformedJson() {
+        new RowDecoder().decode("{'id': 1");
+    }
+}
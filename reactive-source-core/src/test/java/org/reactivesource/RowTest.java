@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource;
+
+import com.google.common.collect.Maps;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class RowTest {
+
+    private static final RowSchema SCHEMA = new RowSchema(Arrays.asList("id", "value", "txt"));
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotCreateSchemaWithDuplicateColumns() {
+        new RowSchema(Arrays.asList("id", "id"));
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotCreateRowWithWrongNumberOfValues() {
+        new Row(SCHEMA, new Object[]{1, "a"});
+    }
+
+    @Test(groups = SMALL)
+    public void testLooksUpValuesByIndexAndName() {
+        Row row = new Row(SCHEMA, new Object[]{1, "a", null});
+
+        assertEquals(row.get(0), 1);
+        assertEquals(row.get("value"), "a");
+        assertNull(row.get("txt"));
+        assertTrue(row.containsKey("txt"));
+        assertNull(row.get("other"));
+        assertFalse(row.containsKey("other"));
+        assertEquals(row.size(), 3);
+    }
+
+    @Test(groups = SMALL)
+    public void testIsEqualToMapWithSameData() {
+        Map<String, Object> map = Maps.newHashMap();
+        map.put("id", 1);
+        map.put("value", "a");
+        map.put("txt", null);
+        Row row = new Row(SCHEMA, new Object[]{1, "a", null});
+
+        assertEquals(row, map);
+        assertEquals(map, row);
+        assertEquals(row.hashCode(), map.hashCode());
+        assertEquals(row.toString(), "{id=1, value=a, txt=null}");
+        assertEquals(Row.EMPTY, Maps.newHashMap());
+    }
+
+    @Test(groups = SMALL, expectedExceptions = UnsupportedOperationException.class)
+    public void testIsReadOnly() {
+        new Row(SCHEMA, new Object[]{1, "a", null}).put("id", 2);
+    }
+
+    @Test(groups = SMALL)
+    public void testCopiesTheGivenValues() {
+        Object[] values = {1, "a", null};
+        Row row = new Row(SCHEMA, values);
+        values[0] = 2;
+
+        assertEquals(row.get(0), 1);
+    }
+}
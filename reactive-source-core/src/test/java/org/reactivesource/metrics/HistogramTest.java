@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.metrics;
+
+import org.testng.annotations.Test;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class HistogramTest {
+
+    @Test(groups = SMALL)
+    public void testEmptyHistogramReportsZero() {
+        Histogram histogram = new Histogram();
+
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(histogram.getMean(), 0.0);
+        assertEquals(histogram.getQuantile(0.99), 0);
+    }
+
+    @Test(groups = SMALL)
+    public void testKeepsCountSumAndMax() {
+        Histogram histogram = new Histogram();
+        histogram.record(10);
+        histogram.record(30);
+        histogram.record(-5);
+
+        assertEquals(histogram.getCount(), 3);
+        assertEquals(histogram.getSum(), 40);
+        assertEquals(histogram.getMax(), 30);
+        assertEquals(histogram.getMean(), 40.0 / 3);
+    }
+
+    @Test(groups = SMALL)
+    public void testSmallValuesHaveExactBuckets() {
+        for (int i = 0; i < 8; i++) {
+            assertEquals(Histogram.bucketIndex(i), i);
+            assertEquals(Histogram.bucketUpperBound(i), i);
+        }
+    }
+
+    @Test(groups = SMALL)
+    public void testEveryValueFallsInABucketWithinAnEighthOfIt() {
+        long[] values = {8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            long upperBound = Histogram.bucketUpperBound(Histogram.bucketIndex(value));
+            assertTrue(upperBound >= value, "upper bound " + upperBound + " of " + value);
+            assertTrue(upperBound - value <= value / 8, "upper bound " + upperBound + " of " + value);
+        }
+    }
+
+    @Test(groups = SMALL)
+    public void testQuantilesAreWithinAnEighthOfTheExactValue() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertWithinAnEighth(histogram.getQuantile(0.5), 500000);
+        assertWithinAnEighth(histogram.getQuantile(0.99), 990000);
+        assertEquals(histogram.getQuantile(1), 1000000);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testQuantileMustBeBetweenZeroAndOne() {
+        new Histogram().getQuantile(1.5);
+    }
+
+    private static void assertWithinAnEighth(long actual, long expected) {
+        assertTrue(actual >= expected && actual <= expected + expected / 8, actual + " is not close to " + expected);
+    }
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+package org.reactivesource.metrics;
+
+import com.google.common.base.Suppliers;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class MetricsRegistryTest {
+
+    private MBeanServer mBeanServer;
+    private MetricsRegistry registry;
+
+    @BeforeMethod(groups = SMALL)
+    public void setUp() {
+        mBeanServer = MBeanServerFactory.newMBeanServer();
+        registry = new MetricsRegistry(mBeanServer);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotRegisterTwoSourcesWithTheSameName() {
+        registry.registerSource("orders");
+        registry.registerSource("orders");
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotRegisterListenerOfUnknownSource() {
+        registry.registerListener("orders", "OrderListener");
+    }
+
+    @Test(groups = SMALL)
+    public void testListenersWithTheSameNameGetDistinctNames() {
+        registry.registerSource("orders");
+
+        assertEquals(registry.registerListener("orders", "OrderListener").getListenerName(), "OrderListener");
+        assertEquals(registry.registerListener("orders", "OrderListener").getListenerName(), "OrderListener-2");
+        assertEquals(registry.getListenerMetrics("orders").size(), 2);
+    }
+
+    @Test(groups = SMALL)
+    public void testExportsTheMetricsAsMBeans() throws Exception {
+        SourceMetrics source = registry.registerSource("orders");
+        ListenerMetrics listener = registry.registerListener("orders", "OrderListener");
+        source.recordPoll(3, TimeUnit.MILLISECONDS.toNanos(2), TimeUnit.MILLISECONDS.toNanos(1));
+        listener.recordCallback(1, 100, true);
+
+        assertEquals(mBeanServer.getAttribute(MetricsRegistry.sourceObjectName("orders"), "Events"), 3L);
+        assertEquals(mBeanServer.getAttribute(MetricsRegistry.sourceObjectName("orders"), "PollTimeMax"), 2.0);
+        assertEquals(mBeanServer.getAttribute(MetricsRegistry.listenerObjectName("orders", "OrderListener"),
+                "Failures"), 1L);
+    }
+
+    @Test(groups = SMALL)
+    public void testUnregisteringASourceRemovesItsMBeans() {
+        registry.registerSource("orders");
+        registry.registerListener("orders", "OrderListener");
+
+        registry.unregisterSource("orders");
+
+        assertFalse(mBeanServer.isRegistered(MetricsRegistry.sourceObjectName("orders")));
+        assertFalse(mBeanServer.isRegistered(MetricsRegistry.listenerObjectName("orders", "OrderListener")));
+        assertNull(registry.getSourceMetrics("orders"));
+        registry.registerSource("orders");
+    }
+
+    @Test(groups = SMALL)
+    public void testUnregisteringAListenerRemovesItsMBean() {
+        registry.registerSource("orders");
+        registry.registerListener("orders", "OrderListener");
+        registry.registerListener("orders", "OrderListener");
+
+        registry.unregisterListener("orders", "OrderListener");
+
+        assertFalse(mBeanServer.isRegistered(MetricsRegistry.listenerObjectName("orders", "OrderListener")));
+        assertTrue(mBeanServer.isRegistered(MetricsRegistry.listenerObjectName("orders", "OrderListener-2")));
+        assertEquals(registry.getListenerMetrics("orders").size(), 1);
+    }
+
+    @Test(groups = SMALL)
+    public void testRegistryWithoutMBeanServerOnlyKeepsTheMetrics() {
+        MetricsRegistry registryWithoutJmx = new MetricsRegistry();
+        SourceMetrics source = registryWithoutJmx.registerSource("orders");
+
+        assertSame(registryWithoutJmx.getSourceMetrics("orders"), source);
+    }
+
+    @Test(groups = SMALL)
+    public void testWritesTheMetricsInThePrometheusTextFormat() {
+        SourceMetrics source = registry.registerSource("orders");
+        ListenerMetrics listener = registry.registerListener("orders", "OrderListener");
+        source.recordPoll(4, TimeUnit.SECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(500));
+        source.recordPollFailure();
+        source.setQueueDepthGauge(Suppliers.ofInstance(7));
+        listener.recordCallback(4, TimeUnit.MILLISECONDS.toNanos(250), false);
+
+        String text = registry.toPrometheusText();
+
+        assertTrue(text.contains("# TYPE reactivesource_polls_total counter\n"), text);
+        assertTrue(text.contains("reactivesource_polls_total{source=\"orders\"} 1\n"), text);
+        assertTrue(text.contains("reactivesource_events_total{source=\"orders\"} 4\n"), text);
+        assertTrue(text.contains("reactivesource_poll_failures_total{source=\"orders\"} 1\n"), text);
+        assertTrue(text.contains("reactivesource_queue_depth{source=\"orders\"} 7\n"), text);
+        assertTrue(text.contains("reactivesource_poll_duration_seconds_sum{source=\"orders\"} 1.0\n"), text);
+        assertTrue(text.contains("reactivesource_poll_duration_seconds_count{source=\"orders\"} 1\n"), text);
+        assertTrue(text.contains("reactivesource_poll_duration_seconds{source=\"orders\",quantile=\"0.999\"}"), text);
+        assertTrue(text.contains("# TYPE reactivesource_fetch_lag_seconds summary\n"), text);
+        assertTrue(text.contains("# TYPE reactivesource_listener_lag_seconds summary\n"), text);
+        assertTrue(text.contains(
+                "reactivesource_listener_events_total{source=\"orders\",listener=\"OrderListener\"} 4\n"), text);
+        assertTrue(text.contains(
+                "reactivesource_listener_duration_seconds_sum{source=\"orders\",listener=\"OrderListener\"} 0.25\n"),
+                text);
+    }
+
+    @Test(groups = SMALL)
+    public void testEscapesLabelValues() {
+        registry.registerSource("a \"quoted\" name");
+
+        assertTrue(registry.toPrometheusText().contains("source=\"a \\\"quoted\\\" name\""));
+    }
+}
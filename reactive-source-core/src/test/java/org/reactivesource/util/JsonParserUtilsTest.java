@@ -9,6 +9,7 @@ package org.reactivesource.util;
 import org.json.JSONException;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.Map;
 
 import static org.reactivesource.util.JsonParserUtils.jsonObjectToMap;
@@ -36,6 +37,23 @@ public class JsonParserUtilsTest {
 
     }
 
+    @Test(groups = SMALL)
+    public void testJsonStringToMapDecodesNestedValues() {
+        String jsonString = "{'obj': {'a': null}, 'arr': [1, 2.5, true], 'big': 12345678901, 'txt': 'a\nb'}";
+        Map<String, Object> parsedMap = jsonStringToMap(jsonString);
+
+        assertEquals(((Map<?, ?>) parsedMap.get("obj")).size(), 1);
+        assertTrue(((Map<?, ?>) parsedMap.get("obj")).containsKey("a"));
+        assertEquals(parsedMap.get("arr"), Arrays.<Object>asList(1, 2.5, true));
+        assertEquals(parsedMap.get("big"), 12345678901L);
+        assertEquals(parsedMap.get("txt"), "a\nb");
+    }
+
+    @Test(groups = SMALL, expectedExceptions = JSONException.class)
+    public void testJsonStringToMapThrowsExceptionForTruncatedString() {
+        jsonStringToMap("{'key': [1, 2");
+    }
+
     @Test(groups = SMALL, expectedExceptions = JSONException.class)
     public void testJsonStringToMapThrowsExceptionForNonJsonString() {
         jsonStringToMap("");
@@ -8,8 +8,10 @@ package org.reactivesource.mysql;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.mysql.jdbc.exceptions.jdbc4.MySQLSyntaxErrorException;
 import org.apache.commons.io.IOUtils;
+import org.reactivesource.CaptureSpec;
 import org.reactivesource.ConnectionProvider;
 import org.reactivesource.exceptions.ConfigurationException;
 import org.reactivesource.util.JdbcUtils;
@@ -23,8 +25,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import static org.reactivesource.mysql.ReactiveTrigger.TriggerEvent.UPDATE;
 import static org.reactivesource.util.Assert.hasText;
+import static org.reactivesource.util.Assert.isTrue;
 import static org.reactivesource.util.Assert.notNull;
 
 /**
@@ -36,37 +44,69 @@ class MysqlConfigurator {
     static final String TABLE_NAME_NULL = "tableName can not be null or empty";
     static final String NULL_PROVIDER_MSG = "connectionProvider cant be null";
     static final int DB_LOCK_TIMEOUT = 20;
+    static final int MICROSECOND_PRECISION = 6;
+    private static final String COLUMN_PRECISION_QUERY = "SELECT DATETIME_PRECISION FROM INFORMATION_SCHEMA.COLUMNS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+    private static final Pattern COLUMN_REFERENCE_PATTERN =
+            Pattern.compile("\\b(?:NEW|OLD)\\.([A-Za-z0-9_$]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SECOND_PRECISION_NOW_PATTERN =
+            Pattern.compile("\\bNOW\\s*\\(\\s*\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern EMPTY_OLD_IMAGE_PATTERN =
+            Pattern.compile("SET\\s+@oldJson\\s*=\\s*'\\{\\}'", Pattern.CASE_INSENSITIVE);
 
     private final TableMetadata tableMetadata;
     private final ConnectionProvider connectionProvider;
     private final String tableName;
+    private final CaptureSpec captureSpec;
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     public MysqlConfigurator(ConnectionProvider connectionProvider, String tableName) {
-        this(connectionProvider, tableName, new TableMetadata(connectionProvider));
+        this(connectionProvider, tableName, CaptureSpec.ALL);
+    }
+
+    /**
+     * Creates a configurator whose triggers only record the data described by the given spec.
+     */
+    public MysqlConfigurator(ConnectionProvider connectionProvider, String tableName, CaptureSpec captureSpec) {
+        this(connectionProvider, tableName, new TableMetadata(connectionProvider), captureSpec);
     }
 
     @VisibleForTesting MysqlConfigurator(ConnectionProvider connectionProvider, String tableName,
                                          TableMetadata tableMetadata) {
+        this(connectionProvider, tableName, tableMetadata, CaptureSpec.ALL);
+    }
+
+    @VisibleForTesting MysqlConfigurator(ConnectionProvider connectionProvider, String tableName,
+                                         TableMetadata tableMetadata, CaptureSpec captureSpec) {
         hasText(tableName, TABLE_NAME_NULL);
         notNull(connectionProvider, NULL_PROVIDER_MSG);
+        notNull(captureSpec, "captureSpec can not be null");
+        isTrue(!captureSpec.capturesChangedColumnsOnly(),
+                "the MySQL triggers can not capture the changed columns only");
+        isTrue(!captureSpec.capturesPerStatement(), "the MySQL triggers can only capture the changes per row");
 
         this.connectionProvider = connectionProvider;
         this.tableName = tableName;
         this.tableMetadata = tableMetadata;
+        this.captureSpec = captureSpec;
     }
 
     /**
-     * Will create the triggers that are required for the ReactiveSource framework to function.
+     * Will create the triggers that are required for the ReactiveSource framework to function. Only the event types
+     * and columns of the {@link org.reactivesource.CaptureSpec} are recorded.
+     * <p/>
+     * The triggers are shared by all the event sources of the table. Triggers that already exist are not replaced, so
+     * the event sources of a table must use the same spec.
+     *
+     * @throws ConfigurationException if a trigger of the same name exists and records other columns or another old
+     *                                image than the spec, ie it was created for another spec
      */
     public void createTriggers() {
         try (Connection connection = connectionProvider.getConnection()) {
-            List<String> tableColumnNames = tableMetadata.getColumnNames(tableName);
-            List<ReactiveTrigger> triggersToCreate = Lists.newArrayList(
-                    ReactiveTriggerFactory.afterInsert(tableName, tableColumnNames),
-                    ReactiveTriggerFactory.afterUpdate(tableName, tableColumnNames),
-                    ReactiveTriggerFactory.afterDelete(tableName, tableColumnNames));
+            List<String> capturedColumns = getCapturedColumns(tableMetadata.getColumnNames(tableName));
+            List<ReactiveTrigger> triggersToCreate =
+                    ReactiveTriggerFactory.forCaptureSpec(tableName, capturedColumns, captureSpec);
 
             createTriggers(triggersToCreate, connection);
 
@@ -120,7 +160,9 @@ class MysqlConfigurator {
     /**
      * Will create the tables needed for the framework to work.
      * <p/>
-     * It will create new tables only if the tables are not already there.
+     * It will create new tables only if the tables are not already there. Existing tables whose
+     * <code>CREATED_DT</code> column only has second precision are left as they are, with a warning: they are
+     * migrated by the <code>migrate-created-dt-precision.sql</code> script.
      */
     public void initReactiveTables() {
         try (
@@ -129,18 +171,56 @@ class MysqlConfigurator {
             if (!reactiveTablesExist(connection)) {
                 String query = IOUtils.toString(getClass().getResourceAsStream("create-reactive-tables.sql"));
                 JdbcUtils.sql(connection, query);
+            } else if (hasSecondPrecisionTimestamps(connection)) {
+                logger.warn("The column {}.{} only records the time of the changes to the second. Migrate it with " +
+                        "the script org/reactivesource/mysql/migrate-created-dt-precision.sql to record it to the " +
+                        "microsecond.", MysqlEventRepo.TABLE_NAME, MysqlEventRepo.CREATED_DT_COL);
             }
         } catch (SQLException | IOException e) {
             throw new ConfigurationException("Couldn't cleanup " + tableName + " reactive source triggers", e);
         }
     }
 
+    /**
+     * @return the columns of the table captured by the spec, with the names used in the table
+     */
+    @VisibleForTesting List<String> getCapturedColumns(List<String> tableColumnNames) {
+        if (captureSpec.capturesAllColumns()) {
+            return tableColumnNames;
+        }
+        List<String> capturedColumns = Lists.newArrayList();
+        for (String column : captureSpec.getColumns()) {
+            String tableColumn = findColumn(column, tableColumnNames);
+            if (tableColumn == null) {
+                throw new ConfigurationException("Column [" + column + "] does not exist in table [" + tableName + "]");
+            }
+            capturedColumns.add(tableColumn);
+        }
+        return capturedColumns;
+    }
+
+    private String findColumn(String column, List<String> tableColumnNames) {
+        for (String tableColumn : tableColumnNames) {
+            if (tableColumn.equalsIgnoreCase(column)) {
+                return tableColumn;
+            }
+        }
+        return null;
+    }
+
     private void createTriggers(List<ReactiveTrigger> triggersToCreate, Connection connection) throws SQLException {
         try {
             getLockForName(tableName, connection);
             for (ReactiveTrigger trigger : triggersToCreate) {
-                if (triggerExists(trigger, connection)) {
+                String existingBody = findTriggerBody(trigger, connection);
+                if (existingBody != null) {
+                    checkSameDefinition(trigger, existingBody);
                     logSkipCreationMessage(trigger);
+                    if (recordsSecondPrecisionTimestamps(existingBody)) {
+                        logger.warn("The trigger [{}] was created by an earlier version and only records the time of " +
+                                "the changes to the second. Drop it to let auto-config recreate it.",
+                                trigger.getTriggerName());
+                    }
                 } else {
                     createTrigger(trigger, connection);
                 }
@@ -176,7 +256,10 @@ class MysqlConfigurator {
         }
     }
 
-    private boolean triggerExists(ReactiveTrigger trigger, Connection connection) throws SQLException {
+    /**
+     * @return the statement of the existing trigger with the name of the given one, or null if there is none
+     */
+    private String findTriggerBody(ReactiveTrigger trigger, Connection connection) throws SQLException {
         try (Statement stmt = connection.createStatement()) {
             ResultSet rs = stmt.executeQuery("SHOW TRIGGERS LIKE '" + trigger.getTriggerTable() + "'");
 
@@ -184,18 +267,92 @@ class MysqlConfigurator {
                 String triggerName = rs.getString("Trigger");
                 logger.debug("comparing {} with {}", triggerName, trigger.getTriggerName());
                 if (trigger.getTriggerName().toLowerCase().equals(triggerName.toLowerCase())) {
-                    return true;
+                    return rs.getString("Statement");
                 }
             }
-            return false;
+            return null;
         }
     }
 
+    /**
+     * Checks that the existing trigger records what the spec controls: the captured columns, if the spec lists them,
+     * and the old image of updated rows. The rest of the body may differ, eg when the table gained columns after the
+     * trigger was created. Existing triggers are always accepted for a spec that captures everything.
+     *
+     * @throws ConfigurationException if the existing trigger was created for another spec
+     */
+    @VisibleForTesting void checkSameDefinition(ReactiveTrigger trigger, String existingBody) {
+        if (captureSpec.capturesEverything()) {
+            return;
+        }
+        if (!captureSpec.capturesAllColumns() &&
+                !getRecordedColumns(existingBody).equals(toLowerCase(trigger.getTableColumns()))) {
+            throw new ConfigurationException("The trigger [" + trigger.getTriggerName() + "] of table [" + tableName
+                    + "] already exists and records other columns than " + captureSpec.getColumns() + ". The event "
+                    + "sources of a table must use the same CaptureSpec; drop the trigger to change it.");
+        }
+        if (UPDATE.equals(trigger.getTriggerEvent()) && recordsOldImage(existingBody) != trigger.isWithOldImage()) {
+            throw new ConfigurationException("The trigger [" + trigger.getTriggerName() + "] of table [" + tableName
+                    + "] already exists and " + (trigger.isWithOldImage() ? "does not record" : "records")
+                    + " the old image of the updated rows. The event sources of a table must use the same "
+                    + "CaptureSpec; drop the trigger to change it.");
+        }
+    }
+
+    /**
+     * @return the columns written in the entities by the given trigger body, in lower case
+     */
+    private static Set<String> getRecordedColumns(String body) {
+        Set<String> columns = Sets.newHashSet();
+        Matcher matcher = COLUMN_REFERENCE_PATTERN.matcher(body);
+        while (matcher.find()) {
+            columns.add(matcher.group(1).toLowerCase(Locale.ROOT));
+        }
+        return columns;
+    }
+
+    private static Set<String> toLowerCase(List<String> columns) {
+        Set<String> lowerCaseColumns = Sets.newHashSet();
+        for (String column : columns) {
+            lowerCaseColumns.add(column.toLowerCase(Locale.ROOT));
+        }
+        return lowerCaseColumns;
+    }
+
+    /**
+     * @return true if the given trigger body was created before the time of the changes was recorded with
+     * microsecond precision, ie it records <code>NOW()</code>
+     */
+    @VisibleForTesting static boolean recordsSecondPrecisionTimestamps(String body) {
+        return SECOND_PRECISION_NOW_PATTERN.matcher(body).find();
+    }
+
+    private static boolean recordsOldImage(String body) {
+        return !EMPTY_OLD_IMAGE_PATTERN.matcher(body).find();
+    }
+
     private void logSkipCreationMessage(ReactiveTrigger trigger) {
         logger.info("An {} {} trigger for table [{}] with the same name exists. Skipping creation.",
                 trigger.getTriggerTime(), trigger.getTriggerEvent(), trigger.getTriggerTable());
     }
 
+    /**
+     * @return true if the <code>CREATED_DT</code> column of the existing events table was created before the time of
+     * the changes was recorded with microsecond precision
+     */
+    @VisibleForTesting boolean hasSecondPrecisionTimestamps(Connection connection) {
+        try (PreparedStatement stmt = connection.prepareStatement(COLUMN_PRECISION_QUERY)) {
+            stmt.setString(1, MysqlEventRepo.TABLE_NAME);
+            stmt.setString(2, MysqlEventRepo.CREATED_DT_COL);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() && rs.getInt(1) < MICROSECOND_PRECISION;
+        } catch (SQLException sqle) {
+            logger.debug("Could not read the precision of the column {}.{}", MysqlEventRepo.TABLE_NAME,
+                    MysqlEventRepo.CREATED_DT_COL, sqle);
+            return false;
+        }
+    }
+
     private boolean reactiveTablesExist(Connection connection) {
         try (Statement stmt = connection.createStatement()) {
             stmt.execute("SELECT * FROM " + ListenerRepo.TABLE_NAME + " LIMIT 1");
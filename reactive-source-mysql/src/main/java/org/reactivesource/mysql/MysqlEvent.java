@@ -12,6 +12,7 @@ import org.reactivesource.EventType;
 
 import java.util.Date;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.reactivesource.util.Assert.isTrue;
 import static org.reactivesource.util.Assert.notNull;
 
@@ -22,8 +23,18 @@ class MysqlEvent extends Event<String> {
 
     MysqlEvent(long eventId, String tableName, EventType eventType, String oldEntity, String newEntity,
                Date createdDt) {
+        this(eventId, tableName, eventType, oldEntity, newEntity, createdDt,
+                createdDt == null ? UNKNOWN_CHANGE_TIMESTAMP : MILLISECONDS.toMicros(createdDt.getTime()));
+    }
+
+    /**
+     * @param changeTimestamp the creation time of the event in microseconds since the epoch, which is more precise
+     *                        than <code>createdDt</code>
+     */
+    MysqlEvent(long eventId, String tableName, EventType eventType, String oldEntity, String newEntity,
+               Date createdDt, long changeTimestamp) {
 
-        super(eventType, tableName, newEntity, oldEntity);
+        super(eventType, tableName, newEntity, oldEntity, changeTimestamp);
 
         isTrue(eventId >= 0L, "Event ID can not be negative number");
         notNull(createdDt, "Created Date can not be null");
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.mysql;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.reactivesource.CaptureSpec;
+import org.reactivesource.ConnectionProvider;
+import org.reactivesource.Event;
+import org.reactivesource.EventFilter;
+import org.reactivesource.EventSource;
+import org.reactivesource.util.JdbcUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import static org.reactivesource.util.Assert.hasText;
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * Reads the events of many tables with a single connection and a single query per poll.
+ * <p/>
+ * Every {@link MysqlEventSource} holds its own connection and queries the <code>REACTIVE_EVENT</code> table for the
+ * events of its table. The event sources created by a hub instead share its connection. When one of them is polled,
+ * the hub reads the new events of all the connected tables with one query, served by the index on
+ * <code>(TABLE_NAME, EVENT_ID)</code>, and routes each of them, by the name of its table, to the queue of the event
+ * source it belongs to. The events of the other tables wait in their queues until their event source is polled.
+ * <p/>
+ * One read serves all the tables: an event source whose queue is empty only reads the database again once it has
+ * taken the events of the previous read. So when all the event sources are polled in turn, the database is queried
+ * once per round.
+ * <p/>
+ * The event sources of a hub can be polled by a {@link org.reactivesource.ReactiveSourceGroup}: the hub is thread
+ * safe, and only one of them uses the connection at a time.
+ * <p/>
+ * <u>Example</u>
+ * <pre>
+ *   {@code MysqlEventHub hub = new MysqlEventHub(connectionProvider);
+ *     ReactiveSourceGroup group = new ReactiveSourceGroup(4);
+ *     ReactiveSource<Purchase> purchases = group.newReactiveSource(hub.newEventSource("purchases"));
+ *     ReactiveSource<Customer> customers = group.newReactiveSource(hub.newEventSource("customers"));}
+ * </pre>
+ */
+public class MysqlEventHub {
+
+    private final ConnectionProvider connectionProvider;
+    private final MysqlEventRepo eventRepo;
+    private final TableMetadata tableMetadata;
+    private final Map<String, TableEvents> tables = Maps.newHashMap();
+    private Connection connection;
+
+    public MysqlEventHub(String url, String username, String password) {
+        this(new MysqlConnectionProvider(url, username, password));
+    }
+
+    public MysqlEventHub(ConnectionProvider connectionProvider) {
+        this(connectionProvider, new MysqlEventRepo(), new TableMetadata(connectionProvider));
+    }
+
+    @VisibleForTesting MysqlEventHub(ConnectionProvider connectionProvider, MysqlEventRepo eventRepo,
+                                     TableMetadata tableMetadata) {
+        notNull(connectionProvider, "Connection Provider can not be null");
+        notNull(eventRepo, "Event Repo can not be null");
+        notNull(tableMetadata, "Table Metadata can not be null");
+        this.connectionProvider = connectionProvider;
+        this.eventRepo = eventRepo;
+        this.tableMetadata = tableMetadata;
+    }
+
+    /**
+     * Creates an event source for the given table, with auto-configure OFF.
+     */
+    public EventSource newEventSource(String tableName) {
+        return newEventSource(tableName, false);
+    }
+
+    /**
+     * Creates an event source for the given table.
+     *
+     * @param tableName     the name of the monitored table
+     * @param autoConfigure if true, the reactive tables are created when they don't exist
+     */
+    public EventSource newEventSource(String tableName, boolean autoConfigure) {
+        return newEventSource(tableName, autoConfigure, EventFilter.ALL, CaptureSpec.ALL);
+    }
+
+    /**
+     * Creates an event source for the given table, that only returns the events accepted by the given filter, and
+     * whose triggers only record the data described by the given spec, like
+     * {@link MysqlEventSource#MysqlEventSource(ConnectionProvider, String, boolean, EventFilter, CaptureSpec)}. The
+     * whole filter is evaluated in memory.
+     *
+     * @throws IllegalArgumentException if the hub already has an event source for the table
+     */
+    public EventSource newEventSource(String tableName, boolean autoConfigure, EventFilter eventFilter,
+                                      CaptureSpec captureSpec) {
+        hasText(tableName, "Table Name can not be null or empty");
+        notNull(eventFilter, "Event Filter can not be null");
+        notNull(captureSpec, "Capture Spec can not be null");
+        captureSpec.verifyCanEvaluate(eventFilter);
+        MysqlEventSource.verifyConfiguration(connectionProvider, tableName);
+        register(tableName);
+        return new SharedMysqlEventSource(this, connectionProvider, tableName,
+                new MysqlConfigurator(connectionProvider, tableName, captureSpec), autoConfigure, eventFilter);
+    }
+
+    /**
+     * Creates an event source for every table of the database whose name matches the pattern.
+     *
+     * @param tableNamePattern a pattern for the <code>LIKE</code> operator, ie <code>order_%</code>
+     * @param autoConfigure    if true, the reactive tables are created when they don't exist
+     * @return the event sources by the name of their table
+     */
+    public Map<String, EventSource> newEventSources(String tableNamePattern, boolean autoConfigure) {
+        hasText(tableNamePattern, "Table Name Pattern can not be null or empty");
+        Map<String, EventSource> eventSources = Maps.newLinkedHashMap();
+        for (String tableName : tableMetadata.getTableNames(tableNamePattern)) {
+            eventSources.put(tableName, newEventSource(tableName, autoConfigure));
+        }
+        return eventSources;
+    }
+
+    private synchronized void register(String tableName) {
+        isTrue(!tables.containsKey(tableName), "the hub already has an event source for the table " + tableName);
+        tables.put(tableName, new TableEvents());
+    }
+
+    /**
+     * Starts reading the events of the table that are recorded from now on. Reconnects first if the shared
+     * connection was lost.
+     */
+    synchronized void listen(String tableName) {
+        if (!isConnected()) {
+            connection = connectionProvider.getConnection();
+        }
+        TableEvents table = tables.get(tableName);
+        if (!table.listening) {
+            table.lastEventId = eventRepo.getLastEventId(connection);
+            table.listening = true;
+        }
+    }
+
+    /**
+     * Stops reading the events of the table and drops its pending events. Closes the shared connection when no table
+     * is read any more.
+     */
+    synchronized void unlisten(String tableName) {
+        TableEvents table = tables.get(tableName);
+        table.listening = false;
+        table.routed = false;
+        table.events.clear();
+        for (TableEvents other : tables.values()) {
+            if (other.listening) {
+                return;
+            }
+        }
+        JdbcUtils.closeConnection(connection);
+        connection = null;
+    }
+
+    synchronized boolean isConnected() {
+        try {
+            return connection != null && !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the pending events of the table. The events are only read from the database if the table has no
+     * pending events and has already taken the events of the last read, and those of the other tables are kept in
+     * their queues.
+     */
+    synchronized List<Event<Map<String, Object>>> getNewEvents(String tableName) {
+        TableEvents table = tables.get(tableName);
+        if (table.events.isEmpty() && !table.routed) {
+            routeNewEvents();
+        }
+        table.routed = false;
+        List<Event<Map<String, Object>>> events = Lists.newArrayListWithCapacity(table.events.size());
+        events.addAll(table.events);
+        table.events.clear();
+        return events;
+    }
+
+    private void routeNewEvents() {
+        List<String> listeningTables = Lists.newArrayList();
+        long lastEventId = Long.MAX_VALUE;
+        for (Map.Entry<String, TableEvents> entry : tables.entrySet()) {
+            if (entry.getValue().listening) {
+                listeningTables.add(entry.getKey());
+                lastEventId = Math.min(lastEventId, entry.getValue().lastEventId);
+            }
+        }
+        List<MysqlEvent> newEvents = eventRepo.getNewEventsForTables(listeningTables, lastEventId, connection);
+        long lastReadEventId = lastEventId;
+        for (MysqlEvent mysqlEvent : newEvents) {
+            TableEvents table = tables.get(mysqlEvent.getEntityName());
+            if (table != null && table.listening && mysqlEvent.getEventId() > table.lastEventId) {
+                table.events.add(table.eventMapper.mapToGenericEvent(mysqlEvent));
+                table.lastEventId = mysqlEvent.getEventId();
+            }
+            lastReadEventId = Math.max(lastReadEventId, mysqlEvent.getEventId());
+        }
+        // the read returned all the events of the tables up to the last one, so the tables without events are caught
+        // up too, and an idle table doesn't hold back the next reads
+        for (String tableName : listeningTables) {
+            TableEvents table = tables.get(tableName);
+            table.lastEventId = Math.max(table.lastEventId, lastReadEventId);
+            table.routed = true;
+        }
+    }
+
+    /**
+     * The read position and the pending events of one table, whether they were routed by a read the table has not
+     * taken yet, and the mapper that decodes its entities with the schema of the table. Guarded by the hub.
+     */
+    private static class TableEvents {
+        private final Deque<Event<Map<String, Object>>> events = new ArrayDeque<>();
+        private final MysqlEventMapper eventMapper = new MysqlEventMapper();
+        private long lastEventId;
+        private boolean listening;
+        private boolean routed;
+    }
+}
@@ -7,15 +7,21 @@
 package org.reactivesource.mysql;
 
 import org.reactivesource.Event;
-import org.reactivesource.util.JsonParserUtils;
+import org.reactivesource.LazyJsonEvent;
+import org.reactivesource.RowDecoder;
 
 import java.util.Map;
 
+/**
+ * Maps the events of one table. The entities are decoded to {@link org.reactivesource.Row}s sharing the schema of the
+ * table, so the events of other tables should be mapped by their own mapper.
+ */
 class MysqlEventMapper {
 
+    private final RowDecoder rowDecoder = new RowDecoder();
+
     Event<Map<String, Object>> mapToGenericEvent(MysqlEvent mysqlEvent) {
-        Map<String, Object> oldEntity = JsonParserUtils.jsonStringToMap(mysqlEvent.getOldEntity());
-        Map<String, Object> newEntity = JsonParserUtils.jsonStringToMap(mysqlEvent.getNewEntity());
-        return new Event<>(mysqlEvent.getEventType(), mysqlEvent.getEntityName(), newEntity, oldEntity);
+        return new LazyJsonEvent(mysqlEvent.getEventType(), mysqlEvent.getEntityName(),
+                mysqlEvent.getNewEntity(), mysqlEvent.getOldEntity(), rowDecoder, mysqlEvent.getChangeTimestamp());
     }
 }
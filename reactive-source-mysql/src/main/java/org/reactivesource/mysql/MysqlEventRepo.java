@@ -7,6 +7,7 @@
 package org.reactivesource.mysql;
 
 import com.google.common.collect.Lists;
+import org.reactivesource.EventFilter;
 import org.reactivesource.EventType;
 import org.reactivesource.exceptions.DataAccessException;
 
@@ -14,9 +15,16 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.reactivesource.util.Assert.isTrue;
+
 class MysqlEventRepo {
 
     static final String TABLE_NAME = "REACTIVE_EVENT";
@@ -28,16 +36,26 @@ class MysqlEventRepo {
     static final String CREATED_DT_COL = "CREATED_DT";
 
     private final ListenerRepo listenerRepo;
+    private final String getEventsForListenerQuery;
 
     MysqlEventRepo() {
+        this(EventFilter.ALL);
+    }
+
+    /**
+     * Creates a repo that only reads the events with the event types accepted by the given filter. The conditions on
+     * the columns of the filter are not evaluated, since the entities are stored as JSON text.
+     */
+    MysqlEventRepo(EventFilter eventFilter) {
         this.listenerRepo = new ListenerRepo();
+        this.getEventsForListenerQuery = generateGetEventsForListenerQuery(eventFilter);
     }
 
     public List<MysqlEvent> getNewEventsForListener(Listener listener, Connection connection)
             throws DataAccessException {
         verifyListenerExists(listener, connection);
         try (
-                PreparedStatement stmt = connection.prepareStatement(GET_EVENTS_FOR_LISTENER_QUERY)
+                PreparedStatement stmt = connection.prepareStatement(getEventsForListenerQuery)
         ) {
             Date lastCheckDate = listener.getLastCheck();
             listenerRepo.refreshLastCheck(listener, connection);
@@ -65,11 +83,83 @@ class MysqlEventRepo {
         }
     }
 
+    /**
+     * Reads, with one query, the events of all the given tables that have an id greater than the given one, ordered
+     * by id.
+     */
+    List<MysqlEvent> getNewEventsForTables(Collection<String> tableNames, long lastEventId, Connection connection)
+            throws DataAccessException {
+        try (
+                PreparedStatement stmt = connection.prepareStatement(
+                        generateGetEventsForTablesQuery(tableNames.size()))
+        ) {
+            int parameterIndex = 1;
+            for (String tableName : tableNames) {
+                stmt.setString(parameterIndex++, tableName);
+            }
+            stmt.setLong(parameterIndex, lastEventId);
+            ResultSet rs = stmt.executeQuery();
+
+            List<MysqlEvent> result = Lists.newArrayList();
+            while (rs.next()) {
+                result.add(extractEvent(rs));
+            }
+            return result;
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not get new events for tables " + tableNames, e);
+        }
+    }
+
+    /**
+     * @return the id of the last recorded event, or 0 if there is no event
+     */
+    long getLastEventId(Connection connection) throws DataAccessException {
+        try (
+                PreparedStatement stmt = connection.prepareStatement(GET_LAST_EVENT_ID_QUERY)
+        ) {
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not get the id of the last event", e);
+        }
+    }
+
     static MysqlEvent extractEvent(ResultSet rs) throws SQLException {
-        Date createdDt = new Date(rs.getTimestamp(CREATED_DT_COL).getTime());
+        Timestamp createdTimestamp = rs.getTimestamp(CREATED_DT_COL);
+        Date createdDt = new Date(createdTimestamp.getTime());
         return new MysqlEvent(rs.getLong(EVENT_ID_COL), rs.getString(TABLE_NAME_COL),
                 EventType.forValue(rs.getString(EVENT_TYPE_COL)), rs.getString(OLD_ENTITY_COL),
-                rs.getString(NEW_ENTITY_COL), createdDt);
+                rs.getString(NEW_ENTITY_COL), createdDt, toMicros(createdTimestamp));
+    }
+
+    /**
+     * @return the timestamp in microseconds since the epoch, keeping the fractional seconds of the column
+     */
+    static long toMicros(Timestamp timestamp) {
+        long seconds = MILLISECONDS.toSeconds(timestamp.getTime());
+        return SECONDS.toMicros(seconds) + NANOSECONDS.toMicros(timestamp.getNanos());
+    }
+
+    static String generateGetEventsForListenerQuery(EventFilter eventFilter) {
+        if (eventFilter.acceptsAllEventTypes()) {
+            return GET_EVENTS_FOR_LISTENER_QUERY_TEMPLATE.replace(EVENT_TYPE_PLACEHOLDER, "");
+        }
+        StringBuilder eventTypes = new StringBuilder();
+        for (EventType eventType : eventFilter.getEventTypes()) {
+            eventTypes.append(eventTypes.length() == 0 ? "'" : ",'").append(eventType.getValue()).append("'");
+        }
+        return GET_EVENTS_FOR_LISTENER_QUERY_TEMPLATE.replace(EVENT_TYPE_PLACEHOLDER,
+                " AND E." + EVENT_TYPE_COL + " IN (" + eventTypes + ")");
+    }
+
+    static String generateGetEventsForTablesQuery(int numberOfTables) {
+        isTrue(numberOfTables > 0, "numberOfTables should be a positive number");
+        StringBuilder parameters = new StringBuilder("?");
+        for (int i = 1; i < numberOfTables; i++) {
+            parameters.append(",?");
+        }
+        return GET_EVENTS_FOR_TABLES_QUERY_TEMPLATE.replace(TABLE_NAMES_PLACEHOLDER, parameters);
     }
 
     private void verifyListenerExists(Listener listener, Connection connection) {
@@ -81,12 +171,25 @@ class MysqlEventRepo {
     private static final String REACTIVE_EVENT = TABLE_NAME;
     private static final String LISTENER_ID_COL = ListenerRepo.LISTENER_ID_COL;
 
-    private static final String GET_EVENTS_FOR_LISTENER_QUERY =
+    private static final String EVENT_TYPE_PLACEHOLDER = "{eventTypes}";
+    private static final String TABLE_NAMES_PLACEHOLDER = "{tableNames}";
+
+    private static final String GET_EVENTS_FOR_LISTENER_QUERY_TEMPLATE =
             "SELECT E.* FROM " + REACTIVE_LISTENER + " L " +
                     "INNER JOIN " + REACTIVE_EVENT + " E ON " +
                     "L." + ListenerRepo.TABLE_NAME_COL + "=E." + TABLE_NAME_COL +
                     " AND E." + EVENT_ID_COL + ">? " +
-                    " AND E." + CREATED_DT_COL + ">=?" +
+                    " AND E." + CREATED_DT_COL + ">=?" + EVENT_TYPE_PLACEHOLDER + " " +
                     "WHERE L." + LISTENER_ID_COL + "=? " +
                     "ORDER BY " + CREATED_DT_COL + " ASC, " + EVENT_ID_COL + " ASC";
+
+    // served by the index on (TABLE_NAME, EVENT_ID): one range scan per table
+    private static final String GET_EVENTS_FOR_TABLES_QUERY_TEMPLATE =
+            "SELECT E.* FROM " + REACTIVE_EVENT + " E " +
+                    "WHERE E." + TABLE_NAME_COL + " IN (" + TABLE_NAMES_PLACEHOLDER + ")" +
+                    " AND E." + EVENT_ID_COL + ">? " +
+                    "ORDER BY E." + EVENT_ID_COL + " ASC";
+
+    private static final String GET_LAST_EVENT_ID_QUERY =
+            "SELECT COALESCE(MAX(" + EVENT_ID_COL + "), 0) FROM " + REACTIVE_EVENT;
 }
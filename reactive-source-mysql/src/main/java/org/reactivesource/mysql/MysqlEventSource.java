@@ -7,8 +7,10 @@
 package org.reactivesource.mysql;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.reactivesource.CaptureSpec;
 import org.reactivesource.ConnectionProvider;
 import org.reactivesource.Event;
+import org.reactivesource.EventFilter;
 import org.reactivesource.EventSource;
 import org.reactivesource.exceptions.DataAccessException;
 import org.reactivesource.exceptions.ReactiveException;
@@ -38,6 +40,7 @@ public class MysqlEventSource implements EventSource {
     private final String tableName;
 
     private final MysqlEventMapper eventMapper;
+    private final EventFilter eventFilter;
 
     private MysqlEventRepo eventRepo;
     private ListenerRepo listenerRepo;
@@ -52,7 +55,43 @@ public class MysqlEventSource implements EventSource {
     }
 
     public MysqlEventSource(ConnectionProvider connectionProvider, String tableName, boolean autoConfigure) {
-        this(connectionProvider, tableName, new MysqlConfigurator(connectionProvider, tableName), autoConfigure);
+        this(connectionProvider, tableName, autoConfigure, EventFilter.ALL);
+    }
+
+    /**
+     * Creates an event source that only returns the events accepted by the given filter.
+     * <p/>
+     * The triggers of a table are shared by all the event sources of the table, so they still record every event.
+     * The event types of the filter restrict the query reading the recorded events. The conditions on the columns are
+     * evaluated in memory, before the events are handed to the listeners.
+     *
+     * @param connectionProvider the provider of the connections to the database
+     * @param tableName          the name of the monitored table
+     * @param autoConfigure      if true, the reactive tables are created when they don't exist
+     * @param eventFilter        the filter of the events
+     */
+    public MysqlEventSource(ConnectionProvider connectionProvider, String tableName, boolean autoConfigure,
+                            EventFilter eventFilter) {
+        this(connectionProvider, tableName, autoConfigure, eventFilter, CaptureSpec.ALL);
+    }
+
+    /**
+     * Creates an event source that only returns the events accepted by the given filter, and whose triggers only
+     * record the data described by the given spec.
+     * <p/>
+     * The triggers of a table are shared by all the event sources of the table and are only created if they don't
+     * exist, so all the event sources of a table should use the same spec.
+     *
+     * @param connectionProvider the provider of the connections to the database
+     * @param tableName          the name of the monitored table
+     * @param autoConfigure      if true, the reactive tables are created when they don't exist
+     * @param eventFilter        the filter of the events. Can only refer to captured columns.
+     * @param captureSpec        the event types and columns recorded by the triggers
+     */
+    public MysqlEventSource(ConnectionProvider connectionProvider, String tableName, boolean autoConfigure,
+                            EventFilter eventFilter, CaptureSpec captureSpec) {
+        this(connectionProvider, tableName, new MysqlConfigurator(connectionProvider, tableName,
+                checkCanEvaluate(captureSpec, eventFilter)), autoConfigure, eventFilter);
     }
 
     public MysqlEventSource(String url, String username, String password, String tableName) {
@@ -65,14 +104,22 @@ public class MysqlEventSource implements EventSource {
 
     @VisibleForTesting MysqlEventSource(ConnectionProvider connectionProvider, String tableName,
                                         MysqlConfigurator configurator, boolean autoConfigure) {
+        this(connectionProvider, tableName, configurator, autoConfigure, EventFilter.ALL);
+    }
+
+    @VisibleForTesting MysqlEventSource(ConnectionProvider connectionProvider, String tableName,
+                                        MysqlConfigurator configurator, boolean autoConfigure,
+                                        EventFilter eventFilter) {
 
         notNull(connectionProvider, "Connection Provider can not be null");
         hasText(tableName, "Table Name can not be null or empty");
+        notNull(eventFilter, "Event Filter can not be null");
         verifyConfiguration(connectionProvider, tableName);
         this.tableName = tableName;
         this.connectionProvider = connectionProvider;
         this.eventMapper = new MysqlEventMapper();
-        this.eventRepo = new MysqlEventRepo();
+        this.eventFilter = eventFilter;
+        this.eventRepo = new MysqlEventRepo(eventFilter);
         this.listenerRepo = new ListenerRepo();
         this.configurator = configurator;
         this.autoConfigure = autoConfigure;
@@ -162,13 +209,24 @@ public class MysqlEventSource implements EventSource {
 
     private List<Event<Map<String, Object>>> mapMysqlEventsToGenericEvents(List<MysqlEvent> mysqlEvents) {
         List<Event<Map<String, Object>>> result = newArrayList();
-        for (MysqlEvent event : mysqlEvents) {
-            result.add(eventMapper.mapToGenericEvent(event));
+        boolean filterColumns = !eventFilter.getConditions().isEmpty();
+        for (MysqlEvent mysqlEvent : mysqlEvents) {
+            Event<Map<String, Object>> event = eventMapper.mapToGenericEvent(mysqlEvent);
+            if (!filterColumns || eventFilter.matches(event)) {
+                result.add(event);
+            }
         }
         return result;
     }
 
-    private void verifyConfiguration(ConnectionProvider connectionProvider, String tableName) {
+    private static CaptureSpec checkCanEvaluate(CaptureSpec captureSpec, EventFilter eventFilter) {
+        notNull(captureSpec, "Capture Spec can not be null");
+        notNull(eventFilter, "Event Filter can not be null");
+        captureSpec.verifyCanEvaluate(eventFilter);
+        return captureSpec;
+    }
+
+    static void verifyConfiguration(ConnectionProvider connectionProvider, String tableName) {
         try (Connection connection = connectionProvider.getConnection()) {
             verifyTableExists(connection, tableName);
         } catch (SQLException sqle) {
@@ -177,7 +235,7 @@ public class MysqlEventSource implements EventSource {
         }
     }
 
-    private void verifyTableExists(Connection connection, String tableName) throws SQLException {
+    private static void verifyTableExists(Connection connection, String tableName) throws SQLException {
         connection.createStatement().executeQuery("SELECT * FROM " + tableName + " LIMIT 1");
     }
 }
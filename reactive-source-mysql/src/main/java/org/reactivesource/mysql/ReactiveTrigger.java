@@ -12,6 +12,7 @@ import static java.lang.String.format;
 import static org.reactivesource.mysql.MysqlEventRepo.*;
 import static org.reactivesource.mysql.ReactiveTrigger.TriggerEvent.DELETE;
 import static org.reactivesource.mysql.ReactiveTrigger.TriggerEvent.INSERT;
+import static org.reactivesource.mysql.ReactiveTrigger.TriggerEvent.UPDATE;
 import static org.reactivesource.util.Assert.*;
 
 class ReactiveTrigger {
@@ -25,10 +26,14 @@ class ReactiveTrigger {
     private final TriggerEvent triggerEvent;
     private final TriggerTime triggerTime;
     private final List<String> tableColumns;
+    private final boolean withOldImage;
 
     private static final String CREATE_TRIGGER_TEMPLATE =
             "CREATE TRIGGER %s %s %s ON %s FOR EACH ROW\n" +
-                    "BEGIN \n" +
+                    "{body}";
+
+    private static final String BODY_TEMPLATE =
+            "BEGIN \n" +
                     "{mainBody} \n" +
                     "END";
 
@@ -41,10 +46,19 @@ class ReactiveTrigger {
                     "INSERT INTO " + MysqlEventRepo.TABLE_NAME +
                     "(" + TABLE_NAME_COL + "," + EVENT_TYPE_COL + "," + OLD_ENTITY_COL + "," + NEW_ENTITY_COL + ","
                     + CREATED_DT_COL + ")\n" +
-                    "VALUES ('{tableName}', '{eventType}', @oldJson, @newJson, NOW());";
+                    "VALUES ('{tableName}', '{eventType}', @oldJson, @newJson, NOW(6));";
 
     ReactiveTrigger(String triggerName, String triggerTable, TriggerEvent triggerEvent, TriggerTime triggerTime,
                     List<String> tableColumns) {
+        this(triggerName, triggerTable, triggerEvent, triggerTime, tableColumns, true);
+    }
+
+    /**
+     * @param tableColumns the columns written in the entities of the events
+     * @param withOldImage if false, UPDATE events are recorded with an empty old entity
+     */
+    ReactiveTrigger(String triggerName, String triggerTable, TriggerEvent triggerEvent, TriggerTime triggerTime,
+                    List<String> tableColumns, boolean withOldImage) {
         hasText(triggerName, EMPTY_TRIGGER_NAME_MSG);
         hasText(triggerTable, EMPTY_TRIGGER_TABLE_MSG);
         notNull(triggerEvent, NULL_TRIGGER_EVENT_MSG);
@@ -55,17 +69,26 @@ class ReactiveTrigger {
         this.triggerEvent = triggerEvent;
         this.triggerTime = triggerTime;
         this.tableColumns = tableColumns;
+        this.withOldImage = withOldImage;
     }
 
     String getCreateSql() {
         String triggerSql =
                 format(CREATE_TRIGGER_TEMPLATE, triggerName, triggerTime, triggerEvent, triggerTable);
+        return triggerSql.replace("{body}", getBodySql());
+    }
+
+    /**
+     * @return the statement executed by the trigger, as reported in the <code>Statement</code> column of
+     * <code>SHOW TRIGGERS</code>
+     */
+    String getBodySql() {
         String mainBody = MAIN_BODY_TEMPLATE
                 .replace("{oldJson}", oldJson())
                 .replace("{newJson}", newJson())
                 .replace("{tableName}", triggerTable)
                 .replace("{eventType}", triggerEvent.toString());
-        return triggerSql.replace("{mainBody}", mainBody);
+        return BODY_TEMPLATE.replace("{mainBody}", mainBody);
     }
 
     String newJson() {
@@ -77,7 +100,7 @@ class ReactiveTrigger {
     }
 
     String oldJson() {
-        if (INSERT.equals(triggerEvent)) {
+        if (INSERT.equals(triggerEvent) || (UPDATE.equals(triggerEvent) && !withOldImage)) {
             return "'{}'";
         } else {
             return generateConcatStatement("OLD", tableColumns);
@@ -104,6 +127,10 @@ class ReactiveTrigger {
         return tableColumns;
     }
 
+    boolean isWithOldImage() {
+        return withOldImage;
+    }
+
     private String generateConcatStatement(String columnPrefix, List<String> tableColumns) {
         int count = 0;
         StringBuilder builder = new StringBuilder("CONCAT('{',");
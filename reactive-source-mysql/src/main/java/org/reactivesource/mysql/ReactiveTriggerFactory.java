@@ -6,6 +6,10 @@
 
 package org.reactivesource.mysql;
 
+import com.google.common.collect.Lists;
+import org.reactivesource.CaptureSpec;
+import org.reactivesource.EventType;
+
 import java.util.List;
 
 import static java.lang.String.format;
@@ -23,16 +27,49 @@ class ReactiveTriggerFactory {
     }
 
     public static ReactiveTrigger afterUpdate(String triggerTable, List<String> tableColumns) {
-        return createTrigger(triggerTable, UPDATE, AFTER, tableColumns);
+        return afterUpdate(triggerTable, tableColumns, true);
+    }
+
+    public static ReactiveTrigger afterUpdate(String triggerTable, List<String> tableColumns, boolean withOldImage) {
+        return createTrigger(triggerTable, UPDATE, AFTER, tableColumns, withOldImage);
     }
 
     public static ReactiveTrigger afterDelete(String triggerTable, List<String> tableColumns) {
         return createTrigger(triggerTable, DELETE, AFTER, tableColumns);
     }
 
+    /**
+     * Creates the triggers for the event types of the spec, writing only the given columns.
+     *
+     * @param triggerTable  the monitored table
+     * @param columns       the columns captured by the spec
+     * @param captureSpec   the spec
+     * @return one trigger per captured event type
+     */
+    public static List<ReactiveTrigger> forCaptureSpec(String triggerTable, List<String> columns,
+                                                       CaptureSpec captureSpec) {
+        List<ReactiveTrigger> triggers = Lists.newArrayList();
+        if (captureSpec.getEventTypes().contains(EventType.INSERT)) {
+            triggers.add(afterInsert(triggerTable, columns));
+        }
+        if (captureSpec.getEventTypes().contains(EventType.UPDATE)) {
+            triggers.add(afterUpdate(triggerTable, columns, captureSpec.includesOldImage()));
+        }
+        if (captureSpec.getEventTypes().contains(EventType.DELETE)) {
+            triggers.add(afterDelete(triggerTable, columns));
+        }
+        return triggers;
+    }
+
     private static ReactiveTrigger createTrigger(String triggerTable, TriggerEvent triggerEvent,
                                                  TriggerTime triggerTime, List<String> tableColumns) {
+        return createTrigger(triggerTable, triggerEvent, triggerTime, tableColumns, true);
+    }
+
+    private static ReactiveTrigger createTrigger(String triggerTable, TriggerEvent triggerEvent,
+                                                 TriggerTime triggerTime, List<String> tableColumns,
+                                                 boolean withOldImage) {
         String triggerName = format(TRIGGER_NAME_TEMPLATE, triggerTime, triggerEvent, triggerTable);
-        return new ReactiveTrigger(triggerName, triggerTable, triggerEvent, triggerTime, tableColumns);
+        return new ReactiveTrigger(triggerName, triggerTable, triggerEvent, triggerTime, tableColumns, withOldImage);
     }
 }
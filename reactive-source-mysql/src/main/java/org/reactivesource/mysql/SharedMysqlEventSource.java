@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.mysql;
+
+import org.reactivesource.ConnectionProvider;
+import org.reactivesource.Event;
+import org.reactivesource.EventFilter;
+import org.reactivesource.EventSource;
+import org.reactivesource.exceptions.DataAccessException;
+import org.reactivesource.util.JdbcUtils;
+
+import java.sql.Connection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.reactivesource.util.Assert.state;
+
+/**
+ * The event source of one table, which reads its events through the shared connection of a {@link MysqlEventHub}.
+ * <p/>
+ * Like a {@link MysqlEventSource}, it registers a listener for its table on setup, so that the triggers of the table
+ * are kept while it is monitored.
+ */
+class SharedMysqlEventSource implements EventSource {
+
+    private final MysqlEventHub hub;
+    private final ConnectionProvider connectionProvider;
+    private final String tableName;
+    private final MysqlConfigurator configurator;
+    private final boolean autoConfigure;
+    private final EventFilter eventFilter;
+    private final ListenerRepo listenerRepo = new ListenerRepo();
+
+    private Listener listener;
+    private boolean connected = false;
+
+    SharedMysqlEventSource(MysqlEventHub hub, ConnectionProvider connectionProvider, String tableName,
+                           MysqlConfigurator configurator, boolean autoConfigure, EventFilter eventFilter) {
+        this.hub = hub;
+        this.connectionProvider = connectionProvider;
+        this.tableName = tableName;
+        this.configurator = configurator;
+        this.autoConfigure = autoConfigure;
+        this.eventFilter = eventFilter;
+    }
+
+    @Override
+    public List<Event<Map<String, Object>>> getNewEvents() throws DataAccessException {
+        state(isConnected(), "Attempted to call 'getNewEvents' without first calling 'connect'");
+        List<Event<Map<String, Object>>> events = hub.getNewEvents(tableName);
+        if (!eventFilter.acceptsAll()) {
+            for (Iterator<Event<Map<String, Object>>> it = events.iterator(); it.hasNext(); ) {
+                if (!eventFilter.matches(it.next())) {
+                    it.remove();
+                }
+            }
+        }
+        return events;
+    }
+
+    @Override
+    public void connect() throws DataAccessException {
+        state(listener != null, "Attempted to call 'connect' before calling 'setup'");
+        hub.listen(tableName);
+        connected = true;
+    }
+
+    @Override
+    public void disconnect() throws DataAccessException {
+        connected = false;
+        hub.unlisten(tableName);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected && hub.isConnected();
+    }
+
+    @Override
+    public void setup() {
+        if (autoConfigure) {
+            configurator.initReactiveTables();
+        }
+        registerListener();
+        configurator.createTriggers();
+    }
+
+    @Override
+    public void cleanup() {
+        configurator.cleanupTriggers();
+        cleanupListener();
+    }
+
+    private void registerListener() {
+        Connection connection = connectionProvider.getConnection();
+        try {
+            if (listener == null) {
+                listener = listenerRepo.insert(new Listener(tableName), connection);
+            }
+        } finally {
+            JdbcUtils.closeConnection(connection);
+        }
+    }
+
+    private void cleanupListener() {
+        state(listener != null, "Attempted to call 'cleanup' before calling 'setup'");
+        Connection connection = connectionProvider.getConnection();
+        try {
+            listenerRepo.remove(listener, connection);
+            listener = null;
+        } finally {
+            JdbcUtils.closeConnection(connection);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.util.List;
 class TableMetadata {
     static final String NULL_PROVIDER_MSG = "connectionProvider cant be null";
     static final String COLUMN_NAMES_ERROR = "Couldn't get column names for table ";
+    static final String TABLE_NAMES_ERROR = "Couldn't get the names of the tables matching ";
     private ConnectionProvider connectionProvider;
 
     TableMetadata(ConnectionProvider connectionProvider) {
@@ -45,8 +46,38 @@ class TableMetadata {
         }
     }
 
+    /**
+     * @param tableNamePattern a pattern for the <code>LIKE</code> operator
+     * @return the names of the tables of the current database matching the pattern, without the reactive tables
+     */
+    List<String> getTableNames(String tableNamePattern) {
+        List<String> result = Lists.newArrayList();
+        try (
+                Connection connection = connectionProvider.getConnection();
+                PreparedStatement stmt = connection.prepareStatement(GET_TABLE_NAMES_QUERY)) {
+            stmt.setString(1, tableNamePattern);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                result.add(rs.getString(1));
+            }
+
+            return result;
+        } catch (SQLException sqle) {
+            throw new DataAccessException(TABLE_NAMES_ERROR + tableNamePattern, sqle);
+        }
+    }
+
     static final String GET_COLUMN_NAMES_QUERY = "SELECT COLUMN_NAME " +
             "FROM INFORMATION_SCHEMA.COLUMNS " +
             "WHERE TABLE_SCHEMA = DATABASE() " +
             "AND TABLE_NAME = ?";
+
+    static final String GET_TABLE_NAMES_QUERY = "SELECT TABLE_NAME " +
+            "FROM INFORMATION_SCHEMA.TABLES " +
+            "WHERE TABLE_SCHEMA = DATABASE() " +
+            "AND TABLE_TYPE = 'BASE TABLE' " +
+            "AND TABLE_NAME LIKE ? " +
+            "AND TABLE_NAME NOT IN ('" + ListenerRepo.TABLE_NAME + "', '" + MysqlEventRepo.TABLE_NAME + "') " +
+            "ORDER BY TABLE_NAME";
 }
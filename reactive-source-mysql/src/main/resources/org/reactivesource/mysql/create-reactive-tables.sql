@@ -5,11 +5,12 @@ CREATE TABLE REACTIVE_EVENT (
   EVENT_TYPE ENUM('INSERT', 'UPDATE', 'DELETE') NOT NULL,
   OLD_ENTITY TEXT,
   NEW_ENTITY TEXT,
-  CREATED_DT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  CREATED_DT TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
   PRIMARY KEY (EVENT_ID)
 );
 
 CREATE INDEX IDX_LISTENER_TABLE_NAME on REACTIVE_EVENT(CREATED_DT);
+CREATE INDEX IDX_EVENT_TABLE_NAME_EVENT_ID on REACTIVE_EVENT(TABLE_NAME, EVENT_ID);
 
 DROP TABLE IF EXISTS REACTIVE_LISTENER;
 CREATE TABLE REACTIVE_LISTENER (
@@ -0,0 +1,10 @@
+-- Migrates the REACTIVE_EVENT table of an installation created before the triggers recorded the time of the changes
+-- with microsecond precision. Requires MySQL 5.6.4 or later. The table is rebuilt, so run it when it holds few events.
+ALTER TABLE REACTIVE_EVENT
+  MODIFY CREATED_DT TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6);
+
+-- The triggers created by an earlier version record NOW(), ie only the seconds. Drop the triggers of every monitored
+-- table, while it is not written to, so that auto-config recreates them:
+--   DROP TRIGGER IF EXISTS REACTIVE_AFTER_INSERT_<table>_TRIGGER;
+--   DROP TRIGGER IF EXISTS REACTIVE_AFTER_UPDATE_<table>_TRIGGER;
+--   DROP TRIGGER IF EXISTS REACTIVE_AFTER_DELETE_<table>_TRIGGER;
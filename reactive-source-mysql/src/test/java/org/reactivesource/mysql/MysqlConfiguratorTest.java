@@ -7,6 +7,7 @@
 package org.reactivesource.mysql;
 
 import org.mockito.Mock;
+import org.reactivesource.CaptureSpec;
 import org.reactivesource.ConnectionProvider;
 import org.reactivesource.EventType;
 import org.reactivesource.exceptions.ConfigurationException;
@@ -39,6 +40,14 @@ public class MysqlConfiguratorTest {
     private static final String COUNT_EVENTS_QUERY = "SELECT count(1) FROM " + MysqlEventRepo.TABLE_NAME;
     private static final String UPDATE_QUERY = "UPDATE " + TEST_TABLE_NAME + " SET TXT=? WHERE ID=?";
     private static final String DELETE_QUERY = "DELETE FROM " + TEST_TABLE_NAME + " WHERE ID=?";
+    private static final String BASELINE_UPDATE_TRIGGER_BODY = "BEGIN \n" +
+            "SET @oldJson = CONCAT('{','\\\"ID\\\":','\\\"',OLD.ID,'\\\"',','," +
+            "'\\\"TXT\\\":','\\\"',OLD.TXT,'\\\"','}'); \n" +
+            "SET @newJson = CONCAT('{','\\\"ID\\\":','\\\"',NEW.ID,'\\\"',','," +
+            "'\\\"TXT\\\":','\\\"',NEW.TXT,'\\\"','}'); \n" +
+            "INSERT INTO REACTIVE_EVENT(TABLE_NAME,EVENT_TYPE,OLD_ENTITY,NEW_ENTITY,CREATED_DT)\n" +
+            "VALUES ('" + TEST_TABLE_NAME + "', 'UPDATE', @oldJson, @newJson, NOW()); \n" +
+            "END";
 
     private ConnectionProvider provider;
 
@@ -70,6 +79,113 @@ public class MysqlConfiguratorTest {
         new MysqlConfigurator(mock(ConnectionProvider.class), "");
     }
 
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotCaptureTheChangedColumnsOnly() {
+        new MysqlConfigurator(mock(ConnectionProvider.class), "asd", CaptureSpec.ALL.withChangedColumnsOnly());
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotCaptureTheChangesPerStatement() {
+        new MysqlConfigurator(mock(ConnectionProvider.class), "asd", CaptureSpec.ALL.perStatement());
+    }
+
+    @Test(groups = SMALL)
+    public void testCapturedColumnsUseTheNamesOfTheTable() {
+        MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                mockedTableMetadata, CaptureSpec.ALL.withColumns("txt"));
+
+        assertEquals(configurator.getCapturedColumns(newArrayList("ID", "TXT")), newArrayList("TXT"));
+    }
+
+    @Test(groups = SMALL)
+    public void testAllColumnsAreCapturedByDefault() {
+        MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                mockedTableMetadata);
+
+        assertEquals(configurator.getCapturedColumns(newArrayList("ID", "TXT")), newArrayList("ID", "TXT"));
+    }
+
+    @Test(groups = SMALL, expectedExceptions = ConfigurationException.class)
+    public void testCanNotCaptureColumnsThatDoNotExist() {
+        MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                mockedTableMetadata, CaptureSpec.ALL.withColumns("UNKNOWN"));
+
+        configurator.getCapturedColumns(newArrayList("ID", "TXT"));
+    }
+
+    @Test(groups = SMALL)
+    public void testExistingTriggerWithTheSameDefinitionIsAccepted() {
+        MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                mockedTableMetadata, CaptureSpec.ALL.withColumns("txt"));
+        ReactiveTrigger trigger = ReactiveTriggerFactory.afterUpdate(TEST_TABLE_NAME, newArrayList("TXT"));
+
+        configurator.checkSameDefinition(trigger, "  " + trigger.getBodySql().replace(" \n", "\n\t") + "\n");
+    }
+
+    @Test(groups = SMALL, expectedExceptions = ConfigurationException.class)
+    public void testExistingTriggerCreatedForAnotherSpecIsRejected() {
+        MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                mockedTableMetadata, CaptureSpec.ALL.withoutOldImage());
+        ReactiveTrigger existing = ReactiveTriggerFactory.afterUpdate(TEST_TABLE_NAME, newArrayList("ID", "TXT"));
+        ReactiveTrigger trigger = ReactiveTriggerFactory.afterUpdate(TEST_TABLE_NAME, newArrayList("ID", "TXT"), false);
+
+        configurator.checkSameDefinition(trigger, existing.getBodySql());
+    }
+
+    @Test(groups = SMALL)
+    public void testExistingTriggerOfATableThatGainedAColumnIsAccepted() {
+        MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                mockedTableMetadata);
+        ReactiveTrigger existing = ReactiveTriggerFactory.afterUpdate(TEST_TABLE_NAME, newArrayList("ID"));
+        ReactiveTrigger trigger = ReactiveTriggerFactory.afterUpdate(TEST_TABLE_NAME, newArrayList("ID", "TXT"));
+
+        configurator.checkSameDefinition(trigger, existing.getBodySql());
+    }
+
+    @Test(groups = SMALL)
+    public void testExistingTriggerOfATableThatGainedAColumnIsAcceptedForASpecCapturingAllColumns() {
+        MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                mockedTableMetadata, CaptureSpec.ALL.withoutOldImage());
+        ReactiveTrigger existing = ReactiveTriggerFactory.afterUpdate(TEST_TABLE_NAME, newArrayList("ID"), false);
+        ReactiveTrigger trigger = ReactiveTriggerFactory.afterUpdate(TEST_TABLE_NAME, newArrayList("ID", "TXT"), false);
+
+        configurator.checkSameDefinition(trigger, existing.getBodySql());
+    }
+
+    @Test(groups = SMALL)
+    public void testExistingTriggerIsAlwaysAcceptedForTheDefaultSpec() {
+        MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                mockedTableMetadata);
+        ReactiveTrigger existing = ReactiveTriggerFactory.afterUpdate(TEST_TABLE_NAME, newArrayList("TXT"), false);
+        ReactiveTrigger trigger = ReactiveTriggerFactory.afterUpdate(TEST_TABLE_NAME, newArrayList("ID", "TXT"));
+
+        configurator.checkSameDefinition(trigger, existing.getBodySql());
+    }
+
+    @Test(groups = SMALL)
+    public void testTriggerCreatedByAnEarlierVersionIsAccepted() {
+        ReactiveTrigger trigger = ReactiveTriggerFactory.afterUpdate(TEST_TABLE_NAME, newArrayList("ID", "TXT"));
+
+        for (CaptureSpec spec : newArrayList(CaptureSpec.ALL, CaptureSpec.ALL.withColumns("id", "txt"))) {
+            MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                    mockedTableMetadata, spec);
+            configurator.checkSameDefinition(trigger, BASELINE_UPDATE_TRIGGER_BODY);
+        }
+        assertTrue(MysqlConfigurator.recordsSecondPrecisionTimestamps(BASELINE_UPDATE_TRIGGER_BODY));
+        assertFalse(MysqlConfigurator.recordsSecondPrecisionTimestamps(trigger.getBodySql()));
+    }
+
+    @Test(groups = SMALL, expectedExceptions = ConfigurationException.class,
+            expectedExceptionsMessageRegExp = ".*records other columns than \\[id\\].*")
+    public void testExistingTriggerRecordingOtherColumnsThanTheSpecIsRejected() {
+        MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                mockedTableMetadata, CaptureSpec.ALL.withColumns("id"));
+        ReactiveTrigger existing = ReactiveTriggerFactory.afterInsert(TEST_TABLE_NAME, newArrayList("ID", "TXT"));
+        ReactiveTrigger trigger = ReactiveTriggerFactory.afterInsert(TEST_TABLE_NAME, newArrayList("ID"));
+
+        configurator.checkSameDefinition(trigger, existing.getBodySql());
+    }
+
     @Test(groups = INTEGRATION)
     public void testCreateTriggersCreatesInsertTrigger() throws SQLException {
         MysqlConfigurator configurator = new MysqlConfigurator(provider, TEST_TABLE_NAME);
@@ -211,6 +327,27 @@ public class MysqlConfiguratorTest {
         configurator.initReactiveTables();
     }
 
+    @Test(groups = SMALL)
+    public void testDetectsEventTablesCreatedWithSecondPrecisionTimestamps() throws SQLException {
+        MysqlConfigurator configurator = new MysqlConfigurator(mockedErroneousProvider, TEST_TABLE_NAME,
+                mockedTableMetadata);
+
+        assertTrue(configurator.hasSecondPrecisionTimestamps(connectionWithCreatedDtPrecision(0)));
+        assertFalse(configurator.hasSecondPrecisionTimestamps(connectionWithCreatedDtPrecision(6)));
+        assertFalse(configurator.hasSecondPrecisionTimestamps(mockedErroneousProvider.getConnection()));
+    }
+
+    private static Connection connectionWithCreatedDtPrecision(int precision) throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(stmt);
+        when(stmt.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getInt(1)).thenReturn(precision);
+        return connection;
+    }
+
     private void prepareMocks() throws SQLException {
         Connection mockedConnection = mock(Connection.class);
 
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.mysql;
+
+import org.mockito.Mock;
+import org.reactivesource.ConnectionProvider;
+import org.reactivesource.Event;
+import org.reactivesource.EventType;
+import org.reactivesource.Row;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.reactivesource.testing.DateConstants.TODAY;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class MysqlEventHubTest {
+
+    private static final String ORDERS = "orders";
+    private static final String CUSTOMERS = "customers";
+
+    @Mock
+    private ConnectionProvider connectionProvider;
+    @Mock
+    private MysqlEventRepo eventRepo;
+    @Mock
+    private TableMetadata tableMetadata;
+    @Mock
+    private Connection connection;
+
+    private MysqlEventHub hub;
+
+    @BeforeMethod(groups = SMALL)
+    public void setUp() throws SQLException {
+        initMocks(this);
+        Statement stmt = mock(Statement.class);
+        Connection tableCheckConnection = mock(Connection.class);
+        when(tableCheckConnection.createStatement()).thenReturn(stmt);
+        when(connection.createStatement()).thenReturn(stmt);
+        when(connection.isClosed()).thenReturn(false);
+        when(connectionProvider.getConnection()).thenReturn(tableCheckConnection, tableCheckConnection, connection);
+        when(eventRepo.getLastEventId(connection)).thenReturn(10L);
+        hub = new MysqlEventHub(connectionProvider, eventRepo, tableMetadata);
+        hub.newEventSource(ORDERS);
+        hub.newEventSource(CUSTOMERS);
+    }
+
+    @Test(groups = SMALL)
+    public void testTablesShareOneConnection() {
+        hub.listen(ORDERS);
+        hub.listen(CUSTOMERS);
+
+        // one connection per table to check that it exists, and the shared one
+        verify(connectionProvider, times(3)).getConnection();
+        assertTrue(hub.isConnected());
+    }
+
+    @Test(groups = SMALL)
+    @SuppressWarnings("unchecked")
+    public void testTheEventsOfAllTheTablesAreReadWithOneQuery() {
+        hub.listen(ORDERS);
+        hub.listen(CUSTOMERS);
+        when(eventRepo.getNewEventsForTables(any(Collection.class), anyLong(), eq(connection)))
+                .thenReturn(Arrays.asList(event(11, CUSTOMERS), event(12, ORDERS), event(13, CUSTOMERS)));
+
+        List<Event<Map<String, Object>>> orderEvents = hub.getNewEvents(ORDERS);
+        List<Event<Map<String, Object>>> customerEvents = hub.getNewEvents(CUSTOMERS);
+
+        assertEquals(orderEvents.size(), 1);
+        assertEquals(orderEvents.get(0).getEntityName(), ORDERS);
+        assertEquals(customerEvents.size(), 2);
+        assertEquals(customerEvents.get(0).getEntityName(), CUSTOMERS);
+        verify(eventRepo, times(1)).getNewEventsForTables(any(Collection.class), eq(10L), eq(connection));
+    }
+
+    @Test(groups = SMALL)
+    @SuppressWarnings("unchecked")
+    public void testTheDatabaseIsQueriedOncePerRoundOfPolls() {
+        hub.listen(ORDERS);
+        hub.listen(CUSTOMERS);
+        when(eventRepo.getNewEventsForTables(any(Collection.class), anyLong(), eq(connection)))
+                .thenReturn(Arrays.<MysqlEvent>asList());
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(hub.getNewEvents(ORDERS).isEmpty());
+            assertTrue(hub.getNewEvents(CUSTOMERS).isEmpty());
+        }
+
+        verify(eventRepo, times(3)).getNewEventsForTables(any(Collection.class), anyLong(), eq(connection));
+    }
+
+    @Test(groups = SMALL)
+    @SuppressWarnings("unchecked")
+    public void testTheEntitiesOfEveryTableShareTheSchemaOfTheirTable() {
+        hub.listen(ORDERS);
+        hub.listen(CUSTOMERS);
+        MysqlEvent customer = new MysqlEvent(12, CUSTOMERS, EventType.INSERT, "{}", "{\"NAME\":\"john\"}", TODAY);
+        when(eventRepo.getNewEventsForTables(any(Collection.class), anyLong(), eq(connection)))
+                .thenReturn(Arrays.asList(event(11, ORDERS), customer, event(13, ORDERS)));
+
+        List<Event<Map<String, Object>>> orderEvents = hub.getNewEvents(ORDERS);
+        hub.getNewEvents(CUSTOMERS).get(0).getNewEntity();
+
+        assertSame(((Row) orderEvents.get(1).getNewEntity()).getSchema(),
+                ((Row) orderEvents.get(0).getNewEntity()).getSchema());
+    }
+
+    @Test(groups = SMALL)
+    @SuppressWarnings("unchecked")
+    public void testTheNextQueryStartsAfterTheLastReadEvents() {
+        hub.listen(ORDERS);
+        hub.listen(CUSTOMERS);
+        when(eventRepo.getNewEventsForTables(any(Collection.class), anyLong(), eq(connection)))
+                .thenReturn(Arrays.asList(event(11, CUSTOMERS), event(12, ORDERS)));
+        hub.getNewEvents(ORDERS);
+        hub.getNewEvents(CUSTOMERS);
+
+        hub.getNewEvents(ORDERS);
+
+        verify(eventRepo).getNewEventsForTables(any(Collection.class), eq(12L), eq(connection));
+    }
+
+    @Test(groups = SMALL)
+    @SuppressWarnings("unchecked")
+    public void testAnIdleTableDoesNotHoldBackTheNextQuery() {
+        hub.listen(ORDERS);
+        hub.listen(CUSTOMERS);
+        when(eventRepo.getNewEventsForTables(any(Collection.class), anyLong(), eq(connection)))
+                .thenReturn(Arrays.asList(event(11, ORDERS), event(12, ORDERS)))
+                .thenReturn(Arrays.asList(event(13, ORDERS)))
+                .thenReturn(Arrays.<MysqlEvent>asList());
+        for (int i = 0; i < 3; i++) {
+            hub.getNewEvents(ORDERS);
+            hub.getNewEvents(CUSTOMERS);
+        }
+
+        verify(eventRepo).getNewEventsForTables(any(Collection.class), eq(10L), eq(connection));
+        verify(eventRepo).getNewEventsForTables(any(Collection.class), eq(12L), eq(connection));
+        verify(eventRepo).getNewEventsForTables(any(Collection.class), eq(13L), eq(connection));
+    }
+
+    @Test(groups = SMALL)
+    @SuppressWarnings("unchecked")
+    public void testOnlyTheTablesThatAreListenedToAreQueried() {
+        hub.listen(ORDERS);
+        hub.listen(CUSTOMERS);
+        hub.unlisten(CUSTOMERS);
+        when(eventRepo.getNewEventsForTables(any(Collection.class), anyLong(), eq(connection)))
+                .thenReturn(Arrays.asList(event(11, CUSTOMERS)));
+
+        assertTrue(hub.getNewEvents(ORDERS).isEmpty());
+        verify(eventRepo).getNewEventsForTables(eq(Arrays.asList(ORDERS)), eq(10L), eq(connection));
+    }
+
+    @Test(groups = SMALL)
+    public void testTheSharedConnectionIsClosedWhenNoTableIsListenedTo() throws SQLException {
+        hub.listen(ORDERS);
+        hub.listen(CUSTOMERS);
+
+        hub.unlisten(ORDERS);
+        verify(connection, never()).close();
+        hub.unlisten(CUSTOMERS);
+        verify(connection).close();
+        assertFalse(hub.isConnected());
+    }
+
+    @Test(groups = SMALL)
+    public void testCanCreateEventSourcesForTheTablesMatchingAPattern() {
+        when(tableMetadata.getTableNames("order_%")).thenReturn(Arrays.asList("order_items", "order_lines"));
+
+        Map<String, ?> eventSources = hub.newEventSources("order_%", false);
+
+        assertEquals(eventSources.keySet(), Arrays.asList("order_items", "order_lines"));
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotCreateTwoEventSourcesForTheSameTable() {
+        hub.newEventSource(ORDERS);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalStateException.class)
+    public void testEventSourcesCanNotConnectBeforeSetup() {
+        hub.newEventSource("products").connect();
+    }
+
+    private static MysqlEvent event(long eventId, String tableName) {
+        return new MysqlEvent(eventId, tableName, EventType.INSERT, "{}", "{\"ID\":" + eventId + "}", TODAY);
+    }
+}
@@ -28,4 +28,13 @@ public class MysqlEventMapperTest {
         assertEquals(genericEvent.getNewEntity().size(), 1);
         assertEquals(genericEvent.getOldEntity().size(), 0);
     }
+
+    @Test(groups = SMALL)
+    public void testTheEventCarriesTheChangeTimestampOfTheMysqlEvent() {
+        MysqlEventMapper mapper = new MysqlEventMapper();
+        MysqlEvent mysqlEvent = new MysqlEvent(1, "tableName", EventType.INSERT, "{}", "{}", new Date(1400000000123L),
+                1400000000123456L);
+
+        assertEquals(mapper.mapToGenericEvent(mysqlEvent).getChangeTimestamp(), 1400000000123456L);
+    }
 }
@@ -7,6 +7,8 @@
 package org.reactivesource.mysql;
 
 import org.apache.commons.lang.time.DateUtils;
+import org.reactivesource.ColumnCondition;
+import org.reactivesource.EventFilter;
 import org.reactivesource.EventType;
 import org.reactivesource.exceptions.DataAccessException;
 import org.reactivesource.util.JdbcUtils;
@@ -16,6 +18,8 @@ import org.testng.annotations.Test;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -51,6 +55,64 @@ public class MysqlEventRepoTest {
         assertNotNull(new MysqlEventRepo());
     }
 
+    @Test(groups = SMALL)
+    public void testTimestampsAreConvertedToMicrosecondsKeepingTheFractionalSeconds() {
+        Timestamp timestamp = new Timestamp(1400000000123L);
+        timestamp.setNanos(123456000);
+
+        assertEquals(MysqlEventRepo.toMicros(timestamp), 1400000000123456L);
+    }
+
+    @Test(groups = SMALL)
+    public void testEventsForTablesQueryHasAParameterPerTable() {
+        String query = MysqlEventRepo.generateGetEventsForTablesQuery(3);
+
+        assertTrue(query.contains("E." + MysqlEventRepo.TABLE_NAME_COL + " IN (?,?,?)"));
+        assertTrue(query.contains("E." + MysqlEventRepo.EVENT_ID_COL + ">?"));
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testEventsForTablesQueryNeedsAtLeastOneTable() {
+        MysqlEventRepo.generateGetEventsForTablesQuery(0);
+    }
+
+    @Test(groups = INTEGRATION)
+    public void testGetsTheEventsOfAllTheGivenTablesAfterTheGivenEventId() throws SQLException {
+        MysqlEventRepoUtils.insertEvent(new MysqlEvent(1, TEST_TABLE_NAME, EventType.INSERT, "{}", "{}", TODAY),
+                connection);
+        MysqlEventRepoUtils.insertEvent(new MysqlEvent(2, "otherTable", EventType.INSERT, "{}", "{}", TODAY),
+                connection);
+        MysqlEventRepoUtils.insertEvent(new MysqlEvent(3, TEST_TABLE_NAME, EventType.DELETE, "{}", "{}", TODAY),
+                connection);
+        MysqlEventRepoUtils.insertEvent(new MysqlEvent(4, "ignoredTable", EventType.INSERT, "{}", "{}", TODAY),
+                connection);
+
+        List<MysqlEvent> newEvents = repo.getNewEventsForTables(
+                Arrays.asList(TEST_TABLE_NAME, "otherTable"), 1, connection);
+
+        assertEquals(newEvents.size(), 2);
+        assertEquals(newEvents.get(0).getEventId(), 2);
+        assertEquals(newEvents.get(1).getEventId(), 3);
+        assertEquals(repo.getLastEventId(connection), 4);
+    }
+
+    @Test(groups = SMALL)
+    public void testQueryIsNotRestrictedToEventTypesWhenFilterAcceptsAllTypes() {
+        String query = MysqlEventRepo.generateGetEventsForListenerQuery(
+                EventFilter.ALL.withCondition("TXT", ColumnCondition.Operator.EQUALS, "a"));
+
+        assertFalse(query.contains(MysqlEventRepo.EVENT_TYPE_COL + " IN"));
+        assertFalse(query.contains("{eventTypes}"));
+    }
+
+    @Test(groups = SMALL)
+    public void testQueryIsRestrictedToTheEventTypesOfTheFilter() {
+        String query = MysqlEventRepo.generateGetEventsForListenerQuery(
+                EventFilter.ALL.withEventTypes(EventType.INSERT, EventType.DELETE));
+
+        assertTrue(query.contains("E." + MysqlEventRepo.EVENT_TYPE_COL + " IN ('INSERT','DELETE')"));
+    }
+
     @Test(groups = INTEGRATION, expectedExceptions = DataAccessException.class)
     public void testCanNotGetEventsIfListenerDoesNotExist() {
         Listener listener = new Listener(2, "UnkownTable", 40, new Date(), 0);
@@ -62,7 +62,7 @@ public class MysqlEventRepoUtils {
         }
     }
 
-    public static final String INSERT_QUERY = "INSERT INTO REACTIVE_EVENT VALUES (?, ?, ?, ?, ?, NOW())";
+    public static final String INSERT_QUERY = "INSERT INTO REACTIVE_EVENT VALUES (?, ?, ?, ?, ?, NOW(6))";
     public static final String INSERT_WITH_DATE_QUERY = "INSERT INTO REACTIVE_EVENT VALUES (?, ?, ?, ?, ?, ?)";
     private static final String GET_EVENTS_FOR_TABLE_QUERY = "SELECT * FROM REACTIVE_EVENT WHERE TABLE_NAME=?";
 
@@ -7,6 +7,8 @@
 package org.reactivesource.mysql;
 
 import com.google.common.collect.Lists;
+import org.reactivesource.CaptureSpec;
+import org.reactivesource.EventType;
 import org.testng.annotations.Test;
 
 import java.util.List;
@@ -59,4 +61,28 @@ public class ReactiveTriggerFactoryTest {
         assertEquals(reactiveTrigger.getTriggerName(),
                 String.format(TRIGGER_NAME_TEMPLATE, AFTER, DELETE, TRIGGER_TABLE));
     }
+
+    @Test(groups = SMALL)
+    public void testBuildsTriggersForAllEventTypesByDefault() {
+        List<ReactiveTrigger> triggers = ReactiveTriggerFactory.forCaptureSpec(TRIGGER_TABLE, TABLE_COLS,
+                CaptureSpec.ALL);
+
+        assertEquals(triggers.size(), 3);
+        assertEquals(triggers.get(0).getTriggerEvent(), INSERT);
+        assertEquals(triggers.get(1).getTriggerEvent(), UPDATE);
+        assertTrue(triggers.get(1).isWithOldImage());
+        assertEquals(triggers.get(2).getTriggerEvent(), DELETE);
+    }
+
+    @Test(groups = SMALL)
+    public void testBuildsTriggersOnlyForTheCapturedEventTypes() {
+        CaptureSpec spec = CaptureSpec.ALL.withEventTypes(EventType.UPDATE).withoutOldImage();
+
+        List<ReactiveTrigger> triggers = ReactiveTriggerFactory.forCaptureSpec(TRIGGER_TABLE, TABLE_COLS, spec);
+
+        assertEquals(triggers.size(), 1);
+        assertEquals(triggers.get(0).getTriggerEvent(), UPDATE);
+        assertFalse(triggers.get(0).isWithOldImage());
+        assertEquals(triggers.get(0).getTableColumns(), TABLE_COLS);
+    }
 }
@@ -78,6 +78,20 @@ public class ReactiveTriggerTest {
                 "'}')");
     }
 
+    @Test(groups = SMALL)
+    public void testCreatesEmptyOldEntityJsonForUpdateWithoutOldImage() {
+        ReactiveTrigger reactiveTrigger = new ReactiveTrigger(TRIGGER_NAME, TRIGGER_TABLE, UPDATE, AFTER, TABLE_COLS,
+                false);
+        assertEquals(reactiveTrigger.oldJson(), "'{}'");
+    }
+
+    @Test(groups = SMALL)
+    public void testOldImageIsAlwaysWrittenForDelete() {
+        ReactiveTrigger reactiveTrigger = new ReactiveTrigger(TRIGGER_NAME, TRIGGER_TABLE, DELETE, AFTER, TABLE_COLS,
+                false);
+        assertNotEquals(reactiveTrigger.oldJson(), "'{}'");
+    }
+
     @Test(groups = SMALL)
     public void testCreatesEmptyOldEntityJsonForInsert() {
         ReactiveTrigger reactiveTrigger = new ReactiveTrigger(TRIGGER_NAME, TRIGGER_TABLE, INSERT, AFTER, TABLE_COLS);
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.psql;
+
+import static org.reactivesource.util.Assert.isTrue;
+
+/**
+ * Decides which row images the trigger of a {@link PsqlEventSource} sends through a side table instead of the
+ * notification itself.
+ * <p/>
+ * The payload of a notification is limited to 8000 bytes, so the rows of wide tables can't be sent with
+ * <code>pg_notify</code>, and large payloads fill the notification queue shared by the whole server. With a claim
+ * check, the trigger writes the old and new images of the row to the <code>reactivesource_claim</code> table and only
+ * notifies the id of the claim. The event source reads the claimed images of all the notifications of a poll with one
+ * query.
+ * <p/>
+ * Claims are not deleted when they are read, since other event sources may listen on the same stream. They are
+ * purged after {@link #RETENTION}, when the claims of a later poll are read.
+ */
+public final class ClaimCheck {
+
+    /**
+     * How long the claims are kept, as a Postgres interval.
+     */
+    public static final String RETENTION = "1 hour";
+
+    /**
+     * The largest payload a notification can carry.
+     */
+    public static final int MAX_PAYLOAD_BYTES = 8000;
+
+    private static final int NEVER_THRESHOLD = -1;
+
+    /**
+     * Every image is sent in the notification. The default.
+     */
+    public static final ClaimCheck NEVER = new ClaimCheck(NEVER_THRESHOLD);
+
+    /**
+     * Every image is written to the side table.
+     */
+    public static final ClaimCheck ALWAYS = new ClaimCheck(0);
+
+    private final int thresholdBytes;
+
+    private ClaimCheck(int thresholdBytes) {
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    /**
+     * @param thresholdBytes the size of the images over which they are written to the side table
+     * @return a claim check for the rows whose old and new images together are larger than the threshold
+     */
+    public static ClaimCheck above(int thresholdBytes) {
+        isTrue(thresholdBytes > 0 && thresholdBytes < MAX_PAYLOAD_BYTES,
+                "thresholdBytes should be between 0 and " + MAX_PAYLOAD_BYTES);
+        return new ClaimCheck(thresholdBytes);
+    }
+
+    public boolean isEnabled() {
+        return thresholdBytes != NEVER_THRESHOLD;
+    }
+
+    /**
+     * @return the size of the images over which they are written to the side table, or -1 if they never are
+     */
+    public int getThresholdBytes() {
+        return thresholdBytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ClaimCheck && thresholdBytes == ((ClaimCheck) o).thresholdBytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return thresholdBytes;
+    }
+
+    @Override
+    public String toString() {
+        return isEnabled() ? "ClaimCheck{thresholdBytes=" + thresholdBytes + "}" : "ClaimCheck{NEVER}";
+    }
+}
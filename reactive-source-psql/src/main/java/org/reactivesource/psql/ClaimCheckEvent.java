@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.psql;
+
+import org.reactivesource.Event;
+import org.reactivesource.EventType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The event of a notification whose images were written to the claim table. It only carries the id of the claim, and
+ * is replaced by an event with the claimed images before it reaches the listeners.
+ */
+class ClaimCheckEvent extends Event<Map<String, Object>> {
+
+    static final long NO_CLAIM = -1L;
+
+    private final long claimId;
+
+    ClaimCheckEvent(EventType eventType, String tableName, long claimId, long changeTimestamp) {
+        super(eventType, tableName, changeTimestamp);
+        this.claimId = claimId;
+    }
+
+    long getClaimId() {
+        return claimId;
+    }
+
+    /**
+     * @return the event with the claimed images
+     */
+    Event<Map<String, Object>> withEntities(Map<String, Object> newEntity, Map<String, Object> oldEntity) {
+        return new Event<>(eventType, entityName, newEntity, oldEntity, changeTimestamp);
+    }
+
+    /**
+     * @return one event per claimed row, for the claims of the rows of a whole statement. The entities of a row have
+     * the same index, and the missing entities of a row are empty.
+     */
+    List<Event<Map<String, Object>>> withEntities(List<Map<String, Object>> newEntities,
+                                                  List<Map<String, Object>> oldEntities) {
+        return PsqlEventMapper.createRowEvents(eventType, entityName, newEntities, oldEntities, changeTimestamp);
+    }
+}
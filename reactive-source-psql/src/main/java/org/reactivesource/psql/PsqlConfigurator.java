@@ -7,7 +7,9 @@
 package org.reactivesource.psql;
 
 import org.apache.commons.io.IOUtils;
+import org.reactivesource.CaptureSpec;
 import org.reactivesource.ConnectionProvider;
+import org.reactivesource.EventFilter;
 import org.reactivesource.exceptions.ConfigurationException;
 import org.reactivesource.exceptions.DataAccessException;
 import org.slf4j.Logger;
@@ -16,44 +18,100 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.sql.*;
+import java.util.Map;
 
 import static org.reactivesource.util.JdbcUtils.closeResultset;
 import static org.reactivesource.util.JdbcUtils.closeStatement;
 import static org.reactivesource.util.Assert.hasText;
+import static org.reactivesource.util.Assert.isTrue;
 import static org.reactivesource.util.Assert.notNull;
 
 class PsqlConfigurator {
 
     private static final String TABLE_NAME_ERROR = "tableName can not be null or empty";
-    private static final String CREATE_FUNCTION_ERROR = "Configuration failed. Couldn't create notify_with_json function.";
+    private static final String CREATE_FUNCTION_ERROR = "Configuration failed. Couldn't create the notify function.";
     private static final String STREAM_NAME_ERROR = "streamName can not be null or empty";
     private static final String NULL_CONNECTION_RPOVIDER_ERROR = "connectionProvider can not be null";
 
     static final String TRIGGER_NAME_SUFFIX = PsqlEventSource.STREAM_NAME_SUFFIX + "_trigger";
 
     static final String FUNCTION_NAME = "notify_with_json";
+    static final String CUSTOM_FUNCTION_NAME_SUFFIX = PsqlEventSource.STREAM_NAME_SUFFIX + "_notify";
 
     private final String functionDefinition;
     private final ConnectionProvider connectionProvider;
     private final String streamName;
     private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final EventFilter triggerFilter;
+    private final String functionName;
+    private final ClaimCheck claimCheck;
+    private final CaptureSpec captureSpec;
     private String tableName;
     private String triggerName;
 
     PsqlConfigurator(ConnectionProvider connectionProvider, String tableName, String streamName) {
+        this(connectionProvider, tableName, streamName, EventFilter.ALL);
+    }
+
+    /**
+     * Creates a configurator for a trigger that only notifies the stream about the events accepted by the filter.
+     * Every filter gets its own trigger, so event sources with different filters on the same table don't affect each
+     * other.
+     */
+    PsqlConfigurator(ConnectionProvider connectionProvider, String tableName, String streamName,
+                     EventFilter eventFilter) {
+        this(connectionProvider, tableName, streamName, eventFilter, CaptureSpec.ALL);
+    }
+
+    /**
+     * Creates a configurator for a trigger that only fires for the event types of the filter and the spec, and only
+     * sends the data described by the spec. Unless the spec captures everything, the trigger uses a function
+     * generated for the spec instead of <code>notify_with_json</code>.
+     */
+    PsqlConfigurator(ConnectionProvider connectionProvider, String tableName, String streamName,
+                     EventFilter eventFilter, CaptureSpec captureSpec) {
+        this(connectionProvider, tableName, streamName, eventFilter, captureSpec, ClaimCheck.NEVER);
+    }
+
+    /**
+     * Creates a configurator like {@link #PsqlConfigurator(ConnectionProvider, String, String, EventFilter,
+     * CaptureSpec)}, whose function writes the images of the rows to the claim table according to the claim check.
+     * The claim table is created on setup if it doesn't exist.
+     */
+    PsqlConfigurator(ConnectionProvider connectionProvider, String tableName, String streamName,
+                     EventFilter eventFilter, CaptureSpec captureSpec, ClaimCheck claimCheck) {
         notNull(connectionProvider, NULL_CONNECTION_RPOVIDER_ERROR);
         hasText(streamName, STREAM_NAME_ERROR);
         hasText(tableName, TABLE_NAME_ERROR);
+        notNull(eventFilter, "eventFilter can not be null");
+        notNull(captureSpec, "captureSpec can not be null");
+        notNull(claimCheck, "claimCheck can not be null");
+        isTrue(!claimCheck.isEnabled() || !captureSpec.capturesChangedColumnsOnly(),
+                "a claim check can not be used with a spec capturing the changed columns only");
         this.connectionProvider = connectionProvider;
         this.tableName = tableName;
         this.streamName = streamName;
-        this.triggerName = tableName + TRIGGER_NAME_SUFFIX;
-
-        functionDefinition = loadFunctionDefinition();
+        this.triggerFilter = PsqlQueryGenerator.generateTriggerFilter(eventFilter, captureSpec);
+        String nameSuffix = PsqlQueryGenerator.generateNameSuffix(eventFilter, captureSpec, claimCheck);
+        this.claimCheck = claimCheck;
+        this.captureSpec = captureSpec;
+        this.triggerName = tableName + TRIGGER_NAME_SUFFIX + nameSuffix;
+
+        if (captureSpec.capturesEverything() && !claimCheck.isEnabled()) {
+            functionName = FUNCTION_NAME;
+            functionDefinition = loadFunctionDefinition();
+        } else {
+            functionName = tableName + CUSTOM_FUNCTION_NAME_SUFFIX + nameSuffix;
+            functionDefinition = PsqlQueryGenerator.generateCreateNotifyFunctionQuery(functionName, triggerFilter,
+                    captureSpec, claimCheck);
+        }
     }
 
     public void setup() throws ConfigurationException {
         logger.info("Settign up EventSource for use with the reactive framework");
+        if (claimCheck.isEnabled() || captureSpec.capturesPerStatement()) {
+            createClaimTable();
+        }
         createNotifyFunction();
         setUpTrigger();
     }
@@ -63,7 +121,7 @@ class PsqlConfigurator {
     }
 
     void createNotifyFunction() {
-        logger.info("Creating '{}' if it doesn't exist", FUNCTION_NAME);
+        logger.info("Creating '{}' if it doesn't exist", functionName);
         Statement stmt = null;
         try (Connection connection = connectionProvider.getConnection()) {
             stmt = connection.createStatement();
@@ -75,14 +133,43 @@ class PsqlConfigurator {
         }
     }
 
+    void createClaimTable() {
+        logger.info("Creating '{}' if it doesn't exist", PsqlQueryGenerator.CLAIM_TABLE_NAME);
+        Statement stmt = null;
+        try (Connection connection = connectionProvider.getConnection()) {
+            stmt = connection.createStatement();
+            stmt.executeUpdate(PsqlQueryGenerator.CREATE_CLAIM_TABLE_QUERY);
+        } catch (SQLException e) {
+            throw new ConfigurationException("Configuration failed. Couldn't create the claim table.", e);
+        } finally {
+            closeStatement(stmt);
+        }
+    }
+
+    /**
+     * Creates the trigger of the table, or the statement-level triggers of its event types if the spec captures the
+     * changes per statement. Triggers that already exist are kept.
+     */
     void setUpTrigger() {
+        if (captureSpec.capturesPerStatement()) {
+            Map<String, String> queries = PsqlQueryGenerator.generateCreateStatementTriggerQueries(triggerName,
+                    tableName, functionName, streamName, triggerFilter, captureSpec);
+            for (Map.Entry<String, String> query : queries.entrySet()) {
+                setUpTrigger(query.getKey(), query.getValue());
+            }
+        } else {
+            setUpTrigger(triggerName, PsqlQueryGenerator.generateCreateTriggerQuery(triggerName, tableName,
+                    functionName, streamName, triggerFilter));
+        }
+    }
+
+    private void setUpTrigger(String triggerName, String createTriggerQuery) {
         logger.info("Setting up trigger '{}' for table '{}' and stream '{}'", triggerName, tableName, streamName);
-        if (!isTriggerCreated()) {
+        if (!isTriggerCreated(triggerName)) {
             Statement stmt = null;
             try (Connection connection = connectionProvider.getConnection()) {
                 stmt = connection.createStatement();
-                stmt.executeUpdate(PsqlQueryGenerator.generateCreateTriggerQuery(triggerName, tableName,
-                        FUNCTION_NAME, streamName));
+                stmt.executeUpdate(createTriggerQuery);
             } catch (SQLException e) {
                 throw new ConfigurationException("Couldn't setup trigger", e);
             } finally {
@@ -91,7 +178,7 @@ class PsqlConfigurator {
         }
     }
 
-    private boolean isTriggerCreated() {
+    private boolean isTriggerCreated(String triggerName) {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         try (Connection connection = connectionProvider.getConnection()) {
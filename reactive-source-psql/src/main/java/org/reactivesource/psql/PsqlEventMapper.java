@@ -6,56 +6,313 @@
 
 package org.reactivesource.psql;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.reactivesource.Event;
 import org.reactivesource.EventType;
+import org.reactivesource.Row;
+import org.reactivesource.RowDecoder;
+import org.reactivesource.RowSchema;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import static java.util.Collections.singletonList;
 import static org.reactivesource.psql.PsqlPayloadConstants.*;
 import static org.reactivesource.util.Assert.notNull;
-import static org.reactivesource.util.JsonParserUtils.jsonObjectToMap;
+import static org.reactivesource.util.JsonParserUtils.createParser;
+import static org.reactivesource.util.JsonParserUtils.readValue;
 
+/**
+ * Parses the notification payloads of one table. The entities are decoded to {@link org.reactivesource.Row}s sharing
+ * the schema of the table, so the payloads of other tables should be parsed by their own mapper.
+ */
 class PsqlEventMapper {
 
+    private final RowDecoder rowDecoder = new RowDecoder();
+
     PsqlEventMapper() {
         super();
     }
 
     /**
-     * Parses a notification payload into an {@link Event} object
+     * Parses a notification payload into an {@link Event} object. The payload is read in a single streaming pass,
+     * which decodes the event type, the table name, the time of the change and both entities without building an
+     * intermediate tree. The entities are decoded to {@link org.reactivesource.Row}s sharing the schema of the table.
+     * <p/>
+     * The UPDATE payloads of the triggers capturing the changed columns only carry the primary key of the row and the
+     * old and new values of the changed columns. Both entities of their events hold the primary key and the changed
+     * columns.
+     * <p/>
+     * The payloads whose images were written to the claim table are parsed into {@link ClaimCheckEvent}s, which carry
+     * the id of the claim instead of the entities.
      *
      * @param responsePayload
      * @return an {@link Event} object for which the entities are represented as a {@link java.util.Map}&lt;{@link String},{@link Object}&gt;
+     * @throws InvalidPayloadException if the payload is invalid, or carries the rows of a whole statement
      */
     Event<Map<String, Object>> parseResponse(String responsePayload) {
-        try {
-            JSONObject jsonResponse = new JSONObject(responsePayload);
-            EventType eventType = EventType.forValue(jsonResponse.getString(EVENT_TYPE_KEY));
-            String tableName = jsonResponse.getString(TABLE_NAME_KEY);
-            Map<String, Object> newRow = jsonObjectToMap(jsonResponse.getJSONObject(NEW_ENTITY_KEY));
-            Map<String, Object> oldRow = jsonObjectToMap(jsonResponse.getJSONObject(OLD_ENTITY_KEY));
-
-            Event<Map<String, Object>> event = new Event<>(eventType, tableName, newRow, oldRow);
-            validateEvent(event);
-            return event;
-        } catch (JSONException je) {
-            throw new InvalidPayloadException("Payload is not a valid json payload", je);
+        List<Event<Map<String, Object>>> events = parseEvents(responsePayload);
+        if (events.size() != 1) {
+            throw new InvalidPayloadException("Payload carries " + events.size() + " events");
+        }
+        return events.get(0);
+    }
+
+    /**
+     * Parses a notification payload into its events, like {@link #parseResponse(String)}. The payloads of the
+     * triggers capturing the changes per statement carry the rows of a whole statement, as arrays of new and old
+     * entities, and are parsed into one event per row.
+     *
+     * @param responsePayload
+     * @return the events of the payload
+     */
+    List<Event<Map<String, Object>>> parseEvents(String responsePayload) {
+        try (JsonParser parser = createParser(responsePayload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidPayloadException("Payload is not a json object");
+            }
+            String eventType = null;
+            String tableName = null;
+            Map<String, Object> newRow = null;
+            Map<String, Object> oldRow = null;
+            long changeTime = Event.UNKNOWN_CHANGE_TIMESTAMP;
+            long claimId = ClaimCheckEvent.NO_CLAIM;
+            Map<String, Object> key = null;
+            Map<String, Object[]> changes = null;
+            List<Map<String, Object>> newRows = null;
+            List<Map<String, Object>> oldRows = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (fieldName) {
+                    case EVENT_TYPE_KEY:
+                        eventType = readString(parser, token, fieldName);
+                        break;
+                    case TABLE_NAME_KEY:
+                        tableName = readString(parser, token, fieldName);
+                        break;
+                    case CHANGE_TIME_KEY:
+                        changeTime = readLong(parser, token, fieldName);
+                        break;
+                    case NEW_ENTITY_KEY:
+                        newRow = readRow(parser, token, fieldName);
+                        break;
+                    case OLD_ENTITY_KEY:
+                        oldRow = readRow(parser, token, fieldName);
+                        break;
+                    case CLAIM_ID_KEY:
+                        claimId = readLong(parser, token, fieldName);
+                        break;
+                    case KEY_KEY:
+                        key = readFields(parser, token, fieldName);
+                        break;
+                    case CHANGES_KEY:
+                        changes = readChanges(parser, token, fieldName);
+                        break;
+                    case NEW_ENTITIES_KEY:
+                        newRows = readRows(parser, token, fieldName);
+                        break;
+                    case OLD_ENTITIES_KEY:
+                        oldRows = readRows(parser, token, fieldName);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (claimId != ClaimCheckEvent.NO_CLAIM) {
+                return singletonList(createClaimCheckEvent(eventType, tableName, claimId, changeTime));
+            }
+            if (changes != null) {
+                return singletonList(createChangesEvent(eventType, tableName, key, changes, changeTime));
+            }
+            if (newRows != null || oldRows != null) {
+                return createStatementEvents(eventType, tableName, newRows, oldRows, changeTime);
+            }
+            return singletonList(createEvent(eventType, tableName, newRow, oldRow, changeTime));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidPayloadException("Payload is not a valid json payload", e);
         } catch (InvalidPayloadException ipe) {
             throw new InvalidPayloadException("Payload is not valid.", ipe);
         }
     }
 
-    private void validateEvent(Event<Map<String, Object>> event) {
+    /**
+     * Parses the entities read from the claim table: the entity of a row, or the array of the entities of the rows of
+     * a statement.
+     */
+    List<Map<String, Object>> parseRows(String rowsJson) {
+        try (JsonParser parser = createParser(rowsJson)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                return readRows(parser, token, "claimed entities");
+            }
+            return singletonList(readRow(parser, token, "claimed entity"));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidPayloadException("Claimed entities are not valid json", e);
+        }
+    }
+
+    private String readString(JsonParser parser, JsonToken token, String fieldName) throws IOException {
+        if (token != JsonToken.VALUE_STRING) {
+            throw new InvalidPayloadException(fieldName + " should be a string");
+        }
+        return parser.getText();
+    }
+
+    private long readLong(JsonParser parser, JsonToken token, String fieldName) throws IOException {
+        if (token != JsonToken.VALUE_NUMBER_INT) {
+            throw new InvalidPayloadException(fieldName + " should be an integer");
+        }
+        return parser.getLongValue();
+    }
+
+    private Map<String, Object> readRow(JsonParser parser, JsonToken token, String fieldName) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new InvalidPayloadException(fieldName + " should be a json object");
+        }
+        return rowDecoder.decode(parser);
+    }
+
+    private List<Map<String, Object>> readRows(JsonParser parser, JsonToken token, String fieldName)
+            throws IOException {
+        if (token != JsonToken.START_ARRAY) {
+            throw new InvalidPayloadException(fieldName + " should be a json array");
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            rows.add(readRow(parser, token, fieldName));
+        }
+        return rows;
+    }
+
+    private Map<String, Object> readFields(JsonParser parser, JsonToken token, String fieldName) throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new InvalidPayloadException(fieldName + " should be a json object");
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String column = parser.getCurrentName();
+            parser.nextToken();
+            fields.put(column, readValue(parser));
+        }
+        return fields;
+    }
+
+    /**
+     * Reads the changed columns, sent as <code>{"column":[oldValue,newValue],..}</code>.
+     *
+     * @return the old and new value of every changed column
+     */
+    private Map<String, Object[]> readChanges(JsonParser parser, JsonToken token, String fieldName)
+            throws IOException {
+        if (token != JsonToken.START_OBJECT) {
+            throw new InvalidPayloadException(fieldName + " should be a json object");
+        }
+        Map<String, Object[]> changes = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String column = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidPayloadException("the change of " + column + " should be an array");
+            }
+            parser.nextToken();
+            Object oldValue = readValue(parser);
+            parser.nextToken();
+            Object newValue = readValue(parser);
+            if (parser.nextToken() != JsonToken.END_ARRAY) {
+                throw new InvalidPayloadException("the change of " + column + " should have an old and a new value");
+            }
+            changes.put(column, new Object[]{oldValue, newValue});
+        }
+        return changes;
+    }
+
+    private Event<Map<String, Object>> createEvent(String eventType, String tableName, Map<String, Object> newRow,
+                                                   Map<String, Object> oldRow, long changeTime) {
+        try {
+            notNull(eventType, "EventType was null");
+            notNull(tableName, "Entity name was null.");
+            notNull(newRow, "New entity was null.");
+            notNull(oldRow, "Old entity was null.");
+        } catch (IllegalArgumentException iae) {
+            throw new InvalidPayloadException(iae.getMessage());
+        }
+        return new Event<>(EventType.forValue(eventType), tableName, newRow, oldRow, changeTime);
+    }
+
+    private Event<Map<String, Object>> createChangesEvent(String eventType, String tableName, Map<String, Object> key,
+                                                          Map<String, Object[]> changes, long changeTime) {
+        try {
+            notNull(eventType, "EventType was null");
+            notNull(tableName, "Entity name was null.");
+        } catch (IllegalArgumentException iae) {
+            throw new InvalidPayloadException(iae.getMessage());
+        }
+        List<String> columns = new ArrayList<>(changes.size() + (key == null ? 0 : key.size()));
+        List<Object> newValues = new ArrayList<>();
+        List<Object> oldValues = new ArrayList<>();
+        if (key != null) {
+            for (Map.Entry<String, Object> keyColumn : key.entrySet()) {
+                if (!changes.containsKey(keyColumn.getKey())) {
+                    columns.add(keyColumn.getKey());
+                    newValues.add(keyColumn.getValue());
+                    oldValues.add(keyColumn.getValue());
+                }
+            }
+        }
+        for (Map.Entry<String, Object[]> change : changes.entrySet()) {
+            columns.add(change.getKey());
+            oldValues.add(change.getValue()[0]);
+            newValues.add(change.getValue()[1]);
+        }
+        RowSchema schema = new RowSchema(columns);
+        return new Event<Map<String, Object>>(EventType.forValue(eventType), tableName,
+                new Row(schema, newValues.toArray()), new Row(schema, oldValues.toArray()), changeTime);
+    }
+
+    private List<Event<Map<String, Object>>> createStatementEvents(String eventType, String tableName,
+                                                                   List<Map<String, Object>> newRows,
+                                                                   List<Map<String, Object>> oldRows,
+                                                                   long changeTime) {
+        try {
+            notNull(eventType, "EventType was null");
+            notNull(tableName, "Entity name was null.");
+        } catch (IllegalArgumentException iae) {
+            throw new InvalidPayloadException(iae.getMessage());
+        }
+        return createRowEvents(EventType.forValue(eventType), tableName,
+                newRows == null ? Collections.<Map<String, Object>>emptyList() : newRows,
+                oldRows == null ? Collections.<Map<String, Object>>emptyList() : oldRows, changeTime);
+    }
+
+    /**
+     * Creates the events of the rows of a statement, whose entities are paired by their index. The missing entities
+     * of a row, ie the old entities of INSERT events, are empty.
+     */
+    static List<Event<Map<String, Object>>> createRowEvents(EventType eventType, String tableName,
+                                                            List<Map<String, Object>> newRows,
+                                                            List<Map<String, Object>> oldRows, long changeTime) {
+        int size = Math.max(newRows.size(), oldRows.size());
+        List<Event<Map<String, Object>>> events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            events.add(new Event<>(eventType, tableName, i < newRows.size() ? newRows.get(i) : Row.EMPTY,
+                    i < oldRows.size() ? oldRows.get(i) : Row.EMPTY, changeTime));
+        }
+        return events;
+    }
+
+    private Event<Map<String, Object>> createClaimCheckEvent(String eventType, String tableName, long claimId,
+                                                             long changeTime) {
         try {
-            notNull(event, "Event was null");
-            notNull(event.getEventType(), "EventType was null");
-            notNull(event.getEntityName(), "Entity name was null.");
-            notNull(event.getNewEntity(), "New entity was null");
-            notNull(event.getOldEntity(), "Old entity was null");
+            notNull(eventType, "EventType was null");
+            notNull(tableName, "Entity name was null.");
         } catch (IllegalArgumentException iae) {
             throw new InvalidPayloadException(iae.getMessage());
         }
+        return new ClaimCheckEvent(EventType.forValue(eventType), tableName, claimId, changeTime);
     }
 }
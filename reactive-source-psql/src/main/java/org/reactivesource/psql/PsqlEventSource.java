@@ -8,22 +8,30 @@ package org.reactivesource.psql;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.postgresql.PGConnection;
 import org.postgresql.PGNotification;
+import org.reactivesource.CaptureSpec;
 import org.reactivesource.ConnectionProvider;
 import org.reactivesource.Event;
+import org.reactivesource.EventFilter;
 import org.reactivesource.EventSource;
 import org.reactivesource.util.JdbcUtils;
 import org.reactivesource.exceptions.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static java.lang.String.format;
+import static org.reactivesource.util.Assert.isTrue;
 import static org.reactivesource.util.Assert.notNull;
 import static org.reactivesource.util.Assert.state;
 
@@ -39,15 +47,27 @@ public class PsqlEventSource implements EventSource {
     private static final String ERROR_MSG_DISCONNECT = "Failure while trying to disconnect from DB";
 
     static final String REGISTER_STREAM_QUERY = "LISTEN ";
+    static final String UNREGISTER_STREAM_QUERY = "UNLISTEN ";
     static final String DUMMY_QUERY = "SELECT 1";
     static final String STREAM_NAME_SUFFIX = "_reactivesource";
 
+    /**
+     * The notification timeout of the sources that query for the notifications, without waiting for them.
+     */
+    public static final long NO_WAIT = 0L;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
     private ConnectionProvider connectionProvider;
     private Connection connection = null;
     private String streamName;
     private PsqlEventMapper mapper;
     private PsqlConfigurator configurator;
     private boolean autoConfig;
+    private EventFilter eventFilter;
+    private boolean filterInMemory;
+    private final long notificationTimeoutMillis;
+    private boolean idle = true;
 
     /**
      * <p>
@@ -123,23 +143,61 @@ public class PsqlEventSource implements EventSource {
 
     @VisibleForTesting PsqlEventSource(ConnectionProvider connectionProvider, String tableName, PsqlEventMapper mapper,
                                        boolean autoConfig) {
-        this(connectionProvider, tableName, mapper, autoConfig, new PsqlConfigurator(connectionProvider, tableName,
-                tableName + STREAM_NAME_SUFFIX));
+        this(builder(connectionProvider, tableName).withMapper(mapper).withAutoConfig(autoConfig));
+    }
+
+    private PsqlEventSource(Builder builder) {
+        this(builder.connectionProvider, builder.tableName, builder.mapper, builder.autoConfig, builder.eventFilter,
+                builder.captureSpec, builder.claimCheck,
+                new PsqlConfigurator(builder.connectionProvider, builder.tableName,
+                        streamName(builder.tableName, builder.eventFilter, builder.captureSpec, builder.claimCheck),
+                        builder.eventFilter, builder.captureSpec, builder.claimCheck),
+                builder.notificationTimeoutMillis);
     }
 
     @VisibleForTesting
     public PsqlEventSource(ConnectionProvider connectionProvider, String tableName, PsqlEventMapper mapper,
                            boolean autoConfig, PsqlConfigurator configurator) {
+        this(connectionProvider, tableName, mapper, autoConfig, EventFilter.ALL, CaptureSpec.ALL, ClaimCheck.NEVER,
+                configurator, NO_WAIT);
+    }
+
+    private PsqlEventSource(ConnectionProvider connectionProvider, String tableName, PsqlEventMapper mapper,
+                            boolean autoConfig, EventFilter eventFilter, CaptureSpec captureSpec,
+                            ClaimCheck claimCheck, PsqlConfigurator configurator, long notificationTimeoutMillis) {
         notNull(connectionProvider, "connectionProvider can not be null");
         notNull(tableName, "tableName can not be null");
         notNull(mapper, "mapper can not be null");
         notNull(configurator, "configurator can not be null");
+        isTrue(notificationTimeoutMillis >= 0 && notificationTimeoutMillis <= Integer.MAX_VALUE,
+                "notificationTimeoutMillis should be between 0 and " + Integer.MAX_VALUE);
         verifyConfiguration(connectionProvider, tableName);
         this.autoConfig = autoConfig;
         this.connectionProvider = connectionProvider;
         this.mapper = mapper;
-        this.streamName = tableName + STREAM_NAME_SUFFIX;
+        this.streamName = streamName(tableName, eventFilter, captureSpec, claimCheck);
         this.configurator = configurator;
+        this.eventFilter = eventFilter;
+        this.filterInMemory = !captureSpec.capturesPerStatement() && !PsqlQueryGenerator.canPushDownConditions(
+                PsqlQueryGenerator.generateTriggerFilter(eventFilter, captureSpec));
+        this.notificationTimeoutMillis = notificationTimeoutMillis;
+    }
+
+    /**
+     * <p>
+     * Returns a builder of a reactive datasource on the given connection and tableName, for the sources that need
+     * more settings than the constructors take: a filter, a capture spec, a claim check or a notification timeout.
+     * </p>
+     * <p>
+     * auto-config is ON by default. The reactive source will try to configure the db. Requires TRIGGER and CREATE
+     * privileges.
+     * </p>
+     *
+     * @param connectionProvider
+     * @param tableName
+     */
+    public static Builder builder(ConnectionProvider connectionProvider, String tableName) {
+        return new Builder(connectionProvider, tableName);
     }
 
     @Override public List<Event<Map<String, Object>>> getNewEvents() throws DataAccessException {
@@ -172,10 +230,14 @@ public class PsqlEventSource implements EventSource {
         }
     }
 
+    /**
+     * Checks that the connection is open. The connection is only checked to be alive with a query if the source
+     * doesn't wait for the notifications, or if the last wait expired without notifications.
+     */
     @Override public boolean isConnected() {
         try {
             return isConnectionOpen(connection) &&
-                    isConnectionAlive(connection);
+                    (!needsLivenessCheck() || isConnectionAlive(connection));
         } catch (SQLException sqle) {
             throw new DataAccessException(ERROR_MSG_CHECK_CONNECTION, sqle);
         }
@@ -235,13 +297,20 @@ public class PsqlEventSource implements EventSource {
     }
 
     /**
-     * Gets the latest events
+     * Gets the latest events. If the source waits for the notifications, blocks until a notification arrives or the
+     * timeout expires. Otherwise issues a dummy query, which makes the driver read the pending notifications.
      *
      * @return an array of PGNotification, one for each notification occurred since the last time one checked.
      * @throws java.sql.SQLException
      */
     private PGNotification[] getLatestEvents() throws SQLException {
         PGConnection pgConnection = (PGConnection) connection;
+        if (isWaitingForNotifications()) {
+            idle = true;
+            PGNotification[] notifications = pgConnection.getNotifications((int) notificationTimeoutMillis);
+            idle = notifications == null || notifications.length == 0;
+            return notifications;
+        }
 
         // issue dummy query to database in order to get notifications.
         Statement stmt = connection.createStatement();
@@ -256,23 +325,100 @@ public class PsqlEventSource implements EventSource {
 
     /**
      * For every notification create a meaningful {@link Event} and return a list of events. Uses the mapper to parse
-     * the JSON payload of the PGNotification
+     * the JSON payload of the PGNotification, and reads the images of the notifications that only carry a claim with
+     * one query. The notifications of the statement-level triggers are expanded into one event per row. Evaluates the
+     * filter of the source if the trigger could not evaluate it.
      *
      * @param notifications
-     * @return a list of {@link Event}s, one for each notification
+     * @return a list of {@link Event}s, one for each accepted notification
      */
 
-    private List<Event<Map<String, Object>>> parseNotificationsArray(PGNotification[] notifications) {
-        List<Event<Map<String, Object>>> result = Lists.newArrayList();
+    private List<Event<Map<String, Object>>> parseNotificationsArray(PGNotification[] notifications)
+            throws SQLException {
+        List<Event<Map<String, Object>>> events = Lists.newArrayList();
+        List<Long> claimIds = Lists.newArrayList();
         if (notifications != null) {
             for (PGNotification notification : notifications) {
-                result.add(mapper.parseResponse(notification.getParameter()));
+                for (Event<Map<String, Object>> event : mapper.parseEvents(notification.getParameter())) {
+                    if (event instanceof ClaimCheckEvent) {
+                        claimIds.add(((ClaimCheckEvent) event).getClaimId());
+                    }
+                    events.add(event);
+                }
+            }
+        }
+        Map<Long, String[]> claims = claimIds.isEmpty() ? null : readClaims(claimIds);
+        List<Event<Map<String, Object>>> result = Lists.newArrayListWithCapacity(events.size());
+        for (Event<Map<String, Object>> event : events) {
+            if (event instanceof ClaimCheckEvent) {
+                addAccepted(resolveClaim((ClaimCheckEvent) event, claims), result);
+            } else {
+                addAccepted(Collections.singletonList(event), result);
             }
         }
         return result;
     }
 
-    private void verifyConfiguration(ConnectionProvider connectionProvider, String tableName) {
+    private void addAccepted(List<Event<Map<String, Object>>> events, List<Event<Map<String, Object>>> result) {
+        for (Event<Map<String, Object>> event : events) {
+            if (!filterInMemory || eventFilter.matches(event)) {
+                result.add(event);
+            }
+        }
+    }
+
+    /**
+     * @return the new and old images of the claims, by claim id
+     */
+    private Map<Long, String[]> readClaims(List<Long> claimIds) throws SQLException {
+        Map<Long, String[]> claims = Maps.newHashMap();
+        try (PreparedStatement stmt = connection.prepareStatement(PsqlQueryGenerator.READ_CLAIMS_QUERY)) {
+            stmt.setArray(1, connection.createArrayOf("bigint", claimIds.toArray()));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                claims.put(rs.getLong(1), new String[]{rs.getString(2), rs.getString(3)});
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * @return the events of the claimed rows, which are all the rows of a statement for the claims of the
+     * statement-level triggers, or no events if the claim was purged
+     */
+    private List<Event<Map<String, Object>>> resolveClaim(ClaimCheckEvent event, Map<Long, String[]> claims) {
+        String[] images = claims.get(event.getClaimId());
+        if (images == null) {
+            logger.warn("Dropping {} event of table [{}]: claim {} was purged before it was read",
+                    event.getEventType(), event.getEntityName(), event.getClaimId());
+            return Collections.emptyList();
+        }
+        return event.withEntities(mapper.parseRows(images[0]), mapper.parseRows(images[1]));
+    }
+
+    private boolean isWaitingForNotifications() {
+        return notificationTimeoutMillis != NO_WAIT;
+    }
+
+    private boolean needsLivenessCheck() {
+        return !isWaitingForNotifications() || idle;
+    }
+
+    static String streamName(String tableName, EventFilter eventFilter, CaptureSpec captureSpec) {
+        return streamName(tableName, eventFilter, captureSpec, ClaimCheck.NEVER);
+    }
+
+    private static String streamName(String tableName, EventFilter eventFilter, CaptureSpec captureSpec,
+                                     ClaimCheck claimCheck) {
+        notNull(eventFilter, "eventFilter can not be null");
+        notNull(captureSpec, "captureSpec can not be null");
+        notNull(claimCheck, "claimCheck can not be null");
+        captureSpec.verifyCanEvaluate(eventFilter);
+        return tableName + STREAM_NAME_SUFFIX +
+                PsqlQueryGenerator.generateNameSuffix(eventFilter, captureSpec, claimCheck);
+    }
+
+    static void verifyConfiguration(ConnectionProvider connectionProvider, String tableName) {
         Connection connection = connectionProvider.getConnection();
         try {
             verifyTableExists(connection, tableName);
@@ -281,7 +427,7 @@ public class PsqlEventSource implements EventSource {
         }
     }
 
-    private void verifyTableExists(Connection connection, String tableName) {
+    private static void verifyTableExists(Connection connection, String tableName) {
         try {
             connection.createStatement().executeQuery("SELECT * FROM " + tableName + " LIMIT 1");
         } catch (SQLException sqle) {
@@ -290,4 +436,122 @@ public class PsqlEventSource implements EventSource {
         }
     }
 
+    /**
+     * Builder of a {@link PsqlEventSource} with optional settings. The settings that are not given keep the defaults of
+     * the constructors: auto-config ON, all the events, all the data, no claim check and no wait for notifications.
+     */
+    public static final class Builder {
+
+        private final ConnectionProvider connectionProvider;
+        private final String tableName;
+        private PsqlEventMapper mapper = new PsqlEventMapper();
+        private boolean autoConfig = true;
+        private EventFilter eventFilter = EventFilter.ALL;
+        private CaptureSpec captureSpec = CaptureSpec.ALL;
+        private ClaimCheck claimCheck = ClaimCheck.NEVER;
+        private long notificationTimeoutMillis = NO_WAIT;
+
+        private Builder(ConnectionProvider connectionProvider, String tableName) {
+            this.connectionProvider = connectionProvider;
+            this.tableName = tableName;
+        }
+
+        /**
+         * @param autoConfig When true auto-config is ON. When false auto-config is OFF
+         */
+        public Builder withAutoConfig(boolean autoConfig) {
+            this.autoConfig = autoConfig;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Only returns the events accepted by the given filter.
+         * </p>
+         * <p>
+         * The filter is pushed down into a trigger dedicated to it: the trigger only fires for the event types of the
+         * filter, and its <code>WHEN</code> clause evaluates the conditions of the filter, so that events that don't
+         * match are never sent. Conditions can't be pushed down if the filter accepts DELETE together with INSERT or
+         * UPDATE events. They are then evaluated in memory, when the notifications are received.
+         * </p>
+         * <p>
+         * The trigger is only created when auto-config is ON.
+         * </p>
+         *
+         * @param eventFilter the filter of the events. Can only refer to captured columns.
+         */
+        public Builder withEventFilter(EventFilter eventFilter) {
+            notNull(eventFilter, "eventFilter can not be null");
+            this.eventFilter = eventFilter;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Only receives the data described by the given spec.
+         * </p>
+         * <p>
+         * Unless the spec captures everything, the trigger uses a function generated for the spec, which only sends the
+         * captured columns, and an empty old entity for UPDATE events if the spec does not include the old image. The
+         * trigger only fires for the event types accepted by both the filter and the spec.
+         * </p>
+         */
+        public Builder withCaptureSpec(CaptureSpec captureSpec) {
+            notNull(captureSpec, "captureSpec can not be null");
+            this.captureSpec = captureSpec;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Makes the trigger write the images of the rows to the claim table according to the given claim check, and
+         * only notify the id of the claim. The claimed images of all the notifications received by a call of
+         * {@link PsqlEventSource#getNewEvents()} are read with one query.
+         * </p>
+         * <p>
+         * The claim table and the trigger are only created when auto-config is ON.
+         * </p>
+         *
+         * @param claimCheck decides which images are written to the claim table
+         */
+        public Builder withClaimCheck(ClaimCheck claimCheck) {
+            notNull(claimCheck, "claimCheck can not be null");
+            this.claimCheck = claimCheck;
+            return this;
+        }
+
+        /**
+         * <p>
+         * Waits for the notifications instead of querying for them.
+         * </p>
+         * <p>
+         * Every call of {@link PsqlEventSource#getNewEvents()} blocks on the connection until a notification arrives
+         * or <code>notificationTimeoutMillis</code> expire, so notifications are received a few milliseconds after
+         * they are sent, and an idle source doesn't query the database. {@link PsqlEventSource#isConnected()} only
+         * checks that the connection is alive after a wait expired without notifications. The source should be polled
+         * without delay, ie by a {@link org.reactivesource.ReactiveSource} with a
+         * {@link org.reactivesource.FixedIntervalPollingStrategy} of 0 ms, and not by a
+         * {@link org.reactivesource.ReactiveSourceGroup}, whose threads it would block.
+         * </p>
+         *
+         * @param notificationTimeoutMillis how long to wait for a notification, or {@link PsqlEventSource#NO_WAIT} to
+         *                                  query for the notifications without waiting
+         */
+        public Builder withNotificationTimeout(long notificationTimeoutMillis) {
+            isTrue(notificationTimeoutMillis >= 0 && notificationTimeoutMillis <= Integer.MAX_VALUE,
+                    "notificationTimeoutMillis should be between 0 and " + Integer.MAX_VALUE);
+            this.notificationTimeoutMillis = notificationTimeoutMillis;
+            return this;
+        }
+
+        @VisibleForTesting Builder withMapper(PsqlEventMapper mapper) {
+            this.mapper = mapper;
+            return this;
+        }
+
+        public PsqlEventSource build() {
+            return new PsqlEventSource(this);
+        }
+    }
+
 }
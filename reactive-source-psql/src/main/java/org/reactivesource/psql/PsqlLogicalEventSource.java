@@ -0,0 +1,387 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.psql;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.postgresql.PGConnection;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.fluent.logical.ChainedLogicalStreamBuilder;
+import org.reactivesource.ConnectionProvider;
+import org.reactivesource.Event;
+import org.reactivesource.EventFilter;
+import org.reactivesource.EventSource;
+import org.reactivesource.exceptions.ConfigurationException;
+import org.reactivesource.exceptions.DataAccessException;
+import org.reactivesource.util.JdbcUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static org.reactivesource.util.Assert.hasText;
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+import static org.reactivesource.util.Assert.state;
+
+/**
+ * Implementation of EventSource for a PostgreSQL database, which reads the changes of a table from a logical
+ * replication slot instead of a trigger.
+ * <p/>
+ * The changes are decoded by the server from its write-ahead log, with the <code>test_decoding</code> output plugin,
+ * and streamed over a replication connection. Nothing is installed on the table, so its writes don't pay for a
+ * trigger, and the slot keeps the changes that were not acknowledged while the source was disconnected. The server has
+ * to run with <code>wal_level=logical</code>, and the user needs the REPLICATION privilege.
+ * <p/>
+ * The changes of a transaction are returned together, once its commit is read, and their change time is the time of
+ * the commit. The position of the last commit returned by a call of {@link #getNewEvents()} is acknowledged to the
+ * server by the next call, or by {@link #disconnect()}, once the reactive source has passed the events to its
+ * listeners. After a crash, the source resumes from the last acknowledged position, so the events of the last poll may
+ * be returned again.
+ * <p/>
+ * A slot decodes the changes of the whole database, so every source should have its own slot, and the changes of the
+ * other tables are skipped by the source. The slot is not dropped by {@link #cleanup()}, since it holds the position to
+ * resume from. It retains the write-ahead log until it is read, so it should be dropped with {@link #dropSlot()} when
+ * the table is no longer monitored.
+ */
+public class PsqlLogicalEventSource implements EventSource {
+
+    private static final String ERROR_MSG_ILLEGALSTATE = "Called getNewEvents before calling connect";
+    private static final String ERROR_MSG_READ_SLOT = "Could not read the changes from slot: ";
+    private static final String ERROR_MSG_START_STREAM = "Could not start streaming the changes from slot: ";
+    private static final String ERROR_MSG_DISCONNECT = "Failure while trying to disconnect from DB";
+    private static final String ERROR_MSG_CHECK_CONNECTION = "Failed to check if connection to DB is alive";
+
+    static final String OUTPUT_PLUGIN = "test_decoding";
+    static final String SLOT_NAME_SUFFIX = PsqlEventSource.STREAM_NAME_SUFFIX;
+    static final String FIND_SLOT_QUERY = "SELECT plugin FROM pg_replication_slots WHERE slot_name = ?";
+    static final String CREATE_SLOT_QUERY = "SELECT pg_create_logical_replication_slot(?, '" + OUTPUT_PLUGIN + "')";
+    static final String DROP_SLOT_QUERY = "SELECT pg_drop_replication_slot(?)";
+    static final String REPLICATION_PROPERTIES = "replication=database&assumeMinServerVersion=9.4"
+            + "&preferQueryMode=simple";
+    static final int MAX_SLOT_NAME_LENGTH = 63;
+    static final int STATUS_INTERVAL_SECONDS = 10;
+
+    /**
+     * The number of events after which a poll stops reading the slot, at the end of the current transaction.
+     */
+    static final int MAX_EVENTS_PER_POLL = 10000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ConnectionProvider connectionProvider;
+    private final ConnectionProvider replicationConnectionProvider;
+    private final String slotName;
+    private final boolean autoConfig;
+    private final EventFilter eventFilter;
+    private final TestDecodingParser parser;
+    private final List<Event<Map<String, Object>>> transaction = new ArrayList<>();
+
+    private Connection connection = null;
+    private PGReplicationStream stream = null;
+    private LogSequenceNumber returnedLsn = null;
+
+    /**
+     * <p>
+     * Creates a reactive source for the given datasource and table, which reads the slot named after the table.
+     * </p>
+     * <p>
+     * AutoConfigure by default is ON. The reactive source creates the slot if it doesn't exist.
+     * </p>
+     *
+     * @param dbUrl     The URL of postgres database to connect to
+     * @param username  The username for the connection. Needs the REPLICATION privilege.
+     * @param password  The password for the connection
+     * @param tableName The table whose changes are read
+     */
+    public PsqlLogicalEventSource(String dbUrl, String username, String password, String tableName) {
+        this(dbUrl, username, password, tableName, slotName(tableName), true, EventFilter.ALL);
+    }
+
+    /**
+     * <p>
+     * Creates a reactive source for the given datasource and table, which reads the given slot and only returns the
+     * events accepted by the given filter. The filter is evaluated in memory.
+     * </p>
+     *
+     * @param dbUrl       The URL of postgres database to connect to
+     * @param username    The username for the connection. Needs the REPLICATION privilege.
+     * @param password    The password for the connection
+     * @param tableName   The table whose changes are read, optionally qualified with its schema
+     * @param slotName    The name of the logical replication slot
+     * @param autoConfig  When true, the slot is created if it doesn't exist
+     * @param eventFilter the filter of the events
+     */
+    public PsqlLogicalEventSource(String dbUrl, String username, String password, String tableName, String slotName,
+                                  boolean autoConfig, EventFilter eventFilter) {
+        this(new PsqlConnectionProvider(dbUrl, username, password),
+                new PsqlConnectionProvider(replicationUrl(dbUrl), username, password), tableName, slotName,
+                autoConfig, eventFilter);
+    }
+
+    /**
+     * <p>
+     * Creates a reactive source like {@link #PsqlLogicalEventSource(String, String, String, String, String, boolean,
+     * EventFilter)}, on the given connections.
+     * </p>
+     *
+     * @param connectionProvider            provides the connections that check the table and manage the slot
+     * @param replicationConnectionProvider provides the replication connections that stream the changes, ie opened
+     *                                      with the <code>replication=database</code> property
+     * @param tableName
+     * @param slotName
+     * @param autoConfig
+     * @param eventFilter
+     */
+    public PsqlLogicalEventSource(ConnectionProvider connectionProvider,
+                                  ConnectionProvider replicationConnectionProvider, String tableName, String slotName,
+                                  boolean autoConfig, EventFilter eventFilter) {
+        notNull(connectionProvider, "connectionProvider can not be null");
+        notNull(replicationConnectionProvider, "replicationConnectionProvider can not be null");
+        hasText(tableName, "tableName can not be null or empty");
+        notNull(slotName, "slotName can not be null");
+        isTrue(slotName.matches("[a-z0-9_]{1," + MAX_SLOT_NAME_LENGTH + "}"),
+                "slotName can only contain lower case letters, numbers and underscores, up to "
+                        + MAX_SLOT_NAME_LENGTH + " characters");
+        notNull(eventFilter, "eventFilter can not be null");
+        PsqlEventSource.verifyConfiguration(connectionProvider, tableName);
+        this.connectionProvider = connectionProvider;
+        this.replicationConnectionProvider = replicationConnectionProvider;
+        this.slotName = slotName;
+        this.autoConfig = autoConfig;
+        this.eventFilter = eventFilter;
+        this.parser = new TestDecodingParser(tableName);
+    }
+
+    /**
+     * Returns the events of the transactions committed since the last call, and acknowledges the events returned by
+     * the last call. If reading the slot fails, the position of the events read by this call is not recorded, so they
+     * are streamed again on reconnect.
+     */
+    @Override public List<Event<Map<String, Object>>> getNewEvents() throws DataAccessException {
+        state(stream != null, ERROR_MSG_ILLEGALSTATE);
+        try {
+            acknowledgeReturnedEvents();
+            List<Event<Map<String, Object>>> events = new ArrayList<>();
+            LogSequenceNumber commitLsn = null;
+            ByteBuffer message;
+            while (events.size() < MAX_EVENTS_PER_POLL && (message = stream.readPending()) != null) {
+                if (readMessage(decode(message), events)) {
+                    commitLsn = stream.getLastReceiveLSN();
+                }
+            }
+            if (commitLsn != null) {
+                returnedLsn = commitLsn;
+            }
+            return events;
+        } catch (SQLException sqle) {
+            throw new DataAccessException(ERROR_MSG_READ_SLOT + slotName, sqle);
+        } catch (InvalidPayloadException ipe) {
+            throw new DataAccessException("Could not parse the changes of slot: " + slotName, ipe);
+        }
+    }
+
+    /**
+     * Opens a replication connection and starts streaming the slot, after the last returned events if the source was
+     * connected before, or from the last acknowledged position of the slot otherwise.
+     */
+    @Override public void connect() throws DataAccessException {
+        if (isConnected()) {
+            return;
+        }
+        closeConnection();
+        transaction.clear();
+        connection = replicationConnectionProvider.getConnection();
+        try {
+            ChainedLogicalStreamBuilder builder = ((PGConnection) connection).getReplicationAPI()
+                    .replicationStream()
+                    .logical()
+                    .withSlotName(slotName)
+                    .withSlotOption("include-xids", false)
+                    .withSlotOption("include-timestamp", true)
+                    .withSlotOption("skip-empty-xacts", true)
+                    .withStatusInterval(STATUS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            if (returnedLsn != null) {
+                builder = builder.withStartPosition(returnedLsn);
+            }
+            stream = builder.start();
+        } catch (SQLException sqle) {
+            closeConnection();
+            throw new DataAccessException(ERROR_MSG_START_STREAM + slotName, sqle);
+        }
+    }
+
+    /**
+     * Acknowledges the events returned by the last call of {@link #getNewEvents()} and closes the replication
+     * connection. The changes of the transactions that were not returned yet are streamed again on reconnect.
+     */
+    @Override public void disconnect() {
+        try {
+            if (stream != null && !stream.isClosed()) {
+                acknowledgeReturnedEvents();
+                stream.forceUpdateStatus();
+            }
+        } catch (SQLException sqle) {
+            throw new DataAccessException(ERROR_MSG_DISCONNECT, sqle);
+        } finally {
+            closeConnection();
+        }
+    }
+
+    @Override public boolean isConnected() {
+        try {
+            return connection != null && !connection.isClosed() && stream != null && !stream.isClosed();
+        } catch (SQLException sqle) {
+            throw new DataAccessException(ERROR_MSG_CHECK_CONNECTION, sqle);
+        }
+    }
+
+    /**
+     * Creates the slot if it doesn't exist, when auto-config is ON. The slot only records the changes made after its
+     * creation.
+     *
+     * @throws ConfigurationException if the slot exists and uses another output plugin
+     */
+    @Override public void setup() {
+        if (!autoConfig) {
+            return;
+        }
+        Connection setupConnection = connectionProvider.getConnection();
+        try {
+            String plugin = findSlotPlugin(setupConnection);
+            if (plugin == null) {
+                executeSlotQuery(setupConnection, CREATE_SLOT_QUERY);
+                logger.info("Created replication slot {}", slotName);
+            } else if (!OUTPUT_PLUGIN.equals(plugin)) {
+                throw new ConfigurationException(format("Replication slot %s uses the output plugin %s instead of %s",
+                        slotName, plugin, OUTPUT_PLUGIN));
+            }
+        } catch (SQLException sqle) {
+            throw new ConfigurationException("Configuration failed. Couldn't create the replication slot.", sqle);
+        } finally {
+            JdbcUtils.closeConnection(setupConnection);
+        }
+    }
+
+    /**
+     * Keeps the slot, so that the source resumes where it stopped.
+     */
+    @Override public void cleanup() {
+    }
+
+    /**
+     * Drops the slot, which releases the write-ahead log it retains. The changes that were not acknowledged are lost.
+     */
+    public void dropSlot() {
+        state(!isConnected(), "Attempted to call 'dropSlot' while connected");
+        Connection dropConnection = connectionProvider.getConnection();
+        try {
+            executeSlotQuery(dropConnection, DROP_SLOT_QUERY);
+            returnedLsn = null;
+        } catch (SQLException sqle) {
+            throw new DataAccessException("Could not drop replication slot: " + slotName, sqle);
+        } finally {
+            JdbcUtils.closeConnection(dropConnection);
+        }
+    }
+
+    /**
+     * @return the lower case name of the table, without its schema and with the characters that can't be part of
+     * the name of a slot replaced, followed by the suffix of the streams
+     */
+    @VisibleForTesting static String slotName(String tableName) {
+        hasText(tableName, "tableName can not be null or empty");
+        String name = tableName.substring(tableName.lastIndexOf('.') + 1).replace("\"", "").toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9_]", "_");
+        return name.substring(0, Math.min(name.length(), MAX_SLOT_NAME_LENGTH - SLOT_NAME_SUFFIX.length()))
+                + SLOT_NAME_SUFFIX;
+    }
+
+    /**
+     * @return the URL of a replication connection to the database of the given URL
+     */
+    @VisibleForTesting static String replicationUrl(String dbUrl) {
+        hasText(dbUrl, "dbUrl should not be null or empty");
+        return dbUrl + (dbUrl.contains("?") ? "&" : "?") + REPLICATION_PROPERTIES;
+    }
+
+    /**
+     * Buffers the accepted changes of the table until the commit of their transaction, and then adds them to the
+     * returned events with the time of the commit.
+     *
+     * @return true if the message is the commit of a transaction
+     */
+    private boolean readMessage(String message, List<Event<Map<String, Object>>> events) {
+        if (TestDecodingParser.isCommit(message)) {
+            long commitTime = TestDecodingParser.parseCommitTime(message);
+            for (Event<Map<String, Object>> event : transaction) {
+                events.add(new Event<>(event.getEventType(), event.getEntityName(), event.getNewEntity(),
+                        event.getOldEntity(), commitTime));
+            }
+            transaction.clear();
+            return true;
+        }
+        Event<Map<String, Object>> event = parser.parseChange(message);
+        if (event != null && eventFilter.matches(event)) {
+            transaction.add(event);
+        }
+        return false;
+    }
+
+    private void acknowledgeReturnedEvents() {
+        if (returnedLsn != null) {
+            stream.setAppliedLSN(returnedLsn);
+            stream.setFlushedLSN(returnedLsn);
+        }
+    }
+
+    private String findSlotPlugin(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(FIND_SLOT_QUERY)) {
+            stmt.setString(1, slotName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private void executeSlotQuery(Connection connection, String query) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setString(1, slotName);
+            stmt.executeQuery().close();
+        }
+    }
+
+    private void closeConnection() {
+        try {
+            if (stream != null && !stream.isClosed()) {
+                stream.close();
+            }
+        } catch (SQLException sqle) {
+            logger.warn("Could not close the replication stream of slot " + slotName, sqle);
+        } finally {
+            stream = null;
+            JdbcUtils.closeConnection(connection);
+            connection = null;
+        }
+    }
+
+    private static String decode(ByteBuffer message) {
+        return new String(message.array(), message.arrayOffset() + message.position(), message.remaining(),
+                StandardCharsets.UTF_8);
+    }
+}
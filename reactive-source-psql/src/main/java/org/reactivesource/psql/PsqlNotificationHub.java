@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.psql;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.reactivesource.CaptureSpec;
+import org.reactivesource.ConnectionProvider;
+import org.reactivesource.Event;
+import org.reactivesource.EventFilter;
+import org.reactivesource.EventSource;
+import org.reactivesource.exceptions.DataAccessException;
+import org.reactivesource.util.JdbcUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.reactivesource.psql.PsqlEventSource.DUMMY_QUERY;
+import static org.reactivesource.psql.PsqlEventSource.REGISTER_STREAM_QUERY;
+import static org.reactivesource.psql.PsqlEventSource.UNREGISTER_STREAM_QUERY;
+import static org.reactivesource.util.Assert.isTrue;
+import static org.reactivesource.util.Assert.notNull;
+
+/**
+ * Shares a single PostgreSQL connection between the event sources of many tables.
+ * <p/>
+ * Every {@link PsqlEventSource} holds its own connection, which costs a backend process in the database per monitored
+ * table. The event sources created by a hub instead LISTEN on their streams over the connection of the hub. When one
+ * of them is polled, the hub reads all the notifications that arrived on the connection and routes each of them, by
+ * the name of its stream, to the queue of the event source it belongs to. The events of the other tables wait in
+ * their queues until their event source is polled.
+ * <p/>
+ * One read of the connection serves all the streams: an event source whose queue is empty only reads the connection
+ * again once it has taken the events of the previous read. So when all the event sources are polled in turn, the
+ * connection is queried once per round. That query also checks that the connection is alive: if it fails, the event
+ * sources report that they are disconnected, and the first one to reconnect opens a new connection for all of them.
+ * <p/>
+ * The event sources of a hub can be polled by a {@link org.reactivesource.ReactiveSourceGroup}: the hub is thread
+ * safe, and only one of them uses the connection at a time.
+ * <p/>
+ * <u>Example</u>
+ * <pre>
+ *   {@code PsqlNotificationHub hub = new PsqlNotificationHub(connectionProvider);
+ *     ReactiveSourceGroup group = new ReactiveSourceGroup(4);
+ *     ReactiveSource<Purchase> purchases = group.newReactiveSource(hub.newEventSource("purchases"));
+ *     ReactiveSource<Customer> customers = group.newReactiveSource(hub.newEventSource("customers"));}
+ * </pre>
+ */
+public class PsqlNotificationHub {
+
+    private static final String ERROR_MSG_GET_NEW_NOTIFICATIONS = "Could not get notifications for streams: ";
+    private static final String ERROR_MSG_REGISTER_STREAM = "Could not start listening for notifications for streamName: ";
+    private static final String ERROR_MSG_UNREGISTER_STREAM = "Could not stop listening for notifications for streamName: ";
+    private static final String ERROR_MSG_CHECK_CONNECTION = "Failed to check if connection to DB is alive";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final ConnectionProvider connectionProvider;
+    private final Map<String, StreamEvents> streams = Maps.newHashMap();
+    private final Set<String> listeningStreams = Sets.newHashSet();
+    private Connection connection = null;
+    private boolean connectionFailed = false;
+
+    /**
+     * @param dbUrl    The URL of postgres database to connect to
+     * @param username The username for the connection
+     * @param password The password for the connection
+     */
+    public PsqlNotificationHub(String dbUrl, String username, String password) {
+        this(new PsqlConnectionProvider(dbUrl, username, password));
+    }
+
+    /**
+     * @param connectionProvider the provider of the shared connection
+     */
+    public PsqlNotificationHub(ConnectionProvider connectionProvider) {
+        notNull(connectionProvider, "connectionProvider can not be null");
+        this.connectionProvider = connectionProvider;
+    }
+
+    /**
+     * Creates an event source for the given table, with auto-config ON.
+     *
+     * @param tableName The table where the notifications will be coming from
+     */
+    public EventSource newEventSource(String tableName) {
+        return newEventSource(tableName, true);
+    }
+
+    /**
+     * Creates an event source for the given table.
+     *
+     * @param tableName  The table where the notifications will be coming from
+     * @param autoConfig When true auto-config is ON. When false auto-config is OFF
+     */
+    public EventSource newEventSource(String tableName, boolean autoConfig) {
+        return newEventSource(tableName, autoConfig, EventFilter.ALL, CaptureSpec.ALL);
+    }
+
+    /**
+     * Creates an event source for the given table, that only returns the events accepted by the given filter and only
+     * receives the data described by the given spec, like a {@link PsqlEventSource} built with
+     * {@link PsqlEventSource.Builder#withEventFilter(EventFilter)} and
+     * {@link PsqlEventSource.Builder#withCaptureSpec(CaptureSpec)}. The event sources of a hub can not capture the
+     * changes per statement, since they don't read the claim table.
+     *
+     * @param tableName   The table where the notifications will be coming from
+     * @param autoConfig  When true auto-config is ON. When false auto-config is OFF
+     * @param eventFilter the filter of the events. Can only refer to captured columns.
+     * @param captureSpec
+     * @throws IllegalArgumentException if the hub already has an event source for the same table, filter and spec
+     */
+    public EventSource newEventSource(String tableName, boolean autoConfig, EventFilter eventFilter,
+                                      CaptureSpec captureSpec) {
+        notNull(tableName, "tableName can not be null");
+        notNull(captureSpec, "captureSpec can not be null");
+        isTrue(!captureSpec.capturesPerStatement(),
+                "the event sources of a hub can not capture the changes per statement");
+        String streamName = PsqlEventSource.streamName(tableName, eventFilter, captureSpec);
+        PsqlEventSource.verifyConfiguration(connectionProvider, tableName);
+        PsqlConfigurator configurator =
+                new PsqlConfigurator(connectionProvider, tableName, streamName, eventFilter, captureSpec);
+        register(streamName);
+        return new SharedPsqlEventSource(this, streamName, autoConfig, configurator, eventFilter, captureSpec);
+    }
+
+    private synchronized void register(String streamName) {
+        isTrue(!streams.containsKey(streamName), "the hub already has an event source for the stream " + streamName);
+        streams.put(streamName, new StreamEvents());
+    }
+
+    /**
+     * Starts listening for the notifications of the stream. Reconnects first, and listens again for the notifications
+     * of the other streams, if the shared connection was lost.
+     */
+    synchronized void listen(String streamName) {
+        if (!isConnected()) {
+            reconnect();
+        }
+        if (!listeningStreams.contains(streamName)) {
+            execute(REGISTER_STREAM_QUERY + streamName, ERROR_MSG_REGISTER_STREAM + streamName);
+            listeningStreams.add(streamName);
+        }
+    }
+
+    /**
+     * Stops listening for the notifications of the stream and drops its pending events. Closes the shared connection
+     * when no stream is listened to any more.
+     */
+    synchronized void unlisten(String streamName) {
+        StreamEvents stream = streams.get(streamName);
+        stream.events.clear();
+        stream.routed = false;
+        if (!listeningStreams.remove(streamName)) {
+            return;
+        }
+        if (listeningStreams.isEmpty()) {
+            closeConnection();
+        } else if (isConnectionOpen()) {
+            execute(UNREGISTER_STREAM_QUERY + streamName, ERROR_MSG_UNREGISTER_STREAM + streamName);
+        }
+    }
+
+    /**
+     * Checks that the shared connection is open, and that the last read of the notifications didn't fail. The
+     * connection is not queried: reading the notifications checks that it is alive.
+     */
+    synchronized boolean isConnected() {
+        return isConnectionOpen() && !connectionFailed;
+    }
+
+    /**
+     * Returns the pending events of the stream. The notifications are only read from the connection if the stream has
+     * no pending events and has already taken the events of the last read, and those of the other streams are kept in
+     * their queues.
+     */
+    synchronized List<Event<Map<String, Object>>> getNewEvents(String streamName) {
+        StreamEvents stream = streams.get(streamName);
+        if (stream.events.isEmpty() && !stream.routed) {
+            routeNotifications();
+        }
+        stream.routed = false;
+        List<Event<Map<String, Object>>> events = Lists.newArrayListWithCapacity(stream.events.size());
+        events.addAll(stream.events);
+        stream.events.clear();
+        return events;
+    }
+
+    /**
+     * Reads the notifications that arrived on the connection and routes them to the queues of their streams. The
+     * payloads that can't be parsed are dropped with an error, so that they don't hold back the other notifications.
+     */
+    private void routeNotifications() {
+        PGNotification[] notifications;
+        try {
+            notifications = getLatestNotifications();
+        } catch (SQLException sqle) {
+            connectionFailed = true;
+            throw new DataAccessException(ERROR_MSG_GET_NEW_NOTIFICATIONS + listeningStreams, sqle);
+        }
+        for (String streamName : listeningStreams) {
+            streams.get(streamName).routed = true;
+        }
+        for (PGNotification notification : notifications) {
+            StreamEvents stream = streams.get(notification.getName());
+            if (stream != null && listeningStreams.contains(notification.getName())) {
+                try {
+                    stream.events.add(stream.mapper.parseResponse(notification.getParameter()));
+                } catch (InvalidPayloadException ipe) {
+                    logger.error("Dropping the notification of stream [{}] with an invalid payload: {}",
+                            notification.getName(), notification.getParameter(), ipe);
+                }
+            }
+        }
+    }
+
+    private PGNotification[] getLatestNotifications() throws SQLException {
+        // issue dummy query to database in order to get notifications.
+        Statement stmt = connection.createStatement();
+        ResultSet rs = stmt.executeQuery(DUMMY_QUERY);
+        if (rs != null) {
+            rs.close();
+        }
+        stmt.close();
+
+        PGNotification[] notifications = ((PGConnection) connection).getNotifications();
+        return notifications == null ? new PGNotification[0] : notifications;
+    }
+
+    private void reconnect() {
+        closeConnection();
+        connection = connectionProvider.getConnection();
+        connectionFailed = false;
+        for (String streamName : listeningStreams) {
+            execute(REGISTER_STREAM_QUERY + streamName, ERROR_MSG_REGISTER_STREAM + streamName);
+        }
+    }
+
+    private void closeConnection() {
+        JdbcUtils.closeConnection(connection);
+        connection = null;
+    }
+
+    private void execute(String query, String errorMessage) {
+        try {
+            Statement stmt = connection.createStatement();
+            stmt.execute(query);
+            stmt.close();
+        } catch (SQLException sqle) {
+            throw new DataAccessException(errorMessage, sqle);
+        }
+    }
+
+    private boolean isConnectionOpen() {
+        try {
+            return connection != null && !connection.isClosed();
+        } catch (SQLException sqle) {
+            throw new DataAccessException(ERROR_MSG_CHECK_CONNECTION, sqle);
+        }
+    }
+
+    /**
+     * The pending events of one stream, whether they were routed by a read of the notifications the stream has not
+     * taken yet, and the mapper that decodes its payloads with the schema of its table. Guarded by the hub.
+     */
+    private static class StreamEvents {
+        private final Deque<Event<Map<String, Object>>> events = new ArrayDeque<>();
+        private final PsqlEventMapper mapper = new PsqlEventMapper();
+        private boolean routed;
+    }
+}
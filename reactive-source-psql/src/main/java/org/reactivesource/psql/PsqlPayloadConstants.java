@@ -8,6 +8,12 @@ package org.reactivesource.psql;
 interface PsqlPayloadConstants {
     static final String EVENT_TYPE_KEY = "eventType"; 
     static final String TABLE_NAME_KEY = "tableName"; 
+    static final String CHANGE_TIME_KEY = "changeTime";
     static final String NEW_ENTITY_KEY = "newEntity"; 
     static final String OLD_ENTITY_KEY = "oldEntity";
+    static final String CLAIM_ID_KEY = "claimId";
+    static final String KEY_KEY = "key";
+    static final String CHANGES_KEY = "changes";
+    static final String NEW_ENTITIES_KEY = "newEntities";
+    static final String OLD_ENTITIES_KEY = "oldEntities";
 }
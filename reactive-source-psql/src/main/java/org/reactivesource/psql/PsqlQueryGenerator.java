@@ -6,12 +6,256 @@
 
 package org.reactivesource.psql;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.reactivesource.CaptureSpec;
+import org.reactivesource.ColumnCondition;
+import org.reactivesource.EventFilter;
+import org.reactivesource.EventType;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
 import static java.lang.String.format;
 
 class PsqlQueryGenerator {
 
     static String generateCreateTriggerQuery(String triggerName, String tableName, String procName, String streamName) {
-        return format(CREATE_TRIGGER_TMPLT, triggerName, tableName, procName, streamName);
+        return generateCreateTriggerQuery(triggerName, tableName, procName, streamName, EventFilter.ALL);
+    }
+
+    /**
+     * Generates a trigger that only fires for the event types of the filter and, when possible, only for the rows
+     * matching its conditions.
+     *
+     * @see #canPushDownConditions(org.reactivesource.EventFilter)
+     */
+    static String generateCreateTriggerQuery(String triggerName, String tableName, String procName, String streamName,
+                                             EventFilter eventFilter) {
+        return format(CREATE_TRIGGER_TMPLT, triggerName, generateTriggerCondition(eventFilter, tableName), procName,
+                streamName);
+    }
+
+    /**
+     * The conditions of the filter can only be pushed down into the <code>WHEN</code> clause of the trigger if they can
+     * all be evaluated on the same row image: <code>NEW</code> for INSERT and UPDATE, <code>OLD</code> for DELETE. A
+     * trigger firing for both DELETE and INSERT or UPDATE can not reference either.
+     *
+     * @return true if the trigger generated for the filter only fires for the events the filter accepts
+     */
+    static boolean canPushDownConditions(EventFilter eventFilter) {
+        Set<EventType> eventTypes = eventFilter.getEventTypes();
+        return eventFilter.getConditions().isEmpty() || !eventTypes.contains(EventType.DELETE) ||
+                eventTypes.size() == 1;
+    }
+
+    /**
+     * @return the filter restricted to the event types captured by the spec, which are the event types the trigger
+     * has to fire for
+     */
+    static EventFilter generateTriggerFilter(EventFilter eventFilter, CaptureSpec captureSpec) {
+        if (captureSpec.getEventTypes().containsAll(eventFilter.getEventTypes())) {
+            return eventFilter;
+        }
+        return eventFilter.withEventTypes(captureSpec.getEventTypes().toArray(new EventType[0]));
+    }
+
+    /**
+     * @return a suffix that distinguishes the trigger, function and stream of the given filter and spec from the ones
+     * of the other event sources of the same table, or an empty string for the default configuration. The suffix is
+     * derived from a SHA-1 digest of the definition of the trigger, since an existing trigger or function of the same
+     * name is reused as is.
+     */
+    static String generateNameSuffix(EventFilter eventFilter, CaptureSpec captureSpec) {
+        return generateNameSuffix(eventFilter, captureSpec, ClaimCheck.NEVER);
+    }
+
+    /**
+     * Like {@link #generateNameSuffix(EventFilter, CaptureSpec)}, for triggers that may send the images of the rows
+     * through the claim table.
+     */
+    static String generateNameSuffix(EventFilter eventFilter, CaptureSpec captureSpec, ClaimCheck claimCheck) {
+        if (eventFilter.acceptsAll() && captureSpec.capturesEverything() && !claimCheck.isEnabled()) {
+            return "";
+        }
+        EventFilter triggerFilter = generateTriggerFilter(eventFilter, captureSpec);
+        String definition = generateTriggerCondition(triggerFilter, "") +
+                generateNotifyFunctionBody(triggerFilter, captureSpec, claimCheck);
+        return "_" + Hashing.sha1().hashString(definition, Charsets.UTF_8).toString().substring(0, NAME_DIGEST_LENGTH);
+    }
+
+    /**
+     * Generates a function that works like <code>notify_with_json</code>, but only sends the columns captured by the
+     * spec, and an empty old entity for UPDATE events if the spec does not include the old image.
+     * <p/>
+     * If the spec only captures the changed columns, UPDATE events are sent as the primary key of the row and the
+     * changed columns with their old and new values, and updates that don't change any captured column are not sent.
+     * The function compares the rows as <code>jsonb</code>, which requires PostgreSQL 9.4.
+     */
+    static String generateCreateNotifyFunctionQuery(String functionName, CaptureSpec captureSpec) {
+        return generateCreateNotifyFunctionQuery(functionName, captureSpec, ClaimCheck.NEVER);
+    }
+
+    /**
+     * Generates a function like {@link #generateCreateNotifyFunctionQuery(String, CaptureSpec)} that writes the images
+     * of the rows to the claim table, and only notifies the id of the claim, when they are larger than the threshold
+     * of the claim check.
+     */
+    static String generateCreateNotifyFunctionQuery(String functionName, CaptureSpec captureSpec,
+                                                    ClaimCheck claimCheck) {
+        return generateCreateNotifyFunctionQuery(functionName, EventFilter.ALL, captureSpec, claimCheck);
+    }
+
+    /**
+     * Generates a function like {@link #generateCreateNotifyFunctionQuery(String, CaptureSpec, ClaimCheck)} for the
+     * triggers of the given filter. Only the functions of the specs capturing the changes per statement depend on the
+     * filter: they send the rows of a statement as one notification, and select the rows matching the conditions of
+     * the filter themselves. The rows are written to the claim table when they are larger than the threshold of the
+     * claim check, or than {@link #STATEMENT_CLAIM_THRESHOLD_BYTES} without one.
+     *
+     * @see #generateCreateStatementTriggerQueries(String, String, String, String, EventFilter, CaptureSpec)
+     */
+    static String generateCreateNotifyFunctionQuery(String functionName, EventFilter triggerFilter,
+                                                    CaptureSpec captureSpec, ClaimCheck claimCheck) {
+        return format(CREATE_NOTIFY_FUNCTION_TMPLT, functionName,
+                generateNotifyFunctionBody(triggerFilter, captureSpec, claimCheck));
+    }
+
+    /**
+     * Generates the triggers of a spec capturing the changes per statement: one <code>FOR EACH STATEMENT</code>
+     * trigger per event type of the filter, which references the rows modified by the statement as the
+     * <code>new_rows</code> and <code>old_rows</code> transition tables. Transition tables require PostgreSQL 10.
+     *
+     * @return the queries creating the triggers, by the name of the trigger
+     */
+    static Map<String, String> generateCreateStatementTriggerQueries(String triggerName, String tableName,
+                                                                     String procName, String streamName,
+                                                                     EventFilter triggerFilter,
+                                                                     CaptureSpec captureSpec) {
+        Map<String, String> queries = new LinkedHashMap<>();
+        for (EventType eventType : triggerFilter.getEventTypes()) {
+            String transitionTables;
+            if (eventType == EventType.INSERT) {
+                transitionTables = "NEW TABLE AS new_rows";
+            } else if (eventType == EventType.DELETE) {
+                transitionTables = "OLD TABLE AS old_rows";
+            } else {
+                transitionTables = captureSpec.includesOldImage() ? "OLD TABLE AS old_rows NEW TABLE AS new_rows" :
+                        "NEW TABLE AS new_rows";
+            }
+            String statementTriggerName = triggerName + "_" + eventType.getValue().toLowerCase(Locale.ROOT);
+            queries.put(statementTriggerName, format(CREATE_STATEMENT_TRIGGER_TMPLT, statementTriggerName,
+                    eventType.getValue(), tableName, transitionTables, procName, streamName));
+        }
+        return queries;
+    }
+
+    private static String generateNotifyFunctionBody(EventFilter triggerFilter, CaptureSpec captureSpec,
+                                                     ClaimCheck claimCheck) {
+        if (captureSpec.capturesPerStatement()) {
+            return generateStatementFunctionBody(triggerFilter, captureSpec, claimCheck);
+        }
+        if (captureSpec.capturesChangedColumnsOnly()) {
+            return generateChangedColumnsFunctionBody(captureSpec);
+        }
+        String oldImage = generateRowToJson("OLD", captureSpec);
+        String newImage = generateRowToJson("NEW", captureSpec);
+        String template = claimCheck.isEnabled() ?
+                CLAIM_CHECK_FUNCTION_BODY_TMPLT.replace(CLAIM_THRESHOLD_PLACEHOLDER,
+                        String.valueOf(claimCheck.getThresholdBytes())) :
+                NOTIFY_FUNCTION_BODY_TMPLT;
+        return format(template, oldImage, newImage, captureSpec.includesOldImage() ? oldImage : EMPTY_JSON, newImage);
+    }
+
+    private static String generateStatementFunctionBody(EventFilter triggerFilter, CaptureSpec captureSpec,
+                                                       ClaimCheck claimCheck) {
+        String newImage = "(" + generateCompactRowToJson("n", captureSpec) + ")::text";
+        String oldImage = "(" + generateCompactRowToJson("o", captureSpec) + ")::text";
+        String selectOldRows = "SELECT '[' || string_agg(" + oldImage + ", ',') || ']' INTO oldDataJson " +
+                "FROM old_rows o" + generateWhereClause("o", triggerFilter) + ";\n";
+        String selectNewRows = "SELECT '[' || string_agg(" + newImage + ", ',') || ']' INTO newDataJson " +
+                "FROM new_rows n" + generateWhereClause("n", triggerFilter) + ";\n";
+        String selectUpdatedRows = "    " + selectNewRows;
+        if (captureSpec.includesOldImage()) {
+            String selectPairedRows = "SELECT "
+                    + "'[' || string_agg(CASE WHEN n.%1$I IS NULL THEN '{}' ELSE " + newImage + " END, ',') || ']', "
+                    + "'[' || string_agg(CASE WHEN o.%1$I IS NULL THEN '{}' ELSE " + oldImage + " END, ',') || ']' "
+                    + "FROM new_rows n FULL JOIN old_rows o ON %2$s"
+                    + generatePairedWhereClause(triggerFilter);
+            selectUpdatedRows = format(STATEMENT_UPDATED_ROWS_TMPLT, "      " + selectNewRows,
+                    selectPairedRows.replace("'", "''"));
+        }
+        int threshold = claimCheck.isEnabled() ? claimCheck.getThresholdBytes() : STATEMENT_CLAIM_THRESHOLD_BYTES;
+        return format(STATEMENT_FUNCTION_BODY_TMPLT, selectOldRows, selectNewRows, selectUpdatedRows, threshold);
+    }
+
+    private static String generateWhereClause(String row, EventFilter eventFilter) {
+        if (eventFilter.getConditions().isEmpty()) {
+            return "";
+        }
+        return " WHERE " + generateConditions(row, eventFilter);
+    }
+
+    /**
+     * Generates the WHERE clause of the query pairing the images of the updated rows, as a format string whose first
+     * argument is the key column. The conditions apply to the new image, except for the old images without a new one,
+     * ie of the rows whose key changed, which are selected like deleted rows, by their old image.
+     */
+    private static String generatePairedWhereClause(EventFilter eventFilter) {
+        if (eventFilter.getConditions().isEmpty()) {
+            return "";
+        }
+        return " WHERE CASE WHEN n.%1$I IS NULL THEN (" + generateConditions("o", eventFilter).replace("%", "%%")
+                + ") ELSE (" + generateConditions("n", eventFilter).replace("%", "%%") + ") END";
+    }
+
+    private static String generateConditions(String row, EventFilter eventFilter) {
+        StringBuilder conditions = new StringBuilder();
+        for (ColumnCondition columnCondition : eventFilter.getConditions()) {
+            conditions.append(conditions.length() == 0 ? "" : " AND ")
+                    .append(generateColumnCondition(row, columnCondition));
+        }
+        return conditions.toString();
+    }
+
+    private static String generateChangedColumnsFunctionBody(CaptureSpec captureSpec) {
+        String oldRow = generateRowToJsonb("OLD", captureSpec);
+        String keySource = captureSpec.capturesAllColumns() ? "oldRow" : "to_jsonb(OLD)";
+        return format(CHANGED_COLUMNS_FUNCTION_BODY_TMPLT, generateCompactRowToJson("OLD", captureSpec),
+                generateCompactRowToJson("NEW", captureSpec), oldRow, generateRowToJsonb("NEW", captureSpec),
+                keySource);
+    }
+
+    private static String generateCompactRowToJson(String row, CaptureSpec captureSpec) {
+        if (captureSpec.capturesAllColumns()) {
+            return "row_to_json(" + row + ")";
+        }
+        return "(SELECT row_to_json(r) FROM (SELECT " + generateColumnList(row, captureSpec) + ") r)";
+    }
+
+    private static String generateRowToJsonb(String row, CaptureSpec captureSpec) {
+        if (captureSpec.capturesAllColumns()) {
+            return "to_jsonb(" + row + ")";
+        }
+        return "(SELECT to_jsonb(r) FROM (SELECT " + generateColumnList(row, captureSpec) + ") r)";
+    }
+
+    private static String generateColumnList(String row, CaptureSpec captureSpec) {
+        StringBuilder columns = new StringBuilder();
+        for (String column : captureSpec.getColumns()) {
+            columns.append(columns.length() == 0 ? "" : ", ").append(generateColumnReference(row, column));
+        }
+        return columns.toString();
+    }
+
+    private static String generateRowToJson(String row, CaptureSpec captureSpec) {
+        if (captureSpec.capturesAllColumns()) {
+            return "row_to_json(" + row + ", true)";
+        }
+        return "(SELECT row_to_json(r, true) FROM (SELECT " + generateColumnList(row, captureSpec) + ") r)";
     }
 
     static String generateDropTriggerQuery(String triggerName, String tableName) {
@@ -22,9 +266,253 @@ class PsqlQueryGenerator {
         return format(DROP_PROC_QUERY, procName);
     }
 
+    private static String generateTriggerCondition(EventFilter eventFilter, String tableName) {
+        StringBuilder condition = new StringBuilder();
+        for (EventType eventType : eventFilter.getEventTypes()) {
+            condition.append(condition.length() == 0 ? "" : " OR ").append(eventType.getValue());
+        }
+        condition.append(" ON ").append(tableName);
+        if (!eventFilter.getConditions().isEmpty() && canPushDownConditions(eventFilter)) {
+            String row = eventFilter.getEventTypes().equals(EnumSet.of(EventType.DELETE)) ? "OLD" : "NEW";
+            condition.append(" FOR EACH ROW WHEN (");
+            boolean first = true;
+            for (ColumnCondition columnCondition : eventFilter.getConditions()) {
+                condition.append(first ? "" : " AND ").append(generateColumnCondition(row, columnCondition));
+                first = false;
+            }
+            condition.append(")");
+        } else {
+            condition.append(" FOR EACH ROW");
+        }
+        return condition.toString();
+    }
+
+    private static String generateColumnCondition(String row, ColumnCondition condition) {
+        String column = generateColumnReference(row, condition.getColumn()) + " " + condition.getOperator().getSql();
+        if (condition.getValue() == null) {
+            return column;
+        }
+        return column + " " + generateLiteral(condition.getValue());
+    }
+
+    /**
+     * The column names of filters and specs are unquoted identifiers, so they are folded to lower case, as Postgres
+     * does, and then quoted, so that names that are keywords can still be used.
+     */
+    private static String generateColumnReference(String row, String column) {
+        return row + ".\"" + column.toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    private static String generateLiteral(Object value) {
+        if (value instanceof String) {
+            return "'" + ((String) value).replace("'", "''") + "'";
+        }
+        if (value instanceof Boolean) {
+            return ((Boolean) value) ? "TRUE" : "FALSE";
+        }
+        return value.toString();
+    }
+
+    private static final int NAME_DIGEST_LENGTH = 16;
+
     private static final String CREATE_TRIGGER_TMPLT = "CREATE TRIGGER %s "
-            + "AFTER INSERT OR UPDATE OR DELETE ON %s "
-            + "FOR EACH ROW EXECUTE PROCEDURE %s('%s')";
+            + "AFTER %s "
+            + "EXECUTE PROCEDURE %s('%s')";
+
+    private static final String CREATE_STATEMENT_TRIGGER_TMPLT = "CREATE TRIGGER %s "
+            + "AFTER %s ON %s "
+            + "REFERENCING %s "
+            + "FOR EACH STATEMENT "
+            + "EXECUTE PROCEDURE %s('%s')";
+
+    private static final String EMPTY_JSON = "'{}'";
+
+    private static final String CREATE_NOTIFY_FUNCTION_TMPLT = "CREATE OR REPLACE FUNCTION %s() RETURNS trigger AS $$\n"
+            + "%s"
+            + "$$ LANGUAGE plpgsql";
+
+    private static final String ROW_IMAGES_TMPLT = "BEGIN\n"
+            + "  IF (TG_OP = 'DELETE') THEN\n"
+            + "    oldDataJson := %s;\n"
+            + "    newDataJson := '{}';\n"
+            + "  ELSIF (TG_OP = 'INSERT') THEN\n"
+            + "    oldDataJson := '{}';\n"
+            + "    newDataJson := %s;\n"
+            + "  ELSIF (TG_OP = 'UPDATE') THEN\n"
+            + "    oldDataJson := %s;\n"
+            + "    newDataJson := %s;\n"
+            + "  END IF;\n";
+
+    private static final String NOTIFY_FUNCTION_BODY_TMPLT = "DECLARE\n"
+            + "  newDataJson TEXT;\n"
+            + "  oldDataJson TEXT;\n"
+            + ROW_IMAGES_TMPLT
+            + "  PERFORM pg_notify(TG_ARGV[0],\n"
+            + "    '{' || '\"eventType\":' || '\"' || TG_OP || '\",' ||\n"
+            + "           '\"tableName\":' || '\"' || TG_TABLE_NAME || '\",' ||\n"
+            + "           '\"changeTime\":' || (extract(epoch FROM clock_timestamp()) * 1000000)::bigint || ',' ||\n"
+            + "           '\"newEntity\":' || newDataJson || ',' ||\n"
+            + "           '\"oldEntity\":' || oldDataJson || '}');\n"
+            + "  RETURN NULL;\n"
+            + "END;\n";
+
+    /**
+     * The body of the functions of the specs capturing the changed columns only. The images are built without
+     * pretty-printing, and UPDATE events are sent as <code>"key":{..},"changes":{"column":[old,new],..}</code>.
+     */
+    private static final String CHANGED_COLUMNS_FUNCTION_BODY_TMPLT = "DECLARE\n"
+            + "  newDataJson TEXT;\n"
+            + "  oldDataJson TEXT;\n"
+            + "  newRow JSONB;\n"
+            + "  oldRow JSONB;\n"
+            + "  keyJson TEXT;\n"
+            + "  changesJson TEXT;\n"
+            + "  header TEXT;\n"
+            + "BEGIN\n"
+            + "  header := '{' || '\"eventType\":' || '\"' || TG_OP || '\",' ||\n"
+            + "            '\"tableName\":' || '\"' || TG_TABLE_NAME || '\",' ||\n"
+            + "            '\"changeTime\":' || (extract(epoch FROM clock_timestamp()) * 1000000)::bigint || ',';\n"
+            + "  IF (TG_OP = 'DELETE') THEN\n"
+            + "    oldDataJson := %1$s;\n"
+            + "    newDataJson := '{}';\n"
+            + "  ELSIF (TG_OP = 'INSERT') THEN\n"
+            + "    oldDataJson := '{}';\n"
+            + "    newDataJson := %2$s;\n"
+            + "  ELSIF (TG_OP = 'UPDATE') THEN\n"
+            + "    oldRow := %3$s;\n"
+            + "    newRow := %4$s;\n"
+            + "    IF (oldRow = newRow) THEN\n"
+            + "      RETURN NULL;\n"
+            + "    END IF;\n"
+            + "    SELECT '{' || string_agg(to_json(n.key)::text || ':[' || o.value::text || ',' ||\n"
+            + "                             n.value::text || ']', ',') || '}'\n"
+            + "      INTO changesJson\n"
+            + "      FROM jsonb_each(newRow) n JOIN jsonb_each(oldRow) o ON o.key = n.key\n"
+            + "      WHERE o.value <> n.value;\n"
+            + "    SELECT coalesce('{' || string_agg(to_json(a.attname::text)::text || ':' ||"
+            + " (%5$s -> a.attname::text)::text, ',') || '}', '{}')\n"
+            + "      INTO keyJson\n"
+            + "      FROM pg_index i JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey)\n"
+            + "      WHERE i.indrelid = TG_RELID AND i.indisprimary;\n"
+            + "    PERFORM pg_notify(TG_ARGV[0], header ||\n"
+            + "           '\"key\":' || keyJson || ',' ||\n"
+            + "           '\"changes\":' || changesJson || '}');\n"
+            + "    RETURN NULL;\n"
+            + "  END IF;\n"
+            + "  PERFORM pg_notify(TG_ARGV[0], header ||\n"
+            + "         '\"newEntity\":' || newDataJson || ',' ||\n"
+            + "         '\"oldEntity\":' || oldDataJson || '}');\n"
+            + "  RETURN NULL;\n"
+            + "END;\n";
+
+    static final String CLAIM_TABLE_NAME = "reactivesource_claim";
+
+    /**
+     * The size of the rows of a statement over which they are written to the claim table, when the spec capturing the
+     * changes per statement has no claim check. Leaves room in the notification for the other fields.
+     */
+    static final int STATEMENT_CLAIM_THRESHOLD_BYTES = ClaimCheck.MAX_PAYLOAD_BYTES - 512;
+
+    /**
+     * Pairs the old and new images of the updated rows by their primary key, with a query built when the trigger
+     * fires. The rows whose key changed are sent as a new image without an old one and an old image without a new one.
+     * Without a primary key, only the new images are sent.
+     */
+    private static final String STATEMENT_UPDATED_ROWS_TMPLT = ""
+            + "    SELECT string_agg(format('n.%%I = o.%%I', a.attname, a.attname), ' AND '), min(a.attname::text)\n"
+            + "      INTO keyCondition, keyColumn\n"
+            + "      FROM pg_index i JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey)\n"
+            + "      WHERE i.indrelid = TG_RELID AND i.indisprimary;\n"
+            + "    IF (keyCondition IS NULL) THEN\n"
+            + "%s"
+            + "    ELSE\n"
+            + "      EXECUTE format('%s', keyColumn, keyCondition)\n"
+            + "        INTO newDataJson, oldDataJson;\n"
+            + "    END IF;\n";
+
+    /**
+     * The body of the functions of the specs capturing the changes per statement. The rows of the statement are sent
+     * as <code>"newEntities":[..],"oldEntities":[..]</code>, where the images of the same row have the same index.
+     */
+    private static final String STATEMENT_FUNCTION_BODY_TMPLT = "DECLARE\n"
+            + "  newDataJson TEXT;\n"
+            + "  oldDataJson TEXT;\n"
+            + "  keyCondition TEXT;\n"
+            + "  keyColumn TEXT;\n"
+            + "  header TEXT;\n"
+            + "  claimId BIGINT;\n"
+            + "BEGIN\n"
+            + "  IF (TG_OP = 'DELETE') THEN\n"
+            + "    %1$s"
+            + "  ELSIF (TG_OP = 'INSERT') THEN\n"
+            + "    %2$s"
+            + "  ELSIF (TG_OP = 'UPDATE') THEN\n"
+            + "%3$s"
+            + "  END IF;\n"
+            + "  IF (newDataJson IS NULL AND oldDataJson IS NULL) THEN\n"
+            + "    RETURN NULL;\n"
+            + "  END IF;\n"
+            + "  newDataJson := coalesce(newDataJson, '[]');\n"
+            + "  oldDataJson := coalesce(oldDataJson, '[]');\n"
+            + "  header := '{' || '\"eventType\":' || '\"' || TG_OP || '\",' ||\n"
+            + "            '\"tableName\":' || '\"' || TG_TABLE_NAME || '\",' ||\n"
+            + "            '\"changeTime\":' || (extract(epoch FROM clock_timestamp()) * 1000000)::bigint || ',';\n"
+            + "  IF (octet_length(newDataJson) + octet_length(oldDataJson) > %4$d) THEN\n"
+            + "    INSERT INTO " + CLAIM_TABLE_NAME + " (new_entity, old_entity) VALUES (newDataJson, oldDataJson)\n"
+            + "      RETURNING claim_id INTO claimId;\n"
+            + "    PERFORM pg_notify(TG_ARGV[0], header || '\"claimId\":' || claimId || '}');\n"
+            + "  ELSE\n"
+            + "    PERFORM pg_notify(TG_ARGV[0], header ||\n"
+            + "           '\"newEntities\":' || newDataJson || ',' ||\n"
+            + "           '\"oldEntities\":' || oldDataJson || '}');\n"
+            + "  END IF;\n"
+            + "  RETURN NULL;\n"
+            + "END;\n";
+
+    private static final String CLAIM_THRESHOLD_PLACEHOLDER = "{claimThreshold}";
+
+    private static final String CLAIM_CHECK_FUNCTION_BODY_TMPLT = "DECLARE\n"
+            + "  newDataJson TEXT;\n"
+            + "  oldDataJson TEXT;\n"
+            + "  header TEXT;\n"
+            + "  claimId BIGINT;\n"
+            + ROW_IMAGES_TMPLT
+            + "  header := '{' || '\"eventType\":' || '\"' || TG_OP || '\",' ||\n"
+            + "            '\"tableName\":' || '\"' || TG_TABLE_NAME || '\",' ||\n"
+            + "            '\"changeTime\":' || (extract(epoch FROM clock_timestamp()) * 1000000)::bigint || ',';\n"
+            + "  IF (octet_length(newDataJson) + octet_length(oldDataJson) > " + CLAIM_THRESHOLD_PLACEHOLDER + ") THEN\n"
+            + "    INSERT INTO " + CLAIM_TABLE_NAME + " (new_entity, old_entity) VALUES (newDataJson, oldDataJson)\n"
+            + "      RETURNING claim_id INTO claimId;\n"
+            + "    PERFORM pg_notify(TG_ARGV[0], header || '\"claimId\":' || claimId || '}');\n"
+            + "  ELSE\n"
+            + "    PERFORM pg_notify(TG_ARGV[0], header ||\n"
+            + "           '\"newEntity\":' || newDataJson || ',' ||\n"
+            + "           '\"oldEntity\":' || oldDataJson || '}');\n"
+            + "  END IF;\n"
+            + "  RETURN NULL;\n"
+            + "END;\n";
+
+    static final String CREATE_CLAIM_TABLE_QUERY = "DO $$\n"
+            + "BEGIN\n"
+            + "  CREATE TABLE IF NOT EXISTS " + CLAIM_TABLE_NAME + " (\n"
+            + "    claim_id BIGSERIAL PRIMARY KEY,\n"
+            + "    new_entity TEXT NOT NULL,\n"
+            + "    old_entity TEXT NOT NULL,\n"
+            + "    created_at TIMESTAMP NOT NULL DEFAULT clock_timestamp()\n"
+            + "  );\n"
+            + "  IF NOT EXISTS (SELECT 1 FROM pg_class WHERE relname = '" + CLAIM_TABLE_NAME + "_created_at_idx') THEN\n"
+            + "    CREATE INDEX " + CLAIM_TABLE_NAME + "_created_at_idx ON " + CLAIM_TABLE_NAME + " (created_at);\n"
+            + "  END IF;\n"
+            + "END\n"
+            + "$$";
+
+    /**
+     * Reads the claimed images of an array of claim ids, and purges the claims older than {@link ClaimCheck#RETENTION}.
+     */
+    static final String READ_CLAIMS_QUERY = "WITH purged AS ("
+            + "DELETE FROM " + CLAIM_TABLE_NAME + " WHERE created_at < clock_timestamp() - interval '"
+            + ClaimCheck.RETENTION + "') "
+            + "SELECT claim_id, new_entity, old_entity FROM " + CLAIM_TABLE_NAME + " WHERE claim_id = ANY(?)";
 
     private static final String DROP_TRIGGER_TMPLT = "DROP TRIGGER IF EXISTS %s ON %s";
 
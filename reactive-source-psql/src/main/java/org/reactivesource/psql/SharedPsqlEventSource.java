@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.psql;
+
+import org.reactivesource.CaptureSpec;
+import org.reactivesource.Event;
+import org.reactivesource.EventFilter;
+import org.reactivesource.EventSource;
+import org.reactivesource.exceptions.DataAccessException;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.reactivesource.util.Assert.state;
+
+/**
+ * The event source of one table, which receives its notifications over the shared connection of a
+ * {@link PsqlNotificationHub}.
+ */
+class SharedPsqlEventSource implements EventSource {
+
+    private static final String ERROR_MSG_ILLEGALSTATE = "Called getNewEvents before calling connect";
+
+    private final PsqlNotificationHub hub;
+    private final String streamName;
+    private final boolean autoConfig;
+    private final PsqlConfigurator configurator;
+    private final EventFilter eventFilter;
+    private final boolean filterInMemory;
+    private boolean connected = false;
+
+    SharedPsqlEventSource(PsqlNotificationHub hub, String streamName, boolean autoConfig,
+                          PsqlConfigurator configurator, EventFilter eventFilter, CaptureSpec captureSpec) {
+        this.hub = hub;
+        this.streamName = streamName;
+        this.autoConfig = autoConfig;
+        this.configurator = configurator;
+        this.eventFilter = eventFilter;
+        this.filterInMemory = !PsqlQueryGenerator.canPushDownConditions(
+                PsqlQueryGenerator.generateTriggerFilter(eventFilter, captureSpec));
+    }
+
+    @Override public List<Event<Map<String, Object>>> getNewEvents() throws DataAccessException {
+        state(connected, ERROR_MSG_ILLEGALSTATE);
+        List<Event<Map<String, Object>>> events = hub.getNewEvents(streamName);
+        if (filterInMemory) {
+            for (Iterator<Event<Map<String, Object>>> it = events.iterator(); it.hasNext(); ) {
+                if (!eventFilter.matches(it.next())) {
+                    it.remove();
+                }
+            }
+        }
+        return events;
+    }
+
+    @Override public void connect() throws DataAccessException {
+        hub.listen(streamName);
+        connected = true;
+    }
+
+    @Override public void disconnect() {
+        connected = false;
+        hub.unlisten(streamName);
+    }
+
+    @Override public boolean isConnected() {
+        return connected && hub.isConnected();
+    }
+
+    @Override public void setup() {
+        if (autoConfig) {
+            configurator.setup();
+        }
+    }
+
+    @Override public void cleanup() {
+        if (autoConfig) {
+            configurator.cleanup();
+        }
+    }
+}
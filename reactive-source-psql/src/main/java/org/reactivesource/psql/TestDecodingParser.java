@@ -0,0 +1,356 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.psql;
+
+import org.reactivesource.Event;
+import org.reactivesource.EventType;
+
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.reactivesource.util.Assert.hasText;
+
+/**
+ * Parses the messages of the <code>test_decoding</code> output plugin into the events of one table.
+ * <p/>
+ * The plugin sends one text message per change, ie
+ * <pre>
+ *   table public.orders: INSERT: id[integer]:1 status[text]:'NEW'
+ *   table public.orders: UPDATE: old-key: id[integer]:1 new-tuple: id[integer]:2 status[text]:'PAID'
+ *   table public.orders: DELETE: id[integer]:2
+ * </pre>
+ * framed by a <code>BEGIN</code> and a <code>COMMIT (at 2014-05-01 12:00:00.123456+02)</code> message per transaction,
+ * when the slot is read with the <code>include-xids</code> option off and the <code>include-timestamp</code> option
+ * on. Integers are parsed to {@link Integer}s or {@link Long}s, decimals to {@link Double}s and booleans to
+ * {@link Boolean}s, like the values of the JSON payloads of the triggers. The values of the other types are kept as
+ * the text the plugin sends. The columns of TOASTed values that an UPDATE didn't change are left out of the new
+ * entity, since the plugin doesn't send them.
+ * <p/>
+ * The old entity of UPDATE and DELETE events only holds the columns of the replica identity of the table: its primary
+ * key by default, or all its columns with <code>REPLICA IDENTITY FULL</code>. The old entity of an UPDATE is empty if
+ * the key of the row didn't change, unless the identity is full.
+ */
+class TestDecodingParser {
+
+    static final String COMMIT = "COMMIT";
+
+    private static final String TABLE_PREFIX = "table ";
+    private static final String OLD_KEY = "old-key:";
+    private static final String NEW_TUPLE = "new-tuple:";
+    private static final String NO_TUPLE_DATA = "(no-tuple-data)";
+    private static final String UNCHANGED_TOAST = "unchanged-toast-datum";
+    private static final String NULL = "null";
+    private static final Object UNCHANGED_VALUE = new Object();
+    private static final String COMMIT_TIME_PREFIX = "(at ";
+    private static final String COMMIT_SECONDS_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    private static final String COMMIT_TIME_FORMAT = COMMIT_SECONDS_FORMAT + "XXX";
+
+    private final String schemaName;
+    private final String tableName;
+
+    /**
+     * @param tableName the name of the table, optionally qualified with its schema. Unqualified, the changes of the
+     *                  tables of that name in every schema are parsed.
+     */
+    TestDecodingParser(String tableName) {
+        hasText(tableName, "tableName can not be null or empty");
+        String[] name = new Cursor(tableName).readQualifiedName();
+        this.schemaName = name[0];
+        this.tableName = name[1];
+    }
+
+    static boolean isCommit(String message) {
+        return message.startsWith(COMMIT);
+    }
+
+    /**
+     * Parses the time of the commit.
+     *
+     * @return the time in microseconds since the epoch, or {@link Event#UNKNOWN_CHANGE_TIMESTAMP} if the message
+     * doesn't carry it
+     */
+    static long parseCommitTime(String message) {
+        int start = message.indexOf(COMMIT_TIME_PREFIX);
+        int end = message.lastIndexOf(')');
+        if (start < 0 || end < start) {
+            return Event.UNKNOWN_CHANGE_TIMESTAMP;
+        }
+        String timestamp = message.substring(start + COMMIT_TIME_PREFIX.length(), end);
+        int offsetStart = indexOfOffset(timestamp);
+        if (offsetStart < 0) {
+            return Event.UNKNOWN_CHANGE_TIMESTAMP;
+        }
+        String offset = timestamp.substring(offsetStart);
+        int fractionStart = timestamp.indexOf('.');
+        String seconds = timestamp.substring(0, fractionStart > 0 ? fractionStart : offsetStart);
+        try {
+            SimpleDateFormat format = new SimpleDateFormat(COMMIT_TIME_FORMAT);
+            long millis = format.parse(seconds + (offset.length() == 3 ? offset + ":00" : offset)).getTime();
+            long micros = 0;
+            if (fractionStart > 0) {
+                String fraction = timestamp.substring(fractionStart + 1, offsetStart) + "00000";
+                micros = Long.parseLong(fraction.substring(0, 6));
+            }
+            return millis * 1000 + micros;
+        } catch (ParseException | NumberFormatException e) {
+            return Event.UNKNOWN_CHANGE_TIMESTAMP;
+        }
+    }
+
+    /**
+     * @return the start of the UTC offset of a timestamp formatted like <code>2014-05-01 12:00:00.123456+02</code>
+     */
+    private static int indexOfOffset(String timestamp) {
+        for (int i = COMMIT_SECONDS_FORMAT.length(); i < timestamp.length(); i++) {
+            char c = timestamp.charAt(i);
+            if (c == '+' || c == '-') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a change of the table.
+     *
+     * @return the event of the change, without the time of its commit, or <code>null</code> if the message is not an
+     * INSERT, UPDATE or DELETE of the table
+     * @throws InvalidPayloadException if the message can't be parsed
+     */
+    Event<Map<String, Object>> parseChange(String message) {
+        if (!message.startsWith(TABLE_PREFIX)) {
+            return null;
+        }
+        try {
+            Cursor cursor = new Cursor(message);
+            cursor.skip(TABLE_PREFIX);
+            String[] name = cursor.readQualifiedName();
+            if (!isTable(name) || !cursor.skipIf(": ")) {
+                return null;
+            }
+            String operation = cursor.readUntil(':');
+            cursor.skip(":");
+            EventType eventType;
+            try {
+                eventType = EventType.valueOf(operation);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            return parseTuples(cursor, eventType, name[1]);
+        } catch (IndexOutOfBoundsException e) {
+            throw new InvalidPayloadException("Could not parse message: " + message, e);
+        }
+    }
+
+    private Event<Map<String, Object>> parseTuples(Cursor cursor, EventType eventType, String name) {
+        Map<String, Object> empty = Collections.emptyMap();
+        switch (eventType) {
+            case INSERT:
+                return new Event<>(eventType, name, cursor.readTuple(), empty);
+            case DELETE:
+                return new Event<>(eventType, name, empty, cursor.readTuple());
+            default:
+                Map<String, Object> oldEntity = empty;
+                if (cursor.skipIf(OLD_KEY)) {
+                    oldEntity = cursor.readTuple();
+                    cursor.skip(NEW_TUPLE);
+                }
+                return new Event<>(eventType, name, cursor.readTuple(), oldEntity);
+        }
+    }
+
+    private boolean isTable(String[] name) {
+        return tableName.equals(name[1]) && (schemaName == null || schemaName.equals(name[0]));
+    }
+
+    /**
+     * Reads a message from left to right.
+     */
+    private static class Cursor {
+
+        private final String text;
+        private int position = 0;
+
+        Cursor(String text) {
+            this.text = text;
+        }
+
+        void skip(String expected) {
+            if (!skipIf(expected)) {
+                throw new InvalidPayloadException("expected '" + expected + "' at " + position + " of: " + text);
+            }
+        }
+
+        boolean skipIf(String expected) {
+            skipSpaces();
+            if (text.startsWith(expected, position)) {
+                position += expected.length();
+                return true;
+            }
+            return false;
+        }
+
+        String readUntil(char end) {
+            int endPosition = text.indexOf(end, position);
+            if (endPosition < 0) {
+                throw new InvalidPayloadException("expected '" + end + "' after " + position + " of: " + text);
+            }
+            String value = text.substring(position, endPosition);
+            position = endPosition;
+            return value;
+        }
+
+        /**
+         * Reads a name qualified with its schema, whose parts are quoted if needed.
+         *
+         * @return the schema, or <code>null</code> if the name is not qualified, and the name
+         */
+        String[] readQualifiedName() {
+            String first = readIdentifier();
+            if (position < text.length() && text.charAt(position) == '.') {
+                position++;
+                return new String[]{first, readIdentifier()};
+            }
+            return new String[]{null, first};
+        }
+
+        /**
+         * Reads an identifier. Identifiers that are not quoted are folded to lower case, like Postgres does.
+         */
+        String readIdentifier() {
+            if (text.charAt(position) == '"') {
+                return readQuoted('"');
+            }
+            int start = position;
+            while (position < text.length() && isIdentifierChar(text.charAt(position))) {
+                position++;
+            }
+            return text.substring(start, position).toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * Reads the columns of a tuple, up to the end of the message or to the <code>new-tuple:</code> marker.
+         */
+        Map<String, Object> readTuple() {
+            Map<String, Object> tuple = new LinkedHashMap<>();
+            if (skipIf(NO_TUPLE_DATA)) {
+                return tuple;
+            }
+            skipSpaces();
+            while (position < text.length() && !text.startsWith(NEW_TUPLE, position)) {
+                String column = readIdentifier();
+                skip("[");
+                String type = readType();
+                Object value = readValue(type);
+                if (value != UNCHANGED_VALUE) {
+                    tuple.put(column, value);
+                }
+                skipSpaces();
+            }
+            return tuple;
+        }
+
+        /**
+         * Reads the type of a column, which may contain spaces and brackets, ie <code>[character varying]</code> or
+         * <code>[integer[]]</code>.
+         */
+        private String readType() {
+            int end = text.indexOf("]:", position);
+            if (end < 0) {
+                throw new InvalidPayloadException("expected the type of a column at " + position + " of: " + text);
+            }
+            String type = text.substring(position, end);
+            position = end + 2;
+            return type;
+        }
+
+        private Object readValue(String type) {
+            char first = text.charAt(position);
+            if (first == '\'') {
+                return readQuoted('\'');
+            }
+            if (first == 'B' && text.charAt(position + 1) == '\'') {
+                position++;
+                return readQuoted('\'');
+            }
+            int start = position;
+            while (position < text.length() && text.charAt(position) != ' ') {
+                position++;
+            }
+            String token = text.substring(start, position);
+            switch (token) {
+                case NULL:
+                    return null;
+                case UNCHANGED_TOAST:
+                    return UNCHANGED_VALUE;
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+                default:
+                    return parseNumber(token, type);
+            }
+        }
+
+        private Object parseNumber(String token, String type) {
+            try {
+                if (token.indexOf('.') >= 0 || token.indexOf('e') >= 0 || token.indexOf('E') >= 0
+                        || token.endsWith("NaN") || token.endsWith("Infinity")) {
+                    return Double.valueOf(token);
+                }
+                long value = Long.parseLong(token);
+                if (value == (int) value) {
+                    return (int) value;
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                try {
+                    return new BigInteger(token);
+                } catch (NumberFormatException nfe) {
+                    throw new InvalidPayloadException("Could not parse the " + type + " value: " + token, nfe);
+                }
+            }
+        }
+
+        /**
+         * Reads a quoted text, whose quotes are doubled.
+         */
+        private String readQuoted(char quote) {
+            StringBuilder value = new StringBuilder();
+            position++;
+            while (true) {
+                int end = text.indexOf(quote, position);
+                if (end < 0) {
+                    throw new InvalidPayloadException("unterminated quote after " + position + " of: " + text);
+                }
+                value.append(text, position, end);
+                position = end + 1;
+                if (position < text.length() && text.charAt(position) == quote) {
+                    value.append(quote);
+                    position++;
+                } else {
+                    return value.toString();
+                }
+            }
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && text.charAt(position) == ' ') {
+                position++;
+            }
+        }
+
+        private static boolean isIdentifierChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+        }
+    }
+}
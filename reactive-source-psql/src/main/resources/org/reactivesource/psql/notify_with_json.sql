@@ -10,19 +10,20 @@ DECLARE
   oldDataJson TEXT;
 BEGIN
   IF (TG_OP = 'DELETE') THEN
-  	oldDataJson := row_to_json(OLD, true);
+  	oldDataJson := row_to_json(OLD);
   	newDataJson := '{}';
   ELSIF (TG_OP = 'INSERT') THEN
   	oldDataJson := '{}';
-  	newDataJson := row_to_json(NEW, true);
+  	newDataJson := row_to_json(NEW);
   ELSIF (TG_OP = 'UPDATE') THEN
-  	oldDataJson := row_to_json(OLD, true);
-    newDataJson := row_to_json(NEW, true);
+  	oldDataJson := row_to_json(OLD);
+    newDataJson := row_to_json(NEW);
   END IF;
 
   PERFORM pg_notify(TG_ARGV[0],
     '{' || '"eventType":' || '"' || TG_OP || '",' ||
            '"tableName":' || '"' || TG_TABLE_NAME || '",' || 
+           '"changeTime":' || (extract(epoch FROM clock_timestamp()) * 1000000)::bigint || ',' ||
            '"newEntity":' || newDataJson || ',' ||
            '"oldEntity":' || oldDataJson || '}');
   RETURN NULL;
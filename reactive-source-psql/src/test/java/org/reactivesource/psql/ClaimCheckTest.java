@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.psql;
+
+import org.testng.annotations.Test;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class ClaimCheckTest {
+
+    @Test(groups = SMALL)
+    public void testNeverIsNotEnabled() {
+        assertFalse(ClaimCheck.NEVER.isEnabled());
+    }
+
+    @Test(groups = SMALL)
+    public void testAlwaysClaimsImagesOfAnySize() {
+        assertTrue(ClaimCheck.ALWAYS.isEnabled());
+        assertEquals(ClaimCheck.ALWAYS.getThresholdBytes(), 0);
+    }
+
+    @Test(groups = SMALL)
+    public void testClaimChecksWithTheSameThresholdAreEqual() {
+        assertEquals(ClaimCheck.above(4000), ClaimCheck.above(4000));
+        assertNotEquals(ClaimCheck.above(4000), ClaimCheck.above(2000));
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testThresholdCanNotBeNegative() {
+        ClaimCheck.above(-1);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testThresholdMustLeaveRoomForTheHeaderOfThePayload() {
+        ClaimCheck.above(ClaimCheck.MAX_PAYLOAD_BYTES);
+    }
+}
@@ -7,10 +7,22 @@
 package org.reactivesource.psql;
 
 import org.mockito.Mock;
+import org.reactivesource.CaptureSpec;
 import org.reactivesource.ConnectionProvider;
+import org.reactivesource.EventFilter;
+import org.reactivesource.EventType;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 import static org.reactivesource.testing.TestConstants.*;
 
@@ -49,4 +61,30 @@ public class PsqlConfiguratorTest {
         new PsqlConfigurator(connectionProvider, "asd", null);
     }
 
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCantCombineAClaimCheckWithASpecCapturingTheChangedColumnsOnly() {
+        new PsqlConfigurator(connectionProvider, "asd", "asd_d", EventFilter.ALL,
+                CaptureSpec.ALL.withChangedColumnsOnly(), ClaimCheck.ALWAYS);
+    }
+
+    @Test(groups = SMALL)
+    public void testSetupCreatesTheClaimTableAndAStatementTriggerPerEventType() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        PreparedStatement triggerCheckStmt = mock(PreparedStatement.class);
+        ResultSet noTrigger = mock(ResultSet.class);
+        when(connectionProvider.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(stmt);
+        when(connection.prepareStatement(anyString())).thenReturn(triggerCheckStmt);
+        when(triggerCheckStmt.executeQuery()).thenReturn(noTrigger);
+
+        new PsqlConfigurator(connectionProvider, "asd", "asd_d", EventFilter.ALL.withEventTypes(EventType.INSERT,
+                EventType.DELETE), CaptureSpec.ALL.perStatement(), ClaimCheck.NEVER).setup();
+
+        verify(stmt).executeUpdate(PsqlQueryGenerator.CREATE_CLAIM_TABLE_QUERY);
+        verify(stmt).executeUpdate(contains("AFTER INSERT ON asd REFERENCING NEW TABLE AS new_rows"));
+        verify(stmt).executeUpdate(contains("AFTER DELETE ON asd REFERENCING OLD TABLE AS old_rows"));
+        verify(stmt, times(4)).executeUpdate(anyString());
+    }
+
 }
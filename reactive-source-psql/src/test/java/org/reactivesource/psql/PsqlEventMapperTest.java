@@ -11,6 +11,9 @@ import org.reactivesource.Event;
 import org.reactivesource.EventType;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 import static org.reactivesource.testing.TestConstants.*;
@@ -29,6 +32,26 @@ public class PsqlEventMapperTest {
             + "'oldEntity': {}, 'newEntity': {'id': 1, 'value': 'def'}}";
     private static final String JSON_NESTED_RESPONSE_INSERT = "{'tableName': 'test', 'eventType': 'INSERT',"
             + "'oldEntity': {}, 'newEntity': {'id': 1, 'value': {'id':3}}}";
+    private static final String JSON_ENTITIES_FIRST_RESPONSE = "{'newEntity': {'id': 1}, 'oldEntity': {},"
+            + "'extra': [1, {'a': 2}], 'eventType': 'INSERT', 'tableName': 'test'}";
+    private static final String JSON_WITH_CHANGE_TIME = "{'tableName': 'test', 'eventType': 'INSERT',"
+            + "'changeTime': 1400000000123456, 'newEntity': {'id': 1}, 'oldEntity': {}}";
+    private static final String JSON_WITH_INVALID_CHANGE_TIME = "{'tableName': 'test', 'eventType': 'INSERT',"
+            + "'changeTime': 'yesterday', 'newEntity': {'id': 1}, 'oldEntity': {}}";
+    private static final String JSON_WITH_CLAIM = "{'tableName': 'test', 'eventType': 'UPDATE',"
+            + "'changeTime': 1400000000123456, 'claimId': 42}";
+    private static final String JSON_WITH_CHANGES = "{'eventType': 'UPDATE', 'tableName': 'test',"
+            + "'changeTime': 1400000000123456, 'key': {'id': 7},"
+            + "'changes': {'status': ['NEW', 'PAID'], 'note': [null, 'x']}}";
+    private static final String JSON_WITH_CHANGED_KEY = "{'eventType': 'UPDATE', 'tableName': 'test',"
+            + "'key': {'id': 7}, 'changes': {'id': [7, 8]}}";
+    private static final String JSON_WITH_INVALID_CHANGE = "{'eventType': 'UPDATE', 'tableName': 'test',"
+            + "'key': {'id': 7}, 'changes': {'status': 'PAID'}}";
+    private static final String JSON_WITH_STATEMENT_ROWS = "{'eventType': 'UPDATE', 'tableName': 'test',"
+            + "'changeTime': 1400000000123456, 'newEntities': [{'id': 1}, {'id': 2}, {}],"
+            + "'oldEntities': [{'id': 1, 'v': 'a'}, {}, {'id': 3}]}";
+    private static final String JSON_WITH_STATEMENT_INSERTS = "{'eventType': 'INSERT', 'tableName': 'test',"
+            + "'newEntities': [{'id': 1}, {'id': 2}], 'oldEntities': []}";
     private static final String JSON_NULL_OLD_ENTITY = "{'tableName': 'test', 'eventType': 'UPDATE', 'newEntity': {}, 'oldEntity': null}";
 
     private PsqlEventMapper mapper = new PsqlEventMapper();
@@ -63,6 +86,22 @@ public class PsqlEventMapperTest {
         mapper.parseResponse(JSON_NULL_OLD_ENTITY);
     }
 
+    @Test(groups = SMALL, expectedExceptions = InvalidPayloadException.class)
+    public void testParsingPayloadWithNonNumericChangeTimeThrowsException() {
+        mapper.parseResponse(JSON_WITH_INVALID_CHANGE_TIME);
+    }
+
+    @Test(groups = SMALL)
+    public void testEventsCarryTheChangeTimeOfThePayload() {
+        assertEquals(mapper.parseResponse(JSON_WITH_CHANGE_TIME).getChangeTimestamp(), 1400000000123456L);
+    }
+
+    @Test(groups = SMALL)
+    public void testChangeTimeIsUnknownForPayloadsWithoutIt() {
+        assertEquals(mapper.parseResponse(JSON_CORRECT_RESPONSE).getChangeTimestamp(),
+                Event.UNKNOWN_CHANGE_TIMESTAMP);
+    }
+
     @Test(groups = SMALL)
     public void testParsingPayloadDoesntFailForEmptyRow() {
         Event<Map<String, Object>> event = mapper.parseResponse(JSON_CORRECT_RESPONSE_INSERT);
@@ -92,4 +131,102 @@ public class PsqlEventMapperTest {
         assertEquals(event.getOldEntity(), expectedOldEntity);
 
     }
+
+    @Test(groups = SMALL)
+    public void testParsingDoesNotDependOnTheOrderOfTheFields() {
+        Event<Map<String, Object>> event = mapper.parseResponse(JSON_ENTITIES_FIRST_RESPONSE);
+        assertEquals(event.getEventType(), EventType.INSERT);
+        assertEquals(event.getEntityName(), "test");
+        assertEquals(event.getNewEntity().get("id"), 1);
+    }
+
+    @Test(groups = SMALL)
+    public void testPayloadsWithAClaimAreParsedIntoClaimCheckEvents() {
+        Event<Map<String, Object>> event = mapper.parseResponse(JSON_WITH_CLAIM);
+
+        assertTrue(event instanceof ClaimCheckEvent);
+        assertEquals(((ClaimCheckEvent) event).getClaimId(), 42L);
+        assertEquals(event.getEventType(), EventType.UPDATE);
+        assertEquals(event.getChangeTimestamp(), 1400000000123456L);
+    }
+
+    @Test(groups = SMALL)
+    public void testClaimedEntitiesAreParsedIntoRows() {
+        List<Map<String, Object>> rows = mapper.parseRows("{\"id\": 1, \"name\": \"a\"}");
+
+        assertEquals(rows.size(), 1);
+        assertEquals(rows.get(0).get("id"), 1);
+        assertEquals(rows.get(0).get("name"), "a");
+    }
+
+    @Test(groups = SMALL)
+    public void testClaimedEntitiesOfAStatementAreParsedIntoRows() {
+        List<Map<String, Object>> rows = mapper.parseRows("[{\"id\": 1}, {\"id\": 2}]");
+
+        assertEquals(rows.size(), 2);
+        assertEquals(rows.get(1).get("id"), 2);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = InvalidPayloadException.class)
+    public void testParsingAClaimedEntityThatIsNotAnObjectThrowsException() {
+        mapper.parseRows("[1]");
+    }
+
+    @Test(groups = SMALL)
+    public void testPayloadsWithChangesCarryTheKeyAndTheChangedColumnsInBothEntities() {
+        Event<Map<String, Object>> event = mapper.parseResponse(JSON_WITH_CHANGES);
+
+        assertEquals(event.getEventType(), EventType.UPDATE);
+        assertEquals(event.getChangeTimestamp(), 1400000000123456L);
+        assertEquals(event.getNewEntity().keySet(), new LinkedHashSet<>(Arrays.asList("id", "status", "note")));
+        assertEquals(event.getNewEntity().get("id"), 7);
+        assertEquals(event.getNewEntity().get("status"), "PAID");
+        assertEquals(event.getNewEntity().get("note"), "x");
+        assertEquals(event.getOldEntity().get("id"), 7);
+        assertEquals(event.getOldEntity().get("status"), "NEW");
+        assertNull(event.getOldEntity().get("note"));
+        assertTrue(event.getOldEntity().containsKey("note"));
+    }
+
+    @Test(groups = SMALL)
+    public void testChangedKeyColumnsCarryTheirOldAndNewValues() {
+        Event<Map<String, Object>> event = mapper.parseResponse(JSON_WITH_CHANGED_KEY);
+
+        assertEquals(event.getNewEntity().size(), 1);
+        assertEquals(event.getNewEntity().get("id"), 8);
+        assertEquals(event.getOldEntity().get("id"), 7);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = InvalidPayloadException.class)
+    public void testParsingChangesThatAreNotOldAndNewValuesThrowsException() {
+        mapper.parseResponse(JSON_WITH_INVALID_CHANGE);
+    }
+
+    @Test(groups = SMALL)
+    public void testPayloadsOfAStatementAreParsedIntoOneEventPerRow() {
+        List<Event<Map<String, Object>>> events = mapper.parseEvents(JSON_WITH_STATEMENT_ROWS);
+
+        assertEquals(events.size(), 3);
+        assertEquals(events.get(0).getEventType(), EventType.UPDATE);
+        assertEquals(events.get(0).getChangeTimestamp(), 1400000000123456L);
+        assertEquals(events.get(0).getNewEntity().get("id"), 1);
+        assertEquals(events.get(0).getOldEntity().get("v"), "a");
+        assertTrue(events.get(1).getOldEntity().isEmpty());
+        assertTrue(events.get(2).getNewEntity().isEmpty());
+        assertEquals(events.get(2).getOldEntity().get("id"), 3);
+    }
+
+    @Test(groups = SMALL)
+    public void testMissingEntitiesOfTheRowsOfAStatementAreEmpty() {
+        List<Event<Map<String, Object>>> events = mapper.parseEvents(JSON_WITH_STATEMENT_INSERTS);
+
+        assertEquals(events.size(), 2);
+        assertEquals(events.get(1).getNewEntity().get("id"), 2);
+        assertTrue(events.get(1).getOldEntity().isEmpty());
+    }
+
+    @Test(groups = SMALL, expectedExceptions = InvalidPayloadException.class)
+    public void testParsingThePayloadOfAStatementIntoOneEventThrowsException() {
+        mapper.parseResponse(JSON_WITH_STATEMENT_INSERTS);
+    }
 }
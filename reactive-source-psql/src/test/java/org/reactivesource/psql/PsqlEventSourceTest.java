@@ -8,10 +8,15 @@ package org.reactivesource.psql;
 
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.postgresql.PGConnection;
 import org.postgresql.PGNotification;
 import org.reactivesource.ConnectionProvider;
+import org.reactivesource.CaptureSpec;
+import org.reactivesource.ColumnCondition;
 import org.reactivesource.Event;
+import org.reactivesource.EventFilter;
 import org.reactivesource.EventSource;
 import org.reactivesource.EventType;
 import org.reactivesource.exceptions.DataAccessException;
@@ -20,6 +25,7 @@ import org.testng.annotations.Test;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashMap;
@@ -180,6 +186,46 @@ public class PsqlEventSourceTest {
         verify(mockedPgConnection, times(1)).getNotifications();
     }
 
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotInitializeWithNegativeNotificationTimeout() {
+        PsqlEventSource.builder(connectionProvider, TABLE_NAME).withNotificationTimeout(-1L);
+    }
+
+    @Test(groups = SMALL)
+    public void testWaitingSourceWaitsForTheNotificationsWithoutQuerying() throws SQLException {
+        eventSource = waitingEventSource();
+        Statement mockedStmt = mock(Statement.class);
+        when(mockedConnection.createStatement()).thenReturn(mockedStmt);
+        when(mockedPgConnection.getNotifications(1000)).thenReturn(new PGNotification[] {
+                new MyPGNotification(STREAM_NAME, VALID_PAYLOAD)
+        });
+
+        eventSource.connect();
+        assertEquals(eventSource.getNewEvents().size(), 1);
+
+        verify(mockedPgConnection, never()).getNotifications();
+        verify(mockedStmt, never()).executeQuery(anyString());
+    }
+
+    @Test(groups = SMALL)
+    public void testWaitingSourceOnlyChecksTheConnectionAfterAnIdleWait() throws SQLException {
+        eventSource = waitingEventSource();
+        Statement mockedStmt = mock(Statement.class);
+        when(mockedConnection.createStatement()).thenReturn(mockedStmt);
+        when(mockedPgConnection.getNotifications(1000)).thenReturn(new PGNotification[] {
+                new MyPGNotification(STREAM_NAME, VALID_PAYLOAD)
+        }).thenReturn(new PGNotification[0]);
+        eventSource.connect();
+
+        eventSource.getNewEvents();
+        assertTrue(eventSource.isConnected());
+        verify(mockedStmt, never()).execute(PsqlEventSource.DUMMY_QUERY);
+
+        eventSource.getNewEvents();
+        assertTrue(eventSource.isConnected());
+        verify(mockedStmt).execute(PsqlEventSource.DUMMY_QUERY);
+    }
+
     @Test(groups = SMALL)
     public void testGetNewEventsParsesTheNotificationsPaylodToCreateANewEvent() throws SQLException {
         when(mockedPgConnection.getNotifications()).thenReturn(new PGNotification[] {
@@ -189,7 +235,7 @@ public class PsqlEventSourceTest {
         eventSource.connect();
         eventSource.getNewEvents();
 
-        verify(mapper).parseResponse(VALID_PAYLOAD);
+        verify(mapper).parseEvents(VALID_PAYLOAD);
     }
 
     @Test(groups = SMALL)
@@ -226,6 +272,41 @@ public class PsqlEventSourceTest {
         eventSource.getNewEvents();
     }
 
+    @Test(groups = SMALL)
+    public void testGetNewEventsEvaluatesTheFilterWhenTheTriggerCanNotEvaluateIt() throws SQLException {
+        EventFilter filter = EventFilter.ALL.withEventTypes(EventType.INSERT, EventType.DELETE)
+                .withCondition("a", ColumnCondition.Operator.EQUALS, "c");
+        eventSource = PsqlEventSource.builder(connectionProvider, TABLE_NAME).withEventFilter(filter).build();
+
+        when(mockedPgConnection.getNotifications()).thenReturn(new PGNotification[] {
+                new MyPGNotification(STREAM_NAME, VALID_PAYLOAD)
+        });
+
+        eventSource.connect();
+        assertTrue(eventSource.getNewEvents().isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testFilteredEventSourceListensToItsOwnStream() throws SQLException {
+        EventFilter filter = EventFilter.ALL.withEventTypes(EventType.INSERT)
+                .withCondition("a", ColumnCondition.Operator.EQUALS, "c");
+        eventSource = PsqlEventSource.builder(connectionProvider, TABLE_NAME).withEventFilter(filter).build();
+
+        eventSource.connect();
+
+        String filteredStreamName = STREAM_NAME + PsqlQueryGenerator.generateNameSuffix(filter, CaptureSpec.ALL);
+        assertNotEquals(filteredStreamName, STREAM_NAME);
+        verify(mockedConnection.createStatement()).execute(PsqlEventSource.REGISTER_STREAM_QUERY + filteredStreamName);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotInitializeWithFilterOnColumnsThatAreNotCaptured() {
+        PsqlEventSource.builder(connectionProvider, TABLE_NAME)
+                .withEventFilter(EventFilter.ALL.withCondition("a", ColumnCondition.Operator.EQUALS, "c"))
+                .withCaptureSpec(CaptureSpec.ALL.withColumns("b"))
+                .build();
+    }
+
     @Test(groups = SMALL)
     public void testReactiveDataSourceDoesntAutoConfigureTheDbIfInitializedWithFalse() {
         PsqlConfigurator configurator = mock(PsqlConfigurator.class);
@@ -282,6 +363,129 @@ public class PsqlEventSourceTest {
         eventSource = new PsqlEventSource(connectionProvider, TABLE_NAME);
     }
 
+    @Test(groups = SMALL)
+    public void testClaimedImagesOfAllTheNotificationsAreReadWithOneQuery() throws SQLException {
+        eventSource = claimCheckEventSource();
+        PreparedStatement claimsStmt = mockClaims(new Object[][]{
+                {7L, "{\"id\": 2}", "{\"id\": 1}"},
+                {8L, "{\"id\": 3}", "{}"}});
+        when(mockedPgConnection.getNotifications()).thenReturn(new PGNotification[] {
+                new MyPGNotification(STREAM_NAME, claimPayload("UPDATE", 7)),
+                new MyPGNotification(STREAM_NAME, VALID_PAYLOAD),
+                new MyPGNotification(STREAM_NAME, claimPayload("INSERT", 8))
+        });
+        eventSource.connect();
+
+        List<Event<Map<String, Object>>> events = eventSource.getNewEvents();
+
+        assertEquals(events.size(), 3);
+        assertEquals(events.get(0).getEventType(), EventType.UPDATE);
+        assertEquals(events.get(0).getNewEntity().get("id"), 2);
+        assertEquals(events.get(0).getOldEntity().get("id"), 1);
+        assertEquals(events.get(1).getNewEntity().get("a"), "b");
+        assertEquals(events.get(2).getNewEntity().get("id"), 3);
+        assertTrue(events.get(2).getOldEntity().isEmpty());
+        verify(claimsStmt, times(1)).executeQuery();
+    }
+
+    @Test(groups = SMALL)
+    public void testNotificationsWithoutClaimsDontQueryTheClaimTable() throws SQLException {
+        eventSource = claimCheckEventSource();
+        PreparedStatement claimsStmt = mockClaims(new Object[0][]);
+        when(mockedPgConnection.getNotifications()).thenReturn(new PGNotification[] {
+                new MyPGNotification(STREAM_NAME, VALID_PAYLOAD)
+        });
+        eventSource.connect();
+
+        assertEquals(eventSource.getNewEvents().size(), 1);
+        verify(claimsStmt, never()).executeQuery();
+    }
+
+    @Test(groups = SMALL)
+    public void testEventsWhoseClaimWasPurgedAreDropped() throws SQLException {
+        eventSource = claimCheckEventSource();
+        mockClaims(new Object[0][]);
+        when(mockedPgConnection.getNotifications()).thenReturn(new PGNotification[] {
+                new MyPGNotification(STREAM_NAME, claimPayload("DELETE", 9))
+        });
+        eventSource.connect();
+
+        assertTrue(eventSource.getNewEvents().isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testNotificationsOfAStatementAreExpandedIntoOneEventPerRow() throws SQLException {
+        eventSource = claimCheckEventSource();
+        when(mockedPgConnection.getNotifications()).thenReturn(new PGNotification[] {
+                new MyPGNotification(STREAM_NAME, "{\"eventType\":\"INSERT\",\"tableName\":\"aTable\"," +
+                        "\"newEntities\":[{\"id\":1},{\"id\":2}],\"oldEntities\":[]}")
+        });
+        eventSource.connect();
+
+        List<Event<Map<String, Object>>> events = eventSource.getNewEvents();
+
+        assertEquals(events.size(), 2);
+        assertEquals(events.get(1).getNewEntity().get("id"), 2);
+    }
+
+    @Test(groups = SMALL)
+    public void testClaimedRowsOfAStatementAreExpandedIntoOneEventPerRow() throws SQLException {
+        eventSource = claimCheckEventSource();
+        mockClaims(new Object[][]{{7L, "[{\"id\": 2}, {\"id\": 3}]", "[{\"id\": 1}, {}]"}});
+        when(mockedPgConnection.getNotifications()).thenReturn(new PGNotification[] {
+                new MyPGNotification(STREAM_NAME, claimPayload("UPDATE", 7))
+        });
+        eventSource.connect();
+
+        List<Event<Map<String, Object>>> events = eventSource.getNewEvents();
+
+        assertEquals(events.size(), 2);
+        assertEquals(events.get(0).getNewEntity().get("id"), 2);
+        assertEquals(events.get(0).getOldEntity().get("id"), 1);
+        assertEquals(events.get(1).getNewEntity().get("id"), 3);
+        assertTrue(events.get(1).getOldEntity().isEmpty());
+    }
+
+    private PsqlEventSource claimCheckEventSource() {
+        return PsqlEventSource.builder(connectionProvider, TABLE_NAME).withClaimCheck(ClaimCheck.ALWAYS).build();
+    }
+
+    private PreparedStatement mockClaims(Object[][] claims) throws SQLException {
+        PreparedStatement claimsStmt = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(mockedConnection.prepareStatement(PsqlQueryGenerator.READ_CLAIMS_QUERY)).thenReturn(claimsStmt);
+        when(claimsStmt.executeQuery()).thenReturn(rs);
+        final Object[][] rows = claims;
+        final int[] row = {-1};
+        when(rs.next()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                return ++row[0] < rows.length;
+            }
+        });
+        when(rs.getLong(1)).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) {
+                return (Long) rows[row[0]][0];
+            }
+        });
+        when(rs.getString(anyInt())).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                return (String) rows[row[0]][(Integer) invocation.getArguments()[0] - 1];
+            }
+        });
+        return claimsStmt;
+    }
+
+    private static String claimPayload(String eventType, long claimId) {
+        return "{\"eventType\":\"" + eventType + "\",\"tableName\":\"aTable\",\"claimId\":" + claimId + "}";
+    }
+
+    private PsqlEventSource waitingEventSource() {
+        return PsqlEventSource.builder(connectionProvider, TABLE_NAME).withNotificationTimeout(1000L).build();
+    }
+
     private void setupConnectionProviderAndConnectionMocks() throws SQLException {
         Connection firstConnectionDuringInit = mock(Connection.class);
         mockedPgConnection = mock(PGConnection.class, withSettings().extraInterfaces(Connection.class));
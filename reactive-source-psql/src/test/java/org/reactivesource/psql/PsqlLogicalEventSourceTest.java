@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.psql;
+
+import org.mockito.Mock;
+import org.postgresql.PGConnection;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationConnection;
+import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.fluent.ChainedStreamBuilder;
+import org.postgresql.replication.fluent.logical.ChainedLogicalStreamBuilder;
+import org.reactivesource.ConnectionProvider;
+import org.reactivesource.Event;
+import org.reactivesource.EventFilter;
+import org.reactivesource.EventType;
+import org.reactivesource.exceptions.ConfigurationException;
+import org.reactivesource.exceptions.DataAccessException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.reactivesource.psql.PsqlLogicalEventSource.CREATE_SLOT_QUERY;
+import static org.reactivesource.psql.PsqlLogicalEventSource.DROP_SLOT_QUERY;
+import static org.reactivesource.psql.PsqlLogicalEventSource.FIND_SLOT_QUERY;
+import static org.reactivesource.psql.PsqlLogicalEventSource.OUTPUT_PLUGIN;
+import static org.reactivesource.psql.PsqlLogicalEventSource.REPLICATION_PROPERTIES;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class PsqlLogicalEventSourceTest {
+
+    private static final String TABLE_NAME = "orders";
+    private static final String SLOT_NAME = "orders_slot";
+    private static final LogSequenceNumber FIRST_COMMIT = LogSequenceNumber.valueOf(100L);
+    private static final LogSequenceNumber SECOND_COMMIT = LogSequenceNumber.valueOf(200L);
+
+    @Mock
+    private ConnectionProvider connectionProvider;
+    @Mock
+    private ConnectionProvider replicationConnectionProvider;
+    @Mock
+    private PGReplicationStream stream;
+    @Mock
+    private ChainedLogicalStreamBuilder streamBuilder;
+
+    private Connection connection;
+    private Connection replicationConnection;
+
+    @BeforeMethod(groups = SMALL)
+    public void setUp() throws SQLException {
+        initMocks(this);
+        connection = mock(Connection.class);
+        Statement stmt = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(stmt);
+        when(connectionProvider.getConnection()).thenReturn(connection);
+
+        PGConnection pgConnection = mock(PGConnection.class, withSettings().extraInterfaces(Connection.class));
+        replicationConnection = (Connection) pgConnection;
+        PGReplicationConnection replicationApi = mock(PGReplicationConnection.class);
+        ChainedStreamBuilder chainedStreamBuilder = mock(ChainedStreamBuilder.class);
+        when(pgConnection.getReplicationAPI()).thenReturn(replicationApi);
+        when(replicationApi.replicationStream()).thenReturn(chainedStreamBuilder);
+        when(chainedStreamBuilder.logical()).thenReturn(streamBuilder);
+        when(streamBuilder.withSlotName(anyString())).thenReturn(streamBuilder);
+        when(streamBuilder.withSlotOption(anyString(), anyBoolean())).thenReturn(streamBuilder);
+        when(streamBuilder.withStatusInterval(anyInt(), any(TimeUnit.class))).thenReturn(streamBuilder);
+        when(streamBuilder.withStartPosition(any(LogSequenceNumber.class))).thenReturn(streamBuilder);
+        when(streamBuilder.start()).thenReturn(stream);
+        when(replicationConnectionProvider.getConnection()).thenReturn(replicationConnection);
+    }
+
+    @Test(groups = SMALL)
+    public void testTheChangesOfTheTableAreReturnedWithTheTimeOfTheirCommit() throws SQLException {
+        PsqlLogicalEventSource eventSource = connectedEventSource(EventFilter.ALL);
+        stream(FIRST_COMMIT, "BEGIN",
+                "table public.orders: INSERT: id[integer]:1 status[text]:'NEW'",
+                "table public.customers: INSERT: id[integer]:7",
+                "table public.orders: UPDATE: id[integer]:1 status[text]:'PAID'",
+                "COMMIT (at 2014-05-13 16:53:20.123456+00)");
+
+        List<Event<Map<String, Object>>> events = eventSource.getNewEvents();
+
+        assertEquals(events.size(), 2);
+        assertEquals(events.get(0).getEventType(), EventType.INSERT);
+        assertEquals(events.get(0).getEntityName(), TABLE_NAME);
+        assertEquals(events.get(0).getChangeTimestamp(), 1400000000123456L);
+        assertEquals(events.get(1).getEventType(), EventType.UPDATE);
+        assertEquals(events.get(1).getNewEntity().get("status"), "PAID");
+    }
+
+    @Test(groups = SMALL)
+    public void testTheChangesOfATransactionAreOnlyReturnedOnceItIsCommitted() throws SQLException {
+        PsqlLogicalEventSource eventSource = connectedEventSource(EventFilter.ALL);
+        stream(FIRST_COMMIT, "BEGIN", "table public.orders: INSERT: id[integer]:1");
+        assertTrue(eventSource.getNewEvents().isEmpty());
+
+        stream(FIRST_COMMIT, "COMMIT (at 2014-05-13 16:53:20+00)");
+        List<Event<Map<String, Object>>> events = eventSource.getNewEvents();
+
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0).getNewEntity().get("id"), 1);
+    }
+
+    @Test(groups = SMALL)
+    public void testTheEventsAreFilteredInMemory() throws SQLException {
+        PsqlLogicalEventSource eventSource = connectedEventSource(EventFilter.ALL.withEventTypes(EventType.DELETE));
+        stream(FIRST_COMMIT, "BEGIN", "table public.orders: INSERT: id[integer]:1",
+                "table public.orders: DELETE: id[integer]:2", "COMMIT (at 2014-05-13 16:53:20+00)");
+
+        List<Event<Map<String, Object>>> events = eventSource.getNewEvents();
+
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0).getEventType(), EventType.DELETE);
+    }
+
+    @Test(groups = SMALL)
+    public void testTheReturnedEventsAreAcknowledgedByTheNextPoll() throws SQLException {
+        PsqlLogicalEventSource eventSource = connectedEventSource(EventFilter.ALL);
+        stream(FIRST_COMMIT, "BEGIN", "table public.orders: INSERT: id[integer]:1", "COMMIT");
+
+        eventSource.getNewEvents();
+        verify(stream, never()).setFlushedLSN(any(LogSequenceNumber.class));
+
+        eventSource.getNewEvents();
+        verify(stream).setAppliedLSN(FIRST_COMMIT);
+        verify(stream).setFlushedLSN(FIRST_COMMIT);
+    }
+
+    @Test(groups = SMALL)
+    public void testTheTransactionsOfOtherTablesAreAcknowledged() throws SQLException {
+        PsqlLogicalEventSource eventSource = connectedEventSource(EventFilter.ALL);
+        stream(SECOND_COMMIT, "BEGIN", "table public.customers: INSERT: id[integer]:7", "COMMIT");
+
+        assertTrue(eventSource.getNewEvents().isEmpty());
+        eventSource.getNewEvents();
+
+        verify(stream).setFlushedLSN(SECOND_COMMIT);
+    }
+
+    @Test(groups = SMALL)
+    public void testDisconnectAcknowledgesTheReturnedEvents() throws SQLException {
+        PsqlLogicalEventSource eventSource = connectedEventSource(EventFilter.ALL);
+        stream(FIRST_COMMIT, "BEGIN", "table public.orders: INSERT: id[integer]:1", "COMMIT");
+        eventSource.getNewEvents();
+
+        eventSource.disconnect();
+
+        verify(stream).setFlushedLSN(FIRST_COMMIT);
+        verify(stream).forceUpdateStatus();
+        verify(stream).close();
+        verify(replicationConnection).close();
+        assertFalse(eventSource.isConnected());
+    }
+
+    @Test(groups = SMALL)
+    public void testReconnectingStreamsAfterTheReturnedEvents() throws SQLException {
+        PsqlLogicalEventSource eventSource = connectedEventSource(EventFilter.ALL);
+        verify(streamBuilder, never()).withStartPosition(any(LogSequenceNumber.class));
+        stream(FIRST_COMMIT, "BEGIN", "table public.orders: INSERT: id[integer]:1", "COMMIT");
+        eventSource.getNewEvents();
+
+        when(replicationConnection.isClosed()).thenReturn(true);
+        assertFalse(eventSource.isConnected());
+        eventSource.connect();
+
+        verify(streamBuilder).withStartPosition(FIRST_COMMIT);
+        verify(streamBuilder, times(2)).withSlotName(SLOT_NAME);
+        verify(streamBuilder, times(2)).withSlotOption("include-timestamp", true);
+    }
+
+    @Test(groups = SMALL)
+    public void testTheEventsOfAFailedPollAreNotAcknowledged() throws SQLException {
+        PsqlLogicalEventSource eventSource = connectedEventSource(EventFilter.ALL);
+        stream(FIRST_COMMIT, "BEGIN", "table public.orders: INSERT: id[integer]:1", "COMMIT",
+                "BEGIN", "table public.orders: INSERT: status[text]:'unterminated");
+        try {
+            eventSource.getNewEvents();
+            fail("reading an invalid change should have failed");
+        } catch (DataAccessException e) {
+            // expected
+        }
+
+        eventSource.disconnect();
+
+        verify(stream, never()).setFlushedLSN(any(LogSequenceNumber.class));
+    }
+
+    @Test(groups = SMALL)
+    public void testSetupCreatesTheSlotIfItDoesNotExist() throws SQLException {
+        PreparedStatement findStmt = preparedStatement(FIND_SLOT_QUERY);
+        PreparedStatement createStmt = preparedStatement(CREATE_SLOT_QUERY);
+
+        eventSource(true, EventFilter.ALL).setup();
+
+        verify(findStmt).setString(1, SLOT_NAME);
+        verify(createStmt).setString(1, SLOT_NAME);
+        verify(createStmt).executeQuery();
+    }
+
+    @Test(groups = SMALL)
+    public void testSetupKeepsAnExistingSlot() throws SQLException {
+        preparedStatement(FIND_SLOT_QUERY, OUTPUT_PLUGIN);
+        PreparedStatement createStmt = preparedStatement(CREATE_SLOT_QUERY);
+
+        eventSource(true, EventFilter.ALL).setup();
+
+        verify(createStmt, never()).executeQuery();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = ConfigurationException.class)
+    public void testSetupFailsIfTheSlotUsesAnotherPlugin() throws SQLException {
+        preparedStatement(FIND_SLOT_QUERY, "pgoutput");
+
+        eventSource(true, EventFilter.ALL).setup();
+    }
+
+    @Test(groups = SMALL)
+    public void testSetupDoesNothingWithoutAutoConfig() throws SQLException {
+        eventSource(false, EventFilter.ALL).setup();
+
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test(groups = SMALL)
+    public void testCleanupKeepsTheSlotAndDropSlotDropsIt() throws SQLException {
+        PreparedStatement dropStmt = preparedStatement(DROP_SLOT_QUERY);
+        PsqlLogicalEventSource eventSource = eventSource(true, EventFilter.ALL);
+
+        eventSource.cleanup();
+        verify(dropStmt, never()).executeQuery();
+        eventSource.dropSlot();
+
+        verify(dropStmt).setString(1, SLOT_NAME);
+        verify(dropStmt).executeQuery();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalStateException.class)
+    public void testCanNotGetNewEventsBeforeConnecting() {
+        eventSource(false, EventFilter.ALL).getNewEvents();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotInitializeWithAnInvalidSlotName() {
+        new PsqlLogicalEventSource(connectionProvider, replicationConnectionProvider, TABLE_NAME, "Orders-Slot", false,
+                EventFilter.ALL);
+    }
+
+    @Test(groups = SMALL)
+    public void testTheDefaultSlotIsNamedAfterTheTable() {
+        assertEquals(PsqlLogicalEventSource.slotName("sales.\"Order-Items\""), "order_items_reactivesource");
+    }
+
+    @Test(groups = SMALL)
+    public void testTheDefaultSlotNameDoesNotDependOnTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertEquals(PsqlLogicalEventSource.slotName("LINE_ITEMS"), "line_items_reactivesource");
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test(groups = SMALL)
+    public void testTheReplicationUrlAddsTheReplicationProperties() {
+        assertEquals(PsqlLogicalEventSource.replicationUrl("jdbc:postgresql://localhost/test"),
+                "jdbc:postgresql://localhost/test?" + REPLICATION_PROPERTIES);
+        assertEquals(PsqlLogicalEventSource.replicationUrl("jdbc:postgresql://localhost/test?ssl=true"),
+                "jdbc:postgresql://localhost/test?ssl=true&" + REPLICATION_PROPERTIES);
+    }
+
+    private PsqlLogicalEventSource eventSource(boolean autoConfig, EventFilter eventFilter) {
+        return new PsqlLogicalEventSource(connectionProvider, replicationConnectionProvider, TABLE_NAME, SLOT_NAME,
+                autoConfig, eventFilter);
+    }
+
+    private PsqlLogicalEventSource connectedEventSource(EventFilter eventFilter) {
+        PsqlLogicalEventSource eventSource = eventSource(false, eventFilter);
+        eventSource.connect();
+        assertTrue(eventSource.isConnected());
+        return eventSource;
+    }
+
+    /**
+     * Makes the stream return the given messages, received up to the given position, on the next poll.
+     */
+    private void stream(LogSequenceNumber lsn, String... messages) throws SQLException {
+        // the messages after the first one, followed by null
+        ByteBuffer[] next = new ByteBuffer[messages.length];
+        for (int i = 1; i < messages.length; i++) {
+            next[i - 1] = buffer(messages[i]);
+        }
+        when(stream.readPending()).thenReturn(buffer(messages[0]), next);
+        when(stream.getLastReceiveLSN()).thenReturn(lsn);
+    }
+
+    private static ByteBuffer buffer(String message) {
+        return ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private PreparedStatement preparedStatement(String query, String... slotPlugin) throws SQLException {
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(slotPlugin.length > 0, false);
+        if (slotPlugin.length > 0) {
+            when(rs.getString(1)).thenReturn(slotPlugin[0]);
+        }
+        when(stmt.executeQuery()).thenReturn(rs);
+        when(connection.prepareStatement(query)).thenReturn(stmt);
+        return stmt;
+    }
+}
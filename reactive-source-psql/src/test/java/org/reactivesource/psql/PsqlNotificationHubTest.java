@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.psql;
+
+import org.mockito.Mock;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.reactivesource.CaptureSpec;
+import org.reactivesource.ConnectionProvider;
+import org.reactivesource.Event;
+import org.reactivesource.EventFilter;
+import org.reactivesource.EventSource;
+import org.reactivesource.EventType;
+import org.reactivesource.Row;
+import org.reactivesource.exceptions.DataAccessException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.reactivesource.psql.PsqlEventSource.DUMMY_QUERY;
+import static org.reactivesource.psql.PsqlEventSource.REGISTER_STREAM_QUERY;
+import static org.reactivesource.psql.PsqlEventSource.STREAM_NAME_SUFFIX;
+import static org.reactivesource.psql.PsqlEventSource.UNREGISTER_STREAM_QUERY;
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class PsqlNotificationHubTest {
+
+    private static final String ORDERS = "orders";
+    private static final String CUSTOMERS = "customers";
+    private static final String ORDERS_STREAM = ORDERS + STREAM_NAME_SUFFIX;
+    private static final String CUSTOMERS_STREAM = CUSTOMERS + STREAM_NAME_SUFFIX;
+
+    @Mock
+    private ConnectionProvider connectionProvider;
+
+    private Connection tableCheckConnection;
+    private Connection connection;
+    private Statement stmt;
+    private PsqlNotificationHub hub;
+
+    @BeforeMethod(groups = SMALL)
+    public void setUp() throws SQLException {
+        initMocks(this);
+        tableCheckConnection = mock(Connection.class);
+        Statement tableCheckStmt = mock(Statement.class);
+        when(tableCheckConnection.createStatement()).thenReturn(tableCheckStmt);
+        connection = newPgConnection();
+        stmt = connection.createStatement();
+        when(connectionProvider.getConnection()).thenReturn(tableCheckConnection, tableCheckConnection, connection);
+        hub = new PsqlNotificationHub(connectionProvider);
+    }
+
+    @Test(groups = SMALL)
+    public void testEventSourcesOfManyTablesShareOneConnection() {
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        EventSource customers = hub.newEventSource(CUSTOMERS, false);
+
+        orders.connect();
+        customers.connect();
+
+        verify(connectionProvider, times(3)).getConnection();
+        assertTrue(orders.isConnected());
+        assertTrue(customers.isConnected());
+    }
+
+    @Test(groups = SMALL)
+    public void testEventSourcesListenOnTheirStreamsOverTheSharedConnection() throws SQLException {
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        EventSource customers = hub.newEventSource(CUSTOMERS, false);
+        orders.connect();
+        customers.connect();
+        customers.connect();
+
+        verify(stmt).execute(REGISTER_STREAM_QUERY + ORDERS_STREAM);
+        verify(stmt).execute(REGISTER_STREAM_QUERY + CUSTOMERS_STREAM);
+    }
+
+    @Test(groups = SMALL)
+    public void testNotificationsAreRoutedToTheEventSourceOfTheirStream() throws SQLException {
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        EventSource customers = hub.newEventSource(CUSTOMERS, false);
+        orders.connect();
+        customers.connect();
+        notify(connection, notification(CUSTOMERS_STREAM, CUSTOMERS, 1), notification(ORDERS_STREAM, ORDERS, 2),
+                notification(CUSTOMERS_STREAM, CUSTOMERS, 3));
+
+        List<Event<Map<String, Object>>> orderEvents = orders.getNewEvents();
+        List<Event<Map<String, Object>>> customerEvents = customers.getNewEvents();
+
+        assertEquals(orderEvents.size(), 1);
+        assertEquals(orderEvents.get(0).getEntityName(), ORDERS);
+        assertEquals(orderEvents.get(0).getNewEntity().get("id"), "2");
+        assertEquals(customerEvents.size(), 2);
+        assertEquals(customerEvents.get(0).getNewEntity().get("id"), "1");
+        assertEquals(customerEvents.get(1).getNewEntity().get("id"), "3");
+    }
+
+    @Test(groups = SMALL)
+    public void testTheEntitiesOfEveryTableShareTheSchemaOfTheirTable() throws SQLException {
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        EventSource customers = hub.newEventSource(CUSTOMERS, false);
+        orders.connect();
+        customers.connect();
+        PGNotification customer = notification(CUSTOMERS_STREAM, CUSTOMERS, 2);
+        when(customer.getParameter()).thenReturn("{\"eventType\":\"" + EventType.INSERT + "\","
+                + "\"tableName\":\"" + CUSTOMERS + "\","
+                + "\"newEntity\":{\"name\":\"john\",\"email\":\"john@example.com\"},"
+                + "\"oldEntity\":{}}");
+        notify(connection, notification(ORDERS_STREAM, ORDERS, 1), customer, notification(ORDERS_STREAM, ORDERS, 3));
+
+        List<Event<Map<String, Object>>> orderEvents = orders.getNewEvents();
+
+        assertSame(((Row) orderEvents.get(1).getNewEntity()).getSchema(),
+                ((Row) orderEvents.get(0).getNewEntity()).getSchema());
+    }
+
+    @Test(groups = SMALL)
+    public void testPendingEventsAreReturnedWithoutQueryingTheConnection() throws SQLException {
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        EventSource customers = hub.newEventSource(CUSTOMERS, false);
+        orders.connect();
+        customers.connect();
+        notify(connection, notification(ORDERS_STREAM, ORDERS, 1), notification(CUSTOMERS_STREAM, CUSTOMERS, 2));
+
+        orders.getNewEvents();
+        customers.getNewEvents();
+
+        verify(stmt, times(1)).executeQuery(DUMMY_QUERY);
+    }
+
+    @Test(groups = SMALL)
+    public void testTheConnectionIsQueriedOncePerRoundOfPolls() throws SQLException {
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        EventSource customers = hub.newEventSource(CUSTOMERS, false);
+        orders.connect();
+        customers.connect();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(orders.getNewEvents().isEmpty());
+            assertTrue(customers.getNewEvents().isEmpty());
+        }
+
+        verify(stmt, times(3)).executeQuery(DUMMY_QUERY);
+    }
+
+    @Test(groups = SMALL)
+    public void testNotificationsWithInvalidPayloadsAreDropped() throws SQLException {
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        hub.newEventSource(CUSTOMERS, false);
+        orders.connect();
+        PGNotification invalid = notification(ORDERS_STREAM, ORDERS, 1);
+        when(invalid.getParameter()).thenReturn("not json");
+        notify(connection, invalid, notification(ORDERS_STREAM, ORDERS, 2));
+
+        List<Event<Map<String, Object>>> events = orders.getNewEvents();
+
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0).getNewEntity().get("id"), "2");
+    }
+
+    @Test(groups = SMALL)
+    public void testEventSourcesAreDisconnectedWhenReadingTheNotificationsFails() throws SQLException {
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        EventSource customers = hub.newEventSource(CUSTOMERS, false);
+        orders.connect();
+        customers.connect();
+        when(stmt.executeQuery(DUMMY_QUERY)).thenThrow(new SQLException("connection lost"));
+
+        try {
+            orders.getNewEvents();
+            fail("reading the notifications should have failed");
+        } catch (DataAccessException e) {
+            assertFalse(orders.isConnected());
+            assertFalse(customers.isConnected());
+        }
+    }
+
+    @Test(groups = SMALL)
+    public void testNotificationsOfDisconnectedEventSourcesAreDropped() throws SQLException {
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        EventSource customers = hub.newEventSource(CUSTOMERS, false);
+        orders.connect();
+        customers.connect();
+        customers.disconnect();
+        notify(connection, notification(CUSTOMERS_STREAM, CUSTOMERS, 1));
+
+        assertTrue(orders.getNewEvents().isEmpty());
+        verify(stmt).execute(UNREGISTER_STREAM_QUERY + CUSTOMERS_STREAM);
+        assertFalse(customers.isConnected());
+    }
+
+    @Test(groups = SMALL)
+    public void testTheSharedConnectionIsClosedWhenTheLastEventSourceDisconnects() throws SQLException {
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        EventSource customers = hub.newEventSource(CUSTOMERS, false);
+        orders.connect();
+        customers.connect();
+
+        orders.disconnect();
+        verify(connection, never()).close();
+        customers.disconnect();
+        verify(connection).close();
+    }
+
+    @Test(groups = SMALL)
+    public void testReconnectingListensAgainOnTheStreamsOfAllTheEventSources() throws SQLException {
+        Connection newConnection = newPgConnection();
+        Statement newStmt = newConnection.createStatement();
+        when(connectionProvider.getConnection())
+                .thenReturn(tableCheckConnection, tableCheckConnection, connection, newConnection);
+        EventSource orders = hub.newEventSource(ORDERS, false);
+        EventSource customers = hub.newEventSource(CUSTOMERS, false);
+        orders.connect();
+        customers.connect();
+
+        when(connection.isClosed()).thenReturn(true);
+        assertFalse(orders.isConnected());
+        assertFalse(customers.isConnected());
+        orders.connect();
+
+        assertTrue(customers.isConnected());
+        verify(newStmt).execute(REGISTER_STREAM_QUERY + ORDERS_STREAM);
+        verify(newStmt).execute(REGISTER_STREAM_QUERY + CUSTOMERS_STREAM);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotCreateTwoEventSourcesForTheSameStream() {
+        hub.newEventSource(ORDERS, false);
+        hub.newEventSource(ORDERS, true);
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalStateException.class)
+    public void testCanNotGetNewEventsBeforeConnecting() {
+        hub.newEventSource(ORDERS, false).getNewEvents();
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testEventSourcesCanNotCaptureTheChangesPerStatement() {
+        hub.newEventSource(ORDERS, false, EventFilter.ALL, CaptureSpec.ALL.perStatement());
+    }
+
+    @Test(groups = SMALL, expectedExceptions = IllegalArgumentException.class)
+    public void testCanNotInitializeWithNullConnectionProvider() {
+        new PsqlNotificationHub(null);
+    }
+
+    private static Connection newPgConnection() throws SQLException {
+        PGConnection pgConnection = mock(PGConnection.class, withSettings().extraInterfaces(Connection.class));
+        Connection connection = (Connection) pgConnection;
+        Statement stmt = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(stmt);
+        when(connection.isClosed()).thenReturn(false);
+        return connection;
+    }
+
+    private static void notify(Connection connection, PGNotification... notifications) throws SQLException {
+        when(((PGConnection) connection).getNotifications()).thenReturn(notifications).thenReturn(null);
+    }
+
+    private static PGNotification notification(String streamName, String tableName, int id) {
+        PGNotification notification = mock(PGNotification.class);
+        when(notification.getName()).thenReturn(streamName);
+        when(notification.getParameter()).thenReturn("{\"eventType\":\"" + EventType.INSERT + "\","
+                + "\"tableName\":\"" + tableName + "\","
+                + "\"newEntity\":{\"id\":\"" + id + "\"},"
+                + "\"oldEntity\":{}}");
+        return notification;
+    }
+}
@@ -6,8 +6,16 @@
 
 package org.reactivesource.psql;
 
+import org.reactivesource.CaptureSpec;
+import org.reactivesource.EventFilter;
+import org.reactivesource.EventType;
 import org.testng.annotations.Test;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+
+import static org.reactivesource.ColumnCondition.Operator.*;
 import static org.reactivesource.testing.TestConstants.*;
 import static org.testng.Assert.*;
 
@@ -22,6 +30,254 @@ public class PsqlQueryGeneratorTest {
         assertEquals(query, expected);
     }
 
+    @Test(groups = SMALL)
+    public void testGenerateCreateTriggerPushesTheFilterDownIntoTheTrigger() {
+        EventFilter filter = EventFilter.ALL.withEventTypes(EventType.INSERT, EventType.UPDATE)
+                .withCondition("status", EQUALS, "it's")
+                .withCondition("amount", GREATER_THAN, 10)
+                .withCondition("deleted", IS_NULL, null);
+
+        String query = PsqlQueryGenerator.generateCreateTriggerQuery("trigger_name", "table_name", "proc_name",
+                "stream_name", filter);
+
+        assertEquals(query, "CREATE TRIGGER trigger_name AFTER INSERT OR UPDATE ON table_name FOR EACH ROW " +
+                "WHEN (NEW.\"status\" = 'it''s' AND NEW.\"amount\" > 10 AND NEW.\"deleted\" IS NULL) " +
+                "EXECUTE PROCEDURE proc_name('stream_name')");
+        assertTrue(PsqlQueryGenerator.canPushDownConditions(filter));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateCreateTriggerFoldsTheColumnNamesToLowerCase() {
+        EventFilter filter = EventFilter.ALL.withEventTypes(EventType.INSERT)
+                .withCondition("STATUS", EQUALS, "SHIPPED");
+
+        String query = PsqlQueryGenerator.generateCreateTriggerQuery("trigger_name", "table_name", "proc_name",
+                "stream_name", filter);
+
+        assertTrue(query.contains("WHEN (NEW.\"status\" = 'SHIPPED')"));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateCreateTriggerEvaluatesDeleteConditionsOnTheOldRow() {
+        EventFilter filter = EventFilter.ALL.withEventTypes(EventType.DELETE).withCondition("active", EQUALS, true);
+
+        String query = PsqlQueryGenerator.generateCreateTriggerQuery("trigger_name", "table_name", "proc_name",
+                "stream_name", filter);
+
+        assertEquals(query, "CREATE TRIGGER trigger_name AFTER DELETE ON table_name FOR EACH ROW " +
+                "WHEN (OLD.\"active\" = TRUE) EXECUTE PROCEDURE proc_name('stream_name')");
+    }
+
+    @Test(groups = SMALL)
+    public void testConditionsAreNotPushedDownIfTheTriggerFiresForDeleteAndOtherEvents() {
+        EventFilter filter = EventFilter.ALL.withEventTypes(EventType.INSERT, EventType.DELETE)
+                .withCondition("amount", GREATER_THAN, 10);
+
+        String query = PsqlQueryGenerator.generateCreateTriggerQuery("trigger_name", "table_name", "proc_name",
+                "stream_name", filter);
+
+        assertEquals(query, "CREATE TRIGGER trigger_name AFTER INSERT OR DELETE ON table_name FOR EACH ROW " +
+                "EXECUTE PROCEDURE proc_name('stream_name')");
+        assertFalse(PsqlQueryGenerator.canPushDownConditions(filter));
+    }
+
+    @Test(groups = SMALL)
+    public void testNameSuffixIsEmptyOnlyForTheDefaultConfiguration() {
+        EventFilter inserts = EventFilter.ALL.withEventTypes(EventType.INSERT);
+        EventFilter updates = EventFilter.ALL.withEventTypes(EventType.UPDATE);
+
+        assertEquals(PsqlQueryGenerator.generateNameSuffix(EventFilter.ALL, CaptureSpec.ALL), "");
+        assertNotEquals(PsqlQueryGenerator.generateNameSuffix(inserts, CaptureSpec.ALL), "");
+        assertNotEquals(PsqlQueryGenerator.generateNameSuffix(EventFilter.ALL, CaptureSpec.ALL.withoutOldImage()), "");
+        assertNotEquals(PsqlQueryGenerator.generateNameSuffix(inserts, CaptureSpec.ALL),
+                PsqlQueryGenerator.generateNameSuffix(updates, CaptureSpec.ALL));
+    }
+
+    @Test(groups = SMALL)
+    public void testTriggerFiresForTheEventTypesOfBothTheFilterAndTheSpec() {
+        EventFilter filter = EventFilter.ALL.withEventTypes(EventType.INSERT, EventType.UPDATE);
+        CaptureSpec spec = CaptureSpec.ALL.withEventTypes(EventType.UPDATE, EventType.DELETE);
+
+        assertEquals(PsqlQueryGenerator.generateTriggerFilter(filter, spec).getEventTypes(),
+                EnumSet.of(EventType.UPDATE));
+        assertSame(PsqlQueryGenerator.generateTriggerFilter(filter, CaptureSpec.ALL), filter);
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateNotifyFunctionOnlySendsTheCapturedColumns() {
+        String query = PsqlQueryGenerator.generateCreateNotifyFunctionQuery("fn",
+                CaptureSpec.ALL.withColumns("id", "status"));
+
+        assertTrue(query.startsWith("CREATE OR REPLACE FUNCTION fn() RETURNS trigger AS $$"));
+        assertTrue(query.contains("newDataJson := (SELECT row_to_json(r, true) FROM (SELECT NEW.\"id\", " +
+                "NEW.\"status\") r);"));
+        assertTrue(query.contains("oldDataJson := (SELECT row_to_json(r, true) FROM (SELECT OLD.\"id\", " +
+                "OLD.\"status\") r);"));
+        assertFalse(query.contains("row_to_json(NEW"));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateNotifyFunctionWithoutOldImageSendsEmptyOldEntityForUpdates() {
+        String query = PsqlQueryGenerator.generateCreateNotifyFunctionQuery("fn", CaptureSpec.ALL.withoutOldImage());
+
+        assertTrue(query.contains("ELSIF (TG_OP = 'UPDATE') THEN\n    oldDataJson := '{}';\n" +
+                "    newDataJson := row_to_json(NEW, true);"));
+        assertTrue(query.contains("IF (TG_OP = 'DELETE') THEN\n    oldDataJson := row_to_json(OLD, true);"));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateNotifyFunctionWithClaimCheckWritesLargeImagesToTheClaimTable() {
+        String query = PsqlQueryGenerator.generateCreateNotifyFunctionQuery("fn", CaptureSpec.ALL,
+                ClaimCheck.above(4000));
+
+        assertTrue(query.contains("IF (octet_length(newDataJson) + octet_length(oldDataJson) > 4000) THEN"));
+        assertTrue(query.contains("INSERT INTO " + PsqlQueryGenerator.CLAIM_TABLE_NAME +
+                " (new_entity, old_entity) VALUES (newDataJson, oldDataJson)"));
+        assertTrue(query.contains("header || '\"claimId\":' || claimId || '}'"));
+        assertTrue(query.contains("'\"newEntity\":' || newDataJson"));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateNotifyFunctionWithoutClaimCheckDoesntUseTheClaimTable() {
+        String query = PsqlQueryGenerator.generateCreateNotifyFunctionQuery("fn", CaptureSpec.ALL, ClaimCheck.NEVER);
+
+        assertEquals(query, PsqlQueryGenerator.generateCreateNotifyFunctionQuery("fn", CaptureSpec.ALL));
+        assertFalse(query.contains(PsqlQueryGenerator.CLAIM_TABLE_NAME));
+    }
+
+    @Test(groups = SMALL)
+    public void testNameSuffixIsATruncatedDigestOfTheDefinition() {
+        String suffix = PsqlQueryGenerator.generateNameSuffix(EventFilter.ALL, CaptureSpec.ALL.withoutOldImage());
+
+        assertTrue(suffix.matches("_[0-9a-f]{16}"), suffix);
+        assertEquals(PsqlQueryGenerator.generateNameSuffix(EventFilter.ALL, CaptureSpec.ALL.withoutOldImage()), suffix);
+    }
+
+    @Test(groups = SMALL)
+    public void testNameSuffixDistinguishesTheClaimChecks() {
+        String never = PsqlQueryGenerator.generateNameSuffix(EventFilter.ALL, CaptureSpec.ALL, ClaimCheck.NEVER);
+        String always = PsqlQueryGenerator.generateNameSuffix(EventFilter.ALL, CaptureSpec.ALL, ClaimCheck.ALWAYS);
+        String above = PsqlQueryGenerator.generateNameSuffix(EventFilter.ALL, CaptureSpec.ALL,
+                ClaimCheck.above(4000));
+
+        assertEquals(never, "");
+        assertFalse(always.isEmpty());
+        assertNotEquals(always, above);
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateNotifyFunctionForChangedColumnsSendsTheKeyAndTheChangesOfUpdates() {
+        String query = PsqlQueryGenerator.generateCreateNotifyFunctionQuery("fn",
+                CaptureSpec.ALL.withChangedColumnsOnly());
+
+        assertTrue(query.contains("oldRow := to_jsonb(OLD);\n    newRow := to_jsonb(NEW);"));
+        assertTrue(query.contains("IF (oldRow = newRow) THEN\n      RETURN NULL;"));
+        assertTrue(query.contains("FROM jsonb_each(newRow) n JOIN jsonb_each(oldRow) o ON o.key = n.key"));
+        assertTrue(query.contains("(oldRow -> a.attname::text)"));
+        assertTrue(query.contains("WHERE i.indrelid = TG_RELID AND i.indisprimary"));
+        assertTrue(query.contains("'\"changes\":' || changesJson"));
+        assertTrue(query.contains("newDataJson := row_to_json(NEW);"));
+        assertFalse(query.contains(", true)"));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateNotifyFunctionForChangedCapturedColumnsReadsTheKeyFromTheWholeRow() {
+        String query = PsqlQueryGenerator.generateCreateNotifyFunctionQuery("fn",
+                CaptureSpec.ALL.withColumns("status").withChangedColumnsOnly());
+
+        assertTrue(query.contains("oldRow := (SELECT to_jsonb(r) FROM (SELECT OLD.\"status\") r);"));
+        assertTrue(query.contains("(to_jsonb(OLD) -> a.attname::text)"));
+        assertTrue(query.contains("oldDataJson := (SELECT row_to_json(r) FROM (SELECT OLD.\"status\") r);"));
+    }
+
+    @Test(groups = SMALL)
+    public void testNameSuffixDistinguishesTheSpecsCapturingTheChangedColumnsOnly() {
+        String changedColumnsOnly = PsqlQueryGenerator.generateNameSuffix(EventFilter.ALL,
+                CaptureSpec.ALL.withChangedColumnsOnly());
+
+        assertFalse(changedColumnsOnly.isEmpty());
+        assertNotEquals(changedColumnsOnly, PsqlQueryGenerator.generateNameSuffix(EventFilter.ALL,
+                CaptureSpec.ALL.withColumns("status")));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateStatementTriggersReferenceTheTransitionTablesOfTheirEventType() {
+        Map<String, String> queries = PsqlQueryGenerator.generateCreateStatementTriggerQueries("trigger_name",
+                "table_name", "proc_name", "stream_name", EventFilter.ALL, CaptureSpec.ALL.perStatement());
+
+        assertEquals(queries.size(), 3);
+        assertEquals(queries.get("trigger_name_insert"), "CREATE TRIGGER trigger_name_insert AFTER INSERT ON " +
+                "table_name REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE PROCEDURE " +
+                "proc_name('stream_name')");
+        assertTrue(queries.get("trigger_name_update").contains("REFERENCING OLD TABLE AS old_rows NEW TABLE AS " +
+                "new_rows FOR EACH STATEMENT"));
+        assertTrue(queries.get("trigger_name_delete").contains("REFERENCING OLD TABLE AS old_rows FOR EACH " +
+                "STATEMENT"));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateStatementTriggersOnlyForTheEventTypesOfTheFilter() {
+        Map<String, String> queries = PsqlQueryGenerator.generateCreateStatementTriggerQueries("trigger_name",
+                "table_name", "proc_name", "stream_name", EventFilter.ALL.withEventTypes(EventType.UPDATE),
+                CaptureSpec.ALL.perStatement().withoutOldImage());
+
+        assertEquals(queries.keySet(), Collections.singleton("trigger_name_update"));
+        assertTrue(queries.get("trigger_name_update").contains("REFERENCING NEW TABLE AS new_rows FOR EACH"));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateStatementFunctionSendsTheRowsOfTheStatementInOneNotification() {
+        String query = PsqlQueryGenerator.generateCreateNotifyFunctionQuery("fn", EventFilter.ALL,
+                CaptureSpec.ALL.perStatement(), ClaimCheck.NEVER);
+
+        assertTrue(query.contains("SELECT '[' || string_agg((row_to_json(o))::text, ',') || ']' INTO oldDataJson " +
+                "FROM old_rows o;"));
+        assertTrue(query.contains("SELECT '[' || string_agg((row_to_json(n))::text, ',') || ']' INTO newDataJson " +
+                "FROM new_rows n;"));
+        assertTrue(query.contains("EXECUTE format('SELECT ''['' || string_agg(CASE WHEN n.%1$I IS NULL THEN ''{}'' " +
+                "ELSE (row_to_json(n))::text END, '','') || '']'', "));
+        assertTrue(query.contains("FROM new_rows n FULL JOIN old_rows o ON %2$s', keyColumn, keyCondition)"));
+        assertTrue(query.contains("format('n.%I = o.%I', a.attname, a.attname)"));
+        assertTrue(query.contains("IF (octet_length(newDataJson) + octet_length(oldDataJson) > " +
+                PsqlQueryGenerator.STATEMENT_CLAIM_THRESHOLD_BYTES + ") THEN"));
+        assertTrue(query.contains("'\"newEntities\":' || newDataJson"));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateStatementFunctionSelectsTheRowsMatchingTheFilter() {
+        EventFilter filter = EventFilter.ALL.withCondition("status", EQUALS, "100%");
+
+        String query = PsqlQueryGenerator.generateCreateNotifyFunctionQuery("fn", filter,
+                CaptureSpec.ALL.perStatement(), ClaimCheck.above(4000));
+
+        assertTrue(query.contains("FROM old_rows o WHERE o.\"status\" = '100%';"));
+        assertTrue(query.contains("FROM new_rows n WHERE n.\"status\" = '100%';"));
+        assertTrue(query.contains("ON %2$s WHERE CASE WHEN n.%1$I IS NULL THEN (o.\"status\" = ''100%%'') " +
+                "ELSE (n.\"status\" = ''100%%'') END', keyColumn, keyCondition)"));
+        assertTrue(query.contains("> 4000) THEN"));
+    }
+
+    @Test(groups = SMALL)
+    public void testGenerateStatementFunctionSelectsTheOldImagesOfTheRowsWhoseKeyChangedByTheFilter() {
+        EventFilter filter = EventFilter.ALL.withCondition("status", EQUALS, "PAID")
+                .withCondition("amount", GREATER_THAN, 10);
+
+        String query = PsqlQueryGenerator.generateCreateNotifyFunctionQuery("fn", filter,
+                CaptureSpec.ALL.perStatement(), ClaimCheck.NEVER);
+
+        // the old half of a row whose key changed has no new image, so its old image is checked instead
+        assertTrue(query.contains("FROM new_rows n FULL JOIN old_rows o ON %2$s WHERE CASE WHEN n.%1$I IS NULL " +
+                "THEN (o.\"status\" = ''PAID'' AND o.\"amount\" > 10) " +
+                "ELSE (n.\"status\" = ''PAID'' AND n.\"amount\" > 10) END', keyColumn, keyCondition)"));
+    }
+
+    @Test(groups = SMALL)
+    public void testReadClaimsQueryPurgesTheExpiredClaims() {
+        assertTrue(PsqlQueryGenerator.READ_CLAIMS_QUERY.contains("DELETE FROM " + PsqlQueryGenerator.CLAIM_TABLE_NAME +
+                " WHERE created_at < clock_timestamp() - interval '" + ClaimCheck.RETENTION + "'"));
+        assertTrue(PsqlQueryGenerator.READ_CLAIMS_QUERY.endsWith("WHERE claim_id = ANY(?)"));
+    }
+
     @Test(groups = SMALL)
     public void testGenerateDropTriggerCreatesTheCorrectQuery() {
         String query = PsqlQueryGenerator.generateDropTriggerQuery("trigger_name", "table_name");
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2013-2014 eBay Software Foundation
+ *
+ * See the file license.txt for copying permission.
+ ******************************************************************************/
+
+package org.reactivesource.psql;
+
+import org.reactivesource.Event;
+import org.reactivesource.EventType;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.reactivesource.testing.TestConstants.SMALL;
+import static org.testng.Assert.*;
+
+public class TestDecodingParserTest {
+
+    private TestDecodingParser parser = new TestDecodingParser("orders");
+
+    @Test(groups = SMALL)
+    public void testInsertIsParsedToTheNewEntity() {
+        Event<Map<String, Object>> event = parser.parseChange(
+                "table public.orders: INSERT: id[integer]:1 status[character varying]:'NEW' paid[boolean]:false");
+
+        assertEquals(event.getEventType(), EventType.INSERT);
+        assertEquals(event.getEntityName(), "orders");
+        assertEquals(event.getNewEntity().get("id"), 1);
+        assertEquals(event.getNewEntity().get("status"), "NEW");
+        assertEquals(event.getNewEntity().get("paid"), false);
+        assertTrue(event.getOldEntity().isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testColumnsKeepTheOrderOfTheTable() {
+        Event<Map<String, Object>> event = parser.parseChange(
+                "table public.orders: INSERT: id[integer]:1 status[text]:'NEW' note[text]:null");
+
+        assertEquals(event.getNewEntity().keySet().toArray(), new Object[]{"id", "status", "note"});
+        assertNull(event.getNewEntity().get("note"));
+    }
+
+    @Test(groups = SMALL)
+    public void testNumbersAreParsedLikeTheJsonPayloads() {
+        Event<Map<String, Object>> event = parser.parseChange("table public.orders: INSERT: id[bigint]:5000000000 "
+                + "quantity[smallint]:-3 price[numeric(10,2)]:12.50 ratio[double precision]:NaN "
+                + "big[numeric]:123456789012345678901234567890");
+
+        assertEquals(event.getNewEntity().get("id"), 5000000000L);
+        assertEquals(event.getNewEntity().get("quantity"), -3);
+        assertEquals(event.getNewEntity().get("price"), 12.5);
+        assertEquals(event.getNewEntity().get("ratio"), Double.NaN);
+        assertEquals(event.getNewEntity().get("big").toString(), "123456789012345678901234567890");
+    }
+
+    @Test(groups = SMALL)
+    public void testQuotedValuesAndIdentifiersAreUnquoted() {
+        Event<Map<String, Object>> event = parser.parseChange("table public.orders: INSERT: "
+                + "\"Customer Name\"[text]:'O''Brien: ''new-tuple:''' tags[text[]]:'{a,b}' "
+                + "created[timestamp without time zone]:'2014-05-01 12:00:00' flags[bit(3)]:B'101'");
+
+        assertEquals(event.getNewEntity().get("Customer Name"), "O'Brien: 'new-tuple:'");
+        assertEquals(event.getNewEntity().get("tags"), "{a,b}");
+        assertEquals(event.getNewEntity().get("created"), "2014-05-01 12:00:00");
+        assertEquals(event.getNewEntity().get("flags"), "101");
+    }
+
+    @Test(groups = SMALL)
+    public void testUpdateWithoutOldKeyHasAnEmptyOldEntity() {
+        Event<Map<String, Object>> event = parser.parseChange(
+                "table public.orders: UPDATE: id[integer]:1 status[text]:'PAID'");
+
+        assertEquals(event.getEventType(), EventType.UPDATE);
+        assertEquals(event.getNewEntity().get("status"), "PAID");
+        assertTrue(event.getOldEntity().isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testUpdateWithOldKeyHasBothEntities() {
+        Event<Map<String, Object>> event = parser.parseChange("table public.orders: UPDATE: "
+                + "old-key: id[integer]:1 status[text]:'NEW' new-tuple: id[integer]:2 status[text]:'PAID'");
+
+        assertEquals(event.getOldEntity().get("id"), 1);
+        assertEquals(event.getOldEntity().get("status"), "NEW");
+        assertEquals(event.getNewEntity().get("id"), 2);
+        assertEquals(event.getNewEntity().get("status"), "PAID");
+    }
+
+    @Test(groups = SMALL)
+    public void testUnchangedToastedColumnsAreLeftOut() {
+        Event<Map<String, Object>> event = parser.parseChange(
+                "table public.orders: UPDATE: id[integer]:1 document[text]:unchanged-toast-datum");
+
+        assertEquals(event.getNewEntity().keySet().toArray(), new Object[]{"id"});
+    }
+
+    @Test(groups = SMALL)
+    public void testDeleteIsParsedToTheOldEntity() {
+        Event<Map<String, Object>> event = parser.parseChange("table public.orders: DELETE: id[integer]:1");
+
+        assertEquals(event.getEventType(), EventType.DELETE);
+        assertTrue(event.getNewEntity().isEmpty());
+        assertEquals(event.getOldEntity().get("id"), 1);
+    }
+
+    @Test(groups = SMALL)
+    public void testDeleteWithoutReplicaIdentityHasAnEmptyOldEntity() {
+        Event<Map<String, Object>> event = parser.parseChange("table public.orders: DELETE: (no-tuple-data)");
+
+        assertTrue(event.getOldEntity().isEmpty());
+    }
+
+    @Test(groups = SMALL)
+    public void testOtherMessagesAreSkipped() {
+        for (String message : Arrays.asList("BEGIN", "COMMIT (at 2014-05-01 12:00:00+00)",
+                "table public.customers: INSERT: id[integer]:1",
+                "table public.orders_archive: INSERT: id[integer]:1",
+                "table public.orders, public.customers: TRUNCATE: (no-flags)",
+                "table public.orders: TRUNCATE: (no-flags)")) {
+            assertNull(parser.parseChange(message), message);
+        }
+    }
+
+    @Test(groups = SMALL)
+    public void testQualifiedTableNamesOnlyMatchTheirSchema() {
+        TestDecodingParser qualified = new TestDecodingParser("sales.\"Orders\"");
+
+        assertNull(qualified.parseChange("table public.\"Orders\": INSERT: id[integer]:1"));
+        assertNull(qualified.parseChange("table sales.orders: INSERT: id[integer]:1"));
+        assertEquals(qualified.parseChange("table sales.\"Orders\": INSERT: id[integer]:1").getEntityName(), "Orders");
+    }
+
+    @Test(groups = SMALL)
+    public void testUnquotedIdentifiersAreFoldedIndependentlyOfTheDefaultLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            TestDecodingParser lineItems = new TestDecodingParser("LINE_ITEMS");
+
+            assertEquals(lineItems.parseChange("table public.line_items: INSERT: ID[integer]:1").getNewEntity()
+                    .get("id"), 1);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test(groups = SMALL, expectedExceptions = InvalidPayloadException.class)
+    public void testMalformedChangesThrowInvalidPayloadException() {
+        parser.parseChange("table public.orders: INSERT: id[integer]:1 status[text]:'NEW");
+    }
+
+    @Test(groups = SMALL)
+    public void testCommitTimeIsParsedToMicroseconds() {
+        assertEquals(TestDecodingParser.parseCommitTime("COMMIT (at 2014-05-13 16:53:20.123456+00)"),
+                1400000000123456L);
+        assertEquals(TestDecodingParser.parseCommitTime("COMMIT (at 2014-05-13 18:53:20.1+02)"), 1400000000100000L);
+        assertEquals(TestDecodingParser.parseCommitTime("COMMIT (at 2014-05-13 11:23:20-05:30)"), 1400000000000000L);
+    }
+
+    @Test(groups = SMALL)
+    public void testCommitWithoutTimeHasAnUnknownTime() {
+        assertEquals(TestDecodingParser.parseCommitTime("COMMIT"), Event.UNKNOWN_CHANGE_TIMESTAMP);
+        assertEquals(TestDecodingParser.parseCommitTime("COMMIT (at yesterday)"), Event.UNKNOWN_CHANGE_TIMESTAMP);
+    }
+}